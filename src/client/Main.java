@@ -2,7 +2,10 @@ package client;
 
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
+import datamodel.AnomalyListModel;
+import datamodel.EpochTimeModel;
 import datamodel.IResult;
 import datamodel.MeasurementRecord;
 import datamodel.History;
@@ -27,6 +30,9 @@ public class Main {
      * factory -> the factory that generates mainEngines
      * engine -> an Engine object through which we will call our back end functions
      * history -> a model that is used for saving reports in a database (in memory)
+     *
+     * ANOMALY_THRESHOLD -> the score above which a reading is flagged when anomalies are looked for
+     * MAX_ANOMALIES -> the most anomalies kept and shown for an aggregation
      */
     private static boolean hasHeaderLine = false;
     private static ArrayList<MeasurementRecord> objCollection = null; /* The contents of objCollection */
@@ -40,6 +46,9 @@ public class Main {
     private static final Engine engine = factory.createMainEngine("MainEngine");
     private static final History history = new History();
 
+    private static final double ANOMALY_THRESHOLD = 4.0;
+    private static final int MAX_ANOMALIES = 20;
+
     /**
      * @message manageExit
      * @brief Manages the return types and ensures a safe exit
@@ -51,6 +60,9 @@ public class Main {
             /* Continue with the menu loop */
             return returnType;
 
+        /* Wait for the reports still being written */
+        engine.shutdownAsync();
+        history.close();
         Main.s.close();
         return returnType;
     }
@@ -107,6 +119,12 @@ public class Main {
             String aggregatorType = scanInput("Input the unit type to which I will aggregate data into (`season`, `month`, `dayofweek`, `periodofday`): ");
             String aggFunction = scanInput("Input the type of function to use for aggregating the measurements (`avg`, `sum`): ");
             description = scanInput("Give a small description of the results: ");
+            String anomalyMethod = scanInput("Flag abnormal readings while aggregating (`zscore`, `mad`, or empty for no): ");
+
+            if(anomalyMethod.equals(""))
+                engine.disableAnomalyDetection();
+            else if(engine.enableAnomalyDetection(anomalyMethod, ANOMALY_THRESHOLD, MAX_ANOMALIES) == -1)
+                return manageExit(0);
 
             measurementsResult = engine.aggregateByTimeUnit(objCollection, aggregatorType, aggFunction, description);
 
@@ -116,10 +134,27 @@ public class Main {
             }
 
             System.out.println("The data was measured correctly");
+            printAnomalies(measurementsResult.getAnomalies());
             return manageExit(0);
         }
     }
 
+    /**
+     * @message printAnomalies
+     * @brief Prints the readings flagged while aggregating, in time order
+     * @param anomalies the flagged readings, or null if they were not looked for
+     */
+    private static void printAnomalies(AnomalyListModel anomalies) {
+        if(anomalies == null)
+            return;
+
+        System.out.println(anomalies.getTotalFlagged() + " readings were flagged as abnormal");
+        for(int anomaly : anomalies.orderByTime())
+            System.out.println("\t" + EpochTimeModel.format(anomalies.getEpochMinute(anomaly), true) + "\tseries " + anomalies.getSeriesId(anomaly)
+                + "\t" + anomalies.getMeter(anomaly) + "\t" + anomalies.getKindName(anomaly) + "\t" + anomalies.getValue(anomaly)
+                + "\t(score " + anomalies.getScore(anomaly) + ")");
+    }
+
     /**
      * @message reportResultsInFile
      * @brief Gets the inputs and sends them UNCHECKED for viability into the engine checkers
@@ -128,16 +163,21 @@ public class Main {
     private static int reportResultsInFile() {
         while(true) {
             String reportFileName = scanInput("Input a file path to save the report: "); /* Grab the file path */
-            String exportType = scanInput("Choose the export type (html, md, txt): ");
+            String exportType = scanInput("Choose the export type (html, md, txt, csv, jsonl, bin): ");
 
-            if(engine.reportResultInFile(measurementsResult, exportType, reportFileName) == -1) {
-                System.out.println("The report could not be created\n");
-                return manageExit(0);
-            }
-            System.out.println("Successfully created a report of the aggregated results");
+            /* The report is written in the background, so the menu is back at once */
+            String reportDescription = description;
+            engine.reportResultInFileAsync(measurementsResult, exportType, reportFileName)
+                .thenCompose(outcome -> {
+                    if(outcome == -1) {
+                        System.out.println("\nThe report " + reportFileName + " could not be created");
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    System.out.println("\nSuccessfully created the report " + reportFileName);
 
-            /* Already performed bounds checks */
-            engine.addToHistory(description, reportFileName, exportType, history);
+                    /* Already performed bounds checks */
+                    return engine.addToHistoryAsync(reportDescription, reportFileName, exportType, history);
+                });
             return manageExit(0);
         }
     }
@@ -148,7 +188,31 @@ public class Main {
      * @return the return type
      */
     private static int listReports() {
-        engine.listReports(history);
+        /* Show a page at a time, reading only that page from the history */
+        int page = 1;
+        while(engine.listReports(history, page, History.DEFAULT_PAGE_SIZE) == 0
+                && (long)page * History.DEFAULT_PAGE_SIZE < history.getHistorySize()) {
+            if(!scanInput("\nPress enter for the next page or q to return: ").equals(""))
+                break;
+            page++;
+        }
+        return manageExit(0);
+    }
+
+    /**
+     * @message searchReports
+     * @brief Gets the search filters and lists the matching reports
+     * @return the return type
+     */
+    private static int searchReports() {
+        String text = scanInput("Description terms (empty for any): ");
+        String exportType = scanInput("Export type (empty for any): ");
+        String pathPrefix = scanInput("Output path prefix (empty for any): ");
+        String from = scanInput("Created from dd/mm/yyyy [hh:mm] (empty for any): ");
+        String to = scanInput("Created before dd/mm/yyyy [hh:mm] (empty for any): ");
+
+        if(engine.searchReports(history, text, exportType, pathPrefix, from, to, History.DEFAULT_PAGE_SIZE) == -1)
+            System.out.println("The report history could not be searched");
         return manageExit(0);
     }
 
@@ -162,7 +226,8 @@ public class Main {
         System.out.println("2) Get aggregate measures.");
         System.out.println("3) Craft a report.");
         System.out.println("4) View the report history.");
-        System.out.println("5) Exit.");
+        System.out.println("5) Search the report history.");
+        System.out.println("6) Exit.");
         System.out.print("Choose: ");
 
         String arg = s.nextLine();
@@ -176,7 +241,9 @@ public class Main {
                 return reportResultsInFile();
             case "4": /* List the report history */
                 return listReports();
-            case "5": /* Exit the program */
+            case "5": /* Search the report history */
+                return searchReports();
+            case "6": /* Exit the program */
                 System.out.println("Goodbye.");
                 return manageExit(1);
             case "DEBUG MODE": /* TODO DEBUG ONLY: RUN A FULL TEST OF THE PROGRAM */
@@ -189,6 +256,8 @@ public class Main {
 
     /* main */
     public static void main(String[] args) {
+        /* Drop the reports whose files were deleted from the history, in the background */
+        engine.startHistoryMaintenance(history, History.MAINTENANCE_PERIOD_MILLIS);
         while(mainLoop() == 0);
     }
 }
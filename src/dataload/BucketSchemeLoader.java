@@ -0,0 +1,281 @@
+package dataload;
+
+import datamodel.BucketSchemeModel;
+import datamodel.FileHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @class BucketSchemeLoader
+ * @brief Reads user defined bucket schemes from a config file and compiles each one into a lookup table.
+ * 			The file is a list of lines, '#' starts a comment:
+ * 				scheme tariff
+ * 				bucket PEAK days=MON-FRI hours=17:00-21:00
+ * 				bucket SHOULDER days=MON-FRI hours=07:00-17:00
+ * 				bucket OFFPEAK
+ * 				scheme quarterhour
+ * 				slots 15
+ * 			A bucket line may restrict `days` (MON-SUN ranges or lists), `hours` (HH:MM-HH:MM, end excluded, may wrap midnight)
+ * 			and `months` (1-12 ranges or lists). The first bucket line that matches a minute wins.
+ * 			A `slots N` line adds one bucket for every N minutes of the day, named after the slot start
+ */
+public class BucketSchemeLoader {
+	/**
+	 * DAY_NAMES -> the names accepted for days of week, in the Monday first order of the lookup tables
+	 *
+	 * schemes -> the compiled schemes read so far, by name
+	 * currentName -> the name of the scheme whose lines are being read
+	 * rules -> the bucket rules of the current scheme, in match order
+	 */
+	private static final String[] DAY_NAMES = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+
+	private HashMap<String, BucketSchemeModel> schemes;
+	private String currentName;
+	private ArrayList<Rule> rules;
+
+	/**
+	 * @class Rule
+	 * @brief A single bucket line of a scheme
+	 */
+	private static class Rule {
+		String bucket;
+		boolean[] days = filled(7);
+		boolean[] months = filled(12);
+		int startMinute = 0;
+		int endMinute = 24 * 60;
+		boolean usesMonths = false;
+
+		private static boolean[] filled(int size) {
+			boolean[] flags = new boolean[size];
+			Arrays.fill(flags, true);
+			return flags;
+		}
+
+		boolean matches(int month, int dayOfWeek, int minuteOfDay) {
+			if(!months[month - 1] || !days[dayOfWeek])
+				return false;
+			if(startMinute <= endMinute)
+				return minuteOfDay >= startMinute && minuteOfDay < endMinute;
+			/* The window wraps around midnight */
+			return minuteOfDay >= startMinute || minuteOfDay < endMinute;
+		}
+	}
+
+	/**
+	 * @message load
+	 * @brief Reads and compiles all the schemes of a config file
+	 * @param filename the path of the config file
+	 * @return the compiled schemes by name, or null if the file could not be read or has an error
+	 */
+	public HashMap<String, BucketSchemeModel> load(String filename) {
+		schemes = new HashMap<>();
+		currentName = null;
+		rules = new ArrayList<>();
+
+		FileHandler fileHandler = new FileHandler(filename);
+		if(fileHandler.createReaderFD() == -1)
+			return null;
+
+		int lineNumber = 0;
+		while(true) {
+			String line = fileHandler.readLineFromFile();
+			if(line == null)
+				break;
+			lineNumber++;
+
+			if(parseLine(line.trim()) == -1) {
+				System.out.println("The bucket scheme file has an error at line " + lineNumber + ": " + line);
+				fileHandler.closeFD();
+				return null;
+			}
+		}
+		fileHandler.closeFD();
+
+		finishScheme();
+		return schemes;
+	}
+
+	/**
+	 * @message parseLine
+	 * @brief Parses a single line of the config file
+	 * @param line the trimmed line
+	 * @return the return type of the function
+	 */
+	private int parseLine(String line) {
+		if(line.isEmpty() || line.startsWith("#"))
+			return 0;
+
+		String[] items = line.split("\\s+");
+		switch(items[0]) {
+			case "scheme":
+				if(items.length != 2)
+					return -1;
+				finishScheme();
+				currentName = items[1];
+				return 0;
+			case "bucket":
+				if(currentName == null || items.length < 2)
+					return -1;
+				return parseBucket(items);
+			case "slots":
+				if(currentName == null || items.length != 2)
+					return -1;
+				return parseSlots(items[1]);
+		}
+		return -1;
+	}
+
+	/**
+	 * @message parseBucket
+	 * @brief Parses a bucket line into a rule
+	 * @param items the whitespace separated items of the line
+	 * @return the return type of the function
+	 */
+	private int parseBucket(String[] items) {
+		Rule rule = new Rule();
+		rule.bucket = items[1];
+
+		try {
+			for(int i = 2; i < items.length; i++) {
+				String[] condition = items[i].split("=");
+				switch(condition[0]) {
+					case "days":
+						rule.days = parseSet(condition[1], 7, true);
+						break;
+					case "months":
+						rule.months = parseSet(condition[1], 12, false);
+						rule.usesMonths = true;
+						break;
+					case "hours":
+						String[] window = condition[1].split("-");
+						rule.startMinute = parseMinuteOfDay(window[0]);
+						rule.endMinute = parseMinuteOfDay(window[1]);
+						break;
+					default:
+						return -1;
+				}
+			}
+		}
+		catch(Exception e) {
+			/* Wrong formatted conditions */
+			return -1;
+		}
+
+		rules.add(rule);
+		return 0;
+	}
+
+	/**
+	 * @message parseSlots
+	 * @brief Adds one bucket for every slot of the given length inside the day
+	 * @param length the slot length in minutes
+	 * @return the return type of the function
+	 */
+	private int parseSlots(String length) {
+		int minutes;
+		try {
+			minutes = Integer.parseInt(length);
+		}
+		catch(Exception e) {
+			return -1;
+		}
+		if(minutes <= 0 || (24 * 60) % minutes != 0)
+			return -1;
+
+		for(int start = 0; start < 24 * 60; start += minutes) {
+			Rule rule = new Rule();
+			rule.bucket = String.format("%02d:%02d", start / 60, start % 60);
+			rule.startMinute = start;
+			rule.endMinute = start + minutes;
+			rules.add(rule);
+		}
+		return 0;
+	}
+
+	/**
+	 * @message parseSet
+	 * @brief Parses a list of values and ranges (e.g. MON-FRI,SUN or 12,1-2) into flags
+	 * @param text the list
+	 * @param size the number of possible values
+	 * @param dayNames whether the values are day names (true) or numbers starting from 1 (false)
+	 * @return a flag for every possible value
+	 */
+	private boolean[] parseSet(String text, int size, boolean dayNames) {
+		boolean[] flags = new boolean[size];
+		for(String part : text.split(",")) {
+			String[] range = part.split("-");
+			int from = parseSetValue(range[0], dayNames);
+			int to = (range.length == 2) ? parseSetValue(range[1], dayNames) : from;
+
+			/* Ranges may wrap around, e.g. months=11-2 or days=SAT-MON */
+			for(int i = from; ; i = (i + 1) % size) {
+				flags[i] = true;
+				if(i == to)
+					break;
+			}
+		}
+		return flags;
+	}
+
+	private int parseSetValue(String value, boolean dayNames) {
+		if(dayNames) {
+			int index = Arrays.asList(DAY_NAMES).indexOf(value.toUpperCase());
+			if(index == -1)
+				throw new IllegalArgumentException(value);
+			return index;
+		}
+		int month = Integer.parseInt(value);
+		if(month < 1 || month > 12)
+			throw new IllegalArgumentException(value);
+		return month - 1;
+	}
+
+	private int parseMinuteOfDay(String value) {
+		String[] items = value.split(":");
+		int minute = Integer.parseInt(items[0]) * 60 + (items.length == 2 ? Integer.parseInt(items[1]) : 0);
+		if(minute < 0 || minute > 24 * 60)
+			throw new IllegalArgumentException(value);
+		return minute;
+	}
+
+	/**
+	 * @message finishScheme
+	 * @brief Compiles the rules of the current scheme into its lookup table
+	 */
+	private void finishScheme() {
+		if(currentName == null)
+			return;
+
+		boolean usesMonths = false;
+		for(Rule rule : rules)
+			usesMonths |= rule.usesMonths;
+
+		/* Give every distinct bucket name an id, in order of appearance */
+		ArrayList<String> bucketNames = new ArrayList<>();
+		HashMap<String, Short> bucketIds = new HashMap<>();
+		for(Rule rule : rules)
+			if(!bucketIds.containsKey(rule.bucket)) {
+				bucketIds.put(rule.bucket, (short)bucketNames.size());
+				bucketNames.add(rule.bucket);
+			}
+
+		int monthSlices = usesMonths ? 12 : 1;
+		short[] table = new short[monthSlices * BucketSchemeModel.MINUTES_PER_WEEK];
+		for(int slice = 0; slice < monthSlices; slice++)
+			for(int minuteOfWeek = 0; minuteOfWeek < BucketSchemeModel.MINUTES_PER_WEEK; minuteOfWeek++) {
+				short bucketId = -1;
+				for(Rule rule : rules)
+					if(rule.matches(slice + 1, minuteOfWeek / (24 * 60), minuteOfWeek % (24 * 60))) {
+						bucketId = bucketIds.get(rule.bucket);
+						break;
+					}
+				table[slice * BucketSchemeModel.MINUTES_PER_WEEK + minuteOfWeek] = bucketId;
+			}
+
+		schemes.put(currentName, new BucketSchemeModel(currentName, bucketNames, table, usesMonths));
+		currentName = null;
+		rules = new ArrayList<>();
+	}
+}
@@ -0,0 +1,59 @@
+package dataload;
+
+import datamodel.LongHashSetModel;
+import datamodel.MeasurementRecord;
+
+import java.util.ArrayList;
+
+/**
+ * @class Deduplicator
+ * @brief Drops the rows that repeat an earlier (series, epoch minute), e.g. the boundary days of overlapping monthly dumps.
+ * 			A single time ordered series is checked against its previous row only (a sorted merge), anything else goes
+ * 			through a primitive long hash set of the packed keys. The first occurrence of a key is kept
+ */
+public class Deduplicator {
+	/**
+	 * @message deduplicate
+	 * @brief Removes the duplicate rows of a collection in place, keeping the order of the rest
+	 * @param objCollection the rows
+	 * @return the number of rows removed
+	 */
+	public int deduplicate(ArrayList<MeasurementRecord> objCollection) {
+		int size = objCollection.size();
+		if(size < 2)
+			return 0;
+
+		boolean sortedSingleSeries = true;
+		int firstSeries = objCollection.get(0).getSeriesId();
+		for(int i = 1; i < size && sortedSingleSeries; i++) {
+			MeasurementRecord record = objCollection.get(i);
+			sortedSingleSeries = record.getSeriesId() == firstSeries
+				&& objCollection.get(i - 1).getEpochMinute() <= record.getEpochMinute();
+		}
+
+		int kept = 0;
+		if(sortedSingleSeries) {
+			long previous = Long.MIN_VALUE;
+			for(int i = 0; i < size; i++) {
+				MeasurementRecord record = objCollection.get(i);
+				if(record.getEpochMinute() != previous)
+					objCollection.set(kept++, record);
+				previous = record.getEpochMinute();
+			}
+		}
+		else {
+			LongHashSetModel seen = new LongHashSetModel(size);
+			for(int i = 0; i < size; i++) {
+				MeasurementRecord record = objCollection.get(i);
+				/* The series id takes the high 32 bits and the epoch minute the low ones */
+				long key = ((long)record.getSeriesId() << 32) | (record.getEpochMinute() & 0xFFFFFFFFL);
+				if(seen.add(key))
+					objCollection.set(kept++, record);
+			}
+		}
+
+		/* Cut the tail left behind by the compaction */
+		objCollection.subList(kept, size).clear();
+		return size - kept;
+	}
+}
@@ -0,0 +1,348 @@
+package dataload;
+
+import datamodel.EpochTimeModel;
+import datamodel.FileHandler;
+import datamodel.MeasurementRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @class ExternalSorter
+ * @brief Sorts an input file by time when it is too large to sort in the heap, as long as the sink does not keep the rows.
+ * 			Rows are parsed into primitive columns until the memory budget is reached, sorted and written as a binary run
+ * 			to a temp directory; the runs are then k-way merged through a primitive heap and handed to a sink in time order.
+ * 			At most maxFanIn runs are open at once: when there are more, groups of them are first merged into longer runs,
+ * 			pass after pass, so the open files and their buffers stay bounded however large the input is.
+ * 			A run row is the epoch minute followed by the 7 numeric columns (64 bytes)
+ */
+public class ExternalSorter {
+	/**
+	 * NUM_COLUMNS -> kitchen, laundry, ac, active, reactive, voltage, intensity
+	 * BYTES_PER_ROW -> the heap used by a buffered row (minute, columns and sort key)
+	 * RUN_ROW_BYTES -> the size of a row in a run file
+	 * BUFFER_SIZE -> the buffer of every run stream
+	 * MAX_FAN_IN -> the most runs merged at once by default
+	 *
+	 * tempDirectory -> the directory the runs are written under (the system temp directory when null)
+	 * memoryBudget -> the most bytes of rows buffered before a run is written
+	 * maxFanIn -> the most runs merged at once
+	 * skippedRows -> the rows of the last sort that could not be parsed
+	 */
+	private static final int NUM_COLUMNS = 7;
+	private static final int BYTES_PER_ROW = 8 + NUM_COLUMNS * 8 + 8;
+	private static final int RUN_ROW_BYTES = 8 + NUM_COLUMNS * 8;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_FAN_IN = 64;
+
+	private final File tempDirectory;
+	private final long memoryBudget;
+	private int maxFanIn;
+	private int skippedRows;
+
+	/**
+	 * @class RowConsumer
+	 * @brief Takes a merged row: its minute, with the columns still to be read from the input of its run
+	 */
+	private interface RowConsumer {
+		void accept(long minute, DataInputStream input) throws IOException;
+	}
+
+	public ExternalSorter(File tempDirectory, long memoryBudget) {
+		this.tempDirectory = tempDirectory;
+		this.memoryBudget = memoryBudget;
+		this.maxFanIn = MAX_FAN_IN;
+	}
+
+	/**
+	 * @message sort
+	 * @brief Reads a file in runs and streams its rows in time order, rows of the same minute keep their file order
+	 * @param filename the path of the input file
+	 * @param delimiter a String with the delimiter between columns of the source file
+	 * @param hasHeaderLine specifies whether the file has a header (true) or not (false)
+	 * @param numFields an int with the number of columns in the input file
+	 * @param sink receives the rows in time order
+	 * @return the number of rows handed to the sink, or -1 if sth goes wrong
+	 */
+	public int sort(String filename, String delimiter, boolean hasHeaderLine, int numFields, Consumer<MeasurementRecord> sink) {
+		int rowsPerRun = (int)Math.max(1024, Math.min(Integer.MAX_VALUE - 8, memoryBudget / BYTES_PER_ROW));
+		skippedRows = 0;
+
+		File runDirectory;
+		try {
+			runDirectory = (tempDirectory == null)
+				? Files.createTempDirectory("sortruns").toFile()
+				: Files.createTempDirectory(tempDirectory.toPath(), "sortruns").toFile();
+		}
+		catch(IOException e) {
+			System.out.println("The temp directory for the sort runs could not be created.");
+			return -1;
+		}
+
+		ArrayList<File> runs = new ArrayList<>();
+		try {
+			int rows = writeRuns(filename, delimiter, hasHeaderLine, numFields, rowsPerRun, runDirectory, runs);
+			if(rows == -1)
+				return -1;
+			if(mergeRuns(runs, runDirectory, sink) == -1)
+				return -1;
+			return rows;
+		}
+		finally {
+			for(File run : runs)
+				run.delete();
+			runDirectory.delete();
+		}
+	}
+
+	/**
+	 * @message writeRuns
+	 * @brief Parses the input into sorted runs of at most rowsPerRun rows
+	 * @return the number of parsed rows, or -1 if sth goes wrong
+	 */
+	private int writeRuns(String filename, String delimiter, boolean hasHeaderLine, int numFields, int rowsPerRun, File runDirectory, ArrayList<File> runs) {
+		FileHandler fileHandler = new FileHandler(filename);
+		if(fileHandler.createReaderFD() == -1)
+			return -1;
+		if(hasHeaderLine)
+			fileHandler.readLineFromFile();
+
+		int capacity = Math.min(rowsPerRun, 1 << 16);
+		long[] minutes = new long[capacity];
+		double[][] columns = new double[NUM_COLUMNS][capacity];
+		int buffered = 0;
+		int rows = 0;
+
+		try {
+			while(true) {
+				String line = fileHandler.readLineFromFile();
+				if(line == null)
+					break;
+
+				String[] items = line.split(delimiter);
+				if(items.length == 1) {
+					System.out.println("The delimiter you set was wrong for the specific input file.");
+					return -1;
+				}
+				if(items.length != numFields) {
+					skippedRows++;
+					continue;
+				}
+
+				if(buffered == capacity) {
+					/* Grow the buffers up to the run size */
+					capacity = (int)Math.min(rowsPerRun, 2L * capacity);
+					minutes = Arrays.copyOf(minutes, capacity);
+					for(int c = 0; c < NUM_COLUMNS; c++)
+						columns[c] = Arrays.copyOf(columns[c], capacity);
+				}
+				try {
+					minutes[buffered] = EpochTimeModel.parse(items[0] + " " + items[1]);
+					for(int c = 0; c < NUM_COLUMNS; c++)
+						columns[c][buffered] = Double.parseDouble(items[columnField(c)]);
+				}
+				catch(IllegalArgumentException e) {
+					/* Wrong timestamps and missing ('?') readings */
+					skippedRows++;
+					continue;
+				}
+				buffered++;
+				rows++;
+
+				if(buffered == rowsPerRun) {
+					if(writeRun(minutes, columns, buffered, runDirectory, runs) == -1)
+						return -1;
+					buffered = 0;
+				}
+			}
+			if(buffered > 0 && writeRun(minutes, columns, buffered, runDirectory, runs) == -1)
+				return -1;
+			return rows;
+		}
+		finally {
+			fileHandler.closeFD();
+		}
+	}
+
+	/* The input field of every column: sub meterings 1-3 come last in the files */
+	private static int columnField(int column) {
+		return (column < 3) ? 6 + column : column - 1;
+	}
+
+	/**
+	 * @message writeRun
+	 * @brief Sorts the buffered rows by time and writes them as a binary run
+	 * @return the return type of the function
+	 */
+	private int writeRun(long[] minutes, double[][] columns, int count, File runDirectory, ArrayList<File> runs) {
+		/* Sort (minute, position) pairs packed into longs, the position keeps equal minutes stable */
+		long[] keys = new long[count];
+		for(int i = 0; i < count; i++)
+			keys[i] = (minutes[i] << 32) | i;
+		Arrays.sort(keys);
+
+		File run = new File(runDirectory, "run" + runs.size() + ".bin");
+		runs.add(run);
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE))) {
+			for(int k = 0; k < count; k++) {
+				int i = (int)keys[k];
+				out.writeLong(minutes[i]);
+				for(int c = 0; c < NUM_COLUMNS; c++)
+					out.writeDouble(columns[c][i]);
+			}
+		}
+		catch(IOException e) {
+			System.out.println("The sort run " + run.getPath() + " could not be written.");
+			return -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * @message mergeRuns
+	 * @brief Merges groups of at most maxFanIn runs into longer runs until a single merge can hand them all to the sink.
+	 * 			Groups are consecutive runs merged in order, so rows of the same minute keep their file order
+	 * @param runs the sorted runs, in file order; replaced by the longer runs after every pass
+	 * @return the return type of the function
+	 */
+	private int mergeRuns(ArrayList<File> runs, File runDirectory, Consumer<MeasurementRecord> sink) {
+		int pass = 0;
+		while(runs.size() > maxFanIn) {
+			ArrayList<File> inputs = new ArrayList<>(runs);
+			ArrayList<File> merged = new ArrayList<>();
+			for(int from = 0; from < inputs.size(); from += maxFanIn) {
+				File run = new File(runDirectory, "pass" + pass + "run" + merged.size() + ".bin");
+				merged.add(run);
+				/* Listed at once, so a failed pass still deletes it */
+				runs.add(run);
+				try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE))) {
+					int written = mergeGroup(inputs.subList(from, Math.min(from + maxFanIn, inputs.size())), (minute, input) -> {
+						out.writeLong(minute);
+						for(int c = 0; c < NUM_COLUMNS; c++)
+							out.writeDouble(input.readDouble());
+					});
+					if(written == -1)
+						return -1;
+				}
+				catch(IOException e) {
+					System.out.println("The sort run " + run.getPath() + " could not be written.");
+					return -1;
+				}
+			}
+
+			for(File input : inputs)
+				input.delete();
+			runs.removeAll(inputs);
+			pass++;
+		}
+
+		return mergeGroup(runs, (minute, input) -> {
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setSub_metering_1(input.readDouble());
+			record.setSub_metering_2(input.readDouble());
+			record.setSub_metering_3(input.readDouble());
+			record.setGlobal_active_power(input.readDouble());
+			record.setGlobal_reactive_power(input.readDouble());
+			record.setVoltage(input.readDouble());
+			record.setGlobal_intensity(input.readDouble());
+			sink.accept(record);
+		});
+	}
+
+	/**
+	 * @message mergeGroup
+	 * @brief Merges sorted runs through a min heap of run ids keyed by the minute at their head
+	 * @param runs the runs to merge, in file order
+	 * @param consumer takes every row in time order and reads its columns
+	 * @return the return type of the function
+	 */
+	private static int mergeGroup(List<File> runs, RowConsumer consumer) {
+		int k = runs.size();
+		DataInputStream[] inputs = new DataInputStream[k];
+		long[] heads = new long[k];
+		long[] remaining = new long[k];
+		int[] heap = new int[k];
+		int size = 0;
+
+		try {
+			for(int run = 0; run < k; run++) {
+				inputs[run] = new DataInputStream(new BufferedInputStream(new FileInputStream(runs.get(run)), BUFFER_SIZE));
+				remaining[run] = runs.get(run).length() / RUN_ROW_BYTES - 1;
+				heads[run] = inputs[run].readLong();
+				heap[size++] = run;
+			}
+			for(int i = size / 2 - 1; i >= 0; i--)
+				siftDown(heap, size, i, heads);
+
+			while(size > 0) {
+				int run = heap[0];
+				consumer.accept(heads[run], inputs[run]);
+
+				if(remaining[run]-- > 0)
+					heads[run] = inputs[run].readLong();
+				else
+					heap[0] = heap[--size];
+				siftDown(heap, size, 0, heads);
+			}
+			return 0;
+		}
+		catch(IOException e) {
+			System.out.println("The sort runs could not be merged.");
+			return -1;
+		}
+		finally {
+			for(DataInputStream input : inputs)
+				try {
+					if(input != null)
+						input.close();
+				}
+				catch(IOException e) { /* Swallow the error */ }
+		}
+	}
+
+	/* Equal minutes come from earlier runs first, i.e. earlier in the file */
+	private static boolean before(int a, int b, long[] heads) {
+		return heads[a] < heads[b] || (heads[a] == heads[b] && a < b);
+	}
+
+	private static void siftDown(int[] heap, int size, int i, long[] heads) {
+		while(true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if(left < size && before(heap[left], heap[smallest], heads))
+				smallest = left;
+			if(right < size && before(heap[right], heap[smallest], heads))
+				smallest = right;
+			if(smallest == i)
+				return;
+			int swap = heap[i];
+			heap[i] = heap[smallest];
+			heap[smallest] = swap;
+			i = smallest;
+		}
+	}
+
+	public int getSkippedRows() {
+		return this.skippedRows;
+	}
+	public int getMaxFanIn() {
+		return this.maxFanIn;
+	}
+	public void setMaxFanIn(int maxFanIn) {
+		this.maxFanIn = Math.max(2, maxFanIn);
+	}
+}
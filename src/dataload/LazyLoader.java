@@ -0,0 +1,129 @@
+package dataload;
+
+import datamodel.EpochTimeModel;
+import datamodel.LazyDatasetModel;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @class LazyLoader
+ * @brief Builds a lazy dataset out of an input file: the file is memory mapped and scanned once for line starts,
+ * 			and only the date and time of every line are parsed (straight from the mapped bytes), into a packed epoch minute
+ */
+public class LazyLoader {
+	/**
+	 * segments -> the mapped segments of the file being scanned
+	 * fileSize -> the size of that file in bytes
+	 * delimiter -> the bytes of the delimiter between columns
+	 */
+	private MappedByteBuffer[] segments;
+	private long fileSize;
+	private byte[] delimiter;
+
+	/**
+	 * @message load
+	 * @brief Maps a file and indexes its rows
+	 * @param filename the path of the input file
+	 * @param delimiter a String with the delimiter between columns of the source file
+	 * @param hasHeaderLine specifies whether the file has a header (true) or not (false)
+	 * @param cache whether the rows parsed later are kept
+	 * @return the lazy dataset, or null if sth goes wrong
+	 */
+	public LazyDatasetModel load(String filename, String delimiter, boolean hasHeaderLine, boolean cache) {
+		this.delimiter = delimiter.getBytes(StandardCharsets.ISO_8859_1);
+		try(RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			fileSize = channel.size();
+			long segmentSize = 1L << LazyDatasetModel.SEGMENT_BITS;
+			segments = new MappedByteBuffer[(int)((fileSize + segmentSize - 1) / segmentSize)];
+			for(int s = 0; s < segments.length; s++) {
+				long start = s * segmentSize;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileSize - start));
+			}
+		}
+		catch(IOException e) {
+			System.out.println("The file " + filename + " could not be mapped.");
+			return null;
+		}
+
+		long[] offsets = new long[1024];
+		long[] minutes = new long[1024];
+		int size = 0;
+		boolean skipLine = hasHeaderLine;
+
+		long position = 0;
+		while(position < fileSize) {
+			long lineStart = position;
+			while(position < fileSize && byteAt(position) != '\n')
+				position++;
+			position++;
+
+			if(skipLine) {
+				skipLine = false;
+				continue;
+			}
+			long minute = parseTimestamp(lineStart);
+			if(minute == Long.MIN_VALUE)
+				/* Empty or wrong formatted line */
+				continue;
+
+			if(size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+				minutes = Arrays.copyOf(minutes, size * 2);
+			}
+			offsets[size] = lineStart;
+			minutes[size] = minute;
+			size++;
+		}
+
+		return new LazyDatasetModel(segments, fileSize, delimiter, offsets, minutes, size, cache);
+	}
+
+	private byte byteAt(long position) {
+		return segments[(int)(position >>> LazyDatasetModel.SEGMENT_BITS)].get((int)(position & ((1L << LazyDatasetModel.SEGMENT_BITS) - 1)));
+	}
+
+	/**
+	 * @message parseTimestamp
+	 * @brief Parses the dd/mm/yyyy<delimiter>hh:mm[:ss] start of a line into an epoch minute
+	 * @param position the offset of the line
+	 * @return the epoch minute, or Long.MIN_VALUE if the line does not start with a timestamp
+	 */
+	private long parseTimestamp(long position) {
+		int[] fields = new int[5];
+		byte[] separators = {'/', '/', 0, ':', 0};
+		for(int f = 0; f < fields.length; f++) {
+			int value = 0;
+			int digits = 0;
+			while(position < fileSize) {
+				byte b = byteAt(position);
+				if(b < '0' || b > '9')
+					break;
+				value = value * 10 + (b - '0');
+				digits++;
+				position++;
+			}
+			if(digits == 0)
+				return Long.MIN_VALUE;
+			fields[f] = value;
+
+			if(f == 2) {
+				/* The date and the time are separated by the column delimiter */
+				for(byte d : delimiter)
+					if(position >= fileSize || byteAt(position++) != d)
+						return Long.MIN_VALUE;
+			}
+			else if(separators[f] != 0) {
+				if(position >= fileSize || byteAt(position++) != separators[f])
+					return Long.MIN_VALUE;
+			}
+		}
+		if(fields[1] < 1 || fields[1] > 12 || fields[0] < 1 || fields[0] > 31 || fields[3] > 23 || fields[4] > 59)
+			return Long.MIN_VALUE;
+		return EpochTimeModel.toEpochMinute(fields[2], fields[1], fields[0], fields[3], fields[4]);
+	}
+}
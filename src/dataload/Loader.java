@@ -104,14 +104,20 @@ public class Loader<E extends MeasurementRecord> implements ILoader<E> {
 
 		dataRecord.setDate(dateModel);
 		dataRecord.setTime(timeModel);
-		dataRecord.setGlobal_active_power(Double.parseDouble(dataItems[2]));
-		dataRecord.setGlobal_reactive_power(Double.parseDouble(dataItems[3]));
-		dataRecord.setVoltage(Double.parseDouble(dataItems[4]));
-		dataRecord.setGlobal_intensity(Double.parseDouble(dataItems[5]));
-		dataRecord.setSub_metering_1(Double.parseDouble(dataItems[6]));
-		dataRecord.setSub_metering_2(Double.parseDouble(dataItems[7]));
-		dataRecord.setSub_metering_3(Double.parseDouble(dataItems[8]));
 		/* Convert inputs from strings to numeric values */
+		try {
+			dataRecord.setGlobal_active_power(Double.parseDouble(dataItems[2]));
+			dataRecord.setGlobal_reactive_power(Double.parseDouble(dataItems[3]));
+			dataRecord.setVoltage(Double.parseDouble(dataItems[4]));
+			dataRecord.setGlobal_intensity(Double.parseDouble(dataItems[5]));
+			dataRecord.setSub_metering_1(Double.parseDouble(dataItems[6]));
+			dataRecord.setSub_metering_2(Double.parseDouble(dataItems[7]));
+			dataRecord.setSub_metering_3(Double.parseDouble(dataItems[8]));
+		}
+		catch(NumberFormatException e) {
+			/* Missing readings are written as '?', skip the row so it counts as a gap */
+			return null;
+		}
 
 		return (E)dataRecord;
 	}
@@ -0,0 +1,190 @@
+package dataload;
+
+import datamodel.LoadReportModel;
+import datamodel.MeasurementRecord;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @class MultiFileLoader
+ * @brief Loads the files of a directory or of a glob pattern (e.g. Resources/TestInput/2007_*.tsv) concurrently,
+ * 			every file with its own Loader on a bounded thread pool, and merges them into one time ordered collection
+ */
+public class MultiFileLoader {
+	/**
+	 * poolSize -> the most files loaded at the same time
+	 */
+	private final int poolSize;
+
+	public MultiFileLoader(int poolSize) {
+		this.poolSize = Math.max(1, poolSize);
+	}
+
+	/**
+	 * @message isPattern
+	 * @brief Checks whether a path names several files, i.e. it is a directory or has glob characters
+	 * @param path the path
+	 * @return true for a directory or a glob pattern
+	 */
+	public static boolean isPattern(String path) {
+		return new File(path).isDirectory() || path.matches(".*[*?\\[{].*");
+	}
+
+	/**
+	 * @message resolve
+	 * @brief Lists the files of a directory, or the files matching a glob pattern in the last directory of the path
+	 * @param path the directory or the pattern
+	 * @return the matching files in name order, empty if there is none
+	 */
+	public static File[] resolve(String path) {
+		File directory = new File(path);
+		PathMatcher matcher = null;
+		if(!directory.isDirectory()) {
+			/* The pattern applies to the file names, the directory part is taken literally */
+			File parent = directory.getParentFile();
+			directory = (parent == null) ? new File(".") : parent;
+			try {
+				matcher = FileSystems.getDefault().getPathMatcher("glob:" + new File(path).getName());
+			}
+			catch(Exception e) {
+				return new File[0];
+			}
+		}
+
+		PathMatcher nameMatcher = matcher;
+		File[] files = directory.listFiles(file -> file.isFile()
+			&& (nameMatcher == null || nameMatcher.matches(Paths.get(file.getName()))));
+		if(files == null)
+			return new File[0];
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * @message loadAll
+	 * @brief Loads every file on the thread pool, each into its own list
+	 * @param files the files to load
+	 * @param delimiter a String with the delimiter between columns of the source files
+	 * @param hasHeaderLine specifies whether the files have a header (true) or not (false)
+	 * @param numFields an int with the number of columns in the input files
+	 * @param report receives the rows or the error of every file
+	 * @return the rows of every file in the order of files (null for the files that failed)
+	 */
+	public ArrayList<ArrayList<MeasurementRecord>> loadAll(File[] files, String delimiter, boolean hasHeaderLine, int numFields, LoadReportModel report) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(poolSize, Math.max(1, files.length)));
+		try {
+			ArrayList<Future<ArrayList<MeasurementRecord>>> futures = new ArrayList<>();
+			for(File file : files)
+				futures.add(executor.submit(() -> {
+					ArrayList<MeasurementRecord> rows = new ArrayList<>();
+					/* A Loader keeps the state of one file, so every task has its own */
+					if(new Loader<MeasurementRecord>().load(file.getPath(), delimiter, hasHeaderLine, numFields, rows) == -1)
+						return null;
+					return rows;
+				}));
+
+			ArrayList<ArrayList<MeasurementRecord>> loaded = new ArrayList<>();
+			for(int i = 0; i < files.length; i++) {
+				ArrayList<MeasurementRecord> rows;
+				String error = null;
+				try {
+					rows = futures.get(i).get();
+					if(rows == null)
+						error = "could not be read with the given delimiter, header and fields";
+				}
+				catch(Exception e) {
+					rows = null;
+					error = "failed: " + e.getCause();
+				}
+				report.addFile(files[i].getPath(), (rows == null) ? -1 : rows.size(), error);
+				loaded.add(rows);
+			}
+			return loaded;
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @message mergeByTime
+	 * @brief Merges the rows of several files into one time ordered collection (k-way merge on a heap of file cursors).
+	 * 			Rows of the same minute keep the order of their files
+	 * @param loaded the rows of every file, null entries are skipped
+	 * @param objCollection the collection the merged rows are appended to
+	 */
+	public static void mergeByTime(ArrayList<ArrayList<MeasurementRecord>> loaded, ArrayList<MeasurementRecord> objCollection) {
+		ArrayList<ArrayList<MeasurementRecord>> runs = new ArrayList<>();
+		int total = 0;
+		for(ArrayList<MeasurementRecord> rows : loaded)
+			if(rows != null && !rows.isEmpty()) {
+				if(!isSorted(rows))
+					rows.sort(Comparator.comparingLong(MeasurementRecord::getEpochMinute));
+				runs.add(rows);
+				total += rows.size();
+			}
+		objCollection.ensureCapacity(objCollection.size() + total);
+
+		/* Min heap of run ids, ordered by the minute at their cursor, then by run id */
+		int k = runs.size();
+		int[] heap = new int[k];
+		int[] cursors = new int[k];
+		long[] heads = new long[k];
+		for(int run = 0; run < k; run++) {
+			heads[run] = runs.get(run).get(0).getEpochMinute();
+			heap[run] = run;
+		}
+		for(int i = k / 2 - 1; i >= 0; i--)
+			siftDown(heap, k, i, heads);
+
+		int size = k;
+		while(size > 0) {
+			int run = heap[0];
+			ArrayList<MeasurementRecord> rows = runs.get(run);
+			objCollection.add(rows.get(cursors[run]++));
+			if(cursors[run] < rows.size())
+				heads[run] = rows.get(cursors[run]).getEpochMinute();
+			else
+				heap[0] = heap[--size];
+			siftDown(heap, size, 0, heads);
+		}
+	}
+
+	private static boolean isSorted(ArrayList<MeasurementRecord> rows) {
+		for(int i = 1; i < rows.size(); i++)
+			if(rows.get(i - 1).getEpochMinute() > rows.get(i).getEpochMinute())
+				return false;
+		return true;
+	}
+
+	private static boolean before(int a, int b, long[] heads) {
+		return heads[a] < heads[b] || (heads[a] == heads[b] && a < b);
+	}
+
+	private static void siftDown(int[] heap, int size, int i, long[] heads) {
+		while(true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if(left < size && before(heap[left], heap[smallest], heads))
+				smallest = left;
+			if(right < size && before(heap[right], heap[smallest], heads))
+				smallest = right;
+			if(smallest == i)
+				return;
+			int swap = heap[i];
+			heap[i] = heap[smallest];
+			heap[smallest] = swap;
+			i = smallest;
+		}
+	}
+}
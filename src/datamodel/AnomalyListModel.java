@@ -0,0 +1,158 @@
+package datamodel;
+
+/**
+ * @class AnomalyListModel
+ * @brief A compact, fixed capacity list of flagged readings kept in primitive arrays.
+ *          When the list is full, a new anomaly only replaces the least severe one kept so far,
+ *          so memory stays bounded however many readings get flagged
+ */
+public class AnomalyListModel {
+    /**
+     * KIND_SPIKE -> the reading deviates too much from the usual readings of its bucket
+     * KIND_STUCK -> the meter repeated the same non zero reading for too long
+     * METERS -> the names of the meters, indexed by the meter ids stored in the list
+     *
+     * epochMinutes, seriesIds, meters, kinds, values, scores -> the fields of each anomaly, organised as a min heap on the score
+     * size -> the number of anomalies kept
+     * totalFlagged -> the number of anomalies flagged, including the ones dropped because the list was full
+     */
+    public static final byte KIND_SPIKE = 0;
+    public static final byte KIND_STUCK = 1;
+    public static final String[] METERS = {"kitchen", "laundry", "ac"};
+
+    private final long[] epochMinutes;
+    private final int[] seriesIds;
+    private final byte[] meters;
+    private final byte[] kinds;
+    private final double[] values;
+    private final double[] scores;
+    private int size;
+    private long totalFlagged;
+
+    public AnomalyListModel(int capacity) {
+        epochMinutes = new long[capacity];
+        seriesIds = new int[capacity];
+        meters = new byte[capacity];
+        kinds = new byte[capacity];
+        values = new double[capacity];
+        scores = new double[capacity];
+        size = 0;
+        totalFlagged = 0;
+    }
+
+    /**
+     * @message add
+     * @brief Adds a flagged reading, dropping the least severe anomaly if the list is full
+     * @param epochMinute The time of the reading
+     * @param seriesId The series (household) of the reading
+     * @param meter The meter id (index in METERS)
+     * @param kind The kind of the anomaly (KIND_SPIKE, KIND_STUCK)
+     * @param value The flagged reading
+     * @param score How severe the anomaly is (the absolute z-score or robust score, or the run length)
+     */
+    public void add(long epochMinute, int seriesId, int meter, byte kind, double value, double score) {
+        totalFlagged++;
+        if(epochMinutes.length == 0)
+            return;
+
+        if(size < epochMinutes.length) {
+            set(size, epochMinute, seriesId, meter, kind, value, score);
+            siftUp(size++);
+            return;
+        }
+
+        /* The root holds the least severe anomaly */
+        if(score <= scores[0])
+            return;
+        set(0, epochMinute, seriesId, meter, kind, value, score);
+        siftDown(0);
+    }
+
+    private void set(int i, long epochMinute, int seriesId, int meter, byte kind, double value, double score) {
+        epochMinutes[i] = epochMinute;
+        seriesIds[i] = seriesId;
+        meters[i] = (byte)meter;
+        kinds[i] = kind;
+        values[i] = value;
+        scores[i] = score;
+    }
+
+    private void swap(int i, int j) {
+        long e = epochMinutes[i]; epochMinutes[i] = epochMinutes[j]; epochMinutes[j] = e;
+        int r = seriesIds[i]; seriesIds[i] = seriesIds[j]; seriesIds[j] = r;
+        byte m = meters[i]; meters[i] = meters[j]; meters[j] = m;
+        byte k = kinds[i]; kinds[i] = kinds[j]; kinds[j] = k;
+        double v = values[i]; values[i] = values[j]; values[j] = v;
+        double s = scores[i]; scores[i] = scores[j]; scores[j] = s;
+    }
+
+    private void siftUp(int i) {
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(scores[parent] <= scores[i])
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while(true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if(left < size && scores[left] < scores[smallest]) smallest = left;
+            if(right < size && scores[right] < scores[smallest]) smallest = right;
+            if(smallest == i)
+                break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    /**
+     * @message orderByTime
+     * @brief Orders the kept anomalies by time for reporting, without disturbing the heap
+     * @return the indices of the anomalies in time order
+     */
+    public int[] orderByTime() {
+        int[] order = new int[size];
+        for(int i = 0; i < size; i++)
+            order[i] = i;
+
+        /* Insertion sort, the list is small and bounded */
+        for(int i = 1; i < size; i++)
+            for(int j = i; j > 0 && epochMinutes[order[j - 1]] > epochMinutes[order[j]]; j--) {
+                int tmp = order[j]; order[j] = order[j - 1]; order[j - 1] = tmp;
+            }
+        return order;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+    public long getTotalFlagged() {
+        return this.totalFlagged;
+    }
+    public long getEpochMinute(int i) {
+        return this.epochMinutes[i];
+    }
+    public int getSeriesId(int i) {
+        return this.seriesIds[i];
+    }
+    public String getMeter(int i) {
+        return METERS[this.meters[i]];
+    }
+    public byte getKind(int i) {
+        return this.kinds[i];
+    }
+    public String getKindName(int i) {
+        return (this.kinds[i] == KIND_STUCK) ? "stuck" : "spike";
+    }
+    public double getValue(int i) {
+        return this.values[i];
+    }
+    public double getScore(int i) {
+        return this.scores[i];
+    }
+}
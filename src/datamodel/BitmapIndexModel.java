@@ -0,0 +1,137 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @class BitmapIndexModel
+ * @brief Keeps a compressed bitmap of row ids for every season, month, day of week and period of day value of a loaded dataset,
+ *          so that filters across dimensions (e.g. winter weekend evenings) are answered with AND/OR operations on the bitmaps
+ *          instead of a scan. Filters are written as `dimension=value,value;dimension=value`,
+ *          values of a dimension are OR-ed and dimensions are AND-ed (e.g. season=WINTER;dayofweek=SAT,SUN;periodofday=EVENING)
+ */
+public class BitmapIndexModel {
+    /**
+     * SEASONS, MONTHS, DAYS, PERIODS -> the value names of each dimension, as produced by TimeUnitMappingModel
+     * SEASON_OF_MONTH -> maps a month [0-11] to its season
+     * PERIOD_OF_HOUR -> maps an hour [0-23] to its period of day
+     *
+     * size -> the number of indexed rows
+     * seasons, months, days, periods -> the bitmap of every value of every dimension
+     */
+    private static final String[] SEASONS = {"WINTER", "SPRING", "SUMMER", "AUTUMN"};
+    private static final String[] MONTHS = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+    private static final String[] DAYS = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+    private static final String[] PERIODS = {"NIGHT", "EARLY MORNING", "MORNING", "AFTERNOON", "EVENING"};
+    private static final int[] SEASON_OF_MONTH = {0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3, 0};
+    private static final int[] PERIOD_OF_HOUR = {0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 0, 0, 0};
+
+    private final int size;
+    private final RoaringBitmapModel[] seasons;
+    private final RoaringBitmapModel[] months;
+    private final RoaringBitmapModel[] days;
+    private final RoaringBitmapModel[] periods;
+
+    public BitmapIndexModel(ArrayList<MeasurementRecord> inputMeasurements) {
+        size = inputMeasurements.size();
+        seasons = createBitmaps(SEASONS.length);
+        months = createBitmaps(MONTHS.length);
+        days = createBitmaps(DAYS.length);
+        periods = createBitmaps(PERIODS.length);
+
+        /* Row ids are visited in ascending order, so every add is an append */
+        for(int id = 0; id < size; id++) {
+            MeasurementRecord record = inputMeasurements.get(id);
+            int month = Integer.parseInt(record.getDate().getMonth()) - 1;
+            int hour = Integer.parseInt(record.getTime().getHour());
+
+            seasons[SEASON_OF_MONTH[month]].add(id);
+            months[month].add(id);
+            days[EpochTimeModel.dayOfWeek(record.getEpochMinute())].add(id);
+            periods[PERIOD_OF_HOUR[hour]].add(id);
+        }
+    }
+
+    private static RoaringBitmapModel[] createBitmaps(int count) {
+        RoaringBitmapModel[] bitmaps = new RoaringBitmapModel[count];
+        for(int i = 0; i < count; i++)
+            bitmaps[i] = new RoaringBitmapModel();
+        return bitmaps;
+    }
+
+    /**
+     * @message select
+     * @brief Finds the rows matching a filter
+     * @param filter The filter, e.g. season=WINTER;dayofweek=SAT,SUN;periodofday=EVENING
+     * @return the bitmap of the matching row ids
+     * @throws IllegalArgumentException if the filter names an unknown dimension or value
+     */
+    public RoaringBitmapModel select(String filter) {
+        RoaringBitmapModel selection = null;
+        for(String condition : filter.split(";")) {
+            if(condition.trim().isEmpty())
+                continue;
+
+            String[] items = condition.split("=");
+            if(items.length != 2)
+                throw new IllegalArgumentException("Wrong condition: " + condition);
+
+            RoaringBitmapModel matches = selectDimension(items[0].trim().toLowerCase(), items[1].split(","));
+            selection = (selection == null) ? matches : selection.and(matches);
+        }
+
+        if(selection == null) {
+            /* An empty filter matches everything */
+            selection = new RoaringBitmapModel();
+            for(int id = 0; id < size; id++)
+                selection.add(id);
+        }
+        return selection;
+    }
+
+    /**
+     * @message selectDimension
+     * @brief Unites the bitmaps of some values of a dimension
+     * @param dimension The dimension (season, month, dayofweek, periodofday)
+     * @param values The value names
+     * @return the bitmap of the rows having any of the values
+     */
+    private RoaringBitmapModel selectDimension(String dimension, String[] values) {
+        String[] names;
+        RoaringBitmapModel[] bitmaps;
+        switch(dimension) {
+            case "season":
+                names = SEASONS;
+                bitmaps = seasons;
+                break;
+            case "month":
+                names = MONTHS;
+                bitmaps = months;
+                break;
+            case "dayofweek":
+                names = DAYS;
+                bitmaps = days;
+                break;
+            case "periodofday":
+                names = PERIODS;
+                bitmaps = periods;
+                break;
+            default:
+                throw new IllegalArgumentException("Wrong dimension: " + dimension);
+        }
+
+        RoaringBitmapModel matches = new RoaringBitmapModel();
+        for(String value : values) {
+            String name = value.trim().toUpperCase().replace('_', ' ');
+            int index = Arrays.asList(names).indexOf(name);
+            if(index == -1)
+                throw new IllegalArgumentException("Wrong " + dimension + " value: " + value);
+            matches = matches.or(bitmaps[index]);
+        }
+        return matches;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+}
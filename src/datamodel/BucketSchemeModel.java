@@ -0,0 +1,89 @@
+package datamodel;
+
+import java.util.ArrayList;
+
+/**
+ * @class BucketSchemeModel
+ * @brief A user defined way of grouping time into named buckets (tariff windows, custom seasons, 15 minute slots...),
+ *          compiled into a dense table so that finding the bucket of a record costs a single array lookup
+ */
+public class BucketSchemeModel {
+    /**
+     * MINUTES_PER_WEEK -> the size of one month slice of the table
+     *
+     * name -> the name of the scheme, used as the aggregator type
+     * bucketNames -> the name of every bucket, indexed by bucket id
+     * table -> the bucket id per (month, minute of week), or -1 where no bucket matches
+     * monthStride -> the size of a month slice in the table (0 when the scheme does not depend on months)
+     * constantOverDays -> whether every day falls whole in a single bucket (or in none)
+     */
+    public static final int MINUTES_PER_WEEK = (int)EpochTimeModel.MINUTES_PER_WEEK;
+
+    private final String name;
+    private final ArrayList<String> bucketNames;
+    private final short[] table;
+    private final int monthStride;
+    private final boolean constantOverDays;
+
+    public BucketSchemeModel(String name, ArrayList<String> bucketNames, short[] table, boolean dependsOnMonth) {
+        this.name = name;
+        this.bucketNames = bucketNames;
+        this.table = table;
+        this.monthStride = dependsOnMonth ? MINUTES_PER_WEEK : 0;
+        this.constantOverDays = isConstantOverDays(table);
+    }
+
+    /**
+     * @message isConstantOverDays
+     * @brief Checks whether every day of the table (the table starts at a midnight) has the same bucket at every minute
+     * @param table the bucket id per (month, minute of week)
+     * @return true if no bucket boundary falls inside a day
+     */
+    private static boolean isConstantOverDays(short[] table) {
+        int minutesPerDay = (int)EpochTimeModel.MINUTES_PER_DAY;
+        for(int day = 0; day < table.length; day += minutesPerDay)
+            for(int minute = day + 1; minute < day + minutesPerDay; minute++)
+                if(table[minute] != table[day])
+                    return false;
+        return true;
+    }
+
+    /**
+     * @message lookup
+     * @brief Finds the bucket of a point in time
+     * @param month The month number [1-12]
+     * @param minuteOfWeek The minute of the week [0-10079] starting from Monday 00:00
+     * @return the bucket id, or -1 if the time falls in no bucket
+     */
+    public int lookup(int month, int minuteOfWeek) {
+        return table[(month - 1) * monthStride + minuteOfWeek];
+    }
+
+    /**
+     * @message lookup
+     * @brief Finds the bucket of a measurement
+     * @param record The measurement
+     * @return the bucket id, or -1 if the record falls in no bucket
+     */
+    public int lookup(MeasurementRecord record) {
+        /* The epoch minute is cached by the record, so no field of the date is parsed per lookup */
+        long epochMinute = record.getEpochMinute();
+        int minuteOfWeek = EpochTimeModel.minuteOfWeek(epochMinute);
+        if(monthStride == 0)
+            return table[minuteOfWeek];
+        return table[(EpochTimeModel.monthOf(epochMinute) - 1) * monthStride + minuteOfWeek];
+    }
+
+    public boolean isConstantOverDays() {
+        return this.constantOverDays;
+    }
+    public String getName() {
+        return this.name;
+    }
+    public String getBucketName(int bucketId) {
+        return this.bucketNames.get(bucketId);
+    }
+    public int getBucketCount() {
+        return this.bucketNames.size();
+    }
+}
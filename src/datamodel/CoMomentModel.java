@@ -0,0 +1,110 @@
+package datamodel;
+
+/**
+ * @class CoMomentModel
+ * @brief Accumulates the means and co-moments of several columns in one pass, using the numerically stable
+ *          multivariate Welford update, and merges partial accumulators with the pairwise formula of Chan et al.,
+ *          from which the covariance and correlation matrices are derived
+ */
+public class CoMomentModel {
+    /**
+     * columns -> the names of the accumulated columns
+     * count -> the number of rows accumulated
+     * means -> the running mean of every column
+     * comoments -> the sums of the products of deviations from the mean, for every pair of columns (row major, d x d)
+     * deltas -> scratch space for the deviations of the current row
+     */
+    private final String[] columns;
+    private long count;
+    private final double[] means;
+    private final double[] comoments;
+    private final double[] deltas;
+
+    public CoMomentModel(String[] columns) {
+        this.columns = columns;
+        this.count = 0;
+        this.means = new double[columns.length];
+        this.comoments = new double[columns.length * columns.length];
+        this.deltas = new double[columns.length];
+    }
+
+    /**
+     * @message add
+     * @brief Folds a row into the accumulator
+     * @param row The value of every column
+     */
+    public void add(double[] row) {
+        int d = columns.length;
+        count++;
+        for(int i = 0; i < d; i++) {
+            deltas[i] = row[i] - means[i];
+            means[i] += deltas[i] / count;
+        }
+        /* delta before the mean update times the deviation after it */
+        for(int i = 0; i < d; i++)
+            for(int j = 0; j < d; j++)
+                comoments[i * d + j] += deltas[i] * (row[j] - means[j]);
+    }
+
+    /**
+     * @message merge
+     * @brief Folds another accumulator over the same columns (e.g. of another partition) into this one
+     * @param other The other accumulator
+     */
+    public void merge(CoMomentModel other) {
+        if(other.count == 0)
+            return;
+        if(count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, means.length);
+            System.arraycopy(other.comoments, 0, comoments, 0, comoments.length);
+            return;
+        }
+
+        int d = columns.length;
+        long total = count + other.count;
+        double weight = (double)count * other.count / total;
+        for(int i = 0; i < d; i++)
+            deltas[i] = other.means[i] - means[i];
+        for(int i = 0; i < d; i++)
+            for(int j = 0; j < d; j++)
+                comoments[i * d + j] += other.comoments[i * d + j] + deltas[i] * deltas[j] * weight;
+        for(int i = 0; i < d; i++)
+            means[i] += deltas[i] * other.count / total;
+        count = total;
+    }
+
+    /**
+     * @message getCovariance
+     * @brief Finds the sample covariance of two columns
+     * @return the covariance, or NaN with less than two rows
+     */
+    public double getCovariance(int i, int j) {
+        if(count < 2)
+            return Double.NaN;
+        return comoments[i * columns.length + j] / (count - 1);
+    }
+
+    /**
+     * @message getCorrelation
+     * @brief Finds the Pearson correlation of two columns
+     * @return the correlation in [-1, 1], or NaN if a column is constant
+     */
+    public double getCorrelation(int i, int j) {
+        int d = columns.length;
+        double denominator = Math.sqrt(comoments[i * d + i] * comoments[j * d + j]);
+        if(denominator == 0.0)
+            return Double.NaN;
+        return comoments[i * d + j] / denominator;
+    }
+
+    public String[] getColumns() {
+        return this.columns;
+    }
+    public long getCount() {
+        return this.count;
+    }
+    public double getMean(int i) {
+        return this.means[i];
+    }
+}
@@ -0,0 +1,88 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * @class ColumnStoreModel
+ * @brief Keeps the numeric fields of a loaded dataset in primitive column arrays, in the order of the collection,
+ *          together with the derived columns computed from them, so expressions and aggregates run in tight loops
+ *          over double arrays instead of walking the records
+ */
+public class ColumnStoreModel {
+    /**
+     * COLUMNS -> the names of the columns read from the input files
+     *
+     * size -> the number of rows
+     * columns -> the values of every input column, one array per name of COLUMNS
+     * derivedColumns -> the values of every derived column, by name, in definition order
+     */
+    public static final String[] COLUMNS = {"kitchen", "laundry", "ac", "active", "reactive", "voltage", "intensity"};
+
+    private final int size;
+    private final double[][] columns;
+    private final LinkedHashMap<String, double[]> derivedColumns;
+
+    public ColumnStoreModel(ArrayList<MeasurementRecord> inputMeasurements) {
+        this.size = inputMeasurements.size();
+        this.columns = new double[COLUMNS.length][size];
+        this.derivedColumns = new LinkedHashMap<>();
+
+        for(int i = 0; i < size; i++) {
+            MeasurementRecord record = inputMeasurements.get(i);
+            columns[0][i] = record.getSub_metering_1();
+            columns[1][i] = record.getSub_metering_2();
+            columns[2][i] = record.getSub_metering_3();
+            columns[3][i] = record.getGlobal_active_power();
+            columns[4][i] = record.getGlobal_reactive_power();
+            columns[5][i] = record.getVoltage();
+            columns[6][i] = record.getGlobal_intensity();
+        }
+    }
+
+    private ColumnStoreModel(int size, double[][] columns, LinkedHashMap<String, double[]> derivedColumns) {
+        this.size = size;
+        this.columns = columns;
+        this.derivedColumns = derivedColumns;
+    }
+
+    /**
+     * @message copy
+     * @brief Makes a store sharing the (never written) input columns, whose derived columns can be added to without changing this one
+     * @return the copy
+     */
+    public ColumnStoreModel copy() {
+        return new ColumnStoreModel(size, columns, new LinkedHashMap<>(derivedColumns));
+    }
+
+    /**
+     * @message getColumn
+     * @brief Finds an input or derived column by name
+     * @param name The column name
+     * @return the values of the column, or null if there is no such column
+     */
+    public double[] getColumn(String name) {
+        int index = Arrays.asList(COLUMNS).indexOf(name);
+        if(index != -1)
+            return columns[index];
+        return derivedColumns.get(name);
+    }
+
+    /**
+     * @message putDerived
+     * @brief Stores (or replaces) the values of a derived column
+     * @param name The column name
+     * @param values The value of every row
+     */
+    public void putDerived(String name, double[] values) {
+        derivedColumns.put(name, values);
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+    public LinkedHashMap<String, double[]> getDerivedColumns() {
+        return this.derivedColumns;
+    }
+}
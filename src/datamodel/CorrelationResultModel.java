@@ -0,0 +1,48 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * @class CorrelationResultModel
+ * @brief A summary result holding the co-moments of the selected columns per time unit.
+ *          The full matrices are available through getCoMoments, while every meter map lists the correlation
+ *          of that meter with every other column, so the result can also be reported through the Reporter formats
+ */
+public class CorrelationResultModel extends SummaryResultModel {
+    /**
+     * coMoments -> the merged co-moments of every time unit
+     */
+    private final HashMap<String, CoMomentModel> coMoments;
+
+    public CorrelationResultModel(HashMap<String, CoMomentModel> coMoments) {
+        this.coMoments = coMoments;
+
+        ArrayList<String> timeUnits = new ArrayList<>(coMoments.keySet());
+        Collections.sort(timeUnits);
+        String[] meters = {"kitchen", "laundry", "ac"};
+        for(String timeUnit : timeUnits) {
+            CoMomentModel model = coMoments.get(timeUnit);
+            String[] columns = model.getColumns();
+            for(int i = 0; i < columns.length; i++) {
+                if(!Arrays.asList(meters).contains(columns[i]))
+                    continue;
+                for(int j = 0; j < columns.length; j++)
+                    if(i != j)
+                        putMeter(columns[i], timeUnit + " ~ " + columns[j], model.getCorrelation(i, j));
+            }
+        }
+    }
+
+    /**
+     * @message getCoMoments
+     * @brief Stores the co-moments of the selected columns, one for each of the grouper time units
+     * @return A HashMap<String, CoMomentModel>, where the grouping time unit is represented as a String
+     */
+    @Override
+    public HashMap<String, CoMomentModel> getCoMoments() {
+        return coMoments;
+    }
+}
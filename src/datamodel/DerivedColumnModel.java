@@ -0,0 +1,137 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @class DerivedColumnModel
+ * @brief A column computed from other columns through a linear expression, e.g.
+ *          unmetered = active*1000/60 - kitchen - laundry - ac
+ *          Every term is a product/quotient of numbers with at most one column, so the expression compiles
+ *          into (coefficient, column) pairs and a constant that are applied with one pass per term over the column arrays
+ */
+public class DerivedColumnModel {
+    /**
+     * UNMETERED -> the energy (watt-hours per minute) that none of the sub meters measured
+     *
+     * name -> the name of the derived column
+     * definition -> the expression as it was given
+     * terms -> the columns of the expression
+     * coefficients -> the coefficient of every column
+     * constant -> the sum of the terms without a column
+     */
+    public static final String UNMETERED = "unmetered = active*1000/60 - kitchen - laundry - ac";
+
+    private final String name;
+    private final String definition;
+    private final String[] terms;
+    private final double[] coefficients;
+    private final double constant;
+
+    private DerivedColumnModel(String name, String definition, String[] terms, double[] coefficients, double constant) {
+        this.name = name;
+        this.definition = definition;
+        this.terms = terms;
+        this.coefficients = coefficients;
+        this.constant = constant;
+    }
+
+    /**
+     * @message parse
+     * @brief Compiles a definition of the form "name = expression"
+     * @param definition The definition, terms are separated by + or - and factors by * or /
+     * @return the compiled derived column
+     * @throws IllegalArgumentException if the definition is not well formed
+     */
+    public static DerivedColumnModel parse(String definition) {
+        String[] sides = definition.split("=");
+        if(sides.length != 2 || !sides[0].trim().matches("[A-Za-z_][A-Za-z0-9_]*"))
+            throw new IllegalArgumentException("Wrong derived column: " + definition);
+        String expression = sides[1].replace(" ", "");
+        if(expression.isEmpty())
+            throw new IllegalArgumentException("Wrong derived column: " + definition);
+
+        ArrayList<String> terms = new ArrayList<>();
+        ArrayList<Double> coefficients = new ArrayList<>();
+        double constant = 0.0;
+
+        /* Split before every + or - that does not follow a * or / (the sign of a factor) */
+        for(String term : expression.split("(?<![*/])(?=[+-])")) {
+            double sign = 1.0;
+            if(term.startsWith("+") || term.startsWith("-")) {
+                sign = term.startsWith("-") ? -1.0 : 1.0;
+                term = term.substring(1);
+            }
+
+            double coefficient = sign;
+            String column = null;
+            String[] factors = term.split("(?=[*/])");
+            for(String factor : factors) {
+                boolean divide = factor.startsWith("/");
+                if(factor.startsWith("*") || divide)
+                    factor = factor.substring(1);
+                if(factor.isEmpty())
+                    throw new IllegalArgumentException("Wrong derived column: " + definition);
+
+                if(Character.isLetter(factor.charAt(0)) || factor.charAt(0) == '_') {
+                    /* A column may only multiply its term once */
+                    if(column != null || divide)
+                        throw new IllegalArgumentException("The derived column is not linear: " + definition);
+                    column = factor;
+                    continue;
+                }
+                double number;
+                try {
+                    number = Double.parseDouble(factor);
+                }
+                catch(NumberFormatException e) {
+                    throw new IllegalArgumentException("Wrong derived column: " + definition);
+                }
+                coefficient = divide ? coefficient / number : coefficient * number;
+            }
+
+            if(column == null)
+                constant += coefficient;
+            else {
+                terms.add(column);
+                coefficients.add(coefficient);
+            }
+        }
+
+        double[] compiled = new double[coefficients.size()];
+        for(int i = 0; i < compiled.length; i++)
+            compiled[i] = coefficients.get(i);
+        return new DerivedColumnModel(sides[0].trim(), definition.trim(), terms.toArray(new String[0]), compiled, constant);
+    }
+
+    /**
+     * @message evaluate
+     * @brief Computes the column over a column store and stores it there under its name
+     * @param store The column store holding the columns of the expression
+     * @return the computed values, or null if a column of the expression is missing
+     */
+    public double[] evaluate(ColumnStoreModel store) {
+        double[] values = new double[store.getSize()];
+        Arrays.fill(values, constant);
+        for(int t = 0; t < terms.length; t++) {
+            double[] column = store.getColumn(terms[t]);
+            if(column == null)
+                return null;
+            double coefficient = coefficients[t];
+            for(int i = 0; i < values.length; i++)
+                values[i] += coefficient * column[i];
+        }
+        store.putDerived(name, values);
+        return values;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+    public String getDefinition() {
+        return this.definition;
+    }
+    public String[] getTerms() {
+        return this.terms;
+    }
+}
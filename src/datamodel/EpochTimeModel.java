@@ -0,0 +1,190 @@
+package datamodel;
+
+/**
+ * @class EpochTimeModel
+ * @brief A small model that packs calendar dates into minutes since 01/01/1970 00:00
+ *          and unpacks them back, so time keys can be handled as plain longs
+ */
+public class EpochTimeModel {
+    /**
+     * MINUTES_PER_HOUR -> the minutes in one hour
+     * MINUTES_PER_DAY -> the minutes in one day
+     * MINUTES_PER_WEEK -> the minutes in one week
+     */
+    public static final long MINUTES_PER_HOUR = 60;
+    public static final long MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+    public static final long MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private EpochTimeModel() {}
+
+    /**
+     * @message daysFromCivil
+     * @brief Counts the days between 01/01/1970 and the given date of the proleptic gregorian calendar
+     * @param year The year number
+     * @param month The month number [1-12]
+     * @param day The day number [1-31]
+     * @return the number of days since the epoch (negative before 1970)
+     */
+    public static long daysFromCivil(int year, int month, int day) {
+        /* Shift the year so that it starts on March, which puts the leap day at its end */
+        year -= (month <= 2) ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @message toEpochMinute
+     * @brief Packs a calendar date and time into a single minute counter
+     * @return the minutes since 01/01/1970 00:00
+     */
+    public static long toEpochMinute(int year, int month, int day, int hour, int minute) {
+        return daysFromCivil(year, month, day) * MINUTES_PER_DAY + hour * MINUTES_PER_HOUR + minute;
+    }
+
+    /**
+     * @message toEpochMinute
+     * @brief Packs the string date and time models read from the input file into a single minute counter
+     * @param date The date model of a record
+     * @param time The time model of a record
+     * @return the minutes since 01/01/1970 00:00
+     */
+    public static long toEpochMinute(DateModel date, TimeModel time) {
+        return toEpochMinute(
+            Integer.parseInt(date.getYear()),
+            Integer.parseInt(date.getMonth()),
+            Integer.parseInt(date.getDay()),
+            Integer.parseInt(time.getHour()),
+            Integer.parseInt(time.getMinute())
+        );
+    }
+
+    /**
+     * @message parse
+     * @brief Packs a timestamp written as in the input files (dd/mm/yyyy hh:mm[:ss]) into a single minute counter
+     * @param dateTime The timestamp, the time part may be left out for midnight
+     * @return the minutes since 01/01/1970 00:00
+     * @throws IllegalArgumentException if the timestamp is not well formed
+     */
+    public static long parse(String dateTime) {
+        try {
+            String[] items = dateTime.trim().split("\\s+");
+            String[] dateItems = items[0].split("/");
+            String[] timeItems = (items.length > 1) ? items[1].split(":") : new String[]{"0", "0"};
+            return toEpochMinute(
+                Integer.parseInt(dateItems[2]),
+                Integer.parseInt(dateItems[1]),
+                Integer.parseInt(dateItems[0]),
+                Integer.parseInt(timeItems[0]),
+                Integer.parseInt(timeItems[1])
+            );
+        }
+        catch(Exception e) {
+            throw new IllegalArgumentException("Wrong timestamp: " + dateTime);
+        }
+    }
+
+    /**
+     * @message dayOfWeek
+     * @brief Finds the day of week of an epoch minute
+     * @param epochMinute The packed time
+     * @return the day of week [0-6] starting from Monday
+     */
+    public static int dayOfWeek(long epochMinute) {
+        /* 01/01/1970 was a Thursday */
+        return Math.floorMod(Math.floorDiv(epochMinute, MINUTES_PER_DAY) + 3, 7);
+    }
+
+    /**
+     * @message minuteOfWeek
+     * @brief Finds the offset of an epoch minute inside its week
+     * @param epochMinute The packed time
+     * @return the minute of the week [0-10079] starting from Monday 00:00
+     */
+    public static int minuteOfWeek(long epochMinute) {
+        return dayOfWeek(epochMinute) * (int)MINUTES_PER_DAY + (int)Math.floorMod(epochMinute, MINUTES_PER_DAY);
+    }
+
+    /**
+     * @message monthOf
+     * @brief Finds the month of an epoch minute without unpacking the rest of its date
+     * @param epochMinute The packed time
+     * @return the month [1-12]
+     */
+    public static int monthOf(long epochMinute) {
+        /* The month part of civilFromDays */
+        long days = Math.floorDiv(epochMinute, MINUTES_PER_DAY) + 719468;
+        long dayOfEra = days - Math.floorDiv(days, 146097) * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthPrime = (5 * dayOfYear + 2) / 153;
+        return (int)(monthPrime < 10 ? monthPrime + 3 : monthPrime - 9);
+    }
+
+    /**
+     * @message civilFromDays
+     * @brief Unpacks a day count since the epoch into a calendar date (inverse of daysFromCivil)
+     * @param days The days since 01/01/1970
+     * @return the year, the month [1-12] and the day [1-31]
+     */
+    public static int[] civilFromDays(long days) {
+        days += 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthPrime = (5 * dayOfYear + 2) / 153;
+        int day = (int)(dayOfYear - (153 * monthPrime + 2) / 5 + 1);
+        int month = (int)(monthPrime < 10 ? monthPrime + 3 : monthPrime - 9);
+        int year = (int)(yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+
+    /**
+     * @message format
+     * @brief Unpacks an epoch minute into a readable timestamp
+     * @param epochMinute The packed time
+     * @param withTime Whether to append the hour and minute (true) or only print the date (false)
+     * @return a String of the form yyyy-mm-dd[ hh:mm]
+     */
+    public static String format(long epochMinute, boolean withTime) {
+        int[] date = civilFromDays(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+        int minuteOfDay = (int)Math.floorMod(epochMinute, MINUTES_PER_DAY);
+
+        if(!withTime)
+            return String.format("%04d-%02d-%02d", date[0], date[1], date[2]);
+        return String.format("%04d-%02d-%02d %02d:%02d", date[0], date[1], date[2], minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * @message createDateModel
+     * @brief Unpacks an epoch minute into a date model written as in the input files
+     * @param epochMinute The packed time
+     * @return the date model (dd, mm, yyyy)
+     */
+    public static DateModel createDateModel(long epochMinute) {
+        int[] date = civilFromDays(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+        DateModel dateModel = new DateModel();
+        dateModel.setDay(String.format("%02d", date[2]));
+        dateModel.setMonth(String.format("%02d", date[1]));
+        dateModel.setYear(String.valueOf(date[0]));
+        return dateModel;
+    }
+
+    /**
+     * @message createTimeModel
+     * @brief Unpacks an epoch minute into a time model written as in the input files
+     * @param epochMinute The packed time
+     * @return the time model (hh, mm, 00)
+     */
+    public static TimeModel createTimeModel(long epochMinute) {
+        int minuteOfDay = (int)Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        TimeModel timeModel = new TimeModel();
+        timeModel.setHour(String.format("%02d", minuteOfDay / 60));
+        timeModel.setMinute(String.format("%02d", minuteOfDay % 60));
+        timeModel.setSecond("00");
+        return timeModel;
+    }
+}
@@ -1,7 +1,5 @@
 package datamodel;
 
-import java.io.File;
-
 import java.io.FileReader;
 import java.io.BufferedReader;
 import java.io.FileWriter;
@@ -157,32 +155,4 @@ public class FileHandler {
             System.out.println("There was an error with closing the files.");
         }
     }
-    
-    /**
-     * @message appendToDB
-     * @brief Write data ReportMetadataModel objects to the database
-     * @param metadata The metadata to write
-     **/
-    public void appendToDB(ReportMetadataModel metadata) {
-    	try {
-    		File file = new File("___db.dbfile");
-            FileWriter fr = new FileWriter(file, true);
-            
-            String desc = metadata.getDescription();
-            String export = metadata.getExportType();
-            String output = metadata.getOutputPath();
-            
-            /* Write the string with the ';' delimiter and append a newline at the end */
-            fr.append(desc)
-                    .append(";")
-                    .append(export)
-                    .append(";")
-                    .append(output)
-                    .append("\n");
-            fr.close();
-    	}
-    	catch(Exception e) {
-    		/* System.out.println(e) */
-    	}
-    }
 }
@@ -0,0 +1,20 @@
+package datamodel;
+
+/**
+ * @class ForecastResultModel
+ * @brief A summary result holding forecasted consumption,
+ *          so that predictions can be reported through the same Reporter formats as the aggregates
+ */
+public class ForecastResultModel extends SummaryResultModel {
+    /**
+     * @message addForecast
+     * @brief Adds the predicted values of all meters for a future time bucket
+     * @param timeUnit the label of the future time bucket
+     * @param kitchen the predicted kitchen consumption
+     * @param laundry the predicted laundry consumption
+     * @param ac the predicted air condition consumption
+     */
+    public void addForecast(String timeUnit, double kitchen, double laundry, double ac) {
+        put(timeUnit, kitchen, laundry, ac);
+    }
+}
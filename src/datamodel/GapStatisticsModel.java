@@ -0,0 +1,96 @@
+package datamodel;
+
+/**
+ * @class GapStatisticsModel
+ * @brief A model that describes the time gaps found while resampling measurements to a regular grid
+ */
+public class GapStatisticsModel {
+    /**
+     * resolution -> the length of a grid slot in minutes
+     * slots -> the grid slots between the first and the last reading
+     * observedSlots -> the slots that had at least one reading
+     * gaps -> the number of runs of consecutive slots without readings
+     * missingSlots -> the slots without readings
+     * filledSlots -> the missing slots that the fill policy filled
+     * longestGap -> the length of the longest gap in slots
+     * longestGapStart -> the epoch minute where the longest gap starts
+     * outOfOrder -> the readings dropped because they came before an already closed slot
+     */
+    private int resolution;
+    private long slots;
+    private long observedSlots;
+    private long gaps;
+    private long missingSlots;
+    private long filledSlots;
+    private long longestGap;
+    private long longestGapStart;
+    private long outOfOrder;
+
+    public GapStatisticsModel(int resolution) {
+        this.resolution = resolution;
+    }
+
+    /**
+     * @message recordGap
+     * @brief Counts a gap
+     * @param startMinute The epoch minute of the first missing slot
+     * @param length The number of missing slots
+     * @param filled Whether the fill policy filled the slots
+     */
+    public void recordGap(long startMinute, long length, boolean filled) {
+        gaps++;
+        missingSlots += length;
+        slots += length;
+        if(filled)
+            filledSlots += length;
+        if(length > longestGap) {
+            longestGap = length;
+            longestGapStart = startMinute;
+        }
+    }
+
+    /**
+     * @message recordObservedSlot
+     * @brief Counts a slot that had readings
+     */
+    public void recordObservedSlot() {
+        observedSlots++;
+        slots++;
+    }
+
+    /**
+     * @message recordOutOfOrder
+     * @brief Counts a reading dropped for coming out of time order
+     */
+    public void recordOutOfOrder() {
+        outOfOrder++;
+    }
+
+    public int getResolution() {
+        return this.resolution;
+    }
+    public long getSlots() {
+        return this.slots;
+    }
+    public long getObservedSlots() {
+        return this.observedSlots;
+    }
+    public long getGaps() {
+        return this.gaps;
+    }
+    public long getMissingSlots() {
+        return this.missingSlots;
+    }
+    public long getFilledSlots() {
+        return this.filledSlots;
+    }
+    public long getLongestGap() {
+        return this.longestGap;
+    }
+    public long getLongestGapStart() {
+        return this.longestGapStart;
+    }
+    public long getOutOfOrder() {
+        return this.outOfOrder;
+    }
+}
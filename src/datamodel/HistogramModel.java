@@ -0,0 +1,119 @@
+package datamodel;
+
+/**
+ * @class HistogramModel
+ * @brief A histogram of readings with linear or logarithmic bins, counted in a primitive long array.
+ *          Slot 0 counts the readings below the first bin (for logarithmic bins this includes the zero readings),
+ *          the last slot counts the readings at or above the end of the last bin. Missing (NaN) readings are not counted
+ */
+public class HistogramModel {
+    /**
+     * min, max -> the range covered by the bins
+     * numBins -> the number of bins inside the range
+     * log -> whether the bins grow geometrically (true) or have equal widths (false)
+     * scale -> the bins per unit (linear) or per unit of log (logarithmic), precomputed to keep the hot path to a multiplication
+     * counts -> the underflow slot, the counter of every bin and the overflow slot
+     * edgeFormat -> the format of the edges in labels, with enough significant digits to tell neighbouring edges apart
+     */
+    private final double min;
+    private final double max;
+    private final int numBins;
+    private final boolean log;
+    private final double scale;
+    private final long[] counts;
+    private final String edgeFormat;
+
+    public HistogramModel(double min, double max, int numBins, boolean log) {
+        this.min = min;
+        this.max = max;
+        this.numBins = numBins;
+        this.log = log;
+        this.scale = log ? numBins / Math.log(max / min) : numBins / (max - min);
+        this.counts = new long[numBins + 2];
+
+        /* The digits needed grow with how small a bin is next to the values at its edges */
+        double relativeWidth = log ? Math.expm1(1 / scale) : (max - min) / numBins / Math.max(Math.abs(min), Math.abs(max));
+        int digits = (int)Math.ceil(-Math.log10(relativeWidth)) + 2;
+        this.edgeFormat = "%." + Math.min(17, Math.max(3, digits)) + "g";
+    }
+
+    /**
+     * @message add
+     * @brief Counts a reading in its bin
+     * @param value The reading
+     */
+    public void add(double value) {
+        if(Double.isNaN(value))
+            return;
+        if(value < min || (log && value <= 0.0)) {
+            counts[0]++;
+            return;
+        }
+        if(value >= max) {
+            counts[numBins + 1]++;
+            return;
+        }
+
+        int bin = (int)((log ? Math.log(value / min) : value - min) * scale);
+        /* Guard against rounding right at the upper edge */
+        counts[1 + Math.min(bin, numBins - 1)]++;
+    }
+
+    /**
+     * @message merge
+     * @brief Adds the counters of a histogram with the same bins (e.g. built by another worker) to this one
+     * @param other The other histogram
+     */
+    public void merge(HistogramModel other) {
+        for(int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+    }
+
+    /**
+     * @message getEdge
+     * @brief Finds the lower edge of a bin
+     * @param bin The bin [0-numBins], numBins giving the upper edge of the last bin
+     * @return the edge value
+     */
+    public double getEdge(int bin) {
+        if(log)
+            return min * Math.exp(bin / scale);
+        return min + bin / scale;
+    }
+
+    /**
+     * @message getSlotLabel
+     * @brief Describes the range counted by a slot
+     * @param slot The slot [0-numBins+1]
+     * @return a label such as [2.0, 4.0)
+     */
+    public String getSlotLabel(int slot) {
+        if(slot == 0)
+            return "< " + formatEdge(min);
+        if(slot == numBins + 1)
+            return ">= " + formatEdge(max);
+        return "[" + formatEdge(getEdge(slot - 1)) + ", " + formatEdge(getEdge(slot)) + ")";
+    }
+
+    /**
+     * @message getSlotKey
+     * @brief Names a slot uniquely, by its position and its range, so that the slots sort in order as text
+     * @param slot The slot [0-numBins+1]
+     * @return a key such as 0003 [2.0, 4.0)
+     */
+    public String getSlotKey(int slot) {
+        int width = String.valueOf(counts.length - 1).length();
+        return String.format("%0" + width + "d ", slot) + getSlotLabel(slot);
+    }
+
+    private String formatEdge(double edge) {
+        return String.format(edgeFormat, edge);
+    }
+
+    public int getSlotCount() {
+        return this.counts.length;
+    }
+    public long getCount(int slot) {
+        return this.counts[slot];
+    }
+}
@@ -1,90 +1,386 @@
 package datamodel;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @class History
- * @brief Implements a history database model for saving aggregate metric reports
+ * @brief Implements a history database model for saving aggregate metric reports.
+ * 			The reports are kept in an append-only HistoryLog and read a page at a time, so opening the history only
+ * 			reads the header of the log, whatever the number of saved reports. Saves go through a group commit
+ * 			HistoryWriter, which appends and forces the reports of concurrent callers together.
+ * 			A HistorySearchIndex, saved next to the log, answers searches by description terms, export type,
+ * 			output path prefix and creation time.
+ * 			A HistoryMaintenance can mark the reports whose files were deleted and compact them out of the log
+ * 			(the positions of the reports after them shift down when it does)
  */
 public class History {
     /**
-     * reports -> An arraylist where ReportMetadataModels are saved
+     * DEFAULT_FILENAME -> the log of the history
+     * LEGACY_FILENAME -> the ';' separated text database of older versions, imported once into an empty log
+     * DEFAULT_PAGE_SIZE -> the reports per page when listing
+     * INDEX_PAGE_SIZE -> the reports read at a time when the search index catches up with the log
+     * COMMIT_INTERVAL_MILLIS -> the least time between two commits of the writer
+     * MAINTENANCE_PERIOD_MILLIS -> the time between two background maintenance runs
+     *
+     * log -> the append-only log where ReportMetadataModels are saved
+     * writer -> the group commit writer of the log
+     * index -> the search index of the log, loaded on the first search so that opening the history stays cheap
+     * indexFilename -> the path the search index is saved to
+     * indexLock -> guards the loading and the catching up of the search index
+     * savedSize -> the reports of the search index when it was last saved (-1 if it was never saved)
+     * missing -> the positions of the reports whose files were found missing, until they are compacted out (guarded by indexLock)
+     * maintenance -> the background maintenance, or null if it was not started
      */
-    private final ArrayList<ReportMetadataModel> reports = new ArrayList<>();
-    private final FileHandler handler = new FileHandler("___db.dbfile");
+    public static final String DEFAULT_FILENAME = "___history.db";
+    public static final String LEGACY_FILENAME = "___db.dbfile";
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final long COMMIT_INTERVAL_MILLIS = 10;
+    public static final long MAINTENANCE_PERIOD_MILLIS = 10 * 60 * 1000;
+    private static final int INDEX_PAGE_SIZE = 4096;
+
+    private final HistoryLog log;
+    private final HistoryWriter writer;
+    private HistorySearchIndex index;
+    private final String indexFilename;
+    private final Object indexLock = new Object();
+    private int savedSize;
+    private RoaringBitmapModel missing;
+    private HistoryMaintenance maintenance;
 
     public History() {
-        /* TODO MAKE HISTORY UPDATE WHEN I DELETE A REPORT OUTSIDE THE FILE */
-    	
+        this(DEFAULT_FILENAME);
+    }
+
+    public History(String filename) {
+        this(filename, COMMIT_INTERVAL_MILLIS, true);
+    }
+
+    /**
+     * @message History
+     * @brief Opens a history log with a writer of the given commit policy
+     * @param filename the path of the log
+     * @param commitIntervalMillis the least time between two commits, i.e. how long a save waits at most for others to join it
+     * @param force whether every commit is forced to the disk before its saves complete
+     */
+    public History(String filename, long commitIntervalMillis, boolean force) {
+        log = new HistoryLog(filename);
+        log.open();
+
+        if(log.size() == 0 && filename.equals(DEFAULT_FILENAME))
+            importLegacy(LEGACY_FILENAME);
+
+        indexFilename = filename + ".search";
+        missing = new RoaringBitmapModel();
+        writer = new HistoryWriter(log, commitIntervalMillis, force, (first, batch) -> {
+            synchronized(indexLock) {
+                if(index != null)
+                    catchUpIndex();
+            }
+        });
+    }
+
+    /**
+     * @message importLegacy
+     * @brief Copies the reports of the old text database into the log
+     * @param legacyFilename the path of the text database
+     */
+    private void importLegacy(String legacyFilename) {
+        if(!new File(legacyFilename).isFile())
+            return;
+
     	/* The custom database file reader */
-        handler.createReaderFD();
-        
-        String data;
-        
-        /* The data list to use in the loop for regaining saved reports */
-        ArrayList<String> dataList = new ArrayList<>();
-        
-        /* Read all saved reports */
+        FileHandler handler = new FileHandler(legacyFilename);
+        if(handler.createReaderFD() == -1)
+            return;
+
+        ArrayList<ReportMetadataModel> batch = new ArrayList<>();
         while(true) {
-			data = handler.readLineFromFile();
+            String data = handler.readLineFromFile();
             if(data == null)
                 /* Loaded the whole file */
-				break;
-			dataList.add(data);
-        }
+                break;
+
+            /* The description may itself hold ';', the export type and the output path are the last two items */
+            int pathStart = data.lastIndexOf(';');
+            int exportStart = (pathStart <= 0) ? -1 : data.lastIndexOf(';', pathStart - 1);
+            if(exportStart == -1)
+                continue;
 
-        /* For each item in the data list remap it into a ReportMetadataModel object and save in the reports arraylist */
-        for(String item : dataList) {
-        	String[] list = item.split(";");
-        	String desc = list[0];
-        	String export = list[1];
-        	String output = list[2];
-        	
-        	ReportMetadataModel repModel = new ReportMetadataModel();
-        	repModel.setDescription(desc);
-        	repModel.setExportType(export);
-        	repModel.setOutputPath(output);
-        	
-        	reports.add(repModel);
+            ReportMetadataModel repModel = new ReportMetadataModel();
+            repModel.setDescription(data.substring(0, exportStart));
+            repModel.setExportType(data.substring(exportStart + 1, pathStart));
+            repModel.setOutputPath(data.substring(pathStart + 1));
+            batch.add(repModel);
         }
+        handler.closeFD();
+
+        if(!batch.isEmpty())
+            log.append(batch, true);
     }
 
     /**
      * @message saveReport
-     * @brief Saves the ReportMetadataModels into the arraylist of reports
+     * @brief Saves a ReportMetadataModel, appending it to the log with the next commit
      * @param metadata the object to save
+     * @return a future completed with the position of the report once it is durable
      */
-    public void saveReport(ReportMetadataModel metadata) {
+    public CompletableFuture<Long> saveReport(ReportMetadataModel metadata) {
         /* Metadata is already checked to be valid */
-        reports.add(metadata);
+        ArrayList<ReportMetadataModel> batch = new ArrayList<>();
+        batch.add(metadata);
+        return saveReports(batch);
+    }
 
-        /* TODO IS BETTER TO USE YAML OR XML FOR SAVING DATA LIKE THIS */
-        handler.appendToDB(metadata);
+    /**
+     * @message saveReports
+     * @brief Saves several ReportMetadataModels, appending them to the log together with the next commit
+     * @param batch the objects to save, in order
+     * @return a future completed with the position of the first report once they are durable
+     */
+    public CompletableFuture<Long> saveReports(ArrayList<ReportMetadataModel> batch) {
+        long now = System.currentTimeMillis();
+        for(ReportMetadataModel metadata : batch)
+            if(metadata.getCreatedAt() == 0)
+                metadata.setCreatedAt(now);
+        return writer.submit(batch);
+    }
+
+    /**
+     * @message searchReports
+     * @brief Finds the saved reports matching all the given filters through the search index, newest first
+     * @param text the terms the description must all hold (case insensitive), or null
+     * @param exportType the export type, or null
+     * @param pathPrefix the start of the output path, or null
+     * @param fromMillis the earliest creation time (included), or Long.MIN_VALUE
+     * @param toMillis the latest creation time (excluded), or Long.MAX_VALUE
+     * @param limit the most reports to return
+     * @return the positions of the matching reports (0 for the oldest), newest first
+     */
+    public long[] searchReports(String text, String exportType, String pathPrefix, long fromMillis, long toMillis, int limit) {
+        synchronized(indexLock) {
+            loadIndex();
+            return index.search(text, exportType, pathPrefix, fromMillis, toMillis, limit);
+        }
+    }
+
+    /**
+     * @message loadIndex
+     * @brief Loads the saved search index on first use and indexes the reports committed after it was saved
+     */
+    private void loadIndex() {
+        if(index != null)
+            return;
+        /* An index saved before a compaction (e.g. left behind by a crash during it), or next to a log that was deleted
+            and created again, holds positions of another log */
+        HistorySearchIndex savedIndex = HistorySearchIndex.load(indexFilename);
+        boolean valid = savedIndex != null && savedIndex.getGeneration() == log.getGeneration()
+            && savedIndex.getLogId() == log.getLogId() && savedIndex.getSize() <= log.size();
+        index = valid ? savedIndex : new HistorySearchIndex(log.getGeneration(), log.getLogId());
+        savedSize = (index == savedIndex) ? index.getSize() : -1;
+        catchUpIndex();
+    }
+
+    /**
+     * @message catchUpIndex
+     * @brief Indexes the reports of the log that the search index does not hold yet, reading them a page at a time
+     */
+    private void catchUpIndex() {
+        for(long from = index.getSize(); from < log.size(); from += INDEX_PAGE_SIZE) {
+            ArrayList<ReportMetadataModel> page = log.read(from, INDEX_PAGE_SIZE);
+            if(page == null)
+                return;
+            index.add(from, page);
+        }
+    }
+
+    /**
+     * @message markMissing
+     * @brief Marks reports whose files were found missing, to be removed by the next compaction
+     * @param generation the generation of the log the positions were read in
+     * @param positions the positions of the reports, in ascending order
+     * @return the number of reports that were not marked before, or a negative integer if the log was compacted
+     *          since the positions were read (they are then ignored, since they may now be other reports)
+     */
+    public int markMissing(long generation, int[] positions) {
+        synchronized(indexLock) {
+            if(generation != log.getGeneration())
+                return -1;
+            int marked = 0;
+            for(int position : positions) {
+                if(position < log.size() && !missing.contains(position)) {
+                    missing.add(position);
+                    marked++;
+                }
+            }
+            return marked;
+        }
+    }
+
+    /**
+     * @message compact
+     * @brief Rewrites the log without the reports marked missing and swaps it in. Saves wait for the swap, and the
+     *          search index, whose positions no longer hold, is dropped and rebuilt on the next search
+     * @return the number of reports removed, or a negative integer if the log could not be compacted
+     */
+    public int compact() {
+        synchronized(indexLock) {
+            if(missing.getCardinality() == 0)
+                return 0;
+
+            RoaringBitmapModel removed = missing;
+            int compacted = log.compact(position -> !removed.contains((int)position));
+            if(compacted < 0)
+                return compacted;
+
+            missing = new RoaringBitmapModel();
+            index = null;
+            savedSize = -1;
+            new File(indexFilename).delete();
+            return compacted;
+        }
+    }
+
+    /**
+     * @message startMaintenance
+     * @brief Starts reconciling the history with the report files and compacting it in the background
+     * @param periodMillis the time between two runs
+     */
+    public void startMaintenance(long periodMillis) {
+        getMaintenance().start(periodMillis);
+    }
+
+    /**
+     * @message runMaintenance
+     * @brief Reconciles the history with the report files and compacts it now, after any run in progress; a report is
+     *          removed once its file was found missing on two runs in a row
+     * @return the number of reports removed, or a negative integer if the history could not be maintained
+     */
+    public int runMaintenance() {
+        return getMaintenance().runOnce();
+    }
+
+    /* Every run goes through the one maintenance of the history, so that runs never overlap */
+    private synchronized HistoryMaintenance getMaintenance() {
+        if(maintenance == null)
+            maintenance = new HistoryMaintenance(this);
+        return maintenance;
+    }
+
+    /**
+     * @message getReports
+     * @brief Reads a page of saved reports from the log
+     * @param from the position of the first report (0 for the oldest)
+     * @param length the most reports to read
+     * @return the reports (fewer at the end of the history), or null if the log cannot be read
+     */
+    public ArrayList<ReportMetadataModel> getReports(long from, int length) {
+        return log.read(from, length);
     }
 
     /**
      * @message listReports
-     * @brief Iterates over the reports arraylist and prints each saved report (not the measurements)
+     * @brief Prints every saved report (not the measurements), reading the log a page at a time
      */
     /* TODO FIND FULL FILE PATH INSTEAD OF LOCAL FOR REPORT HISTORY */
     public void listReports() {
-        int counter = 0;
-        System.out.println("Available reports: " + getHistorySize() + "\n");
-        for(ReportMetadataModel data : reports) { 		      
-            counter++;
-            System.out.println("Report: " + counter);
-            System.out.println("\t" + data.getDescription());
-            System.out.println("\tOutput path: " + data.getOutputPath());
-            System.out.println("\tExport type: " + data.getExportType());
-       }
+        long size = log.size();
+        System.out.println("Available reports: " + size + "\n");
+        for(long from = 0; from < size; from += DEFAULT_PAGE_SIZE)
+            if(printReports(from, DEFAULT_PAGE_SIZE) == -1)
+                return;
+    }
+
+    /**
+     * @message listReports
+     * @brief Prints a page of the saved reports (not the measurements)
+     * @param page the page, starting from 1
+     * @param pageSize the reports per page
+     * @return 0 if the page exists; a negative integer otherwise
+     */
+    public int listReports(int page, int pageSize) {
+        long size = log.size();
+        long pages = Math.max(1, (size + pageSize - 1) / pageSize);
+        if(page < 1 || page > pages) {
+            System.out.println("There is no page " + page + " of the report history.");
+            return -1;
+        }
+
+        System.out.println("Available reports: " + size + " (page " + page + " of " + pages + ")\n");
+        return printReports((long)(page - 1) * pageSize, pageSize);
+    }
+
+    private int printReports(long from, int length) {
+        ArrayList<ReportMetadataModel> reports = log.read(from, length);
+        if(reports == null)
+            return -1;
+
+        long counter = from;
+        for(ReportMetadataModel data : reports)
+            printReport(++counter, data);
+        return 0;
+    }
+
+    /**
+     * @message listReports
+     * @brief Prints the saved reports at the given positions (e.g. the results of a search)
+     * @param positions the positions of the reports
+     * @return 0 if they could be read; a negative integer otherwise
+     */
+    public int listReports(long[] positions) {
+        System.out.println("Matching reports: " + positions.length + "\n");
+        for(long position : positions) {
+            ArrayList<ReportMetadataModel> report = log.read(position, 1);
+            if(report == null || report.isEmpty())
+                return -1;
+            printReport(position + 1, report.get(0));
+        }
+        return 0;
+    }
+
+    private void printReport(long number, ReportMetadataModel data) {
+        boolean isMissing;
+        synchronized(indexLock) {
+            isMissing = missing.contains((int)(number - 1));
+        }
+        System.out.println("Report: " + number + (isMissing ? " (the file is missing)" : ""));
+        System.out.println("\t" + data.getDescription());
+        System.out.println("\tOutput path: " + data.getOutputPath());
+        System.out.println("\tExport type: " + data.getExportType());
+        if(data.getCreatedAt() > 0)
+            System.out.println("\tCreated: " + EpochTimeModel.format(data.getCreatedAt() / 60000, true));
+    }
+
+    public long getGeneration() {
+        return log.getGeneration();
     }
 
     /**
      * @message getHistorySize
-     * @brief Finds the size of the history arraylist
+     * @brief Finds the number of saved reports, from the header of the log
      * @return the size
      */
     public int getHistorySize() {
-        return reports.size();
+        return (int)log.size();
+    }
+
+    /**
+     * @message close
+     * @brief Commits the pending saves and closes the log of the history
+     */
+    public void close() {
+        synchronized(this) {
+            if(maintenance != null)
+                maintenance.stop();
+        }
+        writer.close();
+
+        /* Only an index that was used is saved; an unused one catches up with the log on the first search of a later run */
+        synchronized(indexLock) {
+            if(index != null && index.getSize() != savedSize)
+                index.save(indexFilename);
+        }
+        log.close();
     }
 }
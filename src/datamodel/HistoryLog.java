@@ -0,0 +1,403 @@
+package datamodel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.function.LongPredicate;
+
+/**
+ * @class HistoryLog
+ * @brief An append-only binary log of report metadata with an offset index, so that the history can be opened
+ * 			by reading a fixed size header and any page of it can be read without reading what comes before.
+ * 			The log file starts with a header (magic, version, record count, end offset, generation, log id) followed by the records,
+ * 			each an int length and the description, export type and output path as length prefixed UTF-8 strings,
+ * 			followed by the long creation time (records written without it read as 0).
+ * 			The index file holds the long offset of every record in the log. Records are written first and the header
+ * 			last, so the header count is the commit point: bytes past the end offset of a crashed append are overwritten.
+ * 			The generation grows by one with every compaction, so positions read before one can be told apart; the log id
+ * 			is drawn at random when a log is created and kept by its compactions, so a log that was deleted and created
+ * 			again (starting over at generation 0) can be told apart from the one before. Logs of version 1 have no log id
+ * 			(read as 0) and keep their layout until they are compacted
+ */
+public class HistoryLog {
+	/**
+	 * MAGIC -> the first bytes of the log ("EPH1")
+	 * VERSION -> the version of the layout
+	 * HEADER_SIZE -> the bytes of the header
+	 * V1_HEADER_SIZE -> the bytes of the header of version 1, which has no log id
+	 * RANDOM -> draws the log ids
+	 * COMPACT_PAGE_SIZE -> the records copied at a time when compacting
+	 *
+	 * filename -> the path of the log, the index is the same path with ".idx" appended
+	 * log -> the channel of the log file
+	 * index -> the channel of the index file
+	 * count -> the committed records
+	 * endOffset -> the end of the last committed record in the log
+	 * generation -> the number of compactions the log went through, positions only hold within one generation
+	 * logId -> the identity of the log (0 for a log of version 1)
+	 * version -> the version of the layout of the open log
+	 */
+	public static final int MAGIC = 0x45504831;
+	public static final int VERSION = 2;
+	private static final int HEADER_SIZE = 40;
+	private static final int V1_HEADER_SIZE = 32;
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final int COMPACT_PAGE_SIZE = 4096;
+
+	private final String filename;
+	private FileChannel log;
+	private FileChannel index;
+	private long count;
+	private long endOffset;
+	private long generation;
+	private long logId;
+	private int version;
+
+	public HistoryLog(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * @message open
+	 * @brief Opens (or creates) the log and its index, reading only the header
+	 * @return 0 if the log was opened; a negative integer if it cannot be opened or is not a history log
+	 */
+	public synchronized int open() {
+		try {
+			log = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			index = FileChannel.open(Paths.get(filename + ".idx"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			if(log.size() == 0) {
+				count = 0;
+				endOffset = HEADER_SIZE;
+				generation = 0;
+				version = VERSION;
+				logId = newLogId();
+				writeHeader(true);
+				return 0;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(V1_HEADER_SIZE);
+			readFully(log, header, 0);
+			header.flip();
+			int magic = header.getInt();
+			version = header.getInt();
+			if(magic != MAGIC || (version != VERSION && version != 1)) {
+				System.out.println("The history file " + filename + " is not a history log of a supported version.");
+				close();
+				return -1;
+			}
+			count = header.getLong();
+			endOffset = header.getLong();
+			generation = header.getLong();
+			logId = 0;
+			if(version == VERSION) {
+				ByteBuffer id = ByteBuffer.allocate(8);
+				readFully(log, id, V1_HEADER_SIZE);
+				id.flip();
+				logId = id.getLong();
+			}
+			if(log.size() < endOffset || (index.size() < count * 8 && rebuildIndex() == -1)) {
+				System.out.println("The history file " + filename + " is truncated.");
+				close();
+				return -1;
+			}
+			return 0;
+		}
+		catch(IOException e) {
+			System.out.println("There was an error with opening the history file.");
+			close();
+			return -1;
+		}
+	}
+
+	/**
+	 * @message append
+	 * @brief Appends records to the log with one write per file, then commits them by rewriting the header
+	 * @param batch the records, in order
+	 * @param force whether the records are forced to the disk before the method returns
+	 * @return the position of the first record of the batch, or a negative integer if they could not be written
+	 */
+	public synchronized long append(ArrayList<ReportMetadataModel> batch, boolean force) {
+		if(log == null)
+			return -1;
+
+		byte[][][] encoded = new byte[batch.size()][][];
+		int size = 0;
+		for(int i = 0; i < batch.size(); i++) {
+			ReportMetadataModel metadata = batch.get(i);
+			encoded[i] = new byte[][]{bytes(metadata.getDescription()), bytes(metadata.getExportType()), bytes(metadata.getOutputPath())};
+			size += 4 + recordSize(encoded[i]);
+		}
+
+		ByteBuffer records = ByteBuffer.allocate(size);
+		ByteBuffer offsets = ByteBuffer.allocate(8 * batch.size());
+		long offset = endOffset;
+		for(int i = 0; i < encoded.length; i++) {
+			byte[][] record = encoded[i];
+			offsets.putLong(offset);
+			records.putInt(recordSize(record));
+			for(byte[] field : record) {
+				records.putInt((field == null) ? -1 : field.length);
+				if(field != null)
+					records.put(field);
+			}
+			records.putLong(batch.get(i).getCreatedAt());
+			offset += 4 + recordSize(record);
+		}
+		records.flip();
+		offsets.flip();
+
+		try {
+			writeFully(log, records, endOffset);
+			writeFully(index, offsets, count * 8);
+			if(force) {
+				log.force(false);
+				index.force(false);
+			}
+
+			long first = count;
+			count += batch.size();
+			endOffset = offset;
+			writeHeader(force);
+			return first;
+		}
+		catch(IOException e) {
+			System.out.println("There was an error with writing data to the history file.");
+			return -1;
+		}
+	}
+
+	/**
+	 * @message read
+	 * @brief Reads a page of records with one read of the index and one of the log
+	 * @param from the position of the first record
+	 * @param length the most records to read
+	 * @return the records (fewer at the end of the log), or null if they could not be read
+	 */
+	public synchronized ArrayList<ReportMetadataModel> read(long from, int length) {
+		ArrayList<ReportMetadataModel> page = new ArrayList<>();
+		if(log == null)
+			return null;
+		if(from < 0 || from >= count || length <= 0)
+			return page;
+		length = (int)Math.min(length, count - from);
+
+		try {
+			ByteBuffer offsets = ByteBuffer.allocate(8);
+			readFully(index, offsets, from * 8);
+			long start = offsets.flip().getLong();
+			long end = endOffset;
+			if(from + length < count) {
+				offsets.clear();
+				readFully(index, offsets, (from + length) * 8);
+				end = offsets.flip().getLong();
+			}
+
+			ByteBuffer records = ByteBuffer.allocate((int)(end - start));
+			readFully(log, records, start);
+			records.flip();
+			for(int i = 0; i < length; i++) {
+				int recordLength = records.getInt();
+				int recordEnd = records.position() + recordLength;
+				ReportMetadataModel metadata = new ReportMetadataModel();
+				metadata.setDescription(readString(records));
+				metadata.setExportType(readString(records));
+				metadata.setOutputPath(readString(records));
+				if(recordEnd - records.position() >= 8)
+					metadata.setCreatedAt(records.getLong());
+				records.position(recordEnd);
+				page.add(metadata);
+			}
+			return page;
+		}
+		catch(IOException | RuntimeException e) {
+			System.out.println("There was an error with reading the history file.");
+			return null;
+		}
+	}
+
+	/**
+	 * @message rebuildIndex
+	 * @brief Rewrites the index file by walking the length prefixes of the log, for an index left behind by a crash
+	 * @return 0 if the log is whole; a negative integer otherwise
+	 * @throws IOException if the files cannot be read or written
+	 */
+	private int rebuildIndex() throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		ByteBuffer offsets = ByteBuffer.allocate((int)(8 * count));
+		long offset = headerSize();
+		for(long i = 0; i < count; i++) {
+			if(offset + 4 > endOffset)
+				return -1;
+			offsets.putLong(offset);
+			length.clear();
+			readFully(log, length, offset);
+			offset += 4 + length.flip().getInt();
+		}
+		if(offset != endOffset)
+			return -1;
+
+		offsets.flip();
+		index.truncate(0);
+		writeFully(index, offsets, 0);
+		index.force(false);
+		return 0;
+	}
+
+	/**
+	 * @message compact
+	 * @brief Rewrites the log without the records that are not kept, into new files of the next generation that are then
+	 * 			moved over the old ones. The index is moved first: if the move of the log does not happen, the shorter index
+	 * 			is rebuilt on the next open
+	 * @param keep tells, by position, whether a record is kept
+	 * @return the number of records removed, or a negative integer if the log could not be compacted (it is then left as it was)
+	 */
+	public synchronized int compact(LongPredicate keep) {
+		if(log == null)
+			return -1;
+
+		String compactFilename = filename + ".compact";
+		HistoryLog compacted = new HistoryLog(compactFilename);
+		try {
+			Files.deleteIfExists(Paths.get(compactFilename));
+			Files.deleteIfExists(Paths.get(compactFilename + ".idx"));
+			if(compacted.open() == -1)
+				return -1;
+
+			int removed = 0;
+			for(long from = 0; from < count; from += COMPACT_PAGE_SIZE) {
+				ArrayList<ReportMetadataModel> page = read(from, COMPACT_PAGE_SIZE);
+				if(page == null) {
+					compacted.close();
+					return -1;
+				}
+				ArrayList<ReportMetadataModel> kept = new ArrayList<>();
+				for(int i = 0; i < page.size(); i++) {
+					if(keep.test(from + i))
+						kept.add(page.get(i));
+					else
+						removed++;
+				}
+				if(!kept.isEmpty() && compacted.append(kept, false) < 0) {
+					compacted.close();
+					return -1;
+				}
+			}
+			compacted.log.force(false);
+			compacted.index.force(false);
+			compacted.generation = generation + 1;
+			/* The compacted log is still the same log, unless the old one had no id yet */
+			if(logId != 0)
+				compacted.logId = logId;
+			compacted.writeHeader(true);
+			compacted.close();
+
+			/* Swap the compacted files in and reopen */
+			close();
+			Files.move(Paths.get(compactFilename + ".idx"), Paths.get(filename + ".idx"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.move(Paths.get(compactFilename), Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return (open() == -1) ? -1 : removed;
+		}
+		catch(IOException e) {
+			System.out.println("There was an error with compacting the history file.");
+			compacted.close();
+			if(log == null)
+				open();
+			return -1;
+		}
+	}
+
+	public synchronized long size() {
+		return this.count;
+	}
+	public synchronized long getGeneration() {
+		return this.generation;
+	}
+	public synchronized long getLogId() {
+		return this.logId;
+	}
+
+	/**
+	 * @message close
+	 * @brief Closes the log and its index
+	 */
+	public synchronized void close() {
+		try {
+			if(log != null) log.close();
+			if(index != null) index.close();
+		}
+		catch(IOException e) {
+			System.out.println("There was an error with closing the files.");
+		}
+		log = null;
+		index = null;
+	}
+
+	private void writeHeader(boolean force) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(headerSize());
+		header.putInt(MAGIC).putInt(version).putLong(count).putLong(endOffset).putLong(generation);
+		if(version == VERSION)
+			header.putLong(logId);
+		header.flip();
+		writeFully(log, header, 0);
+		if(force)
+			log.force(false);
+	}
+
+	/* A log of version 1 keeps its shorter header, since its records start right after it */
+	private int headerSize() {
+		return (version == VERSION) ? HEADER_SIZE : V1_HEADER_SIZE;
+	}
+
+	/* Never 0, which stands for a log without an id */
+	private static long newLogId() {
+		long id;
+		do {
+			id = RANDOM.nextLong();
+		} while(id == 0);
+		return id;
+	}
+
+	/* The fields and the creation time of a record, without its length */
+	private static int recordSize(byte[][] record) {
+		int size = 8;
+		for(byte[] field : record)
+			size += 4 + ((field == null) ? 0 : field.length);
+		return size;
+	}
+
+	private static byte[] bytes(String text) {
+		return (text == null) ? null : text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if(read < 0)
+				throw new IOException("Unexpected end of " + position);
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
@@ -0,0 +1,186 @@
+package datamodel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class HistoryMaintenance
+ * @brief Keeps a History in step with the report files on the disk, in the background:
+ * 			every run reads the history a batch at a time, checks the output file of every report of a batch on a pool
+ * 			of stat threads (the checks of different batches overlap, since they mostly wait on the file system),
+ * 			marks the reports whose files were missing on this run and on the one before (compaction can not be undone,
+ * 			so a file that is only away for a moment is not enough), and then compacts the log without them, so that listing,
+ * 			searching and opening the history do not slow down with reports that no longer exist.
+ * 			A History has one maintenance, whose runs take turns, and marks are only taken for the log generation
+ * 			they were read in
+ */
+public class HistoryMaintenance {
+    /**
+     * STAT_THREADS -> the threads checking the output files
+     * BATCH_SIZE -> the reports read from the history and checked by one task
+     * BATCHES_IN_FLIGHT -> the most batches read ahead of the checks, which bounds the memory of a run
+     *
+     * history -> the history maintained
+     * stats -> the pool checking the output files
+     * scheduler -> the thread running the maintenance periodically
+     * runLock -> makes the runs take turns
+     * stopped -> whether the maintenance was stopped for good
+     * suspects -> the positions whose files were missing on the last run (guarded by runLock)
+     * suspectsGeneration -> the log generation the suspects were found in (guarded by runLock)
+     */
+    public static final int STAT_THREADS = 8;
+    public static final int BATCH_SIZE = 256;
+    private static final int BATCHES_IN_FLIGHT = 4 * STAT_THREADS;
+
+    private final History history;
+    private final ExecutorService stats;
+    private ScheduledExecutorService scheduler;
+    private final Object runLock = new Object();
+    private volatile boolean stopped;
+    private RoaringBitmapModel suspects = new RoaringBitmapModel();
+    private long suspectsGeneration = -1;
+
+    public HistoryMaintenance(History history) {
+        this.history = history;
+        this.stats = Executors.newFixedThreadPool(STAT_THREADS, daemonThreads("history-stat"));
+    }
+
+    /**
+     * @message reconcile
+     * @brief Checks the output file of every saved report and marks the reports whose files are missing for the second run in a row
+     * @return the number of reports newly marked missing, or a negative integer if the history could not be read
+     *          or was compacted meanwhile
+     */
+    private int reconcile() {
+        long generation = history.getGeneration();
+        long size = history.getHistorySize();
+        /* The positions of an earlier generation are other reports now */
+        RoaringBitmapModel previous = (generation == suspectsGeneration) ? suspects : new RoaringBitmapModel();
+        RoaringBitmapModel found = new RoaringBitmapModel();
+        suspects = found;
+        suspectsGeneration = generation;
+        int missing = 0;
+        ArrayList<CompletableFuture<int[]>> checks = new ArrayList<>();
+        for(long from = 0; from < size; from += BATCH_SIZE) {
+            ArrayList<ReportMetadataModel> batch = history.getReports(from, BATCH_SIZE);
+            if(batch == null)
+                return -1;
+            long first = from;
+            checks.add(CompletableFuture.supplyAsync(() -> findMissing(first, batch), stats));
+
+            if(checks.size() == BATCHES_IN_FLIGHT || from + BATCH_SIZE >= size) {
+                for(CompletableFuture<int[]> check : checks) {
+                    int[] positions = check.join();
+                    for(int position : positions)
+                        found.add(position);
+                    int marked = history.markMissing(generation, confirmed(positions, previous));
+                    if(marked < 0)
+                        return -1;
+                    missing += marked;
+                }
+                checks.clear();
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @message confirmed
+     * @brief Keeps the positions that were also found missing on the previous run
+     * @param positions the positions found missing now, in ascending order
+     * @param previous the positions found missing on the previous run
+     * @return the positions found missing on both, in ascending order
+     */
+    private static int[] confirmed(int[] positions, RoaringBitmapModel previous) {
+        int[] confirmed = new int[positions.length];
+        int found = 0;
+        for(int position : positions)
+            if(previous.contains(position))
+                confirmed[found++] = position;
+        return Arrays.copyOf(confirmed, found);
+    }
+
+    /**
+     * @message findMissing
+     * @brief Checks the output files of a batch of reports
+     * @param first the position of the first report of the batch
+     * @param batch the reports
+     * @return the positions of the reports whose files are missing, in ascending order
+     */
+    private static int[] findMissing(long first, ArrayList<ReportMetadataModel> batch) {
+        int[] missing = new int[batch.size()];
+        int found = 0;
+        for(int i = 0; i < batch.size(); i++) {
+            File file = batch.get(i).getOutputFile();
+            if(file == null || !file.isFile())
+                missing[found++] = (int)(first + i);
+        }
+        return Arrays.copyOf(missing, found);
+    }
+
+    /**
+     * @message runOnce
+     * @brief Reconciles the history with the disk and compacts it if reports were found missing
+     * @return the number of reports removed from the history, or a negative integer if it could not be maintained
+     */
+    public int runOnce() {
+        synchronized(runLock) {
+            if(stopped || reconcile() == -1)
+                return -1;
+            return history.compact();
+        }
+    }
+
+    /**
+     * @message start
+     * @brief Runs the maintenance in the background now and then once every period, until stop
+     * @param periodMillis the time between the end of a run and the start of the next
+     */
+    public synchronized void start(long periodMillis) {
+        if(scheduler != null || stopped)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("history-maintenance"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            int removed = runOnce();
+            if(removed == -1)
+                System.out.println("The report history could not be maintained.");
+        }, 0, Math.max(1, periodMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @message stop
+     * @brief Stops the maintenance for good, waiting for a run in progress to end
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if(scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        /* A run started outside of the scheduler still needs the stat threads */
+        synchronized(runLock) {
+            stats.shutdown();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,293 @@
+package datamodel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @class HistorySearchIndex
+ * @brief An in-memory index over the reports of a history log, by position in the log:
+ * 			an inverted index from every description term to the bitmap of the reports holding it, a bitmap per export type,
+ * 			and the output path and creation time of every report for the prefix and time filters.
+ * 			It is extended as reports are committed and saved next to the log, so a restart only indexes the reports
+ * 			committed after the last save. The index records the generation of the log it was built from, since its positions
+ * 			do not hold across a compaction, and the id of that log, since a log created again starts over at the same generation
+ */
+public class HistorySearchIndex {
+	/**
+	 * MAGIC -> the first bytes of a saved index ("EPS1")
+	 * VERSION -> the version of the layout
+	 *
+	 * generation -> the generation of the log the positions refer to
+	 * logId -> the id of the log the positions refer to
+	 * terms -> the reports holding every lower case description term
+	 * types -> the reports of every export type
+	 * paths -> the output path of every report
+	 * times -> the creation time of every report
+	 * size -> the number of indexed reports, i.e. the position of the next one
+	 * timeSorted -> whether the creation times never decrease, so that time ranges can be binary searched
+	 */
+	public static final int MAGIC = 0x45505331;
+	public static final int VERSION = 3;
+
+	private final long generation;
+	private final long logId;
+	private final HashMap<String, RoaringBitmapModel> terms;
+	private final HashMap<String, RoaringBitmapModel> types;
+	private final ArrayList<String> paths;
+	private long[] times;
+	private int size;
+	private boolean timeSorted;
+
+	public HistorySearchIndex(long generation, long logId) {
+		this.generation = generation;
+		this.logId = logId;
+		terms = new HashMap<>();
+		types = new HashMap<>();
+		paths = new ArrayList<>();
+		times = new long[16];
+		size = 0;
+		timeSorted = true;
+	}
+
+	/**
+	 * @message tokenize
+	 * @brief Splits a text into its lower case terms (runs of letters and digits)
+	 * @param text the text
+	 * @return the terms, in order
+	 */
+	public static String[] tokenize(String text) {
+		if(text == null)
+			return new String[0];
+		String[] tokens = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+		return Arrays.stream(tokens).filter(token -> !token.isEmpty()).toArray(String[]::new);
+	}
+
+	/**
+	 * @message add
+	 * @brief Indexes committed reports
+	 * @param first the position of the first report in the log
+	 * @param batch the reports, in log order
+	 */
+	public synchronized void add(long first, ArrayList<ReportMetadataModel> batch) {
+		/* Reports must be indexed in log order, reports already indexed are skipped */
+		for(int i = (int)Math.max(0, size - first); i < batch.size(); i++) {
+			if(first + i != size)
+				return;
+			ReportMetadataModel metadata = batch.get(i);
+			int id = size;
+
+			for(String term : tokenize(metadata.getDescription()))
+				terms.computeIfAbsent(term, key -> new RoaringBitmapModel()).add(id);
+			types.computeIfAbsent(String.valueOf(metadata.getExportType()), key -> new RoaringBitmapModel()).add(id);
+			paths.add(metadata.getOutputPath());
+
+			if(size == times.length)
+				times = Arrays.copyOf(times, size * 2);
+			times[size] = metadata.getCreatedAt();
+			if(size > 0 && times[size] < times[size - 1])
+				timeSorted = false;
+			size++;
+		}
+	}
+
+	/**
+	 * @message search
+	 * @brief Finds the reports matching all the given filters, newest first
+	 * @param text the terms the description must all hold, or null
+	 * @param exportType the export type, or null
+	 * @param pathPrefix the start of the output path, or null
+	 * @param fromMillis the earliest creation time (included), or Long.MIN_VALUE
+	 * @param toMillis the latest creation time (excluded), or Long.MAX_VALUE
+	 * @param limit the most reports to return
+	 * @return the positions of the matching reports in the log, newest first
+	 */
+	public synchronized long[] search(String text, String exportType, String pathPrefix, long fromMillis, long toMillis, int limit) {
+		RoaringBitmapModel candidates = null;
+		for(String term : tokenize(text)) {
+			RoaringBitmapModel postings = terms.get(term);
+			if(postings == null)
+				return new long[0];
+			candidates = (candidates == null) ? postings : candidates.and(postings);
+		}
+		if(exportType != null) {
+			RoaringBitmapModel postings = types.get(exportType);
+			if(postings == null)
+				return new long[0];
+			candidates = (candidates == null) ? postings : candidates.and(postings);
+		}
+
+		/* Without term or type filters the candidates are a range of positions, narrowed by time if the times are sorted */
+		int[] ids = null;
+		int from = 0;
+		int to = size;
+		if(candidates != null)
+			ids = candidates.toArray();
+		else if(timeSorted) {
+			from = lowerBound(fromMillis);
+			to = lowerBound(toMillis);
+		}
+
+		long[] matches = new long[Math.max(0, Math.min(limit, (ids == null) ? to - from : ids.length))];
+		int found = 0;
+		int count = (ids == null) ? to - from : ids.length;
+		for(int i = count - 1; i >= 0 && found < matches.length; i--) {
+			int id = (ids == null) ? from + i : ids[i];
+			if(times[id] < fromMillis || times[id] >= toMillis)
+				continue;
+			if(pathPrefix != null && (paths.get(id) == null || !paths.get(id).startsWith(pathPrefix)))
+				continue;
+			matches[found++] = id;
+		}
+		return Arrays.copyOf(matches, found);
+	}
+
+	private int lowerBound(long millis) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(times[middle] < millis)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	public synchronized int getSize() {
+		return this.size;
+	}
+	public long getGeneration() {
+		return this.generation;
+	}
+	public long getLogId() {
+		return this.logId;
+	}
+
+	/**
+	 * @message save
+	 * @brief Writes the index to a file, through a temporary file moved over it so a crash never leaves half an index
+	 * @param filename the path of the index file
+	 * @return 0 if the index was saved; a negative integer otherwise
+	 */
+	public synchronized int save(String filename) {
+		File temporary = new File(filename + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(generation);
+			out.writeLong(logId);
+			out.writeInt(size);
+			for(int id = 0; id < size; id++) {
+				writeString(out, paths.get(id));
+				out.writeLong(times[id]);
+			}
+			writePostings(out, types);
+			writePostings(out, terms);
+		}
+		catch(IOException e) {
+			System.out.println("There was an error with writing the history search index.");
+			return -1;
+		}
+
+		try {
+			Files.move(temporary.toPath(), new File(filename).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return 0;
+		}
+		catch(IOException e) {
+			System.out.println("There was an error with writing the history search index.");
+			return -1;
+		}
+	}
+
+	/**
+	 * @message load
+	 * @brief Reads an index saved with save
+	 * @param filename the path of the index file
+	 * @return the index, or null if there is no readable index
+	 */
+	public static HistorySearchIndex load(String filename) {
+		if(!new File(filename).isFile())
+			return null;
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+
+			long generation = in.readLong();
+			HistorySearchIndex index = new HistorySearchIndex(generation, in.readLong());
+			int size = in.readInt();
+			index.times = new long[Math.max(16, size)];
+			for(int id = 0; id < size; id++) {
+				index.paths.add(readString(in));
+				index.times[id] = in.readLong();
+				if(id > 0 && index.times[id] < index.times[id - 1])
+					index.timeSorted = false;
+			}
+			index.size = size;
+			readPostings(in, index.types);
+			readPostings(in, index.terms);
+			return index;
+		}
+		catch(IOException | RuntimeException e) {
+			/* A damaged index is rebuilt from the log */
+			return null;
+		}
+	}
+
+	private static void writePostings(DataOutputStream out, HashMap<String, RoaringBitmapModel> postings) throws IOException {
+		out.writeInt(postings.size());
+		for(Map.Entry<String, RoaringBitmapModel> entry : postings.entrySet()) {
+			writeString(out, entry.getKey());
+			int[] ids = entry.getValue().toArray();
+			out.writeInt(ids.length);
+			for(int id : ids)
+				out.writeInt(id);
+		}
+	}
+
+	private static void readPostings(DataInputStream in, HashMap<String, RoaringBitmapModel> postings) throws IOException {
+		int count = in.readInt();
+		for(int i = 0; i < count; i++) {
+			String key = readString(in);
+			RoaringBitmapModel bitmap = new RoaringBitmapModel();
+			int ids = in.readInt();
+			for(int j = 0; j < ids; j++)
+				bitmap.add(in.readInt());
+			postings.put(key, bitmap);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		if(text == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,209 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * @class HistoryWriter
+ * @brief Appends report metadata to a HistoryLog with group commit: callers only enqueue their records,
+ * 			and a background committer appends everything pending at most once per interval, with one append
+ * 			(and one force to the disk, if enabled) for the whole group. Every caller gets a future that completes
+ * 			with the position of its first record once the group holding it is committed
+ */
+public class HistoryWriter {
+	/**
+	 * log -> the log the records are appended to, kept open for the life of the writer
+	 * intervalNanos -> the least time between two commits
+	 * force -> whether every commit is forced to the disk before its futures complete
+	 * pending -> the records waiting for the next commit
+	 * committer -> the background thread committing the pending records
+	 * onCommit -> called with the position of the first record and the records of every commit (null for none)
+	 * closed -> whether the writer accepts no more records
+	 */
+	private final HistoryLog log;
+	private final long intervalNanos;
+	private final boolean force;
+	private final LinkedBlockingQueue<Pending> pending;
+	private final Thread committer;
+	private final BiConsumer<Long, ArrayList<ReportMetadataModel>> onCommit;
+	private volatile boolean closed;
+
+	/**
+	 * @class Pending
+	 * @brief The records of one caller and the future it waits on (a pending with no records stops the committer)
+	 */
+	private static final class Pending {
+		final ArrayList<ReportMetadataModel> batch;
+		final CompletableFuture<Long> future;
+
+		Pending(ArrayList<ReportMetadataModel> batch) {
+			this.batch = batch;
+			this.future = new CompletableFuture<>();
+		}
+	}
+
+	/**
+	 * @message HistoryWriter
+	 * @brief Starts the committer of an opened log
+	 * @param log the opened log
+	 * @param intervalMillis the least time between two commits, which is what records wait at most to be grouped
+	 * @param force whether every commit is forced to the disk
+	 */
+	public HistoryWriter(HistoryLog log, long intervalMillis, boolean force) {
+		this(log, intervalMillis, force, null);
+	}
+
+	/**
+	 * @message HistoryWriter
+	 * @brief Starts the committer of an opened log, telling a listener (e.g. an index) about every commit before its futures complete
+	 * @param log the opened log
+	 * @param intervalMillis the least time between two commits
+	 * @param force whether every commit is forced to the disk
+	 * @param onCommit called with the position of the first record and the records of every commit
+	 */
+	public HistoryWriter(HistoryLog log, long intervalMillis, boolean force, BiConsumer<Long, ArrayList<ReportMetadataModel>> onCommit) {
+		this.log = log;
+		this.onCommit = onCommit;
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+		this.force = force;
+		this.pending = new LinkedBlockingQueue<>();
+		this.committer = new Thread(this::commitLoop, "history-committer");
+		this.committer.setDaemon(true);
+		this.committer.start();
+	}
+
+	/**
+	 * @message submit
+	 * @brief Enqueues records for the next commit
+	 * @param batch the records, kept together and in order
+	 * @return a future completed with the position of the first record once they are committed,
+	 * 			or completed exceptionally if they could not be written
+	 */
+	public CompletableFuture<Long> submit(ArrayList<ReportMetadataModel> batch) {
+		Pending request = new Pending(new ArrayList<>(batch));
+		if(batch.isEmpty()) {
+			request.future.complete(log.size());
+			return request.future;
+		}
+		/* Checked and queued together with close, so that no record is queued after the stop signal */
+		synchronized(this) {
+			if(!closed) {
+				pending.add(request);
+				return request.future;
+			}
+		}
+		request.future.completeExceptionally(new IllegalStateException("The history writer is closed"));
+		return request.future;
+	}
+
+	/**
+	 * @message commitLoop
+	 * @brief Waits for records, lets the rest of the interval pass so that more can join them, then commits the group
+	 */
+	private void commitLoop() {
+		try {
+			long lastCommit = System.nanoTime() - intervalNanos;
+			boolean stopping = false;
+			while(!stopping) {
+				ArrayList<Pending> group = new ArrayList<>();
+				try {
+					group.add(pending.take());
+				}
+				catch(InterruptedException e) {
+					continue;
+				}
+
+				long wait = lastCommit + intervalNanos - System.nanoTime();
+				if(wait > 0 && group.get(0).batch != null)
+					LockSupport.parkNanos(wait);
+				pending.drainTo(group);
+
+				ArrayList<ReportMetadataModel> records = new ArrayList<>();
+				ArrayList<Pending> waiting = new ArrayList<>();
+				for(Pending request : group) {
+					if(request.batch == null) {
+						stopping = true;
+						continue;
+					}
+					records.addAll(request.batch);
+					waiting.add(request);
+				}
+				if(!records.isEmpty()) {
+					commit(records, waiting);
+					lastCommit = System.nanoTime();
+				}
+			}
+		}
+		finally {
+			/* Records that raced with close, or that were queued when the committer failed, are not written */
+			synchronized(this) {
+				closed = true;
+			}
+			ArrayList<Pending> group = new ArrayList<>();
+			pending.drainTo(group);
+			for(Pending request : group)
+				if(request.batch != null)
+					request.future.completeExceptionally(new IllegalStateException("The history writer is closed"));
+		}
+	}
+
+	/**
+	 * @message commit
+	 * @brief Appends a group with one append and completes the futures of its callers, exceptionally if it could not be written
+	 * @param records the records of the group, in order
+	 * @param waiting the callers of the group, in the order of their records
+	 */
+	private void commit(ArrayList<ReportMetadataModel> records, ArrayList<Pending> waiting) {
+		long first = -1;
+		try {
+			first = log.append(records, force);
+			if(first >= 0 && onCommit != null) {
+				/* The records are already committed, a failing listener must not fail their saves */
+				try {
+					onCommit.accept(first, records);
+				}
+				catch(RuntimeException e) {
+					System.out.println("There was an error with indexing the saved reports.");
+				}
+			}
+		}
+		catch(RuntimeException e) {
+			first = -1;
+		}
+		finally {
+			for(Pending request : waiting) {
+				if(first < 0)
+					request.future.completeExceptionally(new IllegalStateException("The history records could not be written"));
+				else {
+					request.future.complete(first);
+					first += request.batch.size();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @message close
+	 * @brief Commits the records still pending and stops the committer
+	 */
+	public void close() {
+		synchronized(this) {
+			if(closed)
+				return;
+			closed = true;
+
+			/* A pending with no records is the stop signal, it is queued after every accepted record */
+			pending.add(new Pending(null));
+		}
+		try {
+			committer.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
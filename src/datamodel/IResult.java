@@ -2,6 +2,7 @@ package datamodel;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 public interface IResult {
 
@@ -52,4 +53,33 @@ public interface IResult {
 	 * @return A HashMap<String, Double>, where the grouping time unit is represented as a String and the aggregate value as a Double
 	 */
 	HashMap<String, Double> getAggregateMeterAC();
+
+	/**
+	 * Stores the co-moments of the selected columns (meters, global active power, voltage...), one for each of the grouper time units,
+	 * from which the covariance and correlation matrices are read
+	 * 
+	 * @return A HashMap<String, CoMomentModel>, where the grouping time unit is represented as a String; empty for results that do not compute it
+	 */
+	default HashMap<String, CoMomentModel> getCoMoments() {
+		return new HashMap<>();
+	}
+
+	/**
+	 * Stores the aggregate measurements of the derived columns (e.g. unmetered energy), one for each of the grouper time units
+	 * 
+	 * @return A LinkedHashMap<String, HashMap<String, Double>> with the per time unit aggregates of every derived column, by column name;
+	 * empty when no derived column is defined
+	 */
+	default LinkedHashMap<String, HashMap<String, Double>> getAggregateDerived() {
+		return new LinkedHashMap<>();
+	}
+
+	/**
+	 * Stores the readings flagged as anomalies while the measurements were aggregated
+	 * 
+	 * @return An AnomalyListModel with the most severe flagged readings; null when anomaly detection was not enabled
+	 */
+	default AnomalyListModel getAnomalies() {
+		return null;
+	}
 }
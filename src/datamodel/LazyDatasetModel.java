@@ -0,0 +1,217 @@
+package datamodel;
+
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @class LazyDatasetModel
+ * @brief A dataset backed by a memory mapped input file, which only keeps the start offset and the packed timestamp of every row.
+ *          The numeric fields of a row are parsed from the mapping the first time they are read and, optionally, cached
+ *          in primitive columns, so queries that touch few rows (e.g. a time range) only parse those rows.
+ *          Reading rows is not thread safe while caching is enabled
+ */
+public class LazyDatasetModel {
+    /**
+     * NUM_COLUMNS -> kitchen, laundry, ac, active, reactive, voltage, intensity (as in ColumnStoreModel.COLUMNS)
+     * SEGMENT_BITS -> the size of a mapped segment (1 GB), files larger than that are mapped in several segments
+     *
+     * segments -> the mapped segments of the file
+     * fileSize -> the size of the file in bytes
+     * delimiter -> the delimiter between the columns
+     * size -> the number of rows
+     * offsets -> the byte offset where every row starts
+     * minutes -> the epoch minute of every row
+     * sorted -> whether the rows are in time order, which allows binary searching a time range
+     * cache -> whether parsed rows are kept
+     * columns -> the cached fields of every row, one array per column (allocated on the first cached row)
+     * parsed -> a bit per row, set when its fields are cached
+     * parsedRows -> the number of row parses done so far
+     */
+    public static final int NUM_COLUMNS = 7;
+    public static final int SEGMENT_BITS = 30;
+
+    private final MappedByteBuffer[] segments;
+    private final long fileSize;
+    private final String delimiter;
+    private final int size;
+    private final long[] offsets;
+    private final long[] minutes;
+    private final boolean sorted;
+    private final boolean cache;
+    private double[][] columns;
+    private long[] parsed;
+    private long parsedRows;
+
+    public LazyDatasetModel(MappedByteBuffer[] segments, long fileSize, String delimiter, long[] offsets, long[] minutes, int size, boolean cache) {
+        this.segments = segments;
+        this.fileSize = fileSize;
+        this.delimiter = delimiter;
+        this.size = size;
+        this.offsets = offsets;
+        this.minutes = minutes;
+        this.cache = cache;
+
+        boolean inOrder = true;
+        for(int i = 1; i < size && inOrder; i++)
+            inOrder = minutes[i - 1] <= minutes[i];
+        this.sorted = inOrder;
+    }
+
+    /**
+     * @message byteAt
+     * @brief Reads a byte of the mapped file
+     * @param position The offset in the file
+     * @return the byte
+     */
+    public byte byteAt(long position) {
+        return segments[(int)(position >>> SEGMENT_BITS)].get((int)(position & ((1L << SEGMENT_BITS) - 1)));
+    }
+
+    /**
+     * @message getValue
+     * @brief Reads a numeric field of a row, parsing the row if it was not cached yet
+     * @param row The row
+     * @param column The column (0 kitchen, 1 laundry, 2 ac, 3 active, 4 reactive, 5 voltage, 6 intensity)
+     * @return the value, NaN for missing ('?') readings
+     */
+    public double getValue(int row, int column) {
+        if(cache && parsed != null && (parsed[row >>> 6] & (1L << row)) != 0)
+            return columns[column][row];
+        double[] values = parseRow(row);
+        return values[column];
+    }
+
+    /**
+     * @message getRow
+     * @brief Reads all the numeric fields of a row with at most one parse, for queries reading several columns of it
+     * @param row The row
+     * @return the value of every column (NaN for missing readings), in the order of getValue
+     */
+    public double[] getRow(int row) {
+        if(cache && parsed != null && (parsed[row >>> 6] & (1L << row)) != 0) {
+            double[] values = new double[NUM_COLUMNS];
+            for(int column = 0; column < NUM_COLUMNS; column++)
+                values[column] = columns[column][row];
+            return values;
+        }
+        return parseRow(row);
+    }
+
+    /**
+     * @message parseRow
+     * @brief Parses the numeric fields of a row from the mapped file, caching them when enabled
+     * @param row The row
+     * @return the value of every column
+     */
+    public double[] parseRow(int row) {
+        /* Copy the bytes of the line out of the mapping */
+        long start = offsets[row];
+        long end = start;
+        while(end < fileSize && byteAt(end) != '\n' && byteAt(end) != '\r')
+            end++;
+        byte[] bytes = new byte[(int)(end - start)];
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = byteAt(start + i);
+
+        String[] items = new String(bytes, StandardCharsets.ISO_8859_1).split(delimiter);
+        double[] values = new double[NUM_COLUMNS];
+        for(int column = 0; column < NUM_COLUMNS; column++) {
+            /* Sub meterings 1-3 are the last fields of the line */
+            int field = (column < 3) ? 6 + column : column - 1;
+            try {
+                values[column] = Double.parseDouble(items[field]);
+            }
+            catch(Exception e) {
+                values[column] = Double.NaN;
+            }
+        }
+        parsedRows++;
+
+        if(cache) {
+            if(parsed == null) {
+                columns = new double[NUM_COLUMNS][size];
+                parsed = new long[(size + 63) >>> 6];
+            }
+            for(int column = 0; column < NUM_COLUMNS; column++)
+                columns[column][row] = values[column];
+            parsed[row >>> 6] |= 1L << row;
+        }
+        return values;
+    }
+
+    /**
+     * @message rowsInRange
+     * @brief Finds the rows of a time range from the timestamps alone, without parsing any row
+     * @param fromMinute The first minute of the range (included)
+     * @param toMinute The last minute of the range (excluded)
+     * @return the rows of the range, in file order
+     */
+    public int[] rowsInRange(long fromMinute, long toMinute) {
+        if(sorted) {
+            int from = lowerBound(fromMinute);
+            int to = lowerBound(toMinute);
+            int[] rows = new int[Math.max(0, to - from)];
+            for(int i = 0; i < rows.length; i++)
+                rows[i] = from + i;
+            return rows;
+        }
+
+        int[] rows = new int[16];
+        int count = 0;
+        for(int i = 0; i < size; i++)
+            if(minutes[i] >= fromMinute && minutes[i] < toMinute) {
+                if(count == rows.length)
+                    rows = Arrays.copyOf(rows, count * 2);
+                rows[count++] = i;
+            }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private int lowerBound(long epochMinute) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(minutes[middle] < epochMinute)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @message getRecord
+     * @brief Builds a full record out of a row, for the aggregates that work on records
+     * @param row The row
+     * @return the record
+     */
+    public MeasurementRecord getRecord(int row) {
+        double[] values = getRow(row);
+        MeasurementRecord record = new MeasurementRecord();
+        record.setDate(EpochTimeModel.createDateModel(minutes[row]));
+        record.setTime(EpochTimeModel.createTimeModel(minutes[row]));
+        record.setSub_metering_1(values[0]);
+        record.setSub_metering_2(values[1]);
+        record.setSub_metering_3(values[2]);
+        record.setGlobal_active_power(values[3]);
+        record.setGlobal_reactive_power(values[4]);
+        record.setVoltage(values[5]);
+        record.setGlobal_intensity(values[6]);
+        return record;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+    public long getEpochMinute(int row) {
+        return this.minutes[row];
+    }
+    public boolean isSorted() {
+        return this.sorted;
+    }
+    public long getParsedRows() {
+        return this.parsedRows;
+    }
+}
@@ -0,0 +1,73 @@
+package datamodel;
+
+import java.util.ArrayList;
+
+/**
+ * @class LoadReportModel
+ * @brief A model that describes how every file of a multi file load went
+ */
+public class LoadReportModel {
+    /**
+     * files -> the path of every file, in load order
+     * rows -> the rows read from every file (-1 for the files that failed)
+     * errors -> the error of every file (null for the files that loaded)
+     */
+    private final ArrayList<String> files = new ArrayList<>();
+    private final ArrayList<Integer> rows = new ArrayList<>();
+    private final ArrayList<String> errors = new ArrayList<>();
+
+    /**
+     * @message addFile
+     * @brief Records the outcome of a file
+     * @param file the path of the file
+     * @param numRows the rows read from it, or -1 if it failed
+     * @param error the reason it failed, or null
+     */
+    public synchronized void addFile(String file, int numRows, String error) {
+        files.add(file);
+        rows.add(numRows);
+        errors.add(error);
+    }
+
+    /**
+     * @message getLoadedFiles
+     * @brief Counts the files that loaded
+     * @return the number of files without an error
+     */
+    public int getLoadedFiles() {
+        int loaded = 0;
+        for(String error : errors)
+            if(error == null)
+                loaded++;
+        return loaded;
+    }
+
+    /**
+     * @message toString
+     * @brief Lists the rows or the error of every file, one per line
+     * @return the textual report
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for(int i = 0; i < files.size(); i++) {
+            report.append(files.get(i)).append(": ");
+            if(errors.get(i) == null)
+                report.append(rows.get(i)).append(" rows");
+            else
+                report.append(errors.get(i));
+            report.append("\n");
+        }
+        return report.toString();
+    }
+
+    public ArrayList<String> getFiles() {
+        return this.files;
+    }
+    public ArrayList<Integer> getRows() {
+        return this.rows;
+    }
+    public ArrayList<String> getErrors() {
+        return this.errors;
+    }
+}
@@ -0,0 +1,101 @@
+package datamodel;
+
+/**
+ * @class LongHashSetModel
+ * @brief A set of primitive longs with open addressing and linear probing, so that membership checks
+ *          cost a multiply, a shift and a few array reads, without boxing any key
+ */
+public class LongHashSetModel {
+    /**
+     * EMPTY -> the value that marks a free slot (the key itself is tracked by hasEmptyKey)
+     * MAX_LOAD -> the fill ratio above which the table doubles
+     *
+     * table -> the slots, a power of two in length
+     * mask -> table.length - 1
+     * size -> the number of keys
+     * hasEmptyKey -> whether the EMPTY value itself was added
+     */
+    private static final long EMPTY = 0L;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean hasEmptyKey;
+
+    public LongHashSetModel(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int)Math.min(1 << 30, expectedSize / MAX_LOAD)) - 1) << 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int slotOf(long key, int mask) {
+        /* Fibonacci hashing spreads keys that differ only in their low bits (consecutive minutes) */
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash >>> 32) & mask;
+    }
+
+    /**
+     * @message add
+     * @brief Adds a key to the set
+     * @param key The key
+     * @return true if the key was not in the set yet
+     */
+    public boolean add(long key) {
+        if(key == EMPTY) {
+            boolean added = !hasEmptyKey;
+            hasEmptyKey = true;
+            if(added)
+                size++;
+            return added;
+        }
+
+        int slot = slotOf(key, mask);
+        while(table[slot] != EMPTY) {
+            if(table[slot] == key)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        size++;
+        if(size > table.length * MAX_LOAD)
+            grow();
+        return true;
+    }
+
+    /**
+     * @message contains
+     * @brief Checks whether a key is in the set
+     * @param key The key
+     * @return true if it is present
+     */
+    public boolean contains(long key) {
+        if(key == EMPTY)
+            return hasEmptyKey;
+        int slot = slotOf(key, mask);
+        while(table[slot] != EMPTY) {
+            if(table[slot] == key)
+                return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for(long key : old) {
+            if(key == EMPTY)
+                continue;
+            int slot = slotOf(key, mask);
+            while(table[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            table[slot] = key;
+        }
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+}
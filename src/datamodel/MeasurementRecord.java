@@ -10,20 +10,29 @@ public class MeasurementRecord {
      * time -> a TimeModel object holding times
      * doubles -> The rest of the 9 fields we read from the file
      * _delimiter_error -> a flag signaling whether the file has a different delimiter than the one we set
+     * epochMinute -> the date and time packed into minutes since the epoch, computed once on first use
+     * seriesId -> the id of the household (series) the record was loaded from, 0 for a single file
      */
     private DateModel date;
     private TimeModel time;
     private double sub_metering_1; /* Kitchen */
     private double sub_metering_2; /* Laundry */
     private double sub_metering_3; /* AC */
+    private double global_active_power; /* kilowatt */
+    private double global_reactive_power; /* kilowatt */
+    private double voltage; /* volt */
+    private double global_intensity; /* ampere */
 
     private boolean _delimiter_error;
+    private long epochMinute = Long.MIN_VALUE;
+    private int seriesId;
 
     public DateModel getDate() {
         return this.date;
     }
     public void setDate(DateModel date) {
         this.date = date;
+        this.epochMinute = Long.MIN_VALUE;
     }
 
     public TimeModel getTime() {
@@ -31,6 +40,18 @@ public class MeasurementRecord {
     }
     public void setTime(TimeModel time) {
         this.time = time;
+        this.epochMinute = Long.MIN_VALUE;
+    }
+
+    /**
+     * @message getEpochMinute
+     * @brief Packs the date and time of the record into minutes since 01/01/1970 00:00
+     * @return the epoch minute of the record
+     */
+    public long getEpochMinute() {
+        if(epochMinute == Long.MIN_VALUE)
+            epochMinute = EpochTimeModel.toEpochMinute(date, time);
+        return epochMinute;
     }
 
     public double getSub_metering_1() {
@@ -61,11 +82,38 @@ public class MeasurementRecord {
         this._delimiter_error = _delimiter_error;
     }
 
-    public void setGlobal_active_power(double global_active_power) {}
+    public double getGlobal_active_power() {
+        return this.global_active_power;
+    }
+    public void setGlobal_active_power(double global_active_power) {
+        this.global_active_power = global_active_power;
+    }
 
-    public void setGlobal_reactive_power(double global_reactive_power) {}
+    public double getGlobal_reactive_power() {
+        return this.global_reactive_power;
+    }
+    public void setGlobal_reactive_power(double global_reactive_power) {
+        this.global_reactive_power = global_reactive_power;
+    }
 
-    public void setVoltage(double voltage) {}
+    public double getVoltage() {
+        return this.voltage;
+    }
+    public void setVoltage(double voltage) {
+        this.voltage = voltage;
+    }
 
-    public void setGlobal_intensity(double global_intensity) {}
+    public double getGlobal_intensity() {
+        return this.global_intensity;
+    }
+    public void setGlobal_intensity(double global_intensity) {
+        this.global_intensity = global_intensity;
+    }
+
+    public int getSeriesId() {
+        return this.seriesId;
+    }
+    public void setSeriesId(int seriesId) {
+        this.seriesId = seriesId;
+    }
 }
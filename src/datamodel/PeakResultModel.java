@@ -0,0 +1,43 @@
+package datamodel;
+
+import java.util.HashMap;
+
+/**
+ * @class PeakResultModel
+ * @brief A summary result holding the K highest (or lowest) readings of every meter per time unit.
+ *          Every meter lists its own entries, labelled by time unit, rank and timestamp, so it can be reported
+ *          through the same Reporter formats, while the heaps stay available for further processing
+ */
+public class PeakResultModel extends SummaryResultModel {
+    /**
+     * peaks -> the merged heaps of every time unit, one per meter (kitchen, laundry, ac)
+     */
+    private final HashMap<String, TopKHeapModel[]> peaks;
+
+    public PeakResultModel(HashMap<String, TopKHeapModel[]> peaks, boolean daily) {
+        this.peaks = peaks;
+
+        String[] meters = {"kitchen", "laundry", "ac"};
+        for(HashMap.Entry<String, TopKHeapModel[]> entry : peaks.entrySet())
+            for(int meter = 0; meter < meters.length; meter++) {
+                TopKHeapModel heap = entry.getValue()[meter];
+                int rank = 0;
+                for(int i : heap.orderByRank())
+                    putMeter(meters[meter],
+                        entry.getKey() + " #" + (++rank) + " " + EpochTimeModel.format(heap.getEpochMinute(i), !daily),
+                        heap.getValue(i));
+            }
+    }
+
+    /**
+     * @message getPeaks
+     * @brief Gets the kept entries of a meter in a time unit
+     * @param timeUnit the time unit
+     * @param meter the meter id (0 kitchen, 1 laundry, 2 ac)
+     * @return the heap of the entries, or null if the time unit has no readings
+     */
+    public TopKHeapModel getPeaks(String timeUnit, int meter) {
+        TopKHeapModel[] heaps = peaks.get(timeUnit);
+        return (heaps == null) ? null : heaps[meter];
+    }
+}
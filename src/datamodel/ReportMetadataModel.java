@@ -1,5 +1,9 @@
 package datamodel;
 
+import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * @class ReportMetadataModel
  * @brief A model that holds report metadata that Reporter and History will use to form reports
@@ -9,22 +13,59 @@ public class ReportMetadataModel {
      * description -> The report description
      * outputPath -> The path where the report is saved
      * exportType -> The type of file that was created (html, md, txt)
+     * createdAt -> When the report was saved in the history, in milliseconds since the epoch (0 if unknown)
+     *
+     * JOINED_DRIVE -> an absolute Windows path after the '\' that older versions joined the working directory with
      */
+    private static final Pattern JOINED_DRIVE = Pattern.compile("\\\\([A-Za-z]:[\\\\/].*)$");
+
     private String description;
     private String outputPath;
     private String exportType;
+    private long createdAt;
     
     public ReportMetadataModel() {}
     
     /**
      * @message correctOutputPath
-     * @brief Retrieves the full path of the file and corrects slashes according to the operating system used
+     * @brief Retrieves the full path of the file and corrects slashes according to the operating system used,
+     *          keeping a path that is already absolute as it is
      **/
     public void correctOutputPath() {
-    	if(System.getProperty("os.name").contains("Windows"))
-    		outputPath = outputPath.replace("/", "\\");
+        outputPath = new File(outputPath).getAbsolutePath();
+    }
+
+    /**
+     * @message getOutputFile
+     * @brief Finds the file of the report from its output path. Older versions joined the working directory and the
+     *          given path with a '\' even if the path was absolute (e.g. C:\work\C:\reports\a.html), which is undone
+     *          on every system
+     * @return the file, or null if there is no output path
+     **/
+    public File getOutputFile() {
+        if(outputPath == null)
+            return null;
+
+        /* A drive path joined after a working directory */
+        Matcher drive = JOINED_DRIVE.matcher(outputPath);
+        if(drive.find())
+            return new File(drive.group(1));
 
-        outputPath = System.getProperty("user.dir") + "\\" + outputPath;
+        String workingDirectory = System.getProperty("user.dir");
+        if(outputPath.startsWith(workingDirectory + "\\"))
+            return resolve(workingDirectory, outputPath.substring(workingDirectory.length() + 1));
+        if(File.separatorChar == '\\')
+            return new File(outputPath);
+
+        int join = outputPath.indexOf('\\');
+        if(join == -1)
+            return new File(outputPath);
+        return resolve(outputPath.substring(0, join), outputPath.substring(join + 1));
+    }
+
+    private static File resolve(String directory, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(directory, path);
     }
 
     public String getDescription() {
@@ -47,4 +88,11 @@ public class ReportMetadataModel {
     public void setExportType(String exportType) {
         this.exportType = exportType;
     }
+
+    public long getCreatedAt() {
+        return this.createdAt;
+    }
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
 }
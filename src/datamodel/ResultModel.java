@@ -2,6 +2,7 @@ package datamodel;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Objects;
 
 /**
@@ -14,6 +15,8 @@ public class ResultModel implements IResult {
      * description -> a String with a textual description of the result
      * detailedResults -> the detailed results hashmap that contains the grouped measurements per time unit
      * aggregateFunction -> a String representing the aggregate function (avg, sum) to be applied to the record
+     * derivedMeters -> the aggregates of the derived columns per time unit, by column name
+     * anomalies -> the readings flagged while the result was aggregated (null when the detection was off)
      */
     private String description;
     private String aggregateFunction;
@@ -21,12 +24,15 @@ public class ResultModel implements IResult {
     private HashMap<String, Double> kitchenMeter;
     private HashMap<String, Double> laundryMeter;
     private HashMap<String, Double> acMeter;
+    private LinkedHashMap<String, HashMap<String, Double>> derivedMeters;
+    private AnomalyListModel anomalies;
 
     public ResultModel() {
         detailedResults = new HashMap<>();
         kitchenMeter = new HashMap<>();
         laundryMeter = new HashMap<>();
         acMeter = new HashMap<>();
+        derivedMeters = new LinkedHashMap<>();
     }
 
     /**
@@ -165,6 +171,27 @@ public class ResultModel implements IResult {
         return acMeter;
     }
 
+    /**
+     * @message getAggregateDerived
+     * @brief Stores the aggregate measurements of the derived columns, one for each of the grouper time units
+     * @return the per time unit aggregates of every derived column, by column name
+     */
+    @Override
+    public LinkedHashMap<String, HashMap<String, Double>> getAggregateDerived() {
+        return derivedMeters;
+    }
+    public void setAggregateDerived(LinkedHashMap<String, HashMap<String, Double>> derivedMeters) {
+        this.derivedMeters = derivedMeters;
+    }
+
+    @Override
+    public AnomalyListModel getAnomalies() {
+        return anomalies;
+    }
+    public void setAnomalies(AnomalyListModel anomalies) {
+        this.anomalies = anomalies;
+    }
+
     public void setAggregateFunction(String aggregateFunction) {
         this.aggregateFunction = aggregateFunction;
     }
@@ -0,0 +1,351 @@
+package datamodel;
+
+import java.util.Arrays;
+
+/**
+ * @class RoaringBitmapModel
+ * @brief A compressed bitmap of row ids in the style of Roaring bitmaps.
+ *          Ids are split into a high 16 bit key, which selects a container, and a low 16 bit value stored in it.
+ *          Sparse containers keep their values in a sorted char array, dense containers (more than 4096 values)
+ *          switch to a plain 65536 bit map, so both memory and AND/OR costs follow the density of the data
+ */
+public class RoaringBitmapModel {
+    /**
+     * ARRAY_LIMIT -> the most values an array container holds before turning into a bitmap container
+     * BITMAP_WORDS -> the longs of a bitmap container (65536 bits)
+     *
+     * keys -> the high 16 bits of every container, ascending
+     * containers -> the containers, in the order of their keys
+     * size -> the number of containers
+     */
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    /**
+     * @class Container
+     * @brief Holds the low 16 bits of the ids sharing a key, either as a sorted array or as a bitmap
+     */
+    private static final class Container {
+        /**
+         * array -> the sorted values (null in bitmap mode)
+         * bits -> the bitmap of the values (null in array mode)
+         * cardinality -> the number of values
+         */
+        char[] array;
+        long[] bits;
+        int cardinality;
+
+        static Container emptyArray() {
+            Container container = new Container();
+            container.array = new char[4];
+            return container;
+        }
+
+        static Container emptyBitmap() {
+            Container container = new Container();
+            container.bits = new long[BITMAP_WORDS];
+            return container;
+        }
+
+        boolean contains(char value) {
+            if(bits != null)
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            return Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+        }
+
+        void add(char value) {
+            if(bits != null) {
+                long before = bits[value >>> 6];
+                bits[value >>> 6] |= 1L << value;
+                if(before != bits[value >>> 6])
+                    cardinality++;
+                return;
+            }
+
+            /* Appending in ascending order, which is what loading does, skips the search */
+            int position;
+            if(cardinality == 0 || array[cardinality - 1] < value)
+                position = cardinality;
+            else {
+                position = Arrays.binarySearch(array, 0, cardinality, value);
+                if(position >= 0)
+                    return;
+                position = -position - 1;
+            }
+
+            if(cardinality == ARRAY_LIMIT) {
+                toBitmap();
+                add(value);
+                return;
+            }
+            if(cardinality == array.length)
+                array = Arrays.copyOf(array, Math.min(array.length * 2, ARRAY_LIMIT));
+            System.arraycopy(array, position, array, position + 1, cardinality - position);
+            array[position] = value;
+            cardinality++;
+        }
+
+        Container copy() {
+            Container container = new Container();
+            container.array = (array == null) ? null : array.clone();
+            container.bits = (bits == null) ? null : bits.clone();
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for(int i = 0; i < cardinality; i++)
+                bits[array[i] >>> 6] |= 1L << array[i];
+            array = null;
+        }
+
+        /* Turns a bitmap container that became sparse back into an array container */
+        Container shrink() {
+            if(bits == null || cardinality > ARRAY_LIMIT)
+                return this;
+            Container container = new Container();
+            container.array = new char[Math.max(cardinality, 4)];
+            int i = 0;
+            for(int word = 0; word < BITMAP_WORDS; word++) {
+                long w = bits[word];
+                while(w != 0) {
+                    container.array[i++] = (char)((word << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        Container and(Container other) {
+            if(bits != null && other.bits != null) {
+                Container result = emptyBitmap();
+                for(int word = 0; word < BITMAP_WORDS; word++) {
+                    result.bits[word] = bits[word] & other.bits[word];
+                    result.cardinality += Long.bitCount(result.bits[word]);
+                }
+                return result.shrink();
+            }
+            if(bits != null)
+                return other.and(this);
+
+            /* This is an array container: keep its values found in the other one */
+            Container result = new Container();
+            result.array = new char[Math.max(cardinality, 4)];
+            if(other.bits != null) {
+                for(int i = 0; i < cardinality; i++)
+                    if(other.contains(array[i]))
+                        result.array[result.cardinality++] = array[i];
+                return result;
+            }
+
+            /* Two array containers: merge intersect */
+            int i = 0;
+            int j = 0;
+            while(i < cardinality && j < other.cardinality) {
+                if(array[i] < other.array[j]) i++;
+                else if(array[i] > other.array[j]) j++;
+                else {
+                    result.array[result.cardinality++] = array[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        Container or(Container other) {
+            if(bits == null && other.bits == null && cardinality + other.cardinality <= ARRAY_LIMIT) {
+                /* Two small array containers: merge union */
+                Container result = new Container();
+                result.array = new char[Math.max(cardinality + other.cardinality, 4)];
+                int i = 0;
+                int j = 0;
+                while(i < cardinality || j < other.cardinality) {
+                    char next;
+                    if(j >= other.cardinality || (i < cardinality && array[i] < other.array[j])) next = array[i++];
+                    else if(i >= cardinality || other.array[j] < array[i]) next = other.array[j++];
+                    else {
+                        next = array[i];
+                        i++;
+                        j++;
+                    }
+                    result.array[result.cardinality++] = next;
+                }
+                return result;
+            }
+
+            Container result = emptyBitmap();
+            result.fillFrom(this);
+            result.fillFrom(other);
+            result.cardinality = 0;
+            for(long word : result.bits)
+                result.cardinality += Long.bitCount(word);
+            return result.shrink();
+        }
+
+        private void fillFrom(Container other) {
+            if(other.bits != null)
+                for(int word = 0; word < BITMAP_WORDS; word++)
+                    bits[word] |= other.bits[word];
+            else
+                for(int i = 0; i < other.cardinality; i++)
+                    bits[other.array[i] >>> 6] |= 1L << other.array[i];
+        }
+
+        int forEach(int high, int[] output, int offset) {
+            if(bits == null) {
+                for(int i = 0; i < cardinality; i++)
+                    output[offset++] = high | array[i];
+                return offset;
+            }
+            for(int word = 0; word < BITMAP_WORDS; word++) {
+                long w = bits[word];
+                while(w != 0) {
+                    output[offset++] = high | ((word << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            return offset;
+        }
+    }
+
+    public RoaringBitmapModel() {
+        keys = new char[4];
+        containers = new Container[4];
+        size = 0;
+    }
+
+    /**
+     * @message findContainer
+     * @brief Binary searches the container of a key
+     * @param key The high 16 bits of an id
+     * @return the position of the container, or (-insertion point - 1) if there is none
+     */
+    private int findContainer(char key) {
+        /* Ascending appends hit the last container */
+        if(size > 0 && keys[size - 1] == key)
+            return size - 1;
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * @message add
+     * @brief Adds a row id to the bitmap
+     * @param id The row id (non negative)
+     */
+    public void add(int id) {
+        char key = (char)(id >>> 16);
+        int position = findContainer(key);
+        if(position < 0) {
+            position = -position - 1;
+            insertContainer(position, key, Container.emptyArray());
+        }
+        containers[position].add((char)id);
+    }
+
+    private void insertContainer(int position, char key, Container container) {
+        if(size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = key;
+        containers[position] = container;
+        size++;
+    }
+
+    /**
+     * @message contains
+     * @brief Checks whether a row id is in the bitmap
+     * @param id The row id
+     * @return true if it is present
+     */
+    public boolean contains(int id) {
+        int position = findContainer((char)(id >>> 16));
+        return position >= 0 && containers[position].contains((char)id);
+    }
+
+    /**
+     * @message and
+     * @brief Intersects two bitmaps, only visiting containers whose keys appear in both
+     * @param other The other bitmap
+     * @return a new bitmap with the ids present in both
+     */
+    public RoaringBitmapModel and(RoaringBitmapModel other) {
+        RoaringBitmapModel result = new RoaringBitmapModel();
+        int i = 0;
+        int j = 0;
+        while(i < size && j < other.size) {
+            if(keys[i] < other.keys[j]) i++;
+            else if(keys[i] > other.keys[j]) j++;
+            else {
+                Container container = containers[i].and(other.containers[j]);
+                if(container.cardinality > 0)
+                    result.insertContainer(result.size, keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @message or
+     * @brief Unites two bitmaps
+     * @param other The other bitmap
+     * @return a new bitmap with the ids present in any of the two
+     */
+    public RoaringBitmapModel or(RoaringBitmapModel other) {
+        RoaringBitmapModel result = new RoaringBitmapModel();
+        int i = 0;
+        int j = 0;
+        while(i < size || j < other.size) {
+            if(j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.insertContainer(result.size, keys[i], containers[i].copy());
+                i++;
+            }
+            else if(i >= size || other.keys[j] < keys[i]) {
+                result.insertContainer(result.size, other.keys[j], other.containers[j].copy());
+                j++;
+            }
+            else {
+                result.insertContainer(result.size, keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @message getCardinality
+     * @brief Counts the ids of the bitmap
+     * @return the number of ids
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+        for(int i = 0; i < size; i++)
+            cardinality += containers[i].cardinality;
+        return cardinality;
+    }
+
+    /**
+     * @message toArray
+     * @brief Lists the ids of the bitmap
+     * @return the ids in ascending order
+     */
+    public int[] toArray() {
+        int[] ids = new int[getCardinality()];
+        int offset = 0;
+        for(int i = 0; i < size; i++)
+            offset = containers[i].forEach(keys[i] << 16, ids, offset);
+        return ids;
+    }
+}
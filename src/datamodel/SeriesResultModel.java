@@ -0,0 +1,100 @@
+package datamodel;
+
+import java.util.ArrayList;
+
+/**
+ * @class SeriesResultModel
+ * @brief A summary result holding the aggregates of every household (series) and of the whole estate per time unit.
+ *          The meters of the summary hold the estate wide values, so it is reported through the same Reporter formats,
+ *          while the per household values are kept in flat primitive arrays indexed by series and time unit
+ */
+public class SeriesResultModel extends SummaryResultModel {
+    /**
+     * NUM_METERS -> kitchen, laundry, ac
+     *
+     * seriesNames -> the name of every series, by series id
+     * unitNames -> the name of every time unit, by time unit id
+     * sums -> the sum of every meter, one column per meter, at [series * units + unit]
+     * counts -> the number of readings at [series * units + unit]
+     * average -> whether the aggregate function is avg (true) or sum (false)
+     */
+    private static final int NUM_METERS = 3;
+
+    private final String[] seriesNames;
+    private final ArrayList<String> unitNames;
+    private final double[][] sums;
+    private final long[] counts;
+    private final boolean average;
+
+    public SeriesResultModel(String[] seriesNames, ArrayList<String> unitNames, double[][] sums, long[] counts, String aggFunction) {
+        this.seriesNames = seriesNames;
+        this.unitNames = unitNames;
+        this.sums = sums;
+        this.counts = counts;
+        this.average = aggFunction.equals("avg");
+
+        /* Fold every series into the estate wide values */
+        int units = unitNames.size();
+        for(int unit = 0; unit < units; unit++) {
+            double[] total = new double[NUM_METERS];
+            long count = 0;
+            for(int series = 0; series < seriesNames.length; series++) {
+                int slot = series * units + unit;
+                for(int meter = 0; meter < NUM_METERS; meter++)
+                    total[meter] += sums[meter][slot];
+                count += counts[slot];
+            }
+            if(count == 0)
+                continue;
+            if(average)
+                for(int meter = 0; meter < NUM_METERS; meter++)
+                    total[meter] /= (double)count;
+            put(unitNames.get(unit), total[0], total[1], total[2]);
+        }
+    }
+
+    /**
+     * @message getSeriesValue
+     * @brief Gets the aggregate of a meter for a series in a time unit
+     * @param seriesId the series id
+     * @param unit the time unit id (its position in getUnitNames)
+     * @param meter the meter id (0 kitchen, 1 laundry, 2 ac)
+     * @return the aggregate, or NaN if the series has no readings in the time unit
+     */
+    public double getSeriesValue(int seriesId, int unit, int meter) {
+        int slot = seriesId * unitNames.size() + unit;
+        if(counts[slot] == 0)
+            return Double.NaN;
+        return average ? sums[meter][slot] / (double)counts[slot] : sums[meter][slot];
+    }
+
+    /**
+     * @message getSeriesResult
+     * @brief Builds the result of a single household, so that it can be reported on its own
+     * @param seriesName the name of the series
+     * @return the aggregates of the series per time unit, or null if there is no such series
+     */
+    public SummaryResultModel getSeriesResult(String seriesName) {
+        int seriesId = -1;
+        for(int series = 0; series < seriesNames.length; series++)
+            if(seriesNames[series].equals(seriesName))
+                seriesId = series;
+        if(seriesId == -1)
+            return null;
+
+        SummaryResultModel result = new SummaryResultModel();
+        result.setDescription(getDescription() + " - " + seriesName);
+        for(int unit = 0; unit < unitNames.size(); unit++)
+            if(counts[seriesId * unitNames.size() + unit] > 0)
+                result.put(unitNames.get(unit),
+                    getSeriesValue(seriesId, unit, 0), getSeriesValue(seriesId, unit, 1), getSeriesValue(seriesId, unit, 2));
+        return result;
+    }
+
+    public String[] getSeriesNames() {
+        return this.seriesNames;
+    }
+    public ArrayList<String> getUnitNames() {
+        return this.unitNames;
+    }
+}
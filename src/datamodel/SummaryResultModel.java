@@ -0,0 +1,128 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * @class SummaryResultModel
+ * @brief Implements the IResult interface for results whose values are already computed
+ *          (forecasts, range summaries...), so that they can be reported through the same Reporter formats as the aggregates
+ */
+public class SummaryResultModel implements IResult {
+    /**
+     * description -> a String with a textual description of the result
+     * kitchenMeter, laundryMeter, acMeter -> the value of each meter per time unit, in insertion order
+     * derivedMeters -> the value of each derived column per time unit, by column name
+     * detailedResults -> the source measurements per time unit, when they are loaded along with the values (e.g. from an export)
+     */
+    private String description;
+    private final LinkedHashMap<String, Double> kitchenMeter;
+    private final LinkedHashMap<String, Double> laundryMeter;
+    private final LinkedHashMap<String, Double> acMeter;
+    private final LinkedHashMap<String, HashMap<String, Double>> derivedMeters;
+    private final LinkedHashMap<String, ArrayList<MeasurementRecord>> detailedResults;
+
+    public SummaryResultModel() {
+        kitchenMeter = new LinkedHashMap<>();
+        laundryMeter = new LinkedHashMap<>();
+        acMeter = new LinkedHashMap<>();
+        derivedMeters = new LinkedHashMap<>();
+        detailedResults = new LinkedHashMap<>();
+    }
+
+    /**
+     * @message add
+     * @brief The values are not built from records, so nothing is added
+     * @return always 0
+     */
+    @Override
+    public int add(String timeUnit, MeasurementRecord record) {
+        return 0;
+    }
+
+    /**
+     * @message put
+     * @brief Sets the values of all meters for a time unit
+     * @param timeUnit the label of the time unit
+     * @param kitchen the kitchen value
+     * @param laundry the laundry value
+     * @param ac the air condition value
+     */
+    public void put(String timeUnit, double kitchen, double laundry, double ac) {
+        kitchenMeter.put(timeUnit, kitchen);
+        laundryMeter.put(timeUnit, laundry);
+        acMeter.put(timeUnit, ac);
+    }
+
+    /**
+     * @message putMeter
+     * @brief Sets the value of a single meter for a time unit, for results whose time units differ per meter
+     * @param meterType the device (kitchen, laundry, ac) or the name of a derived column
+     * @param timeUnit the label of the time unit
+     * @param value the value
+     */
+    public void putMeter(String meterType, String timeUnit, double value) {
+        switch(meterType) {
+            case "kitchen":
+                kitchenMeter.put(timeUnit, value);
+                break;
+            case "laundry":
+                laundryMeter.put(timeUnit, value);
+                break;
+            case "ac":
+                acMeter.put(timeUnit, value);
+                break;
+            default:
+                derivedMeters.computeIfAbsent(meterType, name -> new LinkedHashMap<>()).put(timeUnit, value);
+        }
+    }
+
+    /**
+     * @message putRecord
+     * @brief Keeps a source measurement of a time unit, for summaries read back along with their records
+     * @param timeUnit the label of the time unit
+     * @param record the measurement
+     */
+    public void putRecord(String timeUnit, MeasurementRecord record) {
+        detailedResults.computeIfAbsent(timeUnit, unit -> new ArrayList<>()).add(record);
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * @message getDetailedResults
+     * @brief Lists the source measurements kept behind the summary, which are only there if they were put with putRecord
+     * @return the measurements per time unit (empty for computed summaries)
+     */
+    @Override
+    public HashMap<String, ArrayList<MeasurementRecord>> getDetailedResults() {
+        return detailedResults;
+    }
+
+    @Override
+    public HashMap<String, Double> getAggregateMeterKitchen() {
+        return kitchenMeter;
+    }
+
+    @Override
+    public HashMap<String, Double> getAggregateMeterLaundry() {
+        return laundryMeter;
+    }
+
+    @Override
+    public HashMap<String, Double> getAggregateMeterAC() {
+        return acMeter;
+    }
+
+    @Override
+    public LinkedHashMap<String, HashMap<String, Double>> getAggregateDerived() {
+        return derivedMeters;
+    }
+}
@@ -0,0 +1,203 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @class TimeIndexModel
+ * @brief Keeps a loaded dataset in epoch minute order, in primitive columns, together with a sparse block index.
+ *          Every block of N rows stores its time range and the min/max/sum of each meter (a zone map),
+ *          so a time range can be summarised by binary searching to its start, taking whole blocks from their
+ *          summaries and only scanning the rows of the two partially covered edge blocks
+ */
+public class TimeIndexModel {
+    /**
+     * DEFAULT_BLOCK_SIZE -> the rows per block when none is given
+     * NUM_METERS -> kitchen, laundry, ac
+     *
+     * blockSize -> the rows per block
+     * size -> the number of rows
+     * records -> the source records in time order
+     * minutes -> the epoch minute of every row, ascending
+     * values -> the reading of every row, one column per meter
+     * blockFirstMinute, blockLastMinute -> the time range of every block
+     * blockMin, blockMax, blockSum -> the zone map of every block, one column per meter
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final int NUM_METERS = 3;
+
+    private final int blockSize;
+    private final int size;
+    private final MeasurementRecord[] records;
+    private final long[] minutes;
+    private final double[][] values;
+    private final long[] blockFirstMinute;
+    private final long[] blockLastMinute;
+    private final double[][] blockMin;
+    private final double[][] blockMax;
+    private final double[][] blockSum;
+
+    /**
+     * @class RangeSummary
+     * @brief The count and the min/max/sum of each meter over a time range
+     */
+    public static class RangeSummary {
+        public long count = 0;
+        public final double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        public final double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        public final double[] sum = new double[NUM_METERS];
+    }
+
+    public TimeIndexModel(ArrayList<MeasurementRecord> inputMeasurements) {
+        this(inputMeasurements, DEFAULT_BLOCK_SIZE);
+    }
+
+    public TimeIndexModel(ArrayList<MeasurementRecord> inputMeasurements, int blockSize) {
+        this.blockSize = blockSize;
+        this.size = inputMeasurements.size();
+
+        /* Sort (minute, position) pairs packed into longs, which avoids boxing and comparators */
+        long[] keys = new long[size];
+        for(int i = 0; i < size; i++)
+            keys[i] = (inputMeasurements.get(i).getEpochMinute() << 32) | i;
+        Arrays.sort(keys);
+
+        records = new MeasurementRecord[size];
+        minutes = new long[size];
+        values = new double[NUM_METERS][size];
+        for(int i = 0; i < size; i++) {
+            MeasurementRecord record = inputMeasurements.get((int)keys[i]);
+            records[i] = record;
+            minutes[i] = keys[i] >> 32;
+            values[0][i] = record.getSub_metering_1();
+            values[1][i] = record.getSub_metering_2();
+            values[2][i] = record.getSub_metering_3();
+        }
+
+        int numBlocks = (size + blockSize - 1) / blockSize;
+        blockFirstMinute = new long[numBlocks];
+        blockLastMinute = new long[numBlocks];
+        blockMin = new double[NUM_METERS][numBlocks];
+        blockMax = new double[NUM_METERS][numBlocks];
+        blockSum = new double[NUM_METERS][numBlocks];
+        for(int block = 0; block < numBlocks; block++) {
+            int from = block * blockSize;
+            int to = Math.min(from + blockSize, size);
+            blockFirstMinute[block] = minutes[from];
+            blockLastMinute[block] = minutes[to - 1];
+
+            for(int meter = 0; meter < NUM_METERS; meter++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0.0;
+                for(int i = from; i < to; i++) {
+                    double value = values[meter][i];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    sum += value;
+                }
+                blockMin[meter][block] = min;
+                blockMax[meter][block] = max;
+                blockSum[meter][block] = sum;
+            }
+        }
+    }
+
+    /**
+     * @message lowerBound
+     * @brief Binary searches the first row at or after a minute
+     * @param epochMinute The minute to look for
+     * @return the index of the first row with a minute >= epochMinute (size if there is none)
+     */
+    public int lowerBound(long epochMinute) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(minutes[middle] < epochMinute)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @message summarize
+     * @brief Summarises the rows of a time range
+     * @param fromMinute The first minute of the range (included)
+     * @param toMinute The last minute of the range (excluded)
+     * @return the count and the min/max/sum of every meter over the range
+     */
+    public RangeSummary summarize(long fromMinute, long toMinute) {
+        RangeSummary summary = new RangeSummary();
+        int from = lowerBound(fromMinute);
+        int to = lowerBound(toMinute);
+        if(from >= to)
+            return summary;
+
+        int firstFullBlock = (from + blockSize - 1) / blockSize;
+        int lastFullBlock = to / blockSize; /* excluded */
+
+        if(firstFullBlock >= lastFullBlock) {
+            /* The range lies inside one or two blocks, scan it */
+            scan(summary, from, to);
+            return summary;
+        }
+
+        scan(summary, from, firstFullBlock * blockSize);
+        for(int block = firstFullBlock; block < lastFullBlock; block++) {
+            summary.count += blockSize;
+            for(int meter = 0; meter < NUM_METERS; meter++) {
+                summary.min[meter] = Math.min(summary.min[meter], blockMin[meter][block]);
+                summary.max[meter] = Math.max(summary.max[meter], blockMax[meter][block]);
+                summary.sum[meter] += blockSum[meter][block];
+            }
+        }
+        scan(summary, lastFullBlock * blockSize, to);
+        return summary;
+    }
+
+    /**
+     * @message scan
+     * @brief Folds the rows of an edge block into a summary
+     * @param summary The summary to fold the rows into
+     * @param from The first row (included)
+     * @param to The last row (excluded)
+     */
+    private void scan(RangeSummary summary, int from, int to) {
+        summary.count += Math.max(0, to - from);
+        for(int meter = 0; meter < NUM_METERS; meter++)
+            for(int i = from; i < to; i++) {
+                double value = values[meter][i];
+                summary.min[meter] = Math.min(summary.min[meter], value);
+                summary.max[meter] = Math.max(summary.max[meter], value);
+                summary.sum[meter] += value;
+            }
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+    public int getBlockCount() {
+        return this.blockFirstMinute.length;
+    }
+    public long getBlockFirstMinute(int block) {
+        return this.blockFirstMinute[block];
+    }
+    public long getBlockLastMinute(int block) {
+        return this.blockLastMinute[block];
+    }
+    public long getEpochMinute(int i) {
+        return this.minutes[i];
+    }
+    public double getValue(int meter, int i) {
+        return this.values[meter][i];
+    }
+    public MeasurementRecord getRecord(int i) {
+        return this.records[i];
+    }
+}
@@ -0,0 +1,160 @@
+package datamodel;
+
+import java.util.Arrays;
+
+/**
+ * @class TopKHeapModel
+ * @brief A bounded min heap in primitive arrays that keeps the K highest (or K lowest) readings offered to it,
+ *          together with their timestamps. The arrays grow with the entries up to K, so a large K only costs
+ *          memory for the readings actually offered. Heaps filled by different partitions of the data can be merged
+ */
+public class TopKHeapModel {
+    /**
+     * INITIAL_SIZE -> the size of the arrays before they first grow
+     *
+     * top -> whether the heap keeps the highest (true) or the lowest (false) readings
+     * capacity -> the most entries the heap keeps (K)
+     * epochMinutes, values -> the timestamp and the reading of every kept entry
+     * scores -> the heap keys (the reading for top, the negated reading for bottom), the root being the weakest entry
+     * size -> the number of kept entries
+     */
+    private static final int INITIAL_SIZE = 16;
+
+    private final boolean top;
+    private final int capacity;
+    private long[] epochMinutes;
+    private double[] values;
+    private double[] scores;
+    private int size;
+
+    public TopKHeapModel(int capacity, boolean top) {
+        this.top = top;
+        this.capacity = Math.max(0, capacity);
+        int initial = Math.min(this.capacity, INITIAL_SIZE);
+        this.epochMinutes = new long[initial];
+        this.values = new double[initial];
+        this.scores = new double[initial];
+        this.size = 0;
+    }
+
+    /**
+     * @message offer
+     * @brief Offers a reading, which is only kept if the heap is not full or it beats the weakest kept entry
+     * @param epochMinute The time of the reading
+     * @param value The reading
+     */
+    public void offer(long epochMinute, double value) {
+        double score = top ? value : -value;
+        if(size < capacity) {
+            if(size == scores.length)
+                grow();
+            epochMinutes[size] = epochMinute;
+            values[size] = value;
+            scores[size] = score;
+            siftUp(size++);
+            return;
+        }
+        if(capacity == 0 || score <= scores[0])
+            return;
+
+        epochMinutes[0] = epochMinute;
+        values[0] = value;
+        scores[0] = score;
+        siftDown(0);
+    }
+
+    /**
+     * @message grow
+     * @brief Doubles the arrays, without going over the capacity
+     */
+    private void grow() {
+        int length = (int)Math.min((long)capacity, 2L * scores.length);
+        epochMinutes = Arrays.copyOf(epochMinutes, length);
+        values = Arrays.copyOf(values, length);
+        scores = Arrays.copyOf(scores, length);
+    }
+
+    /**
+     * @message merge
+     * @brief Folds the entries of another heap (e.g. of another partition) into this one
+     * @param other The other heap
+     */
+    public void merge(TopKHeapModel other) {
+        for(int i = 0; i < other.size; i++)
+            offer(other.epochMinutes[i], other.values[i]);
+    }
+
+    private void swap(int i, int j) {
+        long e = epochMinutes[i]; epochMinutes[i] = epochMinutes[j]; epochMinutes[j] = e;
+        double v = values[i]; values[i] = values[j]; values[j] = v;
+        double s = scores[i]; scores[i] = scores[j]; scores[j] = s;
+    }
+
+    private void siftUp(int i) {
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(scores[parent] <= scores[i])
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while(true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if(left < size && scores[left] < scores[smallest]) smallest = left;
+            if(right < size && scores[right] < scores[smallest]) smallest = right;
+            if(smallest == i)
+                break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    /**
+     * @message orderByRank
+     * @brief Orders the kept entries from the strongest to the weakest, without disturbing the heap
+     * @return the indices of the entries by rank
+     */
+    public int[] orderByRank() {
+        /* The entries already form a heap, so pop a copy of it: the weakest comes out first and goes last */
+        int[] heap = new int[size];
+        for(int i = 0; i < size; i++)
+            heap[i] = i;
+
+        int[] order = new int[size];
+        for(int n = size; n > 0; n--) {
+            order[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            int i = 0;
+            while(true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if(left < n - 1 && scores[heap[left]] < scores[heap[smallest]]) smallest = left;
+                if(right < n - 1 && scores[heap[right]] < scores[heap[smallest]]) smallest = right;
+                if(smallest == i)
+                    break;
+                int tmp = heap[i]; heap[i] = heap[smallest]; heap[smallest] = tmp;
+                i = smallest;
+            }
+        }
+        return order;
+    }
+
+    public boolean isTop() {
+        return this.top;
+    }
+    public int getSize() {
+        return this.size;
+    }
+    public long getEpochMinute(int i) {
+        return this.epochMinutes[i];
+    }
+    public double getValue(int i) {
+        return this.values[i];
+    }
+}
@@ -0,0 +1,202 @@
+package forecasting;
+
+import java.util.ArrayList;
+
+import datamodel.EpochTimeModel;
+import datamodel.ForecastResultModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+import timeaggregation.RollupSeries;
+
+/**
+ * @class Forecaster
+ * @brief Implements the IForecaster interface and its base functions
+ *          primarily dealing with forecasting the consumption of each meter from hourly or daily rollups
+ */
+public class Forecaster implements IForecaster {
+    /**
+     * alpha, beta, gamma -> the smoothing factors handed to every new model
+     * granularity -> the size of the rolled up buckets (hourly, daily)
+     * bucketMinutes -> the length of a bucket in minutes
+     * nextBucket -> the bucket (counted since the epoch) that the models expect next
+     * pending -> the records of a trailing bucket that was not complete yet, held back until later records complete it
+     * kitchenModel, laundryModel, acModel -> the fitted state of each meter
+     */
+    private double alpha = 0.2;
+    private double beta = 0.01;
+    private double gamma = 0.1;
+    private String granularity;
+    private long bucketMinutes;
+    private long nextBucket;
+    private ArrayList<MeasurementRecord> pending = new ArrayList<>();
+    private HoltWintersModel kitchenModel;
+    private HoltWintersModel laundryModel;
+    private HoltWintersModel acModel;
+
+    /**
+     * @message createModel
+     * @brief Creates an empty model with the seasonal cycles that fit the granularity
+     * @return the model
+     */
+    private HoltWintersModel createModel() {
+        if(granularity.equals("hourly"))
+            /* A daily and a weekly cycle of hours */
+            return new HoltWintersModel(alpha, beta, gamma, 24, 168);
+        /* A weekly cycle of days */
+        return new HoltWintersModel(alpha, beta, gamma, 7);
+    }
+
+    /**
+     * @message consume
+     * @brief Feeds the buckets of the measurements that come after the last consumed bucket into the models.
+     *          The last bucket is held back while it does not reach its last minute, since a bucket can only be
+     *          fed once, and its records are rolled up again with the records of the next update
+     * @param measurements The measurements
+     * @return the number of buckets consumed
+     */
+    private int consume(ArrayList<MeasurementRecord> measurements) {
+        ArrayList<MeasurementRecord> input = measurements;
+        if(!pending.isEmpty()) {
+            input = new ArrayList<>(pending);
+            input.addAll(measurements);
+        }
+        RollupSeries series = RollupSeries.build(input, bucketMinutes);
+
+        long lastMinute = Long.MIN_VALUE;
+        for(MeasurementRecord record : input)
+            lastMinute = Math.max(lastMinute, record.getEpochMinute());
+        long heldBucket = Long.MAX_VALUE;
+        if(series.getLength() > 0 && Math.floorMod(lastMinute + 1, bucketMinutes) != 0)
+            heldBucket = series.getFirstBucket() + series.getLength() - 1;
+
+        pending = new ArrayList<>();
+        if(heldBucket != Long.MAX_VALUE && heldBucket >= nextBucket)
+            for(MeasurementRecord record : input)
+                if(Math.floorDiv(record.getEpochMinute(), bucketMinutes) == heldBucket)
+                    pending.add(record);
+
+        int consumed = 0;
+        for(int i = 0; i < series.getLength(); i++) {
+            long bucket = series.getFirstBucket() + i;
+            if(bucket < nextBucket)
+                /* Already part of the fitted history */
+                continue;
+            if(bucket >= heldBucket)
+                /* Not complete yet */
+                break;
+
+            /* Buckets that are missing between the last update and this series are gaps */
+            while(nextBucket < bucket) {
+                kitchenModel.update(Double.NaN);
+                laundryModel.update(Double.NaN);
+                acModel.update(Double.NaN);
+                nextBucket++;
+            }
+
+            kitchenModel.update(series.getValue("kitchen", i));
+            laundryModel.update(series.getValue("laundry", i));
+            acModel.update(series.getValue("ac", i));
+            nextBucket++;
+            consumed++;
+        }
+        return consumed;
+    }
+
+    /**
+     * @message fit
+     * @brief Fits the forecasting models on hourly or daily rollups of the measurements, replacing any earlier fitted state
+     * @param inputMeasurements the measurements to learn from
+     * @param granularity a String belonging to the set "hourly", "daily" to determine the size of the rolled up buckets
+     * @return the number of buckets the models were fitted on, or -1 if sth goes wrong
+     */
+    @Override
+    public int fit(ArrayList<MeasurementRecord> inputMeasurements, String granularity) {
+        switch(granularity) {
+            case "hourly":
+                bucketMinutes = EpochTimeModel.MINUTES_PER_HOUR;
+                break;
+            case "daily":
+                bucketMinutes = EpochTimeModel.MINUTES_PER_DAY;
+                break;
+            default:
+                System.out.println("The forecast granularity is neither hourly nor daily");
+                return -1;
+        }
+        this.granularity = granularity;
+
+        RollupSeries series = RollupSeries.build(inputMeasurements, bucketMinutes);
+        if(series.getLength() == 0) {
+            System.out.println("There are no measurements to fit the forecast on.");
+            return -1;
+        }
+
+        kitchenModel = createModel();
+        laundryModel = createModel();
+        acModel = createModel();
+        nextBucket = series.getFirstBucket();
+        pending = new ArrayList<>();
+
+        return consume(inputMeasurements);
+    }
+
+    /**
+     * @message update
+     * @brief Feeds newly arrived measurements to the already fitted models without refitting the history
+     * @param newMeasurements the measurements that arrived after the last fit or update
+     * @return the number of new buckets consumed, or -1 if sth goes wrong
+     */
+    @Override
+    public int update(ArrayList<MeasurementRecord> newMeasurements) {
+        if(kitchenModel == null) {
+            System.out.println("There is no fitted forecast to update.");
+            return -1;
+        }
+        return consume(newMeasurements);
+    }
+
+    /**
+     * @message forecast
+     * @brief Predicts the consumption of the buckets following the last consumed one
+     * @param horizon the number of future buckets to predict
+     * @param description a String with a textual description of the forecast
+     * @return An IResult object with the predictions per future bucket, or null if sth goes wrong
+     */
+    @Override
+    public IResult forecast(int horizon, String description) {
+        if(kitchenModel == null) {
+            System.out.println("There is no fitted forecast.");
+            return null;
+        }
+        if(!kitchenModel.isInitialized()) {
+            System.out.println("The forecast needs at least one full week of measurements.");
+            return null;
+        }
+
+        ForecastResultModel result = new ForecastResultModel();
+        result.setDescription(description);
+        for(int h = 1; h <= horizon; h++) {
+            long epochMinute = (nextBucket + h - 1) * bucketMinutes;
+            result.addForecast(
+                EpochTimeModel.format(epochMinute, granularity.equals("hourly")),
+                kitchenModel.forecast(h),
+                laundryModel.forecast(h),
+                acModel.forecast(h)
+            );
+        }
+        return result;
+    }
+
+    public String getGranularity() {
+        return this.granularity;
+    }
+
+    public void setAlpha(double alpha) {
+        this.alpha = alpha;
+    }
+    public void setBeta(double beta) {
+        this.beta = beta;
+    }
+    public void setGamma(double gamma) {
+        this.gamma = gamma;
+    }
+}
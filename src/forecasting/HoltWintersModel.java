@@ -0,0 +1,162 @@
+package forecasting;
+
+/**
+ * @class HoltWintersModel
+ * @brief Implements additive triple exponential smoothing with one or more seasonal cycles
+ *          (e.g. a daily cycle of 24 and a weekly cycle of 168 hourly points).
+ *          The fitted state is kept so that new observations can be fed without refitting the history
+ */
+public class HoltWintersModel {
+    /**
+     * alpha -> the smoothing factor of the level
+     * beta -> the smoothing factor of the trend
+     * gamma -> the smoothing factor of each seasonal cycle
+     * periods -> the length of each seasonal cycle in points
+     * level -> the current smoothed level
+     * trend -> the current smoothed trend per point
+     * seasonals -> the seasonal offsets of each cycle, indexed by the phase of the point
+     * position -> the number of points consumed so far
+     * warmup -> the first points buffered until one full longest cycle is seen to initialise the state
+     */
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final int[] periods;
+    private double level;
+    private double trend;
+    private final double[][] seasonals;
+    private long position;
+    private final double[] warmup;
+
+    public HoltWintersModel(double alpha, double beta, double gamma, int... periods) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.periods = periods;
+        this.seasonals = new double[periods.length][];
+        for(int i = 0; i < periods.length; i++)
+            this.seasonals[i] = new double[periods[i]];
+
+        this.warmup = new double[getLongestPeriod()];
+        this.position = 0;
+    }
+
+    /**
+     * @message getLongestPeriod
+     * @brief Finds the length of the longest seasonal cycle
+     * @return the longest period
+     */
+    private int getLongestPeriod() {
+        int longest = 1;
+        for(int period : periods)
+            longest = Math.max(longest, period);
+        return longest;
+    }
+
+    /**
+     * @message isInitialized
+     * @brief Checks whether a full cycle was already seen so that the model can forecast
+     * @return true if the model can forecast
+     */
+    public boolean isInitialized() {
+        return position >= warmup.length;
+    }
+
+    /**
+     * @message update
+     * @brief Feeds the next point of the series into the model
+     * @param value The observation, or NaN for a missing point (the model's own prediction is used in its place)
+     */
+    public void update(double value) {
+        if(!isInitialized()) {
+            /* Fill missing points of the first cycle with the last known value */
+            if(Double.isNaN(value))
+                value = (position == 0) ? 0.0 : warmup[(int)position - 1];
+            warmup[(int)position] = value;
+            position++;
+
+            if(isInitialized())
+                initialize();
+            return;
+        }
+
+        if(Double.isNaN(value))
+            value = forecast(1);
+
+        double seasonalSum = seasonalAt(position);
+        double previousLevel = level;
+
+        level = alpha * (value - seasonalSum) + (1 - alpha) * (level + trend);
+        trend = beta * (level - previousLevel) + (1 - beta) * trend;
+
+        for(int i = 0; i < periods.length; i++) {
+            int phase = (int)(position % periods[i]);
+            /* Each cycle only learns what the level and the other cycles did not explain */
+            double others = seasonalSum - seasonals[i][phase];
+            seasonals[i][phase] = gamma * (value - level - others) + (1 - gamma) * seasonals[i][phase];
+        }
+
+        position++;
+    }
+
+    /**
+     * @message initialize
+     * @brief Estimates the starting level and seasonal offsets from the first full cycle
+     */
+    private void initialize() {
+        double mean = 0.0;
+        for(double value : warmup)
+            mean += value;
+        mean /= warmup.length;
+
+        level = mean;
+        trend = 0.0;
+
+        /* Every cycle takes the average deviation per phase left over by the cycles before it */
+        double[] residuals = new double[warmup.length];
+        for(int t = 0; t < warmup.length; t++)
+            residuals[t] = warmup[t] - mean;
+
+        for(int i = 0; i < periods.length; i++) {
+            int[] counts = new int[periods[i]];
+            for(int t = 0; t < warmup.length; t++) {
+                seasonals[i][t % periods[i]] += residuals[t];
+                counts[t % periods[i]]++;
+            }
+            for(int phase = 0; phase < periods[i]; phase++)
+                if(counts[phase] > 0)
+                    seasonals[i][phase] /= counts[phase];
+            for(int t = 0; t < warmup.length; t++)
+                residuals[t] -= seasonals[i][t % periods[i]];
+        }
+    }
+
+    /**
+     * @message seasonalAt
+     * @brief Sums the seasonal offsets of all cycles for a point
+     * @param point The position of the point in the series
+     * @return the sum of the seasonal offsets
+     */
+    private double seasonalAt(long point) {
+        double sum = 0.0;
+        for(int i = 0; i < periods.length; i++)
+            sum += seasonals[i][(int)(point % periods[i])];
+        return sum;
+    }
+
+    /**
+     * @message forecast
+     * @brief Predicts a point after the last one consumed
+     * @param horizon How many points ahead to predict (1 is the next point)
+     * @return the predicted value, or NaN if the model has not seen a full cycle yet
+     */
+    public double forecast(int horizon) {
+        if(!isInitialized())
+            return Double.NaN;
+        return level + horizon * trend + seasonalAt(position + horizon - 1);
+    }
+
+    public long getPosition() {
+        return this.position;
+    }
+}
@@ -0,0 +1,35 @@
+package forecasting;
+
+import java.util.ArrayList;
+
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public interface IForecaster {
+
+	/**
+	 * Fits the forecasting models on hourly or daily rollups of the measurements, replacing any earlier fitted state
+	 *
+	 * @param inputMeasurements the measurements to learn from
+	 * @param granularity a String belonging to the set "hourly", "daily" to determine the size of the rolled up buckets
+	 * @return the number of buckets the models were fitted on, or -1 if sth goes wrong
+	 */
+	int fit(ArrayList<MeasurementRecord> inputMeasurements, String granularity);
+
+	/**
+	 * Feeds newly arrived measurements to the already fitted models without refitting the history
+	 *
+	 * @param newMeasurements the measurements that arrived after the last fit or update
+	 * @return the number of new buckets consumed, or -1 if sth goes wrong
+	 */
+	int update(ArrayList<MeasurementRecord> newMeasurements);
+
+	/**
+	 * Predicts the consumption of the buckets following the last consumed one
+	 *
+	 * @param horizon the number of future buckets to predict
+	 * @param description a String with a textual description of the forecast
+	 * @return An IResult object with the predictions per future bucket, or null if sth goes wrong
+	 */
+	IResult forecast(int horizon, String description);
+}
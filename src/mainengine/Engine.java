@@ -1,15 +1,49 @@
 package mainengine;
 
+import dataload.BucketSchemeLoader;
+import dataload.Deduplicator;
+import dataload.ExternalSorter;
+import dataload.LazyLoader;
 import dataload.Loader;
+import dataload.MultiFileLoader;
+import datamodel.AnomalyListModel;
+import datamodel.BitmapIndexModel;
+import datamodel.BucketSchemeModel;
+import datamodel.ColumnStoreModel;
+import datamodel.DerivedColumnModel;
+import datamodel.EpochTimeModel;
+import datamodel.GapStatisticsModel;
 import datamodel.IResult;
+import datamodel.LazyDatasetModel;
+import datamodel.LoadReportModel;
 import datamodel.MeasurementRecord;
 import datamodel.ReportMetadataModel;
+import datamodel.ResultModel;
 import datamodel.History;
+import datamodel.SummaryResultModel;
+import datamodel.TimeIndexModel;
+import forecasting.Forecaster;
 import timeaggregation.Aggregator;
+import timeaggregation.AnomalyDetector;
+import timeaggregation.CorrelationAggregator;
+import timeaggregation.DerivedColumnAggregator;
+import timeaggregation.HistogramAggregator;
+import timeaggregation.PeakFinder;
+import timeaggregation.Resampler;
+import timeaggregation.SeriesAggregator;
+import reporting.BinaryResultReader;
 import reporting.Reporter;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * @class Engine
@@ -21,61 +55,854 @@ public class Engine implements IMainEngine {
      * loader -> the Loader object implemented for loading data files
      * aggregator -> the Aggregator object implemented for measuring and aggregating data
      * reported -> the Reporter object implemented for writing reports about the measured data
+     * forecaster -> the Forecaster object that keeps the fitted forecasting state between updates
+     * indexes -> the indexes and column store of the last indexed collection, replaced whole so that running queries keep theirs
+     * derivedColumns -> the derived columns that are computed and aggregated next to the meters, in definition order (guarded by the engine)
+     * seriesCollection -> the collection the last directory load filled with households
+     * seriesNames -> the name of every household (series) of seriesCollection, by series id
+     * loadReport -> the rows or the error of every file of the last multi file load
+     * deduplication -> whether loading drops the rows that repeat an earlier (series, epoch minute)
+     * externalSorter -> the sort stage of single file loads, through runs on disk (null when disabled)
+     * asyncExecutor -> the executor the async variants run on (the default pool is created on first use)
+     * defaultExecutor -> the pool the engine created for the async variants, shut down by shutdownAsync
+     * pipelines -> the report pipelines that have not completed yet (guarded by the engine)
      */
     private final Loader<MeasurementRecord> loader;
     private final Aggregator aggregator;
     private final Reporter reporter;
+    private final Forecaster forecaster;
+    private volatile DatasetIndexes indexes;
+    private final ArrayList<DerivedColumnModel> derivedColumns;
+    private ArrayList<MeasurementRecord> seriesCollection;
+    private ArrayList<String> seriesNames;
+    private LoadReportModel loadReport;
+    private boolean deduplication;
+    private ExternalSorter externalSorter;
+    private Executor asyncExecutor;
+    private ExecutorService defaultExecutor;
+    private final ArrayList<CompletableFuture<Integer>> pipelines;
+
+    /**
+     * @class DatasetIndexes
+     * @brief The indexes of one collection, never replaced once published: a query takes the current ones once and
+     *          reads only those, whatever other calls index meanwhile. Each index is built on its first use, so loading
+     *          does not pay for the indexes that no query asks for
+     */
+    private static final class DatasetIndexes {
+        /**
+         * collection -> the collection the indexes are built from
+         * size -> the size of the collection when they were published
+         * derivedColumns -> the derived columns the column store holds, in definition order
+         * timeIndex -> the time sorted layout and block index of the collection (built on first use)
+         * bitmapIndex -> the per time unit value bitmaps of the collection (built on first use)
+         * columnStore -> the numeric fields and derived columns of the collection, as primitive columns (built on first use)
+         */
+        final ArrayList<MeasurementRecord> collection;
+        final int size;
+        private final ArrayList<DerivedColumnModel> derivedColumns;
+        private TimeIndexModel timeIndex;
+        private BitmapIndexModel bitmapIndex;
+        private ColumnStoreModel columnStore;
+
+        DatasetIndexes(ArrayList<MeasurementRecord> collection, ArrayList<DerivedColumnModel> derivedColumns) {
+            this.collection = collection;
+            this.size = collection.size();
+            this.derivedColumns = derivedColumns;
+        }
+
+        boolean covers(ArrayList<MeasurementRecord> objCollection) {
+            return collection == objCollection && size == objCollection.size();
+        }
+
+        /**
+         * @message withDerivedColumn
+         * @brief Makes the indexes of the same collection with one more derived column, sharing the indexes built so far;
+         *          a column store that is already built is copied, since queries may be reading it
+         * @param definedColumns the derived columns, ending with the new one
+         * @return the new indexes
+         */
+        synchronized DatasetIndexes withDerivedColumn(ArrayList<DerivedColumnModel> definedColumns) {
+            DatasetIndexes next = new DatasetIndexes(collection, definedColumns);
+            next.timeIndex = timeIndex;
+            next.bitmapIndex = bitmapIndex;
+            if(columnStore != null) {
+                next.columnStore = columnStore.copy();
+                definedColumns.get(definedColumns.size() - 1).evaluate(next.columnStore);
+            }
+            return next;
+        }
+
+        synchronized TimeIndexModel timeIndex() {
+            if(timeIndex == null)
+                timeIndex = new TimeIndexModel(collection);
+            return timeIndex;
+        }
+
+        synchronized BitmapIndexModel bitmapIndex() {
+            if(bitmapIndex == null)
+                bitmapIndex = new BitmapIndexModel(collection);
+            return bitmapIndex;
+        }
+
+        synchronized ColumnStoreModel columnStore() {
+            if(columnStore == null) {
+                columnStore = new ColumnStoreModel(collection);
+                for(DerivedColumnModel derivedColumn : derivedColumns)
+                    derivedColumn.evaluate(columnStore);
+            }
+            return columnStore;
+        }
+    }
 
     public Engine() {
         loader = new Loader<>();
         aggregator = new Aggregator();
         reporter = new Reporter();
+        forecaster = new Forecaster();
+        derivedColumns = new ArrayList<>();
+        seriesCollection = null;
+        seriesNames = new ArrayList<>();
+        pipelines = new ArrayList<>();
+    }
+
+    /**
+     * @message loadData
+	 * @brief A method that reads the data from the given file and stores them in an ArrayList
+	 * @param filename a String with the name of the input file, or a directory or glob pattern (e.g. data/2007_*.txt) of several files
+	 * @param delimiter a String with the delimiter between columns of the source file
+	 * @param hasHeaderLine specifies whether the file has a header (true) or not (false)
+	 * @param numFields an int with the number of columns in the input file
+	 * @param objCollection and empty list which will be loaded with the data from the input file
+	 * @return the number of rows that are eventually added to objCollection
+	 */
+    @Override
+    public int loadData(String filename, String delimiter, Boolean hasHeaderLine, int numFields, ArrayList<MeasurementRecord> objCollection) {
+        if(filename == null) {
+            System.out.println("The given output filename is not valid.");
+            return -1;
+        }
+
+        /* Check if the filename exists as a name in the filesystem */
+        File checkDir = new File(filename);
+        boolean manyFiles = MultiFileLoader.isPattern(filename);
+        if(!manyFiles && !checkDir.exists()) {
+            /* It does not exits neither it is a directory */
+            System.out.println("There does not exist a file with this name.");
+            return -1;
+        }
+        if(delimiter == null) {
+            System.out.println("There is no delimiter given.");
+            return -1;
+        }
+        if(numFields != 9) {
+            System.out.println("The number of columns is given incorrectly.");
+            return -1;
+        }
+        if(objCollection == null) {
+            System.out.println("The objCollection is null");
+            return -1;
+        }
+        forgetSeries(objCollection);
+        if(manyFiles)
+            /* Several files of the same series, merged in time order */
+            return loadFiles(filename, delimiter, hasHeaderLine, numFields, objCollection, false);
+
+        int numRows;
+        if(externalSorter != null) {
+            /* The rows are ordered through runs on disk but still all kept in objCollection, inputs larger than
+                the heap go through streamSorted instead */
+            numRows = externalSorter.sort(filename, delimiter, hasHeaderLine, numFields, objCollection::add);
+            printSkippedRows(externalSorter);
+            if(numRows != -1)
+                numRows = objCollection.size();
+        }
+        else
+            numRows = loader.load(filename, delimiter, hasHeaderLine, numFields, objCollection);
+        if(numRows != -1) {
+            numRows -= removeDuplicates(objCollection);
+            /* Mark the loaded dataset as the indexed one, its indexes are built by the queries that need them */
+            refreshIndexes(objCollection);
+        }
+        return numRows;
+    }
+
+    /**
+     * @message enableExternalSort
+     * @brief Makes the next single file loads sort their rows by time through sorted runs written to disk, and sets the
+     *          memory budget of streamSorted. A load still keeps every row in its collection, so this only orders the rows
+     *          of a load; an input larger than the heap has to be streamed with streamSorted
+     * @param tempDirectory a String with the directory of the sort runs, or null for the system temp directory
+     * @param memoryBudget the most megabytes of rows kept in the heap before a run is written
+     * @return 0 if the sort stage was enabled; a negative integer otherwise
+     */
+    public int enableExternalSort(String tempDirectory, int memoryBudget) {
+        if(tempDirectory != null && !new File(tempDirectory).isDirectory()) {
+            System.out.println("There does not exist a directory with this name.");
+            return -1;
+        }
+        if(memoryBudget <= 0) {
+            System.out.println("The memory budget should be a positive number of megabytes.");
+            return -1;
+        }
+        externalSorter = new ExternalSorter((tempDirectory == null) ? null : new File(tempDirectory), memoryBudget * 1024L * 1024L);
+        return 0;
+    }
+
+    /**
+     * @message disableExternalSort
+     * @brief Makes the next loads read their files in file order again
+     */
+    public void disableExternalSort() {
+        externalSorter = null;
+    }
+
+    /**
+     * @message streamSorted
+     * @brief A method that streams the rows of a file in time order to a consumer (e.g. a Resampler) without keeping them,
+     *          sorting them through runs on disk under the memory budget of enableExternalSort (64 MB if it was not called).
+     *          This is the way to sort an input larger than the heap, since only the buffered run and the merge heap are kept
+     * @param filename a String with the name of the input file
+     * @param delimiter a String with the delimiter between columns of the source file
+     * @param hasHeaderLine specifies whether the file has a header (true) or not (false)
+     * @param numFields an int with the number of columns in the input file
+     * @param sink receives the rows in time order
+     * @return the number of rows streamed, or -1 if sth goes wrong
+     */
+    public int streamSorted(String filename, String delimiter, Boolean hasHeaderLine, int numFields, Consumer<MeasurementRecord> sink) {
+        if(filename == null || !new File(filename).isFile()) {
+            System.out.println("There does not exist a file with this name.");
+            return -1;
+        }
+        if(delimiter == null) {
+            System.out.println("There is no delimiter given.");
+            return -1;
+        }
+        if(numFields != 9) {
+            System.out.println("The number of columns is given incorrectly.");
+            return -1;
+        }
+        if(sink == null) {
+            System.out.println("There is no consumer given for the rows.");
+            return -1;
+        }
+
+        ExternalSorter sorter = (externalSorter != null) ? externalSorter : new ExternalSorter(null, 64L * 1024L * 1024L);
+        int numRows = sorter.sort(filename, delimiter, hasHeaderLine, numFields, sink);
+        printSkippedRows(sorter);
+        return numRows;
+    }
+
+    private static void printSkippedRows(ExternalSorter sorter) {
+        if(sorter.getSkippedRows() > 0)
+            System.out.println("Skipped " + sorter.getSkippedRows() + " rows that could not be parsed.");
+    }
+
+    /**
+     * @message enableDeduplication
+     * @brief Turns on or off the stage of the loaders that drops the rows repeating an earlier (series, minute)
+     * @param enabled whether the next loads drop duplicate rows
+     */
+    public void enableDeduplication(boolean enabled) {
+        this.deduplication = enabled;
+    }
+
+    /**
+     * @message removeDuplicates
+     * @brief Drops the duplicate rows of a loaded collection when deduplication is enabled
+     * @param objCollection the loaded rows
+     * @return the number of rows dropped
+     */
+    private int removeDuplicates(ArrayList<MeasurementRecord> objCollection) {
+        if(!deduplication)
+            return 0;
+        int dropped = new Deduplicator().deduplicate(objCollection);
+        if(dropped > 0)
+            System.out.println("Dropped " + dropped + " duplicate rows.");
+        return dropped;
+    }
+
+    /**
+     * @message loadDirectory
+     * @brief A method that reads every file of a directory, one household per file, tagging each row with the series id of its file
+     * @param directory a String with the path of the directory, or a glob pattern of the files
+     * @param delimiter a String with the delimiter between columns of the source files
+     * @param hasHeaderLine specifies whether the files have a header (true) or not (false)
+     * @param numFields an int with the number of columns in the input files
+     * @param objCollection a list which will be loaded with the data of all the files, in time order
+     * @return the number of rows in objCollection after loading, or -1 if sth goes wrong
+     */
+    public int loadDirectory(String directory, String delimiter, Boolean hasHeaderLine, int numFields, ArrayList<MeasurementRecord> objCollection) {
+        if(directory == null || !MultiFileLoader.isPattern(directory)) {
+            System.out.println("The given directory is not valid.");
+            return -1;
+        }
+        if(delimiter == null) {
+            System.out.println("There is no delimiter given.");
+            return -1;
+        }
+        if(numFields != 9) {
+            System.out.println("The number of columns is given incorrectly.");
+            return -1;
+        }
+        if(objCollection == null) {
+            System.out.println("The objCollection is null");
+            return -1;
+        }
+        forgetSeries(objCollection);
+        return loadFiles(directory, delimiter, hasHeaderLine, numFields, objCollection, true);
+    }
+
+    /**
+     * @message loadFiles
+     * @brief Loads the files of a directory or glob pattern concurrently and merges them into one time ordered collection,
+     *          printing the rows or the error of every file
+     * @param pattern the directory or glob pattern
+     * @param delimiter a String with the delimiter between columns of the source files
+     * @param hasHeaderLine specifies whether the files have a header (true) or not (false)
+     * @param numFields an int with the number of columns in the input files
+     * @param objCollection the list the rows are merged into
+     * @param tagSeries whether every file is a household of its own (true) or a time slice of the same series (false)
+     * @return the number of rows in objCollection after loading, or -1 if no file could be loaded
+     */
+    private int loadFiles(String pattern, String delimiter, boolean hasHeaderLine, int numFields, ArrayList<MeasurementRecord> objCollection, boolean tagSeries) {
+        File[] files = MultiFileLoader.resolve(pattern);
+        if(files.length == 0) {
+            System.out.println("There are no files matching " + pattern + ".");
+            return -1;
+        }
+
+        loadReport = new LoadReportModel();
+        MultiFileLoader multiFileLoader = new MultiFileLoader(Runtime.getRuntime().availableProcessors());
+        ArrayList<ArrayList<MeasurementRecord>> loaded = multiFileLoader.loadAll(files, delimiter, hasHeaderLine, numFields, loadReport);
+        System.out.print(loadReport);
+        if(loadReport.getLoadedFiles() == 0) {
+            System.out.println("None of the files could be loaded.");
+            return -1;
+        }
+
+        if(tagSeries) {
+            /* The households continue those already loaded into the same collection, a new collection starts over */
+            ArrayList<String> names = new ArrayList<>(seriesNamesOf(objCollection));
+            for(int i = 0; i < files.length; i++) {
+                if(loaded.get(i) == null)
+                    continue;
+                /* Name the series after the file, without its extension */
+                String name = files[i].getName();
+                int dot = name.lastIndexOf('.');
+                int seriesId = names.size();
+                names.add((dot > 0) ? name.substring(0, dot) : name);
+                for(MeasurementRecord record : loaded.get(i))
+                    record.setSeriesId(seriesId);
+            }
+            synchronized(this) {
+                seriesCollection = objCollection;
+                seriesNames = names;
+            }
+        }
+
+        MultiFileLoader.mergeByTime(loaded, objCollection);
+        removeDuplicates(objCollection);
+        refreshIndexes(objCollection);
+        return objCollection.size();
+    }
+
+    /**
+     * @message refreshIndexes
+     * @brief Publishes new indexes for a collection, only if the collection changed since the last ones; each index is
+     *          then built by the first query that needs it
+     * @param objCollection the loaded measurements
+     * @return the indexes of the collection
+     */
+    private synchronized DatasetIndexes refreshIndexes(ArrayList<MeasurementRecord> objCollection) {
+        DatasetIndexes current = indexes;
+        if(current != null && current.covers(objCollection))
+            return current;
+
+        current = new DatasetIndexes(objCollection, new ArrayList<>(derivedColumns));
+        indexes = current;
+        return current;
+    }
+
+    /**
+     * @message columnStoreOf
+     * @brief Finds the column store of a collection with its derived columns: that of the indexed collection, or for any other
+     *          list (e.g. the matches of a filter) a store of its own, which leaves the indexes of the loaded dataset in place
+     * @param objCollection the measurements
+     * @return the column store, whose derived columns are in definition order
+     */
+    private ColumnStoreModel columnStoreOf(ArrayList<MeasurementRecord> objCollection) {
+        ArrayList<DerivedColumnModel> defined;
+        synchronized(this) {
+            DatasetIndexes current = indexes;
+            if(current != null && current.covers(objCollection))
+                return current.columnStore();
+            defined = new ArrayList<>(derivedColumns);
+        }
+
+        ColumnStoreModel columnStore = new ColumnStoreModel(objCollection);
+        for(DerivedColumnModel derivedColumn : defined)
+            derivedColumn.evaluate(columnStore);
+        return columnStore;
+    }
+
+    /**
+     * @message defineDerivedColumn
+     * @brief A method that adds a column computed from the others (e.g. DerivedColumnModel.UNMETERED), which is then
+     *          aggregated and reported next to the meters
+     * @param definition a String of the form "name = expression", a linear expression of numbers and the columns
+     *          "kitchen", "laundry", "ac", "active", "reactive", "voltage", "intensity" or previously defined derived columns
+     * @return the number of derived columns defined so far, or -1 if sth goes wrong
+     */
+    public synchronized int defineDerivedColumn(String definition) {
+        if(definition == null) {
+            System.out.println("The derived column definition is not given.");
+            return -1;
+        }
+
+        DerivedColumnModel derivedColumn;
+        try {
+            derivedColumn = DerivedColumnModel.parse(definition);
+        }
+        catch(IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return -1;
+        }
+
+        ArrayList<String> known = new ArrayList<>(Arrays.asList(ColumnStoreModel.COLUMNS));
+        for(DerivedColumnModel defined : derivedColumns)
+            known.add(defined.getName());
+        if(known.contains(derivedColumn.getName())) {
+            System.out.println("There is already a column named " + derivedColumn.getName() + ".");
+            return -1;
+        }
+        if(!known.containsAll(Arrays.asList(derivedColumn.getTerms()))) {
+            System.out.println("The derived column uses unknown columns: " + definition);
+            return -1;
+        }
+
+        derivedColumns.add(derivedColumn);
+        DatasetIndexes current = indexes;
+        if(current != null)
+            indexes = current.withDerivedColumn(new ArrayList<>(derivedColumns));
+        return derivedColumns.size();
+    }
+
+    /**
+     * @message aggregateByFilter
+     * @brief A method that aggregates by a time unit only the measurements matching a filter, found through the bitmap index
+     * @param inputMeasurements the loaded measurements
+     * @param filter the conditions, e.g. season=WINTER;dayofweek=SAT,SUN;periodofday=EVENING (values OR-ed, dimensions AND-ed)
+     * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme
+     * @param aggFunction a String representing the aggregate function (avg, sum) to be applied to the input
+     * @param description a String with a textual description of the result
+     * @return An IResult object where the matching input is aggregated by time period, or null if sth goes wrong
+     */
+    public IResult aggregateByFilter(ArrayList<MeasurementRecord> inputMeasurements, String filter, String aggregatorType, String aggFunction, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(filter == null) {
+            System.out.println("The filter is not given.");
+            return null;
+        }
+
+        int[] ids;
+        try {
+            ids = refreshIndexes(inputMeasurements).bitmapIndex().select(filter).toArray();
+        }
+        catch(IllegalArgumentException e) {
+            System.out.println("The filter is not valid. " + e.getMessage());
+            return null;
+        }
+
+        /* Only the matching rows are visited */
+        ArrayList<MeasurementRecord> matches = new ArrayList<>(ids.length);
+        for(int id : ids)
+            matches.add(inputMeasurements.get(id));
+        return aggregateByTimeUnit(matches, aggregatorType, aggFunction, description);
+    }
+
+    /**
+     * @message findPeaks
+     * @brief A method that finds the K highest or lowest consumption minutes or days of every meter per time unit
+     * @param inputMeasurements the loaded measurements
+     * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme
+     * @param granularity a string belonging to the set "minute", "day" to determine whether single readings or daily sums are ranked;
+     *          days need a time unit type that does not change within a day (not "periodofday" nor an intra-day bucket scheme)
+     * @param order a string belonging to the set "top", "bottom"
+     * @param k how many entries to keep per time unit and meter
+     * @param description a String with a textual description of the result
+     * @return An IResult object with the ranked entries of each meter, or null if sth goes wrong
+     */
+    public IResult findPeaks(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType, String granularity, String order, int k, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(aggregatorType == null) {
+            System.out.println("The aggregator time type is not given.");
+            return null;
+        }
+        if(granularity == null || !(granularity.equals("minute") || granularity.equals("day"))) {
+            System.out.println("The peak granularity is neither minute nor day");
+            return null;
+        }
+        if(order == null || !(order.equals("top") || order.equals("bottom"))) {
+            System.out.println("The peak order is neither top nor bottom");
+            return null;
+        }
+        if(k <= 0) {
+            System.out.println("The number of peaks should be positive.");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the measurements was not given.");
+            return null;
+        }
+
+        if(!aggregator.isTimeUnitType(aggregatorType)) {
+            System.out.println("The aggregator function input was invalid");
+            return null;
+        }
+        /* A day is ranked under the time unit of its first record, which is only right if the whole day is in it */
+        if(granularity.equals("day") && !aggregator.isConstantOverDays(aggregatorType)) {
+            System.out.println("Whole days can not be grouped by a time unit that changes within a day.");
+            return null;
+        }
+        PeakFinder finder = new PeakFinder(k, order.equals("top"), granularity.equals("day"), Runtime.getRuntime().availableProcessors());
+        return finder.findPeaks(refreshIndexes(inputMeasurements).timeIndex(), record -> aggregator.findTimeUnit(aggregatorType, record), description);
+    }
+
+    /**
+     * @message aggregateHistogram
+     * @brief A method that builds the distribution of the readings of every meter per time unit
+     * @param inputMeasurements the measurements to be counted
+     * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme
+     * @param binning a string belonging to the set "linear", "log" to determine the widths of the bins
+     * @param min the start of the first bin (must be positive for log bins)
+     * @param max the end of the last bin
+     * @param numBins the number of bins between min and max
+     * @param description a String with a textual description of the result
+     * @return An IResult object with the count of every bin per time unit, or null if sth goes wrong
+     */
+    public IResult aggregateHistogram(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType, String binning, double min, double max, int numBins, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(aggregatorType == null || !aggregator.isTimeUnitType(aggregatorType)) {
+            System.out.println("The aggregator function input was invalid");
+            return null;
+        }
+        if(binning == null || !(binning.equals("linear") || binning.equals("log"))) {
+            System.out.println("The histogram binning is neither linear nor log");
+            return null;
+        }
+        if(numBins <= 0 || max <= min || (binning.equals("log") && min <= 0)) {
+            System.out.println("The histogram bins are given incorrectly.");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the measurements was not given.");
+            return null;
+        }
+
+        HistogramAggregator histogramAggregator = new HistogramAggregator(min, max, numBins, binning.equals("log"), Runtime.getRuntime().availableProcessors());
+        return histogramAggregator.aggregate(inputMeasurements, record -> aggregator.findTimeUnit(aggregatorType, record), description);
+    }
+
+    /**
+     * @message aggregateCorrelation
+     * @brief A method that computes how the selected columns move together per time unit, in one pass
+     * @param inputMeasurements the measurements to be accumulated
+     * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme
+     * @param columns a comma separated list of columns from the set "kitchen", "laundry", "ac", "active", "reactive", "voltage", "intensity"
+     * @param description a String with a textual description of the result
+     * @return An IResult object whose getCoMoments holds the covariance and correlation matrices per time unit, or null if sth goes wrong
+     */
+    public IResult aggregateCorrelation(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType, String columns, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(aggregatorType == null || !aggregator.isTimeUnitType(aggregatorType)) {
+            System.out.println("The aggregator function input was invalid");
+            return null;
+        }
+        if(columns == null) {
+            System.out.println("The columns to correlate are not given.");
+            return null;
+        }
+        String[] selected = columns.replace(" ", "").split(",");
+        if(selected.length < 2 || !Arrays.asList(CorrelationAggregator.COLUMNS).containsAll(Arrays.asList(selected))) {
+            System.out.println("At least two of the columns " + String.join(", ", CorrelationAggregator.COLUMNS) + " should be given.");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the measurements was not given.");
+            return null;
+        }
+
+        CorrelationAggregator correlationAggregator = new CorrelationAggregator(selected, Runtime.getRuntime().availableProcessors());
+        return correlationAggregator.aggregate(inputMeasurements, record -> aggregator.findTimeUnit(aggregatorType, record), description);
+    }
+
+    /**
+     * @message aggregateByTimeRange
+     * @brief A method that aggregates the measurements of a time range using the block index of the loaded dataset
+     * @param inputMeasurements the loaded measurements
+     * @param from the start of the range as in the input files (dd/mm/yyyy hh:mm), included
+     * @param to the end of the range as in the input files (dd/mm/yyyy hh:mm), excluded
+     * @param aggFunction a String representing the aggregate function (avg, sum, min, max) to be applied to the range
+     * @param description a String with a textual description of the result
+     * @return An IResult object with a single time unit for the range, or null if sth goes wrong
+     */
+    public IResult aggregateByTimeRange(ArrayList<MeasurementRecord> inputMeasurements, String from, String to, String aggFunction, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(from == null || to == null) {
+            System.out.println("The time range is not given.");
+            return null;
+        }
+        if(aggFunction == null) {
+            System.out.println("The type of aggregate function is not given.");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the measurements was not given.");
+            return null;
+        }
+
+        long fromMinute;
+        long toMinute;
+        try {
+            fromMinute = EpochTimeModel.parse(from);
+            toMinute = EpochTimeModel.parse(to);
+        }
+        catch(IllegalArgumentException e) {
+            System.out.println("The time range should be given as dd/mm/yyyy hh:mm.");
+            return null;
+        }
+
+        TimeIndexModel.RangeSummary summary = refreshIndexes(inputMeasurements).timeIndex().summarize(fromMinute, toMinute);
+        if(summary.count == 0) {
+            /* The average, min and max of no rows do not exist */
+            System.out.println("There are no measurements in the time range.");
+            return null;
+        }
+        double[] values = new double[3];
+        for(int meter = 0; meter < 3; meter++) {
+            switch(aggFunction) {
+                case "sum":
+                    values[meter] = summary.sum[meter];
+                    break;
+                case "avg":
+                    values[meter] = summary.sum[meter] / (double)summary.count;
+                    break;
+                case "min":
+                    values[meter] = summary.min[meter];
+                    break;
+                case "max":
+                    values[meter] = summary.max[meter];
+                    break;
+                default:
+                    System.out.println("The aggregate function is neither avg nor sum nor min nor max");
+                    return null;
+            }
+        }
+
+        SummaryResultModel result = new SummaryResultModel();
+        result.setDescription(description);
+        result.put(from + " - " + to, values[0], values[1], values[2]);
+        return result;
+    }
+
+    /**
+     * @message loadLazy
+     * @brief A method that maps a file and only indexes where its rows start and their timestamps, leaving the numeric fields
+     *          to be parsed when they are first read
+     * @param filename a String with the name of the input file
+     * @param delimiter a String with the delimiter between columns of the source file
+     * @param hasHeaderLine specifies whether the file has a header (true) or not (false)
+     * @param cache whether the rows parsed by queries are kept for the next ones
+     * @return the lazy dataset, or null if sth goes wrong
+     */
+    public LazyDatasetModel loadLazy(String filename, String delimiter, Boolean hasHeaderLine, boolean cache) {
+        if(filename == null || !new File(filename).isFile()) {
+            System.out.println("There does not exist a file with this name.");
+            return null;
+        }
+        if(delimiter == null || delimiter.isEmpty()) {
+            System.out.println("There is no delimiter given.");
+            return null;
+        }
+        return new LazyLoader().load(filename, delimiter, hasHeaderLine, cache);
+    }
+
+    /**
+     * @message aggregateLazyRange
+     * @brief A method that aggregates the meters of a time range of a lazy dataset, parsing only the rows of the range
+     * @param dataset the lazy dataset
+     * @param from the start of the range as in the input files (dd/mm/yyyy hh:mm), included
+     * @param to the end of the range as in the input files (dd/mm/yyyy hh:mm), excluded
+     * @param aggFunction a String representing the aggregate function (avg, sum, min, max) to be applied to the range
+     * @param description a String with a textual description of the result
+     * @return An IResult object with a single time unit for the range, or null if sth goes wrong
+     */
+    public IResult aggregateLazyRange(LazyDatasetModel dataset, String from, String to, String aggFunction, String description) {
+        if(dataset == null) {
+            System.out.println("The lazy dataset is not given.");
+            return null;
+        }
+        if(from == null || to == null) {
+            System.out.println("The time range is not given.");
+            return null;
+        }
+        if(aggFunction == null || !Arrays.asList("avg", "sum", "min", "max").contains(aggFunction)) {
+            System.out.println("The aggregate function is neither avg nor sum nor min nor max");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the measurements was not given.");
+            return null;
+        }
+
+        int[] rows;
+        try {
+            rows = dataset.rowsInRange(EpochTimeModel.parse(from), EpochTimeModel.parse(to));
+        }
+        catch(IllegalArgumentException e) {
+            System.out.println("The time range should be given as dd/mm/yyyy hh:mm.");
+            return null;
+        }
+
+        /* Every row is parsed once for the three meters, missing ('?') readings are left out */
+        long[] count = new long[3];
+        double[] sum = new double[3];
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for(int row : rows) {
+            double[] readings = dataset.getRow(row);
+            for(int meter = 0; meter < 3; meter++) {
+                double value = readings[meter];
+                if(Double.isNaN(value))
+                    continue;
+                count[meter]++;
+                sum[meter] += value;
+                min[meter] = Math.min(min[meter], value);
+                max[meter] = Math.max(max[meter], value);
+            }
+        }
+        if(count[0] + count[1] + count[2] == 0) {
+            System.out.println("There are no measurements in the time range.");
+            return null;
+        }
+
+        /* A meter without readings in the range has no value (NaN) rather than an infinite min or max */
+        double[] values = new double[3];
+        for(int meter = 0; meter < 3; meter++) {
+            switch(aggFunction) {
+                case "sum":
+                    values[meter] = sum[meter];
+                    break;
+                case "avg":
+                    values[meter] = (count[meter] == 0) ? Double.NaN : sum[meter] / (double)count[meter];
+                    break;
+                case "min":
+                    values[meter] = (count[meter] == 0) ? Double.NaN : min[meter];
+                    break;
+                case "max":
+                    values[meter] = (count[meter] == 0) ? Double.NaN : max[meter];
+                    break;
+            }
+        }
+
+        SummaryResultModel result = new SummaryResultModel();
+        result.setDescription(description);
+        result.put(from + " - " + to, values[0], values[1], values[2]);
+        return result;
+    }
+
+    /**
+     * @message resample
+     * @brief A method that resamples the measurements to a regular grid in one streaming pass over the time index,
+     *          detecting the gaps of the series and filling them by a policy
+     * @param inputMeasurements the loaded measurements
+     * @param resolution the length of a grid slot in minutes
+     * @param policy a String with the fill policy: "empty" (leave gaps out), "carry" (repeat the last slot) or "interpolate" (linear)
+     * @param outputMeasurements an empty list which will be loaded with one record per slot, in time order
+     * @return the gap statistics of the series, or null if sth goes wrong
+     */
+    public GapStatisticsModel resample(ArrayList<MeasurementRecord> inputMeasurements, int resolution, String policy, ArrayList<MeasurementRecord> outputMeasurements) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(outputMeasurements == null) {
+            System.out.println("The output measurements list is null.");
+            return null;
+        }
+        if(resolution <= 0) {
+            System.out.println("The resolution should be a positive number of minutes.");
+            return null;
+        }
+        if(policy == null || !Arrays.asList("empty", "carry", "interpolate").contains(policy)) {
+            System.out.println("The fill policy is neither empty nor carry nor interpolate.");
+            return null;
+        }
+
+        TimeIndexModel timeIndex = refreshIndexes(inputMeasurements).timeIndex();
+        Resampler resampler = new Resampler(resolution, policy, outputMeasurements::add);
+        for(int i = 0; i < timeIndex.getSize(); i++)
+            resampler.accept(timeIndex.getRecord(i));
+        return resampler.finish();
     }
 
     /**
-     * @message loadData
-	 * @brief A method that reads the data from the given file and stores them in an ArrayList
-	 * @param filename a String with the name of the input file
-	 * @param delimiter a String with the delimiter between columns of the source file
-	 * @param hasHeaderLine specifies whether the file has a header (true) or not (false)
-	 * @param numFields an int with the number of columns in the input file
-	 * @param objCollection and empty list which will be loaded with the data from the input file
-	 * @return the number of rows that are eventually added to objCollection
-	 */
-    @Override
-    public int loadData(String filename, String delimiter, Boolean hasHeaderLine, int numFields, ArrayList<MeasurementRecord> objCollection) {
+     * @message getLoadReport
+     * @brief Gets the rows or the error of every file of the last directory or glob load
+     * @return the load report, or null if no multi file load happened yet
+     */
+    public LoadReportModel getLoadReport() {
+        return this.loadReport;
+    }
+
+    /**
+     * @message loadBucketSchemes
+     * @brief A method that reads user defined bucket schemes from a config file, so that their names can be used as aggregator types
+     * @param filename a String with the path of the config file
+     * @return the number of schemes that were loaded, or -1 if sth goes wrong
+     */
+    public int loadBucketSchemes(String filename) {
         if(filename == null) {
-            System.out.println("The given output filename is not valid.");
+            System.out.println("The given bucket scheme filename is not valid.");
             return -1;
         }
 
-        /* Check if the filename exists as a name in the filesystem */
         File checkDir = new File(filename);
         if(!checkDir.exists() || checkDir.isDirectory()) {
-            /* It does not exits neither it is a directory */
             System.out.println("There does not exist a file with this name.");
             return -1;
         }
-        if(delimiter == null) {
-            System.out.println("There is no delimiter given.");
-            return -1;
-        }
-        if(numFields != 9) {
-            System.out.println("The number of columns is given incorrectly.");
+
+        HashMap<String, BucketSchemeModel> schemes = new BucketSchemeLoader().load(filename);
+        if(schemes == null)
             return -1;
-        }
-        if(objCollection == null) {
-            System.out.println("The objCollection is null");
+
+        /* The whole file is checked before any of its schemes is registered */
+        if(aggregator.addBucketSchemes(schemes.values()) == -1)
             return -1;
-        }
-        return loader.load(filename, delimiter, hasHeaderLine, numFields, objCollection);
+        return schemes.size();
     }
 
     /**
      * @message aggregateByTimeUnit
 	 * @brief A method that aggregates measurements by a time unit, e.g., month, day of week, period of day etc.
 	 * @param inputMeasurements the measurements to be aggregated
-	 * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" to determine by which time unit type the records will be aggregated 
+	 * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme to determine by which time unit type the records will be aggregated 
 	 * @param aggFunction a String representing the aggregate function (avg, sum) to be applied to the input
 	 * @param description a String with a textual description of the result
 	 * @return An IResult object where the input is aggregated by time period, or null if sth goes wrong
@@ -99,20 +926,243 @@ public class Engine implements IMainEngine {
             return null;
         }
 
-        aggregator.setTimeUnitType(aggregatorType);
-        return aggregator.aggregateByTimeUnit(inputMeasurements, aggFunction, description);
+        /* The time unit type is passed along rather than set on the aggregator, so async aggregations do not share it */
+        IResult result = aggregator.aggregateByTimeUnit(inputMeasurements, aggregatorType, aggFunction, description);
+        if(result == null || !hasDerivedColumns())
+            return result;
+
+        /* Aggregate the derived columns over the column store, by the same time units */
+        ColumnStoreModel columnStore = columnStoreOf(inputMeasurements);
+        ((ResultModel)result).setAggregateDerived(new DerivedColumnAggregator(aggFunction).aggregate(inputMeasurements,
+            columnStore, columnStore.getDerivedColumns().keySet(), record -> aggregator.findTimeUnit(aggregatorType, record)));
+        return result;
+    }
+
+    /**
+     * @message aggregateByTimeUnitAsync
+     * @brief The async variant of aggregateByTimeUnit, run on the async executor
+     * @param inputMeasurements the measurements to be aggregated
+     * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme
+     * @param aggFunction a String representing the aggregate function (avg, sum) to be applied to the input
+     * @param description a String with a textual description of the result
+     * @return a future completed with the IResult object, or with null if sth goes wrong
+     */
+    public CompletableFuture<IResult> aggregateByTimeUnitAsync(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType,
+            String aggFunction, String description) {
+        return CompletableFuture.supplyAsync(() -> aggregateByTimeUnit(inputMeasurements, aggregatorType, aggFunction, description), getAsyncExecutor());
+    }
+
+    /**
+     * @message aggregateBySeries
+     * @brief A method that aggregates measurements by a time unit for every household (series) and for the whole estate in one job,
+     *          with the households hash partitioned across worker threads
+     * @param inputMeasurements the measurements to be aggregated, tagged with their series ids
+     * @param aggregatorType a string belonging to the set "season", "month", "dayofweek", "periodofday" or the name of a loaded bucket scheme
+     * @param aggFunction a String representing the aggregate function (avg, sum) to be applied to the input
+     * @param description a String with a textual description of the result
+     * @return An IResult object with the estate wide aggregates, whose getSeriesResult gives those of a household, or null if sth goes wrong
+     */
+    public IResult aggregateBySeries(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType, String aggFunction, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(aggregatorType == null || !aggregator.isTimeUnitType(aggregatorType)) {
+            System.out.println("The aggregator function input was invalid");
+            return null;
+        }
+        if(aggFunction == null || !(aggFunction.equals("avg") || aggFunction.equals("sum"))) {
+            System.out.println("The aggregate function is neither avg nor sum");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the measurements was not given.");
+            return null;
+        }
+
+        /* Rows of a single file keep series id 0, and rows of other collections, get a generic name */
+        ArrayList<String> loadedNames = seriesNamesOf(inputMeasurements);
+        int numSeries = loadedNames.size();
+        for(MeasurementRecord record : inputMeasurements)
+            numSeries = Math.max(numSeries, record.getSeriesId() + 1);
+        String[] names = new String[numSeries];
+        for(int series = 0; series < numSeries; series++)
+            names[series] = (series < loadedNames.size()) ? loadedNames.get(series) : "series " + series;
+
+        SeriesAggregator seriesAggregator = new SeriesAggregator(Runtime.getRuntime().availableProcessors());
+        return seriesAggregator.aggregate(inputMeasurements, names, record -> aggregator.findTimeUnit(aggregatorType, record), aggFunction, description);
+    }
+
+    /**
+     * @message seriesNamesOf
+     * @brief Finds the household names of a collection
+     * @param objCollection the collection
+     * @return the names by series id if the collection was filled by the last directory load, none otherwise
+     */
+    private synchronized ArrayList<String> seriesNamesOf(ArrayList<MeasurementRecord> objCollection) {
+        return (objCollection == seriesCollection) ? seriesNames : new ArrayList<>();
+    }
+
+    /**
+     * @message forgetSeries
+     * @brief Drops the household names of a collection that is loaded again from empty
+     * @param objCollection the collection about to be loaded
+     */
+    private synchronized void forgetSeries(ArrayList<MeasurementRecord> objCollection) {
+        if(objCollection == seriesCollection && objCollection.isEmpty()) {
+            seriesCollection = null;
+            seriesNames = new ArrayList<>();
+        }
+    }
+
+    private synchronized boolean hasDerivedColumns() {
+        return !derivedColumns.isEmpty();
+    }
+
+    /**
+     * @message enableAnomalyDetection
+     * @brief Attaches an anomaly detector to the aggregator, so that the next aggregation also flags abnormal readings in the same pass
+     * @param method a string belonging to the set "zscore", "mad" to determine how readings are scored
+     * @param threshold the score above which a reading is flagged
+     * @param maxAnomalies the most anomalies to keep (the most severe ones are kept)
+     * @return 0 if the detector was attached; a negative integer otherwise
+     */
+    public int enableAnomalyDetection(String method, double threshold, int maxAnomalies) {
+        if(method == null || !(method.equals("zscore") || method.equals("mad"))) {
+            System.out.println("The anomaly detection method is neither zscore nor mad");
+            return -1;
+        }
+        if(threshold <= 0) {
+            System.out.println("The anomaly threshold should be positive.");
+            return -1;
+        }
+        if(maxAnomalies < 0) {
+            System.out.println("The maximum number of anomalies can not be negative.");
+            return -1;
+        }
+
+        aggregator.setAnomalyDetector(new AnomalyDetector(method, threshold, maxAnomalies));
+        return 0;
+    }
+
+    /**
+     * @message disableAnomalyDetection
+     * @brief Detaches the anomaly detector from the aggregator
+     */
+    public void disableAnomalyDetection() {
+        aggregator.setAnomalyDetector(null);
+    }
+
+    /**
+     * @message getAnomalies
+     * @brief Gets the readings flagged during the last aggregation; each result also keeps the ones of its own aggregation
+     * @return the list of anomalies, or null if the detection is not enabled
+     */
+    public AnomalyListModel getAnomalies() {
+        if(aggregator.getAnomalyDetector() == null)
+            return null;
+        return aggregator.getAnomalyDetector().getAnomalies();
+    }
+
+    /**
+     * @message forecastByTimeUnit
+     * @brief A method that fits a forecast on hourly or daily rollups of the measurements and predicts the next buckets
+     * @param inputMeasurements the measurements to learn from
+     * @param granularity a string belonging to the set "hourly", "daily" to determine the size of the forecasted buckets
+     * @param horizon the number of future buckets to predict
+     * @param description a String with a textual description of the forecast
+     * @return An IResult object with the predictions per future bucket, or null if sth goes wrong
+     */
+    @Override
+    public IResult forecastByTimeUnit(ArrayList<MeasurementRecord> inputMeasurements, String granularity, int horizon, String description) {
+        if(inputMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(granularity == null) {
+            System.out.println("The forecast granularity is not given.");
+            return null;
+        }
+        if(horizon <= 0) {
+            System.out.println("The forecast horizon should be positive.");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the forecast was not given.");
+            return null;
+        }
+
+        if(forecaster.fit(inputMeasurements, granularity) == -1)
+            return null;
+        return forecaster.forecast(horizon, description);
+    }
+
+    /**
+     * @message updateForecast
+     * @brief A method that feeds new measurements into the last fitted forecast and predicts the buckets after them
+     * @param newMeasurements the measurements that arrived after the last forecast
+     * @param horizon the number of future buckets to predict
+     * @param description a String with a textual description of the forecast
+     * @return An IResult object with the predictions per future bucket, or null if sth goes wrong
+     */
+    @Override
+    public IResult updateForecast(ArrayList<MeasurementRecord> newMeasurements, int horizon, String description) {
+        if(newMeasurements == null) {
+            System.out.println("The input measurements list is empty.");
+            return null;
+        }
+        if(horizon <= 0) {
+            System.out.println("The forecast horizon should be positive.");
+            return null;
+        }
+        if(description == null || description.equals("")) {
+            System.out.println("A description about the forecast was not given.");
+            return null;
+        }
+
+        if(forecaster.update(newMeasurements) == -1)
+            return null;
+        return forecaster.forecast(horizon, description);
     }
 
     /**
      * @message reportResultInFile
 	 * @brief A method that reports the contents of an aggregate result to a file
 	 * @param result an instance of a class implementing the IResult interface, containing the aggregate results
-	 * @param reportType a string belonging to the set "text", "md", "html" to determine the type of report that will be generated 
+	 * @param reportType a string belonging to the set "txt", "md", "html", "csv", "jsonl", "bin" to determine the type of report that will be generated 
 	 * @param filename a String with the path of the file where the report will be written
 	 * @return 0 if the task completes successfully; a negative integer otherwise
 	 */
     @Override
     public int reportResultInFile(IResult result, String reportType, String filename) {
+        if(validateReport(result, reportType, filename) == -1)
+            return -1;
+
+        /* Through the setter, the class gains access of the export type */
+        reporter.setExportType(reportType);
+        return reporter.reportResultInFile(result, filename);
+    }
+
+    /**
+     * @message reportResultInFileAsync
+     * @brief The async variant of reportResultInFile: the arguments are checked at once and the file is written on the async executor
+     * @param result an instance of a class implementing the IResult interface, containing the aggregate results
+     * @param reportType the type ("html", "md", "txt", "csv", "jsonl", "bin") of the report
+     * @param filename a String with the path of the file where the report will be written
+     * @return a future completed with 0 if the report was written; with a negative integer otherwise
+     */
+    public CompletableFuture<Integer> reportResultInFileAsync(IResult result, String reportType, String filename) {
+        if(validateReport(result, reportType, filename) == -1)
+            return CompletableFuture.completedFuture(-1);
+        return CompletableFuture.supplyAsync(() -> reporter.reportResultInFile(result, reportType, filename), getAsyncExecutor());
+    }
+
+    /**
+     * @message validateReport
+     * @brief Checks the arguments of a report before it is written
+     * @return 0 if they are valid; a negative integer otherwise
+     */
+    private int validateReport(IResult result, String reportType, String filename) {
         if(result == null) {
             System.out.println("There are no results in memory measured.");
             return -1;
@@ -132,10 +1182,110 @@ public class Engine implements IMainEngine {
             System.out.println("There already exists a file with this name. Choose a different name.");
             return -1;
         }
+        return 0;
+    }
 
-        /* Through the setter, the class gains access of the export type */
-        reporter.setExportType(reportType);
-        return reporter.reportResultInFile(result, filename);
+    /**
+     * @message reportResultInFormats
+     * @brief A method that reports one result in several formats and files at the same time, formatting its values once,
+     *          and records all the written files in the history with one append
+     * @param result an instance of a class implementing the IResult interface, containing the aggregate results
+     * @param reportTypes the type ("html", "md", "txt", "csv", "jsonl", "bin") of every report
+     * @param filenames the path of every report
+     * @param history the history object being carried from main, or null to not record the reports
+     * @return 0 if every report was written; a negative integer otherwise (the written ones are still recorded)
+     */
+    public int reportResultInFormats(IResult result, String[] reportTypes, String[] filenames, History history) {
+        if(result == null) {
+            System.out.println("There are no results in memory measured.");
+            return -1;
+        }
+        if(reportTypes == null || filenames == null || reportTypes.length != filenames.length || filenames.length == 0) {
+            System.out.println("A report type should be given for every output filename.");
+            return -1;
+        }
+        for(int i = 0; i < filenames.length; i++) {
+            if(reportTypes[i] == null) {
+                System.out.println("There has been no report type given.");
+                return -1;
+            }
+            if(filenames[i] == null) {
+                System.out.println("The given output filename is not valid.");
+                return -1;
+            }
+            if(new File(filenames[i]).exists() || Arrays.asList(filenames).indexOf(filenames[i]) != i) {
+                System.out.println("There already exists a file with this name. Choose a different name.");
+                return -1;
+            }
+        }
+
+        int[] outcomes = reporter.reportResultInFormats(result, reportTypes, filenames);
+
+        ArrayList<ReportMetadataModel> batch = new ArrayList<>();
+        int failed = 0;
+        for(int i = 0; i < filenames.length; i++) {
+            if(outcomes[i] != 0) {
+                failed++;
+                continue;
+            }
+            batch.add(createMetadata(result.getDescription(), filenames[i], reportTypes[i]));
+        }
+        if(history != null && !batch.isEmpty() && waitForHistory(history.saveReports(batch)) == -1)
+            return -1;
+        return (failed == 0) ? 0 : -1;
+    }
+
+    /**
+     * @message readBinaryResult
+     * @brief A method that loads a result exported with the "bin" report type, e.g. to report it again in another format
+     * @param filename the path of the binary export
+     * @return the result with its aggregates (and records, if the export was detailed), or null if it cannot be read
+     */
+    public IResult readBinaryResult(String filename) {
+        if(filename == null || !new File(filename).isFile()) {
+            System.out.println("The given input filename is not valid.");
+            return null;
+        }
+        return new BinaryResultReader().read(filename);
+    }
+
+    /**
+     * @message enableDetailedReports
+     * @brief Makes the next reports end with a section that lists every record of every time unit (streamed, so its size is not bounded by memory)
+     * @param enabled whether the next reports include the detailed section
+     */
+    public void enableDetailedReports(boolean enabled) {
+        reporter.setDetailed(enabled);
+    }
+
+    /**
+     * @message setChartPoints
+     * @brief Sets the most points the line chart of html reports is downsampled to, which bounds its size whatever the number of records
+     * @param points the most points of the chart (at least 3)
+     * @return 0 if the number is valid; a negative integer otherwise
+     */
+    public int setChartPoints(int points) {
+        if(points < 3) {
+            System.out.println("A chart needs at least 3 points.");
+            return -1;
+        }
+        reporter.setChartPoints(points);
+        return 0;
+    }
+
+    /**
+     * @message setReportTemplates
+     * @brief Makes the next reports use the templates of a directory (report.html, report.md, report.txt) instead of the bundled ones
+     * @param directory a String with the path of the template directory, or null to go back to the bundled templates
+     * @return 0 if the directory exists; a negative integer otherwise
+     */
+    public int setReportTemplates(String directory) {
+        if(directory != null && !new File(directory).isDirectory()) {
+            System.out.println("There does not exist a directory with this name.");
+            return -1;
+        }
+        reporter.setTemplateDirectory(directory);
+        return 0;
     }
 
     /**
@@ -147,12 +1297,131 @@ public class Engine implements IMainEngine {
      * @param history the history object being carried from main
      */
     public void addToHistory(String description, String reportFileName, String exportType, History history) {
+        waitForHistory(history.saveReport(createMetadata(description, reportFileName, exportType)));
+    }
+
+    /**
+     * @message addToHistoryAsync
+     * @brief The async variant of addToHistory, which does not wait for the history writer
+     * @param description the description of the specific measurements
+     * @param reportFileName the filename of the report file
+     * @param exportType the export type (md, txt, html...)
+     * @param history the history object being carried from main
+     * @return a future completed once the report is durable in the history
+     */
+    public CompletableFuture<Void> addToHistoryAsync(String description, String reportFileName, String exportType, History history) {
+        return history.saveReport(createMetadata(description, reportFileName, exportType)).thenApply(position -> null);
+    }
+
+    private ReportMetadataModel createMetadata(String description, String reportFileName, String exportType) {
         ReportMetadataModel metadata = new ReportMetadataModel();
         metadata.setDescription(description);
         metadata.setOutputPath(reportFileName);
         metadata.setExportType(exportType);
         metadata.correctOutputPath();
-        history.saveReport(metadata);
+        return metadata;
+    }
+
+    /**
+     * @message waitForHistory
+     * @brief Waits until saved reports are durable in the history
+     * @param saved the future of the save
+     * @return 0 if the reports were written; a negative integer otherwise
+     */
+    private int waitForHistory(CompletableFuture<Long> saved) {
+        try {
+            saved.join();
+            return 0;
+        }
+        catch(RuntimeException e) {
+            System.out.println("The report could not be saved in the history.");
+            return -1;
+        }
+    }
+
+    /**
+     * @message reportPipelineAsync
+     * @brief Chains aggregateByTimeUnitAsync, reportResultInFileAsync and addToHistoryAsync, so that a whole job runs in the background
+     *          and the caller can go on (e.g. start the next aggregation) while its report is written
+     * @param inputMeasurements the measurements to be aggregated
+     * @param aggregatorType the time unit type or bucket scheme to aggregate by
+     * @param aggFunction the aggregate function (avg, sum)
+     * @param description a String with a textual description of the result
+     * @param reportType the type ("html", "md", "txt", "csv", "jsonl", "bin") of the report
+     * @param filename a String with the path of the file where the report will be written
+     * @param history the history object the report is saved in, or null to not save it
+     * @return a future completed with 0 if the report was written (and saved); with a negative integer otherwise
+     */
+    public CompletableFuture<Integer> reportPipelineAsync(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType, String aggFunction,
+            String description, String reportType, String filename, History history) {
+        CompletableFuture<Integer> pipeline = aggregateByTimeUnitAsync(inputMeasurements, aggregatorType, aggFunction, description)
+            .thenCompose(result -> (result == null) ? CompletableFuture.completedFuture(-1) : reportResultInFileAsync(result, reportType, filename))
+            .thenCompose(outcome -> (outcome != 0 || history == null)
+                ? CompletableFuture.completedFuture(outcome)
+                : addToHistoryAsync(description, filename, reportType, history).thenApply(saved -> outcome));
+
+        synchronized(this) {
+            pipelines.add(pipeline);
+        }
+        pipeline.whenComplete((outcome, e) -> removePipeline(pipeline));
+        return pipeline;
+    }
+
+    private synchronized void removePipeline(CompletableFuture<Integer> pipeline) {
+        pipelines.remove(pipeline);
+    }
+
+    /**
+     * @message setAsyncExecutor
+     * @brief Makes the async variants run on the given executor instead of the default pool
+     * @param executor the executor, or null to go back to the default pool
+     */
+    public synchronized void setAsyncExecutor(Executor executor) {
+        this.asyncExecutor = executor;
+    }
+
+    /**
+     * @message getAsyncExecutor
+     * @brief Gets the executor of the async variants, creating the default pool (one thread per core) on first use
+     * @return the executor
+     */
+    private synchronized Executor getAsyncExecutor() {
+        if(asyncExecutor != null)
+            return asyncExecutor;
+        if(defaultExecutor == null)
+            defaultExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        return defaultExecutor;
+    }
+
+    /**
+     * @message shutdownAsync
+     * @brief Waits for the running report pipelines and the tasks of the default pool (e.g. reports still being written) and stops its threads
+     */
+    public void shutdownAsync() {
+        /* A pipeline only submits its next step once the previous one completes, so a pool shut down under it would
+           leave the report and history steps to a pool of their own */
+        ArrayList<CompletableFuture<Integer>> running;
+        synchronized(this) {
+            running = new ArrayList<>(pipelines);
+        }
+        for(CompletableFuture<Integer> pipeline : running)
+            pipeline.exceptionally(e -> -1).join();
+
+        ExecutorService executor;
+        synchronized(this) {
+            executor = defaultExecutor;
+            defaultExecutor = null;
+        }
+        if(executor == null)
+            return;
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -164,6 +1433,89 @@ public class Engine implements IMainEngine {
         history.listReports();
     }
 
+    /**
+     * @message listReports
+     * @brief List a page of the available reports saved in the history db
+     * @param history the history object being carried from main
+     * @param page the page, starting from 1
+     * @param pageSize the reports per page
+     * @return 0 if the page exists; a negative integer otherwise
+     */
+    public int listReports(History history, int page, int pageSize) {
+        if(pageSize <= 0) {
+            System.out.println("The page size should be a positive number.");
+            return -1;
+        }
+        return history.listReports(page, pageSize);
+    }
+
+    /**
+     * @message searchReports
+     * @brief Searches the history db and lists the matching reports, newest first
+     * @param history the history object being carried from main
+     * @param text the terms the description must all hold (case insensitive), or null/empty for any
+     * @param exportType the export type, or null/empty for any
+     * @param pathPrefix the start of the output path, or null/empty for any
+     * @param from the earliest creation time (dd/mm/yyyy [hh:mm], UTC), or null/empty for no bound
+     * @param to the latest creation time (excluded, same format), or null/empty for no bound
+     * @param limit the most reports to list
+     * @return the number of matching reports listed, or a negative integer if the arguments are not valid
+     */
+    public int searchReports(History history, String text, String exportType, String pathPrefix, String from, String to, int limit) {
+        if(limit <= 0) {
+            System.out.println("The number of reports to list should be a positive number.");
+            return -1;
+        }
+
+        long fromMillis = Long.MIN_VALUE;
+        long toMillis = Long.MAX_VALUE;
+        try {
+            if(from != null && !from.isEmpty())
+                fromMillis = EpochTimeModel.parse(from) * 60000;
+            if(to != null && !to.isEmpty())
+                toMillis = EpochTimeModel.parse(to) * 60000;
+        }
+        catch(IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return -1;
+        }
+
+        long[] positions = history.searchReports(emptyToNull(text), emptyToNull(exportType), emptyToNull(pathPrefix), fromMillis, toMillis, limit);
+        if(history.listReports(positions) == -1)
+            return -1;
+        return positions.length;
+    }
+
+    /**
+     * @message maintainHistory
+     * @brief Removes from the history db the reports whose files no longer exist, compacting it
+     * @param history the history object being carried from main
+     * @return the number of reports removed, or a negative integer if the history could not be maintained
+     */
+    public int maintainHistory(History history) {
+        return history.runMaintenance();
+    }
+
+    /**
+     * @message startHistoryMaintenance
+     * @brief Removes the reports whose files no longer exist from the history db in the background, now and periodically
+     * @param history the history object being carried from main
+     * @param periodMillis the time between two runs
+     * @return 0 if the maintenance was started; a negative integer if the period is not valid
+     */
+    public int startHistoryMaintenance(History history, long periodMillis) {
+        if(periodMillis <= 0) {
+            System.out.println("The maintenance period should be a positive number.");
+            return -1;
+        }
+        history.startMaintenance(periodMillis);
+        return 0;
+    }
+
+    private static String emptyToNull(String text) {
+        return (text == null || text.isEmpty()) ? null : text;
+    }
+
     /**
      * @message autorun
      * @brief Run a test version of all program utilities
@@ -32,11 +32,33 @@ public interface IMainEngine {
 	IResult aggregateByTimeUnit(ArrayList<MeasurementRecord> inputMeasurements, String aggregatorType,
 								String aggFunction, String description);
 
+	/**
+	 * A method that fits a forecast on hourly or daily rollups of the measurements and predicts the next buckets
+	 * 
+	 * @param inputMeasurements the measurements to learn from
+	 * @param granularity a string belonging to the set "hourly", "daily" to determine the size of the forecasted buckets
+	 * @param horizon the number of future buckets to predict
+	 * @param description a String with a textual description of the forecast
+	 * @return An IResult object with the predictions per future bucket, or null if sth goes wrong
+	 */
+	IResult forecastByTimeUnit(ArrayList<MeasurementRecord> inputMeasurements, String granularity, int horizon,
+							   String description);
+
+	/**
+	 * A method that feeds new measurements into the last fitted forecast, without refitting the history, and predicts the buckets after them
+	 * 
+	 * @param newMeasurements the measurements that arrived after the last forecast
+	 * @param horizon the number of future buckets to predict
+	 * @param description a String with a textual description of the forecast
+	 * @return An IResult object with the predictions per future bucket, or null if sth goes wrong
+	 */
+	IResult updateForecast(ArrayList<MeasurementRecord> newMeasurements, int horizon, String description);
+
 	/**
 	 * 	A method that reports the contents of an aggregate result to a file
 	 * 
 	 * @param result an instance of a class implementing the IResult interface, containing the aggregate results
-	 * @param reportType a string belonging to the set "text", "md", "html" to determine the type of report that will be generated 
+	 * @param reportType a string belonging to the set "txt", "md", "html", "csv", "jsonl", "bin" to determine the type of report that will be generated 
 	 * @param filename a String with the path of the file where the report will be written
 	 * @return 0 if the task completes successfully; a negative integer otherwise
 	 */
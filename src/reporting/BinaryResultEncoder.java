@@ -0,0 +1,184 @@
+package reporting;
+
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @class BinaryResultEncoder
+ * @brief Writes a result in a compact columnar binary format (big endian), read back by BinaryResultReader:
+ * 				int magic, int version
+ * 				string description
+ * 				int time units, string per time unit
+ * 				int columns, then per column: string name, double per time unit (NaN where the column has no value)
+ * 				int records (-1 if the export is not detailed), then per record column: int time unit, long epoch minute,
+ * 				int series, and the doubles of kitchen, laundry, ac, active, reactive, voltage, intensity
+ * 			Strings are an int byte length (-1 for null) followed by their UTF-8 bytes
+ */
+public class BinaryResultEncoder implements IResultEncoder {
+	/**
+	 * MAGIC -> the first bytes of every file ("EPR1")
+	 * VERSION -> the version of the layout
+	 * RECORD_COLUMNS -> the double columns of the detailed records, in file order
+	 */
+	public static final int MAGIC = 0x45505231;
+	public static final int VERSION = 1;
+	public static final String[] RECORD_COLUMNS = {"kitchen", "laundry", "ac", "active", "reactive", "voltage", "intensity"};
+
+	/**
+	 * @class Output
+	 * @brief The file of one encode call and the bytes waiting to be written to it, so that the encoder itself
+	 * 			keeps no state and several reports can be encoded at the same time
+	 */
+	private static final class Output {
+		final FileChannel channel;
+		final ByteBuffer buffer;
+
+		Output(FileChannel channel) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(ReportWriter.CHUNK_SIZE);
+		}
+
+		/**
+		 * @message ensure
+		 * @brief Writes out the buffer if it has less room than the next value needs
+		 * @param bytes the size of the next value
+		 * @return the buffer
+		 * @throws IOException if the channel fails
+		 */
+		ByteBuffer ensure(int bytes) throws IOException {
+			if(buffer.remaining() < bytes)
+				flush();
+			return buffer;
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * @message encode
+	 * @brief Writes the aggregates column by column and, for detailed exports, the records column by column
+	 * @param report the formatted values of the result
+	 * @param detailed whether the source records are written
+	 * @param filename the path of the file
+	 * @throws IOException if the file cannot be created or written
+	 */
+	@Override
+	public void encode(PreparedReport report, boolean detailed, String filename) throws IOException {
+		IResult result = report.getResult();
+		ArrayList<String> timeUnits = report.getTimeUnits();
+
+		try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			Output output = new Output(channel);
+			writeBody(output, result, timeUnits, detailed);
+			output.flush();
+		}
+	}
+
+	private static void writeBody(Output output, IResult result, ArrayList<String> timeUnits, boolean detailed) throws IOException {
+		output.ensure(8).putInt(MAGIC).putInt(VERSION);
+		writeString(output, result.getDescription());
+
+		output.ensure(4).putInt(timeUnits.size());
+		for(String timeUnit : timeUnits)
+			writeString(output, timeUnit);
+
+		output.ensure(4).putInt(3 + result.getAggregateDerived().size());
+		writeColumn(output, "kitchen", result.getAggregateMeterKitchen(), timeUnits);
+		writeColumn(output, "laundry", result.getAggregateMeterLaundry(), timeUnits);
+		writeColumn(output, "ac", result.getAggregateMeterAC(), timeUnits);
+		for(Map.Entry<String, HashMap<String, Double>> column : result.getAggregateDerived().entrySet())
+			writeColumn(output, column.getKey(), column.getValue(), timeUnits);
+
+		if(!detailed) {
+			output.ensure(4).putInt(-1);
+			return;
+		}
+
+		/* Flatten the records once, keeping the position of the time unit of each */
+		HashMap<String, Integer> unitIds = new HashMap<>();
+		for(int i = 0; i < timeUnits.size(); i++)
+			unitIds.put(timeUnits.get(i), i);
+		ArrayList<MeasurementRecord> records = new ArrayList<>();
+		for(ArrayList<MeasurementRecord> unit : result.getDetailedResults().values())
+			records.addAll(unit);
+		int size = records.size();
+		int[] recordUnits = new int[size];
+		int position = 0;
+		for(Map.Entry<String, ArrayList<MeasurementRecord>> unit : result.getDetailedResults().entrySet()) {
+			Integer unitId = unitIds.get(unit.getKey());
+			for(int i = 0; i < unit.getValue().size(); i++)
+				recordUnits[position++] = (unitId == null) ? -1 : unitId;
+		}
+
+		output.ensure(4).putInt(size);
+		for(int i = 0; i < size; i++)
+			output.ensure(4).putInt(recordUnits[i]);
+		for(int i = 0; i < size; i++)
+			output.ensure(8).putLong(records.get(i).getEpochMinute());
+		for(int i = 0; i < size; i++)
+			output.ensure(4).putInt(records.get(i).getSeriesId());
+		for(int column = 0; column < RECORD_COLUMNS.length; column++)
+			for(int i = 0; i < size; i++)
+				output.ensure(8).putDouble(recordValue(records.get(i), column));
+	}
+
+	/**
+	 * @message recordValue
+	 * @brief Reads a double column of a record
+	 * @param record the record
+	 * @param column the position of the column in RECORD_COLUMNS
+	 * @return the value
+	 */
+	private static double recordValue(MeasurementRecord record, int column) {
+		switch(column) {
+			case 0: return record.getSub_metering_1();
+			case 1: return record.getSub_metering_2();
+			case 2: return record.getSub_metering_3();
+			case 3: return record.getGlobal_active_power();
+			case 4: return record.getGlobal_reactive_power();
+			case 5: return record.getVoltage();
+			default: return record.getGlobal_intensity();
+		}
+	}
+
+	private static void writeColumn(Output output, String name, HashMap<String, Double> values, ArrayList<String> timeUnits)
+			throws IOException {
+		writeString(output, name);
+		for(String timeUnit : timeUnits) {
+			Double value = values.get(timeUnit);
+			output.ensure(8).putDouble((value == null) ? Double.NaN : value);
+		}
+	}
+
+	private static void writeString(Output output, String text) throws IOException {
+		if(text == null) {
+			output.ensure(4).putInt(-1);
+			return;
+		}
+
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		output.ensure(4).putInt(bytes.length);
+		int offset = 0;
+		while(offset < bytes.length) {
+			ByteBuffer buffer = output.ensure(1);
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package reporting;
+
+import datamodel.EpochTimeModel;
+import datamodel.MeasurementRecord;
+import datamodel.SummaryResultModel;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @class BinaryResultReader
+ * @brief Reads a result written by BinaryResultEncoder back into a summary result, without parsing any text,
+ * 			so that other jobs can load exported results directly. The file is mapped and read column by column
+ */
+public class BinaryResultReader {
+	/**
+	 * RECORD_BYTES -> the bytes of a detailed record: the time unit, the epoch minute, the series and the double columns
+	 */
+	private static final int RECORD_BYTES = 4 + 8 + 4 + 8 * BinaryResultEncoder.RECORD_COLUMNS.length;
+
+	/**
+	 * @message read
+	 * @brief Reads a binary export
+	 * @param filename the path of the export
+	 * @return a summary result with the aggregates (and the records of a detailed export), or null if the file cannot be read
+	 */
+	public SummaryResultModel read(String filename) {
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch(Exception e) {
+			System.out.println("The binary result file could not be opened.");
+			return null;
+		}
+
+		try {
+			if(buffer.getInt() != BinaryResultEncoder.MAGIC || buffer.getInt() != BinaryResultEncoder.VERSION) {
+				System.out.println("The file is not a binary result of a supported version.");
+				return null;
+			}
+			return readBody(buffer);
+		}
+		catch(BufferUnderflowException | IllegalArgumentException e) {
+			System.out.println("The binary result file is truncated or corrupted.");
+			return null;
+		}
+	}
+
+	private SummaryResultModel readBody(ByteBuffer buffer) {
+		SummaryResultModel result = new SummaryResultModel();
+		result.setDescription(readString(buffer));
+
+		/* Every count is checked against the bytes left before anything is allocated for it */
+		String[] timeUnits = new String[checkCount(buffer, buffer.getInt(), 4)];
+		for(int i = 0; i < timeUnits.length; i++)
+			timeUnits[i] = readString(buffer);
+
+		int columns = checkCount(buffer, buffer.getInt(), 4 + 8L * timeUnits.length);
+		for(int column = 0; column < columns; column++) {
+			String name = readString(buffer);
+			for(String timeUnit : timeUnits) {
+				double value = buffer.getDouble();
+				/* NaN marks the time units the column has no value for */
+				if(!Double.isNaN(value))
+					result.putMeter(name, timeUnit, value);
+			}
+		}
+
+		/* -1 marks an export that is not detailed */
+		int size = buffer.getInt();
+		if(size == -1)
+			return result;
+		checkCount(buffer, size, RECORD_BYTES);
+
+		int[] units = new int[size];
+		for(int i = 0; i < size; i++) {
+			units[i] = buffer.getInt();
+			if(units[i] >= timeUnits.length)
+				throw new IllegalArgumentException("A record refers to a missing time unit");
+		}
+		MeasurementRecord[] records = new MeasurementRecord[size];
+		for(int i = 0; i < size; i++) {
+			long epochMinute = buffer.getLong();
+			records[i] = new MeasurementRecord();
+			records[i].setDate(EpochTimeModel.createDateModel(epochMinute));
+			records[i].setTime(EpochTimeModel.createTimeModel(epochMinute));
+		}
+		for(int i = 0; i < size; i++)
+			records[i].setSeriesId(buffer.getInt());
+		for(int i = 0; i < size; i++)
+			records[i].setSub_metering_1(buffer.getDouble());
+		for(int i = 0; i < size; i++)
+			records[i].setSub_metering_2(buffer.getDouble());
+		for(int i = 0; i < size; i++)
+			records[i].setSub_metering_3(buffer.getDouble());
+		for(int i = 0; i < size; i++)
+			records[i].setGlobal_active_power(buffer.getDouble());
+		for(int i = 0; i < size; i++)
+			records[i].setGlobal_reactive_power(buffer.getDouble());
+		for(int i = 0; i < size; i++)
+			records[i].setVoltage(buffer.getDouble());
+		for(int i = 0; i < size; i++)
+			records[i].setGlobal_intensity(buffer.getDouble());
+
+		for(int i = 0; i < size; i++)
+			if(units[i] >= 0)
+				result.putRecord(timeUnits[units[i]], records[i]);
+		return result;
+	}
+
+	/**
+	 * @message checkCount
+	 * @brief Checks a count read from the file against the bytes left after it
+	 * @param buffer the file, positioned after the count
+	 * @param count the count of the items that follow
+	 * @param itemBytes the fewest bytes an item takes
+	 * @return the count
+	 * @throws BufferUnderflowException if the count is negative or the file is too short to hold that many items
+	 */
+	private int checkCount(ByteBuffer buffer, int count, long itemBytes) {
+		if(count < 0 || count * itemBytes > buffer.remaining())
+			throw new BufferUnderflowException();
+		return count;
+	}
+
+	private String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0)
+			return null;
+		if(length > buffer.remaining())
+			throw new BufferUnderflowException();
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,101 @@
+package reporting;
+
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @class CsvResultEncoder
+ * @brief Streams a result as comma separated values, one line per time unit and, for detailed exports, one per record.
+ * 			Every line starts with its kind (summary or record), so both fit under the same header:
+ * 				row,time_unit,timestamp,series,kitchen,laundry,ac,active,reactive,voltage,intensity,<derived columns>
+ * 			Cells that do not apply to a kind are left empty, as are the time units a meter has no value for
+ */
+public class CsvResultEncoder implements IResultEncoder {
+	/**
+	 * HEADER -> the fixed columns of every line, the derived columns follow them
+	 */
+	private static final String HEADER = "row,time_unit,timestamp,series,kitchen,laundry,ac,active,reactive,voltage,intensity";
+
+	/**
+	 * @message encode
+	 * @brief Writes the header, the aggregate of every time unit and the detailed records
+	 * @param report the formatted values of the result
+	 * @param detailed whether the source records are written
+	 * @param filename the path of the file
+	 * @throws IOException if the file cannot be created or written
+	 */
+	@Override
+	public void encode(PreparedReport report, boolean detailed, String filename) throws IOException {
+		IResult result = report.getResult();
+		ArrayList<PreparedReport.DerivedColumn> derived = report.getDerived();
+
+		try(ReportWriter writer = new ReportWriter(filename)) {
+			writer.write(HEADER);
+			for(PreparedReport.DerivedColumn column : derived)
+				writer.write(",").write(quote(column.getName()));
+			writer.write("\n");
+
+			HashMap<String, Double> kitchen = result.getAggregateMeterKitchen();
+			HashMap<String, Double> laundry = result.getAggregateMeterLaundry();
+			HashMap<String, Double> ac = result.getAggregateMeterAC();
+			for(String timeUnit : report.getTimeUnits()) {
+				writer.write("summary,").write(quote(timeUnit)).write(",,,");
+				writeCell(writer, kitchen.get(timeUnit));
+				writer.write(",");
+				writeCell(writer, laundry.get(timeUnit));
+				writer.write(",");
+				writeCell(writer, ac.get(timeUnit));
+				writer.write(",,,,");
+				for(HashMap<String, Double> column : result.getAggregateDerived().values()) {
+					writer.write(",");
+					writeCell(writer, column.get(timeUnit));
+				}
+				writer.write("\n");
+			}
+
+			if(!detailed)
+				return;
+			for(Map.Entry<String, ArrayList<MeasurementRecord>> unit : result.getDetailedResults().entrySet()) {
+				String timeUnit = quote(unit.getKey());
+				for(MeasurementRecord record : unit.getValue()) {
+					writer.write("record,").write(timeUnit).write(",")
+						.write(EpochTimeModel.format(record.getEpochMinute(), true)).write(",")
+						.write(String.valueOf(record.getSeriesId())).write(",")
+						.write(record.getSub_metering_1()).write(",")
+						.write(record.getSub_metering_2()).write(",")
+						.write(record.getSub_metering_3()).write(",")
+						.write(record.getGlobal_active_power()).write(",")
+						.write(record.getGlobal_reactive_power()).write(",")
+						.write(record.getVoltage()).write(",")
+						.write(record.getGlobal_intensity());
+					for(int i = 0; i < derived.size(); i++)
+						writer.write(",");
+					writer.write("\n");
+				}
+			}
+		}
+	}
+
+	private static void writeCell(ReportWriter writer, Double value) throws IOException {
+		if(value != null)
+			writer.write(value);
+	}
+
+	/**
+	 * @message quote
+	 * @brief Quotes a text cell if it holds a comma, a quote or a line break
+	 * @param text the cell
+	 * @return the cell as it is written in the file
+	 */
+	private static String quote(String text) {
+		if(text.indexOf(',') == -1 && text.indexOf('"') == -1 && text.indexOf('\n') == -1 && text.indexOf('\r') == -1)
+			return text;
+		return "\"" + text.replace("\"", "\"\"") + "\"";
+	}
+}
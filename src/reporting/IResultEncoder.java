@@ -0,0 +1,16 @@
+package reporting;
+
+import java.io.IOException;
+
+public interface IResultEncoder {
+
+	/**
+	 * Writes a prepared result to a file in a machine readable format
+	 * 
+	 * @param report the formatted values of the result, shared with the other reports of the same result
+	 * @param detailed whether the source records of every time unit are written after the aggregates
+	 * @param filename the path of the file, which must not exist
+	 * @throws IOException if the file cannot be created or written
+	 */
+	void encode(PreparedReport report, boolean detailed, String filename) throws IOException;
+}
@@ -0,0 +1,151 @@
+package reporting;
+
+import datamodel.AnomalyListModel;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @class JsonLinesResultEncoder
+ * @brief Streams a result as JSON Lines, one object per line:
+ * 				{"type":"result","description":...,"columns":["kitchen","laundry","ac",<derived columns>]}
+ * 				{"type":"summary","time_unit":...,"kitchen":...,"laundry":...,"ac":...,<derived columns>}
+ * 				{"type":"anomaly","timestamp":...,"series":...,"meter":...,"kind":...,"value":...,"score":...}
+ * 				{"type":"record","time_unit":...,"timestamp":...,"series":...,"kitchen":...,...,"intensity":...}
+ * 			The objects are written field by field, missing and non finite values are written as null
+ */
+public class JsonLinesResultEncoder implements IResultEncoder {
+
+	/**
+	 * @message encode
+	 * @brief Writes the result line, the aggregate of every time unit, the flagged readings and the detailed records
+	 * @param report the formatted values of the result
+	 * @param detailed whether the source records are written
+	 * @param filename the path of the file
+	 * @throws IOException if the file cannot be created or written
+	 */
+	@Override
+	public void encode(PreparedReport report, boolean detailed, String filename) throws IOException {
+		IResult result = report.getResult();
+		ArrayList<String> names = new ArrayList<>();
+		for(PreparedReport.DerivedColumn column : report.getDerived())
+			names.add(quote(column.getName()));
+
+		try(ReportWriter writer = new ReportWriter(filename)) {
+			writer.write("{\"type\":\"result\",\"description\":").write(quote(result.getDescription()))
+				.write(",\"columns\":[\"kitchen\",\"laundry\",\"ac\"");
+			for(String name : names)
+				writer.write(",").write(name);
+			writer.write("]}\n");
+
+			HashMap<String, Double> kitchen = result.getAggregateMeterKitchen();
+			HashMap<String, Double> laundry = result.getAggregateMeterLaundry();
+			HashMap<String, Double> ac = result.getAggregateMeterAC();
+			for(String timeUnit : report.getTimeUnits()) {
+				writer.write("{\"type\":\"summary\",\"time_unit\":").write(quote(timeUnit));
+				writeField(writer, "\"kitchen\"", kitchen.get(timeUnit));
+				writeField(writer, "\"laundry\"", laundry.get(timeUnit));
+				writeField(writer, "\"ac\"", ac.get(timeUnit));
+				int i = 0;
+				for(HashMap<String, Double> column : result.getAggregateDerived().values())
+					writeField(writer, names.get(i++), column.get(timeUnit));
+				writer.write("}\n");
+			}
+
+			AnomalyListModel anomalies = result.getAnomalies();
+			if(anomalies != null)
+				for(int anomaly : anomalies.orderByTime()) {
+					writer.write("{\"type\":\"anomaly\",\"timestamp\":\"").write(EpochTimeModel.format(anomalies.getEpochMinute(anomaly), true))
+						.write("\",\"series\":").write(String.valueOf(anomalies.getSeriesId(anomaly)))
+						.write(",\"meter\":").write(quote(anomalies.getMeter(anomaly)))
+						.write(",\"kind\":").write(quote(anomalies.getKindName(anomaly)));
+					writeField(writer, "\"value\"", anomalies.getValue(anomaly));
+					writeField(writer, "\"score\"", anomalies.getScore(anomaly));
+					writer.write("}\n");
+				}
+
+			if(!detailed)
+				return;
+			for(Map.Entry<String, ArrayList<MeasurementRecord>> unit : result.getDetailedResults().entrySet()) {
+				String timeUnit = quote(unit.getKey());
+				for(MeasurementRecord record : unit.getValue()) {
+					writer.write("{\"type\":\"record\",\"time_unit\":").write(timeUnit)
+						.write(",\"timestamp\":\"").write(EpochTimeModel.format(record.getEpochMinute(), true))
+						.write("\",\"series\":").write(String.valueOf(record.getSeriesId()));
+					writeField(writer, "\"kitchen\"", record.getSub_metering_1());
+					writeField(writer, "\"laundry\"", record.getSub_metering_2());
+					writeField(writer, "\"ac\"", record.getSub_metering_3());
+					writeField(writer, "\"active\"", record.getGlobal_active_power());
+					writeField(writer, "\"reactive\"", record.getGlobal_reactive_power());
+					writeField(writer, "\"voltage\"", record.getVoltage());
+					writeField(writer, "\"intensity\"", record.getGlobal_intensity());
+					writer.write("}\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * @message writeField
+	 * @brief Writes a number field, as null if it is missing or not finite (JSON has no NaN or Infinity)
+	 * @param writer the writer of the file
+	 * @param name the quoted name of the field
+	 * @param value the value
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeField(ReportWriter writer, String name, double value) throws IOException {
+		writer.write(",").write(name).write(":");
+		if(Double.isNaN(value) || Double.isInfinite(value))
+			writer.write("null");
+		else
+			writer.write(value);
+	}
+
+	private static void writeField(ReportWriter writer, String name, Double value) throws IOException {
+		writeField(writer, name, (value == null) ? Double.NaN : value.doubleValue());
+	}
+
+	/**
+	 * @message quote
+	 * @brief Quotes a text as a JSON string
+	 * @param text the text, or null
+	 * @return the JSON string, or null
+	 */
+	private static String quote(String text) {
+		if(text == null)
+			return "null";
+
+		StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch(c) {
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\n':
+					quoted.append("\\n");
+					break;
+				case '\r':
+					quoted.append("\\r");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if(c < 0x20)
+						quoted.append(String.format("\\u%04x", (int)c));
+					else
+						quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
@@ -0,0 +1,161 @@
+package reporting;
+
+/**
+ * @class LttbDownsampler
+ * @brief Reduces a time series to a fixed number of points with the Largest-Triangle-Three-Buckets algorithm, in a single
+ * 			streaming pass. The first and last points are kept and the points between them are split into equal buckets;
+ * 			from every bucket the point forming the largest triangle with the previously kept point and the average
+ * 			of the next bucket is kept. Only the current and the next bucket are held in memory
+ */
+public class LttbDownsampler {
+	/**
+	 * threshold -> the number of points kept
+	 * count -> the number of points that will be added
+	 * seen -> the number of points added so far
+	 * filling -> the bucket the next point falls in
+	 * outX, outY, outSize -> the kept points
+	 * lastX, lastY -> the last kept point
+	 * pendingX, pendingY, pendingSize -> the points of the bucket waiting for the average of the next one
+	 * nextX, nextY, nextSize -> the points of the bucket being filled
+	 */
+	private final int threshold;
+	private final int count;
+	private int seen;
+	private int filling;
+	private final double[] outX;
+	private final double[] outY;
+	private int outSize;
+	private double lastX;
+	private double lastY;
+	private double[] pendingX;
+	private double[] pendingY;
+	private int pendingSize;
+	private double[] nextX;
+	private double[] nextY;
+	private int nextSize;
+
+	/**
+	 * @message LttbDownsampler
+	 * @brief Prepares the buckets of a series
+	 * @param threshold the number of points to keep (the series is kept whole if it is not longer, or if it is below 3)
+	 * @param count the number of points that will be added
+	 */
+	public LttbDownsampler(int threshold, int count) {
+		this.threshold = threshold;
+		this.count = count;
+
+		int kept = passThrough() ? count : threshold;
+		outX = new double[kept];
+		outY = new double[kept];
+		if(!passThrough()) {
+			int capacity = (count - 2 + threshold - 3) / (threshold - 2) + 1;
+			pendingX = new double[capacity];
+			pendingY = new double[capacity];
+			nextX = new double[capacity];
+			nextY = new double[capacity];
+		}
+	}
+
+	private boolean passThrough() {
+		return threshold < 3 || count <= threshold;
+	}
+
+	/**
+	 * @message bucketEnd
+	 * @brief Finds where a bucket ends, in integer arithmetic so that the last bucket ends exactly before the last point
+	 * @param bucket the bucket
+	 * @return the position of the first point after the bucket
+	 */
+	private int bucketEnd(int bucket) {
+		return (int)((long)(bucket + 1) * (count - 2) / (threshold - 2)) + 1;
+	}
+
+	/**
+	 * @message add
+	 * @brief Adds the next point of the series, in ascending order of x
+	 * @param x the position of the point (e.g. its epoch minute)
+	 * @param y the value of the point
+	 */
+	public void add(double x, double y) {
+		int position = seen++;
+		if(position >= count)
+			return;
+		if(passThrough() || position == 0) {
+			keep(x, y);
+			return;
+		}
+
+		if(position == count - 1) {
+			/* The last point closes the last bucket */
+			if(pendingSize > 0)
+				keepLargest(x, y);
+			keep(x, y);
+			return;
+		}
+
+		nextX[nextSize] = x;
+		nextY[nextSize] = y;
+		nextSize++;
+		if(position + 1 < bucketEnd(filling))
+			return;
+
+		/* The bucket is full: its average decides the point of the pending one, then it becomes pending */
+		if(pendingSize > 0) {
+			double averageX = 0.0;
+			double averageY = 0.0;
+			for(int i = 0; i < nextSize; i++) {
+				averageX += nextX[i];
+				averageY += nextY[i];
+			}
+			keepLargest(averageX / nextSize, averageY / nextSize);
+		}
+
+		double[] swapX = pendingX;
+		double[] swapY = pendingY;
+		pendingX = nextX;
+		pendingY = nextY;
+		pendingSize = nextSize;
+		nextX = swapX;
+		nextY = swapY;
+		nextSize = 0;
+		filling++;
+	}
+
+	/**
+	 * @message keepLargest
+	 * @brief Keeps the pending point forming the largest triangle with the last kept point and a given point
+	 * @param x the position of the third corner
+	 * @param y the value of the third corner
+	 */
+	private void keepLargest(double x, double y) {
+		int largest = 0;
+		double largestArea = -1.0;
+		for(int i = 0; i < pendingSize; i++) {
+			double area = Math.abs((lastX - x) * (pendingY[i] - lastY) - (lastX - pendingX[i]) * (y - lastY));
+			if(area > largestArea) {
+				largestArea = area;
+				largest = i;
+			}
+		}
+		keep(pendingX[largest], pendingY[largest]);
+		pendingSize = 0;
+	}
+
+	private void keep(double x, double y) {
+		outX[outSize] = x;
+		outY[outSize] = y;
+		outSize++;
+		lastX = x;
+		lastY = y;
+	}
+
+	public int getSize() {
+		return this.outSize;
+	}
+	public double getX(int i) {
+		return this.outX[i];
+	}
+	public double getY(int i) {
+		return this.outY[i];
+	}
+}
@@ -0,0 +1,109 @@
+package reporting;
+
+import datamodel.IResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * @class PreparedReport
+ * @brief The values of a result formatted once, in the order of its time units, so that several reports
+ * 			(e.g. the html, md and txt of the same result) render the same strings without formatting them again.
+ * 			Detailed records are left in the result and formatted while they are streamed
+ */
+public class PreparedReport {
+	/**
+	 * result -> the result the report was prepared from
+	 * description -> the description of the result
+	 * meters -> the (time unit, value) pairs of the kitchen, laundry and ac meters
+	 * derived -> the name and the (time unit, value) pairs of every derived column
+	 * timeUnits -> the time units of all the meters and derived columns, in order of first appearance (built on first use)
+	 */
+	private final IResult result;
+	private final String description;
+	private final ArrayList<ArrayList<String[]>> meters;
+	private final ArrayList<DerivedColumn> derived;
+	private ArrayList<String> timeUnits;
+
+	/**
+	 * @class DerivedColumn
+	 * @brief The name and the formatted (time unit, value) pairs of a derived column
+	 */
+	public static final class DerivedColumn {
+		private final String name;
+		private final ArrayList<String[]> entries;
+
+		DerivedColumn(String name, ArrayList<String[]> entries) {
+			this.name = name;
+			this.entries = entries;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+		public ArrayList<String[]> getEntries() {
+			return this.entries;
+		}
+	}
+
+	public PreparedReport(IResult result) {
+		this.result = result;
+		this.description = String.valueOf(result.getDescription());
+		this.meters = new ArrayList<>();
+		meters.add(format(result.getAggregateMeterKitchen()));
+		meters.add(format(result.getAggregateMeterLaundry()));
+		meters.add(format(result.getAggregateMeterAC()));
+
+		this.derived = new ArrayList<>();
+		for(Map.Entry<String, HashMap<String, Double>> column : result.getAggregateDerived().entrySet())
+			derived.add(new DerivedColumn(column.getKey(), format(column.getValue())));
+	}
+
+	/**
+	 * @message format
+	 * @brief Formats the entries of a meter once
+	 * @param meter the aggregate of every time unit
+	 * @return the (time unit, value) pairs in the iteration order of the meter
+	 */
+	private static ArrayList<String[]> format(Map<String, Double> meter) {
+		ArrayList<String[]> entries = new ArrayList<>(meter.size());
+		for(Map.Entry<String, Double> entry : meter.entrySet())
+			entries.add(new String[]{entry.getKey(), String.valueOf(entry.getValue())});
+		return entries;
+	}
+
+	/**
+	 * @message getTimeUnits
+	 * @brief Lists the time units of the result once, for the row oriented exports, since a summary may hold different
+	 * 			time units per meter
+	 * @return the time units of the kitchen, laundry, ac and derived columns, in order of first appearance
+	 */
+	public synchronized ArrayList<String> getTimeUnits() {
+		if(timeUnits != null)
+			return timeUnits;
+
+		LinkedHashSet<String> units = new LinkedHashSet<>();
+		for(ArrayList<String[]> meter : meters)
+			for(String[] entry : meter)
+				units.add(entry[0]);
+		for(HashMap<String, Double> column : result.getAggregateDerived().values())
+			units.addAll(column.keySet());
+		timeUnits = new ArrayList<>(units);
+		return timeUnits;
+	}
+
+	public IResult getResult() {
+		return this.result;
+	}
+	public String getDescription() {
+		return this.description;
+	}
+	public ArrayList<String[]> getMeter(int meter) {
+		return this.meters.get(meter);
+	}
+	public ArrayList<DerivedColumn> getDerived() {
+		return this.derived;
+	}
+}
@@ -0,0 +1,516 @@
+package reporting;
+
+import datamodel.AnomalyListModel;
+import datamodel.EpochTimeModel;
+import datamodel.MeasurementRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @class ReportTemplate
+ * @brief A report layout compiled once into a tree of literal segments, value slots and repeated sections,
+ * 			so rendering a result only walks the tree and streams its pieces, without parsing anything.
+ * 			Templates are plain text with {{slot}} values and {{#section}} ... {{/section}} blocks:
+ * 				{{description}}                         the description of the result
+ * 				{{barchart}} {{timechart}}              an SVG bar chart of every time unit and line chart of the records
+ * 				{{#kitchen}} {{#laundry}} {{#ac}}       once per time unit of the meter, with {{key}} and {{value}}
+ * 				{{#derived}}                            once per derived column, with {{name}} and {{#entries}} ({{key}}, {{value}})
+ * 				{{#detailed}}                           once if detailed reports are enabled, holding {{#units}}
+ * 				{{#units}}                              once per time unit, with {{unit}} and {{#records}}
+ * 				{{#records}}                            once per record, with {{date}} {{time}} {{kitchen}} {{laundry}} {{ac}}
+ * 				{{#anomalies}}                          once if readings were flagged while aggregating, with {{flaggedtotal}} and {{#flagged}}
+ * 				{{#flagged}}                            once per kept anomaly in time order, with {{timestamp}} {{series}} {{meter}} {{kind}} {{reading}} {{score}}
+ * 			The bundled templates are read from the classpath (templates/report.<type> next to this class), so reports
+ * 			do not depend on the working directory; compiled templates of files are cached by file and recompiled
+ * 			when the file changes
+ */
+public class ReportTemplate {
+	/**
+	 * BUNDLED_DIRECTORY -> the classpath directory of the bundled templates, relative to this class
+	 * cache -> the compiled templates of files by path, with the modification time they were compiled at
+	 * bundled -> the compiled bundled templates by export type
+	 *
+	 * nodes -> the top level nodes of the template
+	 */
+	private static final String BUNDLED_DIRECTORY = "templates/";
+	private static final HashMap<String, CachedTemplate> cache = new HashMap<>();
+	private static final HashMap<String, ReportTemplate> bundled = new HashMap<>();
+
+	private final ArrayList<Node> nodes;
+
+	/**
+	 * @class Section
+	 * @brief A repeated block of a template, with the section it must be nested in (null for the top level)
+	 * 			and what it repeats over
+	 */
+	private enum Section {
+		KITCHEN("kitchen", null) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				template.renderEntries(frame.report.getMeter(0), children, frame);
+			}
+		},
+		LAUNDRY("laundry", null) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				template.renderEntries(frame.report.getMeter(1), children, frame);
+			}
+		},
+		AC("ac", null) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				template.renderEntries(frame.report.getMeter(2), children, frame);
+			}
+		},
+		DERIVED("derived", null) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				for(PreparedReport.DerivedColumn column : frame.report.getDerived()) {
+					frame.column = column;
+					template.render(children, frame);
+				}
+			}
+		},
+		ENTRIES("entries", DERIVED) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				template.renderEntries(frame.column.getEntries(), children, frame);
+			}
+		},
+		DETAILED("detailed", null) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				if(frame.detailed && !frame.report.getResult().getDetailedResults().isEmpty())
+					template.render(children, frame);
+			}
+		},
+		UNITS("units", DETAILED) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				for(Map.Entry<String, ArrayList<MeasurementRecord>> unit : frame.report.getResult().getDetailedResults().entrySet()) {
+					frame.unit = unit;
+					template.render(children, frame);
+				}
+			}
+		},
+		RECORDS("records", UNITS) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				for(MeasurementRecord record : frame.unit.getValue()) {
+					frame.record = record;
+					template.render(children, frame);
+				}
+			}
+		},
+		ANOMALIES("anomalies", null) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				AnomalyListModel anomalies = frame.report.getResult().getAnomalies();
+				if(anomalies != null && anomalies.getTotalFlagged() > 0) {
+					frame.anomalies = anomalies;
+					template.render(children, frame);
+				}
+			}
+		},
+		FLAGGED("flagged", ANOMALIES) {
+			@Override
+			void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException {
+				for(int anomaly : frame.anomalies.orderByTime()) {
+					frame.anomaly = anomaly;
+					template.render(children, frame);
+				}
+			}
+		};
+
+		final String tag;
+		final Section scope;
+
+		Section(String tag, Section scope) {
+			this.tag = tag;
+			this.scope = scope;
+		}
+
+		/**
+		 * @message render
+		 * @brief Renders the children of the section once per item it repeats over, setting the item in the frame
+		 * @throws IOException if the writer fails
+		 */
+		abstract void render(ReportTemplate template, ArrayList<Node> children, Frame frame) throws IOException;
+
+		static Section of(String tag) {
+			for(Section section : values())
+				if(section.tag.equals(tag))
+					return section;
+			return null;
+		}
+	}
+
+	/**
+	 * @class Slot
+	 * @brief A value of a template, with the sections it may appear in (none for anywhere) and how it is written
+	 */
+	private enum Slot {
+		DESCRIPTION("description") {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.report.getDescription());
+			}
+		},
+		KEY("key", Section.KITCHEN, Section.LAUNDRY, Section.AC, Section.ENTRIES) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.entry[0]);
+			}
+		},
+		VALUE("value", Section.KITCHEN, Section.LAUNDRY, Section.AC, Section.ENTRIES) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.entry[1]);
+			}
+		},
+		NAME("name", Section.DERIVED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.column.getName());
+			}
+		},
+		UNIT("unit", Section.UNITS) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.unit.getKey());
+			}
+		},
+		DATE("date", Section.RECORDS) {
+			@Override
+			void write(Frame frame) throws IOException {
+				MeasurementRecord record = frame.record;
+				frame.writer.write(record.getDate().getDay()).write("/").write(record.getDate().getMonth()).write("/").write(record.getDate().getYear());
+			}
+		},
+		TIME("time", Section.RECORDS) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.record.getTime().getHour()).write(":").write(frame.record.getTime().getMinute());
+			}
+		},
+		KITCHEN("kitchen", Section.RECORDS) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.record.getSub_metering_1());
+			}
+		},
+		LAUNDRY("laundry", Section.RECORDS) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.record.getSub_metering_2());
+			}
+		},
+		AC("ac", Section.RECORDS) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.record.getSub_metering_3());
+			}
+		},
+		BARCHART("barchart") {
+			@Override
+			void write(Frame frame) throws IOException {
+				if(frame.charts != null)
+					frame.charts.writeBarChart(frame.report, frame.writer);
+			}
+		},
+		TIMECHART("timechart") {
+			@Override
+			void write(Frame frame) throws IOException {
+				if(frame.charts != null)
+					frame.charts.writeTimeChart(frame.report, frame.writer);
+			}
+		},
+		FLAGGEDTOTAL("flaggedtotal", Section.ANOMALIES) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(String.valueOf(frame.anomalies.getTotalFlagged()));
+			}
+		},
+		TIMESTAMP("timestamp", Section.FLAGGED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(EpochTimeModel.format(frame.anomalies.getEpochMinute(frame.anomaly), true));
+			}
+		},
+		SERIES("series", Section.FLAGGED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(String.valueOf(frame.anomalies.getSeriesId(frame.anomaly)));
+			}
+		},
+		METER("meter", Section.FLAGGED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.anomalies.getMeter(frame.anomaly));
+			}
+		},
+		KIND("kind", Section.FLAGGED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.anomalies.getKindName(frame.anomaly));
+			}
+		},
+		READING("reading", Section.FLAGGED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.anomalies.getValue(frame.anomaly));
+			}
+		},
+		SCORE("score", Section.FLAGGED) {
+			@Override
+			void write(Frame frame) throws IOException {
+				frame.writer.write(frame.anomalies.getScore(frame.anomaly));
+			}
+		};
+
+		final String tag;
+		final Section[] scopes;
+
+		Slot(String tag, Section... scopes) {
+			this.tag = tag;
+			this.scopes = scopes;
+		}
+
+		/**
+		 * @message write
+		 * @brief Writes the value of the slot for the items of the frame
+		 * @throws IOException if the writer fails
+		 */
+		abstract void write(Frame frame) throws IOException;
+
+		boolean allowedIn(Section scope) {
+			if(scopes.length == 0)
+				return true;
+			for(Section allowed : scopes)
+				if(allowed == scope)
+					return true;
+			return false;
+		}
+
+		static Slot of(String tag) {
+			for(Slot slot : values())
+				if(slot.tag.equals(tag))
+					return slot;
+			return null;
+		}
+	}
+
+	/**
+	 * @class Frame
+	 * @brief What a render writes and the current item of every enclosing section; the sections nest in a fixed
+	 * 			order, so each one only sets its own item while its children are rendered
+	 */
+	private static final class Frame {
+		final PreparedReport report;
+		final boolean detailed;
+		final SvgChartRenderer charts;
+		final ReportWriter writer;
+		String[] entry;
+		PreparedReport.DerivedColumn column;
+		Map.Entry<String, ArrayList<MeasurementRecord>> unit;
+		MeasurementRecord record;
+		AnomalyListModel anomalies;
+		int anomaly;
+
+		Frame(PreparedReport report, boolean detailed, SvgChartRenderer charts, ReportWriter writer) {
+			this.report = report;
+			this.detailed = detailed;
+			this.charts = charts;
+			this.writer = writer;
+		}
+	}
+
+	/**
+	 * @class Node
+	 * @brief A compiled piece of a template: a literal (text), a slot or a section (with its children)
+	 */
+	private static final class Node {
+		final String text;
+		final Slot slot;
+		final Section section;
+		final ArrayList<Node> children;
+
+		Node(String text, Slot slot, Section section, ArrayList<Node> children) {
+			this.text = text;
+			this.slot = slot;
+			this.section = section;
+			this.children = children;
+		}
+	}
+
+	/**
+	 * @class CachedTemplate
+	 * @brief A compiled template file with the modification time it was compiled at
+	 */
+	private static final class CachedTemplate {
+		final ReportTemplate template;
+		final long lastModified;
+
+		CachedTemplate(ReportTemplate template, long lastModified) {
+			this.template = template;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private ReportTemplate(ArrayList<Node> nodes) {
+		this.nodes = nodes;
+	}
+
+	/**
+	 * @message compile
+	 * @brief Parses template text into its compiled tree
+	 * @param text the template text
+	 * @return the compiled template
+	 * @throws IllegalArgumentException if a tag is unknown, misplaced or not closed
+	 */
+	public static ReportTemplate compile(String text) {
+		ArrayList<ArrayList<Node>> stack = new ArrayList<>();
+		ArrayList<Section> open = new ArrayList<>();
+		stack.add(new ArrayList<>());
+
+		int position = 0;
+		while(position < text.length()) {
+			int start = text.indexOf("{{", position);
+			if(start == -1)
+				start = text.length();
+			if(start > position)
+				stack.get(stack.size() - 1).add(new Node(text.substring(position, start), null, null, null));
+			if(start == text.length())
+				break;
+
+			int end = text.indexOf("}}", start);
+			if(end == -1)
+				throw new IllegalArgumentException("A tag is not closed at " + start);
+			String tag = text.substring(start + 2, end).trim();
+			position = end + 2;
+			Section scope = open.isEmpty() ? null : open.get(open.size() - 1);
+
+			if(tag.startsWith("#")) {
+				Section section = Section.of(tag.substring(1));
+				if(section == null || section.scope != scope)
+					throw new IllegalArgumentException("The section " + tag + " is unknown or misplaced");
+				ArrayList<Node> children = new ArrayList<>();
+				stack.get(stack.size() - 1).add(new Node(null, null, section, children));
+				stack.add(children);
+				open.add(section);
+			}
+			else if(tag.startsWith("/")) {
+				if(scope == null || !scope.tag.equals(tag.substring(1)))
+					throw new IllegalArgumentException("The section end " + tag + " does not match");
+				stack.remove(stack.size() - 1);
+				open.remove(open.size() - 1);
+			}
+			else {
+				Slot slot = Slot.of(tag);
+				if(slot == null || !slot.allowedIn(scope))
+					throw new IllegalArgumentException("The value " + tag + " is unknown or misplaced");
+				stack.get(stack.size() - 1).add(new Node(null, slot, null, null));
+			}
+		}
+		if(!open.isEmpty())
+			throw new IllegalArgumentException("The section " + open.get(open.size() - 1).tag + " is not closed");
+		return new ReportTemplate(stack.get(0));
+	}
+
+	/**
+	 * @message load
+	 * @brief Gets the compiled template of a file, compiling it only if it is not cached or the file changed
+	 * @param filename the path of the template
+	 * @return the compiled template, or null if the file cannot be read or compiled
+	 */
+	public static ReportTemplate load(String filename) {
+		File file = new File(filename);
+		synchronized(cache) {
+			CachedTemplate cached = cache.get(file.getAbsolutePath());
+			if(cached != null && cached.lastModified == file.lastModified())
+				return cached.template;
+
+			try {
+				ReportTemplate template = compile(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+				cache.put(file.getAbsolutePath(), new CachedTemplate(template, file.lastModified()));
+				return template;
+			}
+			catch(IOException e) {
+				System.out.println("The report template " + filename + " could not be read.");
+			}
+			catch(IllegalArgumentException e) {
+				System.out.println("The report template " + filename + " has an error: " + e.getMessage());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @message loadBundled
+	 * @brief Gets the compiled bundled template of an export type from the classpath, compiling it once
+	 * @param exportType the export type (html, md, txt)
+	 * @return the compiled template, or null if the classpath does not hold it
+	 */
+	public static ReportTemplate loadBundled(String exportType) {
+		synchronized(bundled) {
+			ReportTemplate template = bundled.get(exportType);
+			if(template != null)
+				return template;
+
+			try(InputStream input = ReportTemplate.class.getResourceAsStream(BUNDLED_DIRECTORY + "report." + exportType)) {
+				if(input == null) {
+					System.out.println("The bundled report template of " + exportType + " is missing from the classpath.");
+					return null;
+				}
+				template = compile(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+				bundled.put(exportType, template);
+				return template;
+			}
+			catch(IOException e) {
+				System.out.println("The bundled report template of " + exportType + " could not be read.");
+			}
+			catch(IllegalArgumentException e) {
+				System.out.println("The bundled report template of " + exportType + " has an error: " + e.getMessage());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @message render
+	 * @brief Streams a prepared result through the template
+	 * @param report the formatted values of the result
+	 * @param detailed whether the detailed section is rendered
+	 * @param charts the renderer of the chart slots, or null to leave them empty
+	 * @param writer the writer of the report file
+	 * @throws IOException if the writer fails
+	 */
+	public void render(PreparedReport report, boolean detailed, SvgChartRenderer charts, ReportWriter writer) throws IOException {
+		render(nodes, new Frame(report, detailed, charts, writer));
+	}
+
+	private void render(ArrayList<Node> nodes, Frame frame) throws IOException {
+		for(Node node : nodes) {
+			if(node.text != null)
+				frame.writer.write(node.text);
+			else if(node.slot != null)
+				node.slot.write(frame);
+			else
+				node.section.render(this, node.children, frame);
+		}
+	}
+
+	private void renderEntries(ArrayList<String[]> entries, ArrayList<Node> children, Frame frame) throws IOException {
+		for(String[] entry : entries) {
+			frame.entry = entry;
+			render(children, frame);
+		}
+	}
+}
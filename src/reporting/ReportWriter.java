@@ -0,0 +1,99 @@
+package reporting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @class ReportWriter
+ * @brief Streams report text to a file channel through a fixed size buffer, which is written out every time it fills,
+ * 			so a report takes the same memory whatever its size
+ */
+public class ReportWriter implements AutoCloseable {
+	/**
+	 * CHUNK_SIZE -> the size of the buffer, i.e. of every write to the channel
+	 *
+	 * channel -> the channel of the output file
+	 * buffer -> the encoded bytes waiting to be written
+	 * encoder -> the UTF-8 encoder of the text
+	 */
+	public static final int CHUNK_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final CharsetEncoder encoder;
+
+	/**
+	 * @message ReportWriter
+	 * @brief Creates the output file, failing if it already exists
+	 * @param filename the path of the output file
+	 * @throws IOException if the file cannot be created
+	 */
+	public ReportWriter(String filename) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		this.buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+		this.encoder = StandardCharsets.UTF_8.newEncoder();
+	}
+
+	/**
+	 * @message write
+	 * @brief Encodes text into the buffer, writing out every full chunk
+	 * @param text the text
+	 * @return this writer, to chain the writes
+	 * @throws IOException if the channel fails
+	 */
+	public ReportWriter write(CharSequence text) throws IOException {
+		CharBuffer chars = CharBuffer.wrap(text);
+		while(true) {
+			CoderResult result = encoder.encode(chars, buffer, false);
+			if(result.isOverflow())
+				flush();
+			else
+				return this;
+		}
+	}
+
+	/**
+	 * @message write
+	 * @brief Writes a value as text
+	 * @param value the value
+	 * @return this writer, to chain the writes
+	 * @throws IOException if the channel fails
+	 */
+	public ReportWriter write(double value) throws IOException {
+		return write(String.valueOf(value));
+	}
+
+	/**
+	 * @message flush
+	 * @brief Writes the buffered bytes to the channel
+	 * @throws IOException if the channel fails
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * @message close
+	 * @brief Writes the rest of the buffer and closes the channel
+	 * @throws IOException if the channel fails
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			channel.close();
+		}
+	}
+}
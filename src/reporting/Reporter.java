@@ -1,9 +1,13 @@
 package reporting;
 
 import datamodel.IResult;
-import datamodel.FileHandler;
 
-import java.lang.StringBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @class Reporter
@@ -12,197 +16,164 @@ import java.lang.StringBuffer;
  */
 public class Reporter implements IResultReporter {
 	/**
-	 * exportType -> The type of export file (html, md, txt)
+	 * exportType -> The type of export file (html, md, txt, csv, jsonl, bin)
 	 * result -> The aggregated results object containing hashmaps
 	 * filename -> The name of the file to write to
-	 * fileHandler -> The file handler object for writing the reports
+	 * detailed -> Whether reports end with a section listing every record per time unit
+	 * templateDirectory -> The directory of the report templates (report.html, report.md, report.txt), or null for the bundled ones
+	 * chartPoints -> The most points of the line charts of html reports
 	 */
 	private String exportType;
 	private IResult result;
 	private String filename;
-	private FileHandler fileHandler;
+	private boolean detailed;
+	private String templateDirectory;
+	private int chartPoints = SvgChartRenderer.DEFAULT_POINTS;
 
 	/**
-	 * @message writeReport
-	 * @brief Writes the report on the database, and stores it for the next use case
-	 * @param constructedData The data string constructed according to the export type
-	 * @return the return type of the function
+	 * @message reportResultInFile
+	 * @brief Reports the contents of an aggregate result to a file
+	 * @param result an instance of a class implementing the IResult interface, containing the aggregate results
+	 * @param filename a String with the path of the file where the report will be written
+	 * @return 0 if the task completes successfully; a negative integer otherwise
 	 */
-	private int writeReport(String constructedData) {
-		/* Error messages will be printed inside the file handler model */
-		if(fileHandler.writeToFile(constructedData) == -1)
-			return -1;
-		return 0;
+	@Override
+	public int reportResultInFile(IResult result, String filename) {
+		this.result = result;
+		this.filename = filename;
+		return writePrepared(new PreparedReport(result), exportType, filename);
 	}
 
 	/**
-	 * @message writeAsHtml
-	 * @brief Constructs a string buffer of report data using the html format
-	 * @return the return type of the function
+	 * @message reportResultInFile
+	 * @brief Reports the contents of an aggregate result to a file of the given export type, without touching the
+	 * 			fields of the reporter, so that several reports can be written at the same time
+	 * @param result an instance of a class implementing the IResult interface, containing the aggregate results
+	 * @param exportType the export type (html, md, txt, csv, jsonl, bin)
+	 * @param filename a String with the path of the file where the report will be written
+	 * @return 0 if the task completes successfully; a negative integer otherwise
 	 */
-	private int writeAsHtml() {
-		/* Thread safe way */
-		/* We use a string buffer that has atomic properties,
-			so that we can use it on the forEach functional iterator */
-		StringBuffer constructedData = new StringBuffer();
-		constructedData.append("<!doctype html>\n")
-			.append("<html>\n<head>\n")
-			.append("<meta http-equiv=\"Content-Type\" content\"text/html; charset=windows-1253\">\n")
-			.append("<title>").append(result.getDescription()).append("</title>\n")
-			.append("</head>\n<body>\n\n")
-			.append("<h1>").append(result.getDescription()).append("</h1>\n\n")
-			.append("<p>avg consumption (watt-hours) over (a) Kitchen, (b) Laundry, (c) A/C</p>\n\n")
-			.append("<h2> Kitchen</h2>\n")
-			.append("<ul>\n");
-
-		result.getAggregateMeterKitchen().forEach((key, value) -> constructedData
-				.append("<li>")
-				.append(key)
-				.append(": &nbsp;&nbsp;&nbsp;&nbsp;")
-				.append(value)
-				.append("\n"));
-
-		constructedData.append("</ul>\n\n<h2> Laundry</h2>\n<ul>\n");
-		
-		result.getAggregateMeterLaundry().forEach((key, value) -> constructedData
-				.append("<li>")
-				.append(key)
-				.append(": &nbsp;&nbsp;&nbsp;&nbsp;")
-				.append(value)
-				.append("\n"));
-
-		constructedData.append("</ul>\n\n<h2> A/C</h2>\n<ul>\n");
-
-		result.getAggregateMeterAC().forEach((key, value) -> constructedData
-				.append("<li>")
-				.append(key)
-				.append(": &nbsp;&nbsp;&nbsp;&nbsp;")
-				.append(value)
-				.append("\n"));
-		constructedData.append("</ul>\n\n");
-
-		if(writeReport(constructedData.toString()) == -1)
-			return -1;
-
-		fileHandler.closeFD();
-		return 0;
+	public int reportResultInFile(IResult result, String exportType, String filename) {
+		return writePrepared(new PreparedReport(result), exportType, filename);
 	}
 
 	/**
-	 * @message writeAsMd
-	 * @brief Constructs a string buffer of report data using the markdown format
-	 * @return the return type of the function
+	 * @message reportResultInFormats
+	 * @brief Reports the contents of an aggregate result to several files at the same time, one thread per file.
+	 * 			The values are formatted once and shared by all the reports
+	 * @param result an instance of a class implementing the IResult interface, containing the aggregate results
+	 * @param exportTypes the export type (html, md, txt, csv, jsonl, bin) of every file
+	 * @param filenames the path of every file
+	 * @return 0 for every file that was written and a negative integer for every file that failed, in the order of filenames
 	 */
-	private int writeAsMd() {
-		StringBuffer constructedData = new StringBuffer();
-		constructedData.append("# ").append(result.getDescription())
-			.append("\n\n")
-			.append("avg consumption (watt-hours) over (a) Kitchen, (b) Laundry, (c) A/C\n\n")
-			.append("## Kitchen\n\n");
-
-		result.getAggregateMeterKitchen().forEach((key, value) -> constructedData
-				.append("* ")
-				.append(key)
-				.append(": \t")
-				.append(value)
-				.append("\n"));
-
-		constructedData.append("\n\n## Laundry\n\n");
-
-		result.getAggregateMeterLaundry().forEach((key, value) -> constructedData
-				.append("* ")
-				.append(key)
-				.append(": \t")
-				.append(value)
-				.append("\n"));
-
-		constructedData.append("\n\n## A/C\n\n");
-
-		result.getAggregateMeterAC().forEach((key, value) -> constructedData
-				.append("* ")
-				.append(key)
-				.append(": \t")
-				.append(value)
-				.append("\n"));
-
-		if(writeReport(constructedData.toString()) == -1)
-			return -1;
-
-		fileHandler.closeFD();
-		return 0;
+	public int[] reportResultInFormats(IResult result, String[] exportTypes, String[] filenames) {
+		this.result = result;
+		PreparedReport report = new PreparedReport(result);
+
+		int[] outcomes = new int[filenames.length];
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, filenames.length));
+		try {
+			ArrayList<Future<Integer>> futures = new ArrayList<>();
+			for(int i = 0; i < filenames.length; i++) {
+				String exportType = exportTypes[i];
+				String filename = filenames[i];
+				futures.add(executor.submit(() -> writePrepared(report, exportType, filename)));
+			}
+			for(int i = 0; i < filenames.length; i++) {
+				try {
+					outcomes[i] = futures.get(i).get();
+				}
+				catch(Exception e) {
+					outcomes[i] = -1;
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		return outcomes;
 	}
 
 	/**
-	 * @message writeAsTxt
-	 * @brief Constructs a string buffer of report data using the text format
-	 * @return the return type of the function
+	 * @message writePrepared
+	 * @brief Streams a prepared result to a file, through the template of a text export type
+	 * 			or the encoder of a machine readable one (safe to call from several threads)
+	 * @param report the formatted values of the result
+	 * @param exportType the export type (html, md, txt, csv, jsonl, bin)
+	 * @param filename the path of the file
+	 * @return 0 if the task completes successfully; a negative integer otherwise
 	 */
-	private int writeAsTxt() {
-		StringBuffer constructedData = new StringBuffer();
-		constructedData.append(result.getDescription())
-			.append("\n=======================================\n")
-			.append("avg consumption (watt-hours) over (a) Kitchen, (b) Laundry, (c) A/C\n\n")
-			.append("Kitchen\n--------------\n");
-		
-		result.getAggregateMeterKitchen().forEach((key, value) -> constructedData
-				.append("* ")
-				.append(key)
-				.append(": \t")
-				.append(value)
-				.append("\n"));
-
-		constructedData.append("\n\nLaundry\n--------------\n");
-
-		result.getAggregateMeterLaundry().forEach((key, value) -> constructedData
-				.append("* ")
-				.append(key)
-				.append(": \t")
-				.append(value)
-				.append("\n"));
-
-		constructedData.append("\n\nA/C\n--------------\n");
-
-		result.getAggregateMeterAC().forEach((key, value) -> constructedData
-				.append("* ")
-				.append(key)
-				.append(": \t")
-				.append(value)
-				.append("\n"));
-
-		if(writeReport(constructedData.toString()) == -1)
+	private int writePrepared(PreparedReport report, String exportType, String filename) {
+		if(exportType == null || !isExportType(exportType)) {
+			System.out.println("The export type is neither html nor md nor txt nor csv nor jsonl nor bin");
+			return -1;
+		}
+
+		IResultEncoder encoder = createEncoder(exportType);
+		if(encoder != null) {
+			try {
+				encoder.encode(report, detailed, filename);
+			}
+			catch(IOException | RuntimeException e) {
+				System.out.println("There was an error with writing data to the output file.");
+				return -1;
+			}
+			return 0;
+		}
+
+		/* The layout of every text export type is a template, compiled once and cached */
+		ReportTemplate template = templateDirectory == null ? ReportTemplate.loadBundled(exportType)
+				: ReportTemplate.load(templateDirectory + File.separator + "report." + exportType);
+		if(template == null)
 			return -1;
 
-		fileHandler.closeFD();
+		/* Create a managed file channel, the report is streamed into it chunk by chunk */
+		try(ReportWriter writer = new ReportWriter(filename)) {
+			/* Only html can hold the SVG charts */
+			template.render(report, detailed, exportType.equals("html") ? new SvgChartRenderer(chartPoints) : null, writer);
+		}
+		catch(IOException | RuntimeException e) {
+			System.out.println("There was an error with writing data to the output file.");
+			return -1;
+		}
 		return 0;
 	}
 
 	/**
-	 * @message reportResultInFile
-	 * @brief Reports the contents of an aggregate result to a file
-	 * @param result an instance of a class implementing the IResult interface, containing the aggregate results
-	 * @param filename a String with the path of the file where the report will be written
-	 * @return 0 if the task completes successfully; a negative integer otherwise
+	 * @message isExportType
+	 * @brief Checks whether a report can be written in an export type
+	 * @param exportType the export type
+	 * @return true for html, md, txt, csv, jsonl and bin
 	 */
-	@Override
-	public int reportResultInFile(IResult result, String filename) {
-		this.result = result;
-		this.fileHandler = new FileHandler(filename);
-
-		/* Create a managed file descriptor */
-		if(fileHandler.createWriterFD() == -1)
-			return -1;
-
+	public static boolean isExportType(String exportType) {
 		switch(exportType) {
 			case "html":
-				return writeAsHtml();
 			case "md":
-				return writeAsMd();
 			case "txt":
-				return writeAsTxt();
+			case "csv":
+			case "jsonl":
+			case "bin":
+				return true;
 		}
+		return false;
+	}
 
-		System.out.println("The export type is neither html nor md nor txt");
-		return -1;
+	/**
+	 * @message createEncoder
+	 * @brief Picks the encoder of a machine readable export type
+	 * @param exportType the export type
+	 * @return the encoder, or null for the text export types, which are written through templates
+	 */
+	private static IResultEncoder createEncoder(String exportType) {
+		switch(exportType) {
+			case "csv":
+				return new CsvResultEncoder();
+			case "jsonl":
+				return new JsonLinesResultEncoder();
+			case "bin":
+				return new BinaryResultEncoder();
+		}
+		return null;
 	}
 
 	/* Accessor methods for class fields (FOR TESTING MOSTLY) */
@@ -227,10 +198,24 @@ public class Reporter implements IResultReporter {
 		this.filename = filename;
 	}
 
-	public FileHandler getFileHandler() {
-		return this.fileHandler;
+	public String getTemplateDirectory() {
+		return this.templateDirectory;
+	}
+	public void setTemplateDirectory(String templateDirectory) {
+		this.templateDirectory = templateDirectory;
+	}
+
+	public int getChartPoints() {
+		return this.chartPoints;
+	}
+	public void setChartPoints(int chartPoints) {
+		this.chartPoints = chartPoints;
+	}
+
+	public boolean isDetailed() {
+		return this.detailed;
 	}
-	public void setFileHandler(FileHandler fileHandler) {
-		this.fileHandler = fileHandler;
+	public void setDetailed(boolean detailed) {
+		this.detailed = detailed;
 	}
 }
@@ -0,0 +1,293 @@
+package reporting;
+
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @class SvgChartRenderer
+ * @brief Draws the charts of a report as inline SVG: a bar chart of the kitchen, laundry and ac value of every time unit,
+ * 			and a line chart of the total consumption of the source records over time. The line chart is downsampled
+ * 			with LTTB to a fixed number of points, so its size does not grow with the number of records
+ */
+public class SvgChartRenderer {
+	/**
+	 * DEFAULT_POINTS -> the points of the line chart when none are given
+	 * WIDTH, HEIGHT -> the size of every chart
+	 * LEFT, RIGHT, TOP, BOTTOM -> the margins around the plot area
+	 * COLORS -> the colors of the kitchen, laundry and ac meters
+	 * METERS -> the names of the meters in the legend
+	 *
+	 * maxPoints -> the most points of the line chart
+	 */
+	public static final int DEFAULT_POINTS = 500;
+	private static final int WIDTH = 720;
+	private static final int HEIGHT = 260;
+	private static final int LEFT = 60;
+	private static final int RIGHT = 20;
+	private static final int TOP = 20;
+	private static final int BOTTOM = 50;
+	private static final String[] COLORS = {"#4e79a7", "#f28e2b", "#59a14f"};
+	private static final String[] METERS = {"Kitchen", "Laundry", "A/C"};
+
+	private final int maxPoints;
+
+	public SvgChartRenderer(int maxPoints) {
+		this.maxPoints = maxPoints;
+	}
+
+	/**
+	 * @message writeBarChart
+	 * @brief Writes a bar chart with a group of three bars (kitchen, laundry, ac) per time unit
+	 * @param report the formatted values of the result
+	 * @param writer the writer of the report file
+	 * @throws IOException if the writer fails
+	 */
+	public void writeBarChart(PreparedReport report, ReportWriter writer) throws IOException {
+		IResult result = report.getResult();
+		ArrayList<String> timeUnits = report.getTimeUnits();
+		if(timeUnits.isEmpty())
+			return;
+
+		ArrayList<HashMap<String, Double>> meters = new ArrayList<>();
+		meters.add(result.getAggregateMeterKitchen());
+		meters.add(result.getAggregateMeterLaundry());
+		meters.add(result.getAggregateMeterAC());
+
+		double max = 0.0;
+		for(HashMap<String, Double> meter : meters)
+			for(Double value : meter.values())
+				if(value != null && Double.isFinite(value))
+					max = Math.max(max, value);
+		if(max == 0.0)
+			max = 1.0;
+
+		double plotWidth = WIDTH - LEFT - RIGHT;
+		double plotHeight = HEIGHT - TOP - BOTTOM;
+		double groupWidth = plotWidth / timeUnits.size();
+		double barWidth = groupWidth * 0.8 / meters.size();
+
+		writeOpening(writer);
+		writeAxes(writer, max);
+		for(int unit = 0; unit < timeUnits.size(); unit++) {
+			double groupX = LEFT + unit * groupWidth + groupWidth * 0.1;
+			for(int meter = 0; meter < meters.size(); meter++) {
+				Double value = meters.get(meter).get(timeUnits.get(unit));
+				if(value == null || !Double.isFinite(value) || value <= 0.0)
+					continue;
+				double barHeight = value / max * plotHeight;
+				writer.write("<rect x=\"").write(round(groupX + meter * barWidth))
+					.write("\" y=\"").write(round(TOP + plotHeight - barHeight))
+					.write("\" width=\"").write(round(barWidth))
+					.write("\" height=\"").write(round(barHeight))
+					.write("\" fill=\"").write(COLORS[meter]).write("\"/>\n");
+			}
+			writer.write("<text x=\"").write(round(groupX + groupWidth * 0.4))
+				.write("\" y=\"").write(String.valueOf(HEIGHT - BOTTOM + 15))
+				.write("\" font-size=\"10\" text-anchor=\"middle\">").write(escape(timeUnits.get(unit))).write("</text>\n");
+		}
+		writeLegend(writer);
+		writer.write("</svg>\n");
+	}
+
+	/**
+	 * @message writeTimeChart
+	 * @brief Writes a line chart of the total (kitchen + laundry + ac) consumption of the source records in time order,
+	 * 			downsampled to the most points of the renderer; nothing is written if the result has no records.
+	 * 			The records of every time unit are usually in time order already, so they are merged straight into the
+	 * 			downsampler through a heap of time units; only a result with unordered records is sorted first
+	 * @param report the formatted values of the result
+	 * @param writer the writer of the report file
+	 * @throws IOException if the writer fails
+	 */
+	public void writeTimeChart(PreparedReport report, ReportWriter writer) throws IOException {
+		ArrayList<ArrayList<MeasurementRecord>> units = new ArrayList<>(report.getResult().getDetailedResults().values());
+		int size = 0;
+		boolean ordered = true;
+		for(ArrayList<MeasurementRecord> unit : units) {
+			size += unit.size();
+			for(int i = 1; i < unit.size() && ordered; i++)
+				ordered = unit.get(i - 1).getEpochMinute() <= unit.get(i).getEpochMinute();
+		}
+		if(size < 2)
+			return;
+
+		LttbDownsampler downsampler = new LttbDownsampler(maxPoints, size);
+		long[] ends = ordered ? mergeUnits(units, downsampler) : sortUnits(units, size, downsampler);
+		long firstMinute = ends[0];
+		long lastMinute = ends[1];
+		double span = Math.max(1, lastMinute - firstMinute);
+		double max = 0.0;
+		for(int i = 0; i < downsampler.getSize(); i++)
+			if(Double.isFinite(downsampler.getY(i)))
+				max = Math.max(max, downsampler.getY(i));
+		if(max == 0.0)
+			max = 1.0;
+
+		double plotWidth = WIDTH - LEFT - RIGHT;
+		double plotHeight = HEIGHT - TOP - BOTTOM;
+
+		writeOpening(writer);
+		writeAxes(writer, max);
+		writer.write("<polyline fill=\"none\" stroke=\"").write(COLORS[0]).write("\" stroke-width=\"1\" points=\"");
+		for(int i = 0; i < downsampler.getSize(); i++) {
+			double y = Double.isFinite(downsampler.getY(i)) ? downsampler.getY(i) : 0.0;
+			writer.write(round(LEFT + (downsampler.getX(i) - firstMinute) / span * plotWidth)).write(",")
+				.write(round(TOP + plotHeight - y / max * plotHeight)).write(" ");
+		}
+		writer.write("\"/>\n");
+
+		writer.write("<text x=\"").write(String.valueOf(LEFT)).write("\" y=\"").write(String.valueOf(HEIGHT - BOTTOM + 15))
+			.write("\" font-size=\"10\">").write(EpochTimeModel.format(firstMinute, true)).write("</text>\n");
+		writer.write("<text x=\"").write(String.valueOf(WIDTH - RIGHT)).write("\" y=\"").write(String.valueOf(HEIGHT - BOTTOM + 15))
+			.write("\" font-size=\"10\" text-anchor=\"end\">").write(EpochTimeModel.format(lastMinute, true)).write("</text>\n");
+		writer.write("<text x=\"").write(String.valueOf(WIDTH / 2)).write("\" y=\"").write(String.valueOf(HEIGHT - 10))
+			.write("\" font-size=\"11\" text-anchor=\"middle\">Total of Kitchen, Laundry and A/C (")
+			.write(String.valueOf(downsampler.getSize())).write(" of ").write(String.valueOf(size)).write(" points)</text>\n");
+		writer.write("</svg>\n");
+	}
+
+	/**
+	 * @message mergeUnits
+	 * @brief Feeds the downsampler with the records of time units that are each in time order, through a min heap of
+	 * 			time units keyed by the minute of their next record
+	 * @param units the records of every time unit
+	 * @param downsampler the downsampler of the chart
+	 * @return the first and the last minute
+	 */
+	private static long[] mergeUnits(ArrayList<ArrayList<MeasurementRecord>> units, LttbDownsampler downsampler) {
+		int[] cursors = new int[units.size()];
+		long[] heads = new long[units.size()];
+		int[] heap = new int[units.size()];
+		int size = 0;
+		for(int unit = 0; unit < units.size(); unit++)
+			if(!units.get(unit).isEmpty()) {
+				heads[unit] = units.get(unit).get(0).getEpochMinute();
+				heap[size++] = unit;
+			}
+		for(int i = size / 2 - 1; i >= 0; i--)
+			siftDown(heap, size, i, heads);
+
+		long[] ends = {heads[heap[0]], 0};
+		while(size > 0) {
+			int unit = heap[0];
+			MeasurementRecord record = units.get(unit).get(cursors[unit]++);
+			downsampler.add(heads[unit], record.getSub_metering_1() + record.getSub_metering_2() + record.getSub_metering_3());
+			ends[1] = heads[unit];
+
+			if(cursors[unit] < units.get(unit).size())
+				heads[unit] = units.get(unit).get(cursors[unit]).getEpochMinute();
+			else
+				heap[0] = heap[--size];
+			siftDown(heap, size, 0, heads);
+		}
+		return ends;
+	}
+
+	/**
+	 * @message sortUnits
+	 * @brief Feeds the downsampler with the records of time units that are not in time order, sorting their positions
+	 * @param units the records of every time unit
+	 * @param size the number of records
+	 * @param downsampler the downsampler of the chart
+	 * @return the first and the last minute
+	 */
+	private static long[] sortUnits(ArrayList<ArrayList<MeasurementRecord>> units, int size, LttbDownsampler downsampler) {
+		/* Sort (minute, position) pairs packed into longs, which avoids boxing and comparators */
+		int[] offsets = new int[units.size() + 1];
+		long[] keys = new long[size];
+		for(int unit = 0, k = 0; unit < units.size(); unit++) {
+			offsets[unit + 1] = offsets[unit] + units.get(unit).size();
+			for(MeasurementRecord record : units.get(unit))
+				keys[k] = (record.getEpochMinute() << 32) | k++;
+		}
+		Arrays.sort(keys);
+
+		for(long key : keys) {
+			int position = (int)key;
+			/* The last time unit starting at or before the position, which is never an empty one */
+			int unit = 0;
+			for(int high = units.size() - 1; unit < high; ) {
+				int middle = (unit + high + 1) >>> 1;
+				if(offsets[middle] <= position)
+					unit = middle;
+				else
+					high = middle - 1;
+			}
+			MeasurementRecord record = units.get(unit).get(position - offsets[unit]);
+			downsampler.add(key >> 32, record.getSub_metering_1() + record.getSub_metering_2() + record.getSub_metering_3());
+		}
+		return new long[]{keys[0] >> 32, keys[size - 1] >> 32};
+	}
+
+	/* Equal minutes come from earlier time units first */
+	private static void siftDown(int[] heap, int size, int i, long[] heads) {
+		while(true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if(left < size && before(heap[left], heap[smallest], heads))
+				smallest = left;
+			if(right < size && before(heap[right], heap[smallest], heads))
+				smallest = right;
+			if(smallest == i)
+				return;
+			int swap = heap[i];
+			heap[i] = heap[smallest];
+			heap[smallest] = swap;
+			i = smallest;
+		}
+	}
+
+	private static boolean before(int a, int b, long[] heads) {
+		return heads[a] < heads[b] || (heads[a] == heads[b] && a < b);
+	}
+
+	private void writeOpening(ReportWriter writer) throws IOException {
+		writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").write(String.valueOf(WIDTH))
+			.write("\" height=\"").write(String.valueOf(HEIGHT))
+			.write("\" viewBox=\"0 0 ").write(String.valueOf(WIDTH)).write(" ").write(String.valueOf(HEIGHT)).write("\">\n");
+	}
+
+	/**
+	 * @message writeAxes
+	 * @brief Writes the two axes of the plot area, with the zero and the maximum marked on the vertical one
+	 * @param writer the writer of the report file
+	 * @param max the value at the top of the plot area
+	 * @throws IOException if the writer fails
+	 */
+	private void writeAxes(ReportWriter writer, double max) throws IOException {
+		int bottom = HEIGHT - BOTTOM;
+		writer.write("<path d=\"M").write(String.valueOf(LEFT)).write(" ").write(String.valueOf(TOP))
+			.write(" V").write(String.valueOf(bottom)).write(" H").write(String.valueOf(WIDTH - RIGHT))
+			.write("\" stroke=\"#333\" fill=\"none\"/>\n");
+		writer.write("<text x=\"").write(String.valueOf(LEFT - 5)).write("\" y=\"").write(String.valueOf(TOP + 4))
+			.write("\" font-size=\"10\" text-anchor=\"end\">").write(round(max)).write("</text>\n");
+		writer.write("<text x=\"").write(String.valueOf(LEFT - 5)).write("\" y=\"").write(String.valueOf(bottom))
+			.write("\" font-size=\"10\" text-anchor=\"end\">0</text>\n");
+	}
+
+	private void writeLegend(ReportWriter writer) throws IOException {
+		for(int meter = 0; meter < METERS.length; meter++) {
+			int x = LEFT + meter * 90;
+			writer.write("<rect x=\"").write(String.valueOf(x)).write("\" y=\"").write(String.valueOf(HEIGHT - 20))
+				.write("\" width=\"10\" height=\"10\" fill=\"").write(COLORS[meter]).write("\"/>\n");
+			writer.write("<text x=\"").write(String.valueOf(x + 14)).write("\" y=\"").write(String.valueOf(HEIGHT - 11))
+				.write("\" font-size=\"11\">").write(METERS[meter]).write("</text>\n");
+		}
+	}
+
+	/* Coordinates are written with one decimal, which is enough for the screen and keeps the charts small */
+	private static String round(double value) {
+		return String.valueOf(Math.round(value * 10.0) / 10.0);
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
@@ -1,7 +1,11 @@
 package timeaggregation;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 
+import datamodel.BucketSchemeModel;
 import datamodel.IResult;
 import datamodel.ResultModel;
 import datamodel.MeasurementRecord;
@@ -10,20 +14,25 @@ import datamodel.TimeUnitMappingModel;
 /**
  * @class Aggregator
  * @brief Implements the IAggregator interface and its base functions
- *          primarily dealing with producing data aggregations
+ *          primarily dealing with producing data aggregations.
+ *          Aggregations that are given their time unit type keep no state of their own, so several of them can run at once
  */
 public class Aggregator implements IAggregator {
     /**
-     * timeUnitType -> The time unit we want to use for aggregations
-     * result -> The ResultModel that will contain the aggregated by time unit results
+     * timeUnitType -> The time unit used by the aggregations of IAggregator, which are not given one
      * unitMap -> A map that connects time models with time units
+     * bucketSchemes -> The user defined bucket schemes, by name, that extend the built in time units
+     * anomalyDetector -> An optional detector that inspects every record during the same pass (null when disabled); every
+     *          aggregation is a pass of its own and its anomalies are kept in its result
      */
     private String timeUnitType;
-    private ResultModel result;
     private final TimeUnitMappingModel unitMap;
+    private final ConcurrentHashMap<String, BucketSchemeModel> bucketSchemes;
+    private volatile AnomalyDetector anomalyDetector;
 
     public Aggregator() {
         this.unitMap = new TimeUnitMappingModel();
+        this.bucketSchemes = new ConcurrentHashMap<>();
     }
 
     /**
@@ -36,20 +45,48 @@ public class Aggregator implements IAggregator {
 	 */
     @Override
     public IResult aggregateByTimeUnit(ArrayList<MeasurementRecord> inputMeasurements, String aggFunction, String description) {
-        result = new ResultModel();
-        
+        return aggregateByTimeUnit(inputMeasurements, timeUnitType, aggFunction, description);
+    }
+
+    /**
+     * @message aggregateByTimeUnit
+     * @brief Aggregates measurements by the given time unit type, without touching the time unit type of the aggregator
+     * @param inputMeasurements the measurements to be aggregated
+     * @param timeUnitType the time unit type or the name of a bucket scheme
+     * @param aggFunction a String representing the aggregate function (avg, sum, ...) to be applied to the input (ONLY USED TO BE PASSED THROUGH TO THE RESULT MODEL)
+     * @param description a String with a textual description of the result (ONLY USED TO BE PASSED THROUGH TO THE RESULT MODEL)
+     * @return A IResult object where the input is aggregated by time period, or null if sth goes wrong
+     */
+    public IResult aggregateByTimeUnit(ArrayList<MeasurementRecord> inputMeasurements, String timeUnitType, String aggFunction, String description) {
+        ResultModel result = new ResultModel();
         result.setAggregateFunction(aggFunction);
         result.setDescription(description);
 
-        switch(timeUnitType) {
+        /* The detector is fed one aggregation at a time, each from a fresh start */
+        AnomalyDetector detector = anomalyDetector;
+        if(detector == null)
+            return aggregate(inputMeasurements, timeUnitType, result, null);
+        synchronized(detector) {
+            detector.reset();
+            result.setAnomalies(detector.getAnomalies());
+            return aggregate(inputMeasurements, timeUnitType, result, detector);
+        }
+    }
+
+    private IResult aggregate(ArrayList<MeasurementRecord> inputMeasurements, String timeUnitType, ResultModel result, AnomalyDetector detector) {
+        switch((timeUnitType == null) ? "" : timeUnitType) {
             case "season":
-                return aggregateBySeason(inputMeasurements);
+                return aggregateBySeason(inputMeasurements, result, detector);
             case "month":
-                return aggregateByMonth(inputMeasurements);
+                return aggregateByMonth(inputMeasurements, result, detector);
             case "dayofweek":
-                return aggregateByDayOfWeek(inputMeasurements);
+                return aggregateByDayOfWeek(inputMeasurements, result, detector);
             case "periodofday":
-                return aggregateByPeriodOfDay(inputMeasurements);
+                return aggregateByPeriodOfDay(inputMeasurements, result, detector);
+            default:
+                BucketSchemeModel scheme = (timeUnitType == null) ? null : bucketSchemes.get(timeUnitType);
+                if(scheme != null)
+                    return aggregateByScheme(inputMeasurements, scheme, result, detector);
         }
 
         System.out.println("The aggregator function input was invalid");
@@ -60,26 +97,31 @@ public class Aggregator implements IAggregator {
      * @message aggregateByPeriodOfDay
      * @brief Aggregate the input measurements by period of day, mapping specific hours to day periods
      * @param inputMeasurements The data to be aggregated
+     * @param result The ResultModel the records are added to
+     * @param detector The anomaly detector inspecting the records, or null
      * @return The ResultModel of the aggregated data
      */
-    private IResult aggregateByPeriodOfDay(ArrayList<MeasurementRecord> inputMeasurements) {
+    private IResult aggregateByPeriodOfDay(ArrayList<MeasurementRecord> inputMeasurements, ResultModel result, AnomalyDetector detector) {
         for(MeasurementRecord record : inputMeasurements) {
             /* For each record in inputMeasurements get the hour
                 value and use the mapped version of it as a key for the record */
             result.add(unitMap.getPeriodOfDay().get(record.getTime().getHour()), record);
+            inspect(detector, record);
         }
 
         result.calculateResult();
-        return this.result;
+        return result;
     }
 
     /**
      * @message aggregateByDayOfWeek
      * @brief Aggregate the input measurements by day of week, mapping specific day encoding values to day names
      * @param inputMeasurements The data to be aggregated
+     * @param result The ResultModel the records are added to
+     * @param detector The anomaly detector inspecting the records, or null
      * @return The Result<Model of the aggregated data
      */
-    private IResult aggregateByDayOfWeek(ArrayList<MeasurementRecord> inputMeasurements) {
+    private IResult aggregateByDayOfWeek(ArrayList<MeasurementRecord> inputMeasurements, ResultModel result, AnomalyDetector detector) {
         /* We first need to map our encoding of week days with the days in a month */
         /* Once we find a specific day's name (Monday, Tuesday..) we calculate the margin to shift */
         for(MeasurementRecord record : inputMeasurements) {
@@ -89,38 +131,145 @@ public class Aggregator implements IAggregator {
 
             /* Call findDayOfWeek so that our table matches the real dates */
             result.add(unitMap.getDays().get(findDayOfWeek(day, month, year)), record);
+            inspect(detector, record);
         }
         
         result.calculateResult();
-        return this.result;
+        return result;
     }
 
     /**
      * @message aggregateByMonth
      * @brief Aggregate the input measurements by month, mapping specific month encoding values to month names
      * @param inputMeasurements The data to be aggregated
+     * @param result The ResultModel the records are added to
+     * @param detector The anomaly detector inspecting the records, or null
      * @return The ResultModel of the aggregated data
      */
-    private IResult aggregateByMonth(ArrayList<MeasurementRecord> inputMeasurements) {
-        for(MeasurementRecord record : inputMeasurements)
+    private IResult aggregateByMonth(ArrayList<MeasurementRecord> inputMeasurements, ResultModel result, AnomalyDetector detector) {
+        for(MeasurementRecord record : inputMeasurements) {
             result.add(unitMap.getMonths().get(record.getDate().getMonth()), record);
+            inspect(detector, record);
+        }
 
         result.calculateResult();        
-        return this.result;
+        return result;
     }
 
     /**
      * @message aggregateBySeason
      * @brief Aggregate the input measurements by season, mapping specific month encoding values to season names
      * @param inputMeasurements The data to be aggregated
+     * @param result The ResultModel the records are added to
+     * @param detector The anomaly detector inspecting the records, or null
      * @return The ResultModel of the aggregated data
      */
-    private IResult aggregateBySeason(ArrayList<MeasurementRecord> inputMeasurements) {
-        for(MeasurementRecord record : inputMeasurements)
+    private IResult aggregateBySeason(ArrayList<MeasurementRecord> inputMeasurements, ResultModel result, AnomalyDetector detector) {
+        for(MeasurementRecord record : inputMeasurements) {
             result.add(unitMap.getSeasons().get(record.getDate().getMonth()), record);
+            inspect(detector, record);
+        }
 
         result.calculateResult();        
-        return this.result;
+        return result;
+    }
+
+    /**
+     * @message aggregateByScheme
+     * @brief Aggregate the input measurements by a user defined bucket scheme, using its compiled lookup table
+     * @param inputMeasurements The data to be aggregated
+     * @param scheme The compiled bucket scheme
+     * @param result The ResultModel the records are added to
+     * @param detector The anomaly detector inspecting the records, or null
+     * @return The ResultModel of the aggregated data
+     */
+    private IResult aggregateByScheme(ArrayList<MeasurementRecord> inputMeasurements, BucketSchemeModel scheme, ResultModel result, AnomalyDetector detector) {
+        for(MeasurementRecord record : inputMeasurements) {
+            int bucketId = scheme.lookup(record);
+            /* Records outside of every bucket of the scheme are left out */
+            if(bucketId != -1)
+                result.add(scheme.getBucketName(bucketId), record);
+            inspect(detector, record);
+        }
+
+        result.calculateResult();
+        return result;
+    }
+
+    /**
+     * @message isTimeUnitType
+     * @brief Checks whether records can be grouped by a time unit type
+     * @param timeUnitType The time unit type
+     * @return true for the built in time units and the registered bucket schemes
+     */
+    public boolean isTimeUnitType(String timeUnitType) {
+        switch(timeUnitType) {
+            case "season":
+            case "month":
+            case "dayofweek":
+            case "periodofday":
+                return true;
+        }
+        return bucketSchemes.containsKey(timeUnitType);
+    }
+
+    /**
+     * @message isConstantOverDays
+     * @brief Checks whether every minute of a day falls in the same time unit, so that whole days can be grouped by it
+     * @param timeUnitType The time unit type
+     * @return false for the period of day and for the bucket schemes whose buckets split days; true otherwise
+     */
+    public boolean isConstantOverDays(String timeUnitType) {
+        switch(timeUnitType) {
+            case "season":
+            case "month":
+            case "dayofweek":
+                return true;
+            case "periodofday":
+                return false;
+        }
+        BucketSchemeModel scheme = bucketSchemes.get(timeUnitType);
+        return scheme != null && scheme.isConstantOverDays();
+    }
+
+    /**
+     * @message findTimeUnit
+     * @brief Finds the time unit a record falls in, for a time unit type (read only, safe to call from several threads)
+     * @param timeUnitType The time unit type or the name of a bucket scheme
+     * @param record The record
+     * @return the name of the time unit, or null if the record falls in none or the time unit type is invalid
+     */
+    public String findTimeUnit(String timeUnitType, MeasurementRecord record) {
+        switch(timeUnitType) {
+            case "season":
+                return unitMap.getSeasons().get(record.getDate().getMonth());
+            case "month":
+                return unitMap.getMonths().get(record.getDate().getMonth());
+            case "dayofweek":
+                return unitMap.getDays().get(findDayOfWeek(
+                    Integer.parseInt(record.getDate().getDay()),
+                    Integer.parseInt(record.getDate().getMonth()),
+                    Integer.parseInt(record.getDate().getYear())));
+            case "periodofday":
+                return unitMap.getPeriodOfDay().get(record.getTime().getHour());
+        }
+
+        BucketSchemeModel scheme = bucketSchemes.get(timeUnitType);
+        if(scheme == null)
+            return null;
+        int bucketId = scheme.lookup(record);
+        return (bucketId == -1) ? null : scheme.getBucketName(bucketId);
+    }
+
+    /**
+     * @message inspect
+     * @brief Hands a record to the anomaly detector, if one is attached, while it is being aggregated
+     * @param detector The anomaly detector of the aggregation, or null
+     * @param record The record being aggregated
+     */
+    private static void inspect(AnomalyDetector detector, MeasurementRecord record) {
+        if(detector != null)
+            detector.observe(record);
     }
 
     /**
@@ -142,4 +291,42 @@ public class Aggregator implements IAggregator {
     public void setTimeUnitType(String timeUnitType) {
         this.timeUnitType = timeUnitType;
     }
+
+    /**
+     * @message addBucketScheme
+     * @brief Registers a user defined bucket scheme so that its name can be used as a time unit type
+     * @param scheme The compiled bucket scheme
+     * @return 0 if the scheme was registered; -1 if its name clashes with a built in time unit
+     */
+    public int addBucketScheme(BucketSchemeModel scheme) {
+        return addBucketSchemes(Collections.singletonList(scheme));
+    }
+
+    /**
+     * @message addBucketSchemes
+     * @brief Registers several bucket schemes at once: either all of them or, if any name clashes with a built in
+     *          time unit, none of them
+     * @param schemes The compiled bucket schemes
+     * @return 0 if the schemes were registered; -1 otherwise
+     */
+    public int addBucketSchemes(Collection<BucketSchemeModel> schemes) {
+        for(BucketSchemeModel scheme : schemes)
+            switch(scheme.getName()) {
+                case "season":
+                case "month":
+                case "dayofweek":
+                case "periodofday":
+                    System.out.println("The bucket scheme can not replace the built in time unit " + scheme.getName());
+                    return -1;
+            }
+        for(BucketSchemeModel scheme : schemes)
+            bucketSchemes.put(scheme.getName(), scheme);
+        return 0;
+    }
+    public AnomalyDetector getAnomalyDetector() {
+        return this.anomalyDetector;
+    }
+    public void setAnomalyDetector(AnomalyDetector anomalyDetector) {
+        this.anomalyDetector = anomalyDetector;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package timeaggregation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import datamodel.AnomalyListModel;
+import datamodel.EpochTimeModel;
+import datamodel.MeasurementRecord;
+
+/**
+ * @class AnomalyDetector
+ * @brief Flags abnormal spikes and stuck meters in a single pass over the measurements.
+ *          Running statistics are kept per day of week x period of day bucket and per meter,
+ *          so a reading is only compared with the readings taken at similar times.
+ *          Every pass starts from reset(), so a dataset that is aggregated again (or a filtered part of it) is not
+ *          counted twice. Stuck runs are followed per series (household) and expect the records of a series in time
+ *          order: a record that does not move forward in time starts the runs of its series again
+ */
+public class AnomalyDetector {
+    /**
+     * NUM_METERS -> kitchen, laundry, ac
+     * NUM_PERIODS -> the five periods of day (NIGHT, EARLY MORNING, MORNING, AFTERNOON, EVENING)
+     * NUM_BUCKETS -> every day of week combined with every period of day
+     * PERIOD_OF_HOUR -> maps an hour [0-23] to its period of day, as in TimeUnitMappingModel
+     *
+     * method -> the way a reading is scored ("zscore" on the running mean and variance, "mad" on a running median and absolute deviation)
+     * threshold -> the score above which a reading is flagged
+     * minSamples -> the readings a bucket needs before any of them gets flagged
+     * minScale -> the smallest spread a bucket may have, so that a flat bucket (e.g. a kitchen that is mostly off) does not flag every change
+     * stuckRun -> the number of identical consecutive non zero readings after which a meter counts as stuck
+     * counts -> the readings seen per bucket
+     * means, m2s -> the Welford running mean and sum of squared deviations per bucket and meter
+     * medians, mads -> the streaming estimates of the median and the median absolute deviation per bucket and meter
+     * runs -> the stuck runs of every series, by series id
+     * maxAnomalies -> the most anomalies a pass keeps
+     * anomalies -> the bounded list of the readings flagged since the last reset
+     */
+    private static final int NUM_METERS = 3;
+    private static final int NUM_PERIODS = 5;
+    private static final int NUM_BUCKETS = 7 * NUM_PERIODS;
+    private static final int[] PERIOD_OF_HOUR = {
+        0, 0, 0, 0, 0,
+        1, 1, 1, 1,
+        2, 2, 2, 2,
+        3, 3, 3, 3,
+        4, 4, 4, 4,
+        0, 0, 0
+    };
+
+    private final String method;
+    private final double threshold;
+    private int minSamples = 30;
+    private double minScale = 1.0;
+    private int stuckRun = 120;
+    private final long[] counts;
+    private final double[] means;
+    private final double[] m2s;
+    private final double[] medians;
+    private final double[] mads;
+    private final HashMap<Integer, SeriesRuns> runs;
+    private final int maxAnomalies;
+    private AnomalyListModel anomalies;
+
+    /**
+     * @class SeriesRuns
+     * @brief The last reading of each meter of a series, how many times in a row it has repeated and when it was taken
+     */
+    private static final class SeriesRuns {
+        final double[] lastValues = new double[NUM_METERS];
+        final int[] runLengths = new int[NUM_METERS];
+        long lastMinute = Long.MIN_VALUE;
+    }
+
+    public AnomalyDetector(String method, double threshold, int maxAnomalies) {
+        this.method = method;
+        this.threshold = threshold;
+        this.counts = new long[NUM_BUCKETS];
+        this.means = new double[NUM_BUCKETS * NUM_METERS];
+        this.m2s = new double[NUM_BUCKETS * NUM_METERS];
+        this.medians = new double[NUM_BUCKETS * NUM_METERS];
+        this.mads = new double[NUM_BUCKETS * NUM_METERS];
+        this.runs = new HashMap<>();
+        this.maxAnomalies = maxAnomalies;
+        this.anomalies = new AnomalyListModel(maxAnomalies);
+    }
+
+    /**
+     * @message reset
+     * @brief Forgets the statistics, the runs and the anomalies of the previous pass. The anomalies of that pass
+     *          are left in their own list, so a result that holds them keeps them
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(means, 0.0);
+        Arrays.fill(m2s, 0.0);
+        Arrays.fill(medians, 0.0);
+        Arrays.fill(mads, 0.0);
+        runs.clear();
+        anomalies = new AnomalyListModel(maxAnomalies);
+    }
+
+    /**
+     * @message observe
+     * @brief Scores a reading against its bucket, flags it if needed and then folds it into the running statistics
+     * @param record The measurement to inspect
+     */
+    public void observe(MeasurementRecord record) {
+        long epochMinute = record.getEpochMinute();
+        int hour = (int)(Math.floorMod(epochMinute, EpochTimeModel.MINUTES_PER_DAY) / EpochTimeModel.MINUTES_PER_HOUR);
+        int bucket = EpochTimeModel.dayOfWeek(epochMinute) * NUM_PERIODS + PERIOD_OF_HOUR[hour];
+
+        SeriesRuns series = runs.computeIfAbsent(record.getSeriesId(), id -> new SeriesRuns());
+        /* A run only goes on while the series moves forward in time */
+        if(epochMinute <= series.lastMinute)
+            Arrays.fill(series.runLengths, 0);
+        series.lastMinute = epochMinute;
+
+        long n = ++counts[bucket];
+        observeMeter(epochMinute, record.getSeriesId(), series, bucket, n, 0, record.getSub_metering_1());
+        observeMeter(epochMinute, record.getSeriesId(), series, bucket, n, 1, record.getSub_metering_2());
+        observeMeter(epochMinute, record.getSeriesId(), series, bucket, n, 2, record.getSub_metering_3());
+    }
+
+    /**
+     * @message observeMeter
+     * @brief Scores and folds a single meter reading
+     * @param epochMinute The time of the reading
+     * @param seriesId The series the reading belongs to
+     * @param series The stuck runs of the series
+     * @param bucket The day of week x period of day bucket
+     * @param n The number of readings in the bucket including this one
+     * @param meter The meter id
+     * @param value The reading
+     */
+    private void observeMeter(long epochMinute, int seriesId, SeriesRuns series, int bucket, long n, int meter, double value) {
+        int slot = bucket * NUM_METERS + meter;
+
+        /* Stuck meter: the same non zero reading over and over */
+        if(value != 0.0 && value == series.lastValues[meter] && series.runLengths[meter] > 0) {
+            if(++series.runLengths[meter] == stuckRun)
+                anomalies.add(epochMinute, seriesId, meter, AnomalyListModel.KIND_STUCK, value, stuckRun);
+        }
+        else
+            series.runLengths[meter] = 1;
+        series.lastValues[meter] = value;
+
+        /* Score against what the bucket has seen so far, before this reading is folded in */
+        if(n > minSamples) {
+            double score = score(slot, n - 1, value);
+            if(Math.abs(score) > threshold)
+                anomalies.add(epochMinute, seriesId, meter, AnomalyListModel.KIND_SPIKE, value, Math.abs(score));
+        }
+
+        /* Welford update of the running mean and variance */
+        double delta = value - means[slot];
+        means[slot] += delta / n;
+        m2s[slot] += delta * (value - means[slot]);
+
+        /* Frugal streaming update of the median and the absolute deviation around it */
+        if(n == 1) {
+            medians[slot] = value;
+            mads[slot] = 0.0;
+        }
+        else {
+            double step = Math.max(mads[slot], 1e-3) / 8.0;
+            medians[slot] += Math.signum(value - medians[slot]) * step;
+            mads[slot] += Math.signum(Math.abs(value - medians[slot]) - mads[slot]) * step;
+        }
+    }
+
+    /**
+     * @message score
+     * @brief Scores how far a reading lies from the usual readings of its bucket
+     * @param slot The bucket x meter slot
+     * @param n The number of readings already folded in the slot
+     * @param value The reading
+     * @return the z-score or the robust (MAD based) score
+     */
+    private double score(int slot, long n, double value) {
+        if(method.equals("mad")) {
+            /* 1.4826 scales the MAD to the standard deviation of a normal distribution */
+            double scale = Math.max(1.4826 * mads[slot], minScale);
+            return (value - medians[slot]) / scale;
+        }
+
+        double deviation = Math.max(Math.sqrt(m2s[slot] / (n - 1)), minScale);
+        return (value - means[slot]) / deviation;
+    }
+
+    public AnomalyListModel getAnomalies() {
+        return this.anomalies;
+    }
+
+    public String getMethod() {
+        return this.method;
+    }
+    public double getThreshold() {
+        return this.threshold;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+    public void setMinScale(double minScale) {
+        this.minScale = minScale;
+    }
+    public void setStuckRun(int stuckRun) {
+        this.stuckRun = stuckRun;
+    }
+}
@@ -0,0 +1,117 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.Function;
+
+import datamodel.CoMomentModel;
+import datamodel.ColumnStoreModel;
+import datamodel.CorrelationResultModel;
+import datamodel.MeasurementRecord;
+
+/**
+ * @class CorrelationAggregator
+ * @brief Accumulates the co-moments of the selected columns per time unit in one pass.
+ *          Partitions of the input are accumulated in parallel and merged at the end
+ */
+public class CorrelationAggregator {
+    /**
+     * COLUMNS -> the columns that can be selected
+     *
+     * columns -> the selected columns
+     * partitions -> the number of partitions accumulated in parallel
+     */
+    public static final String[] COLUMNS = ColumnStoreModel.COLUMNS;
+
+    private final String[] columns;
+    private final int partitions;
+
+    public CorrelationAggregator(String[] columns, int partitions) {
+        this.columns = columns;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    /**
+     * @message readColumn
+     * @brief Reads a column of a record
+     * @param record The record
+     * @param column The column name (one of COLUMNS)
+     * @return the value
+     */
+    public static double readColumn(MeasurementRecord record, String column) {
+        switch(column) {
+            case "kitchen":
+                return record.getSub_metering_1();
+            case "laundry":
+                return record.getSub_metering_2();
+            case "ac":
+                return record.getSub_metering_3();
+            case "active":
+                return record.getGlobal_active_power();
+            case "reactive":
+                return record.getGlobal_reactive_power();
+            case "voltage":
+                return record.getVoltage();
+            case "intensity":
+                return record.getGlobal_intensity();
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * @message aggregate
+     * @brief Accumulates the partitions in parallel and merges their co-moments
+     * @param inputMeasurements The data to be accumulated
+     * @param timeUnitOf Finds the time unit of a record
+     * @param description a String with a textual description of the result
+     * @return the co-moments of every time unit, or null if a partition failed
+     */
+    public CorrelationResultModel aggregate(ArrayList<MeasurementRecord> inputMeasurements, Function<MeasurementRecord, String> timeUnitOf, String description) {
+        int[] bounds = PartitionExecutor.evenBounds(inputMeasurements.size(), partitions);
+        ArrayList<HashMap<String, CoMomentModel>> partials = PartitionExecutor.run(bounds,
+            (from, to) -> accumulatePartition(inputMeasurements, timeUnitOf, from, to));
+        if(partials == null) {
+            System.out.println("There was an error while accumulating the co-moments.");
+            return null;
+        }
+
+        HashMap<String, CoMomentModel> merged = new HashMap<>();
+        for(HashMap<String, CoMomentModel> partial : partials)
+            for(HashMap.Entry<String, CoMomentModel> entry : partial.entrySet()) {
+                CoMomentModel model = merged.get(entry.getKey());
+                if(model == null)
+                    merged.put(entry.getKey(), entry.getValue());
+                else
+                    model.merge(entry.getValue());
+            }
+
+        CorrelationResultModel result = new CorrelationResultModel(merged);
+        result.setDescription(description);
+        return result;
+    }
+
+    /**
+     * @message accumulatePartition
+     * @brief Fills the co-moments of a partition
+     * @param inputMeasurements The data to be accumulated
+     * @param timeUnitOf Finds the time unit of a record
+     * @param from The first row (included)
+     * @param to The last row (excluded)
+     * @return the co-moments of every time unit found in the partition
+     */
+    private HashMap<String, CoMomentModel> accumulatePartition(ArrayList<MeasurementRecord> inputMeasurements, Function<MeasurementRecord, String> timeUnitOf, int from, int to) {
+        HashMap<String, CoMomentModel> models = new HashMap<>();
+        double[] row = new double[columns.length];
+        for(int i = from; i < to; i++) {
+            MeasurementRecord record = inputMeasurements.get(i);
+            String timeUnit = timeUnitOf.apply(record);
+            if(timeUnit == null)
+                continue;
+
+            for(int c = 0; c < columns.length; c++)
+                row[c] = readColumn(record, columns[c]);
+            models.computeIfAbsent(timeUnit, key -> new CoMomentModel(columns)).add(row);
+        }
+        return models;
+    }
+}
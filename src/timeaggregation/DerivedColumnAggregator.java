@@ -0,0 +1,80 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+import datamodel.ColumnStoreModel;
+import datamodel.MeasurementRecord;
+
+/**
+ * @class DerivedColumnAggregator
+ * @brief Aggregates columns of a column store per time unit.
+ *          Every row is mapped to a time unit id once, then each column is folded into per unit sums
+ *          in a tight loop over its array
+ */
+public class DerivedColumnAggregator {
+    /**
+     * aggFunction -> the aggregate function (avg, sum)
+     */
+    private final String aggFunction;
+
+    public DerivedColumnAggregator(String aggFunction) {
+        this.aggFunction = aggFunction;
+    }
+
+    /**
+     * @message aggregate
+     * @brief Aggregates the given columns per time unit
+     * @param inputMeasurements The records behind the rows of the store, used to find their time units
+     * @param store The column store of the records
+     * @param columnNames The columns to aggregate
+     * @param timeUnitOf Finds the time unit of a record
+     * @return the aggregate of every time unit, by column name, or null if a column is missing
+     */
+    public LinkedHashMap<String, HashMap<String, Double>> aggregate(ArrayList<MeasurementRecord> inputMeasurements, ColumnStoreModel store,
+            Iterable<String> columnNames, Function<MeasurementRecord, String> timeUnitOf) {
+        /* Map every row to the id of its time unit (-1 when it has none) */
+        HashMap<String, Integer> unitIds = new HashMap<>();
+        ArrayList<String> unitNames = new ArrayList<>();
+        int[] rowUnits = new int[store.getSize()];
+        for(int i = 0; i < rowUnits.length; i++) {
+            String timeUnit = timeUnitOf.apply(inputMeasurements.get(i));
+            if(timeUnit == null) {
+                rowUnits[i] = -1;
+                continue;
+            }
+            Integer id = unitIds.get(timeUnit);
+            if(id == null) {
+                id = unitNames.size();
+                unitIds.put(timeUnit, id);
+                unitNames.add(timeUnit);
+            }
+            rowUnits[i] = id;
+        }
+
+        long[] counts = new long[unitNames.size()];
+        for(int unit : rowUnits)
+            if(unit != -1)
+                counts[unit]++;
+
+        LinkedHashMap<String, HashMap<String, Double>> aggregates = new LinkedHashMap<>();
+        for(String columnName : columnNames) {
+            double[] column = store.getColumn(columnName);
+            if(column == null)
+                return null;
+
+            double[] sums = new double[unitNames.size()];
+            for(int i = 0; i < column.length; i++)
+                if(rowUnits[i] != -1)
+                    sums[rowUnits[i]] += column[i];
+
+            HashMap<String, Double> meter = new HashMap<>();
+            for(int unit = 0; unit < sums.length; unit++)
+                meter.put(unitNames.get(unit), aggFunction.equals("avg") ? sums[unit] / (double)counts[unit] : sums[unit]);
+            aggregates.put(columnName, meter);
+        }
+        return aggregates;
+    }
+}
@@ -0,0 +1,113 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.Function;
+
+import datamodel.HistogramModel;
+import datamodel.MeasurementRecord;
+import datamodel.SummaryResultModel;
+
+/**
+ * @class HistogramAggregator
+ * @brief Builds the distribution of the readings of every meter per time unit.
+ *          The input is split into partitions counted in parallel, each with its own histograms, which are merged at the end
+ */
+public class HistogramAggregator {
+    /**
+     * METERS -> the meters, in the order of the histograms of a time unit
+     *
+     * min, max, numBins, log -> the binning of every histogram
+     * partitions -> the number of partitions counted in parallel
+     */
+    private static final String[] METERS = {"kitchen", "laundry", "ac"};
+
+    private final double min;
+    private final double max;
+    private final int numBins;
+    private final boolean log;
+    private final int partitions;
+
+    public HistogramAggregator(double min, double max, int numBins, boolean log, int partitions) {
+        this.min = min;
+        this.max = max;
+        this.numBins = numBins;
+        this.log = log;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    /**
+     * @message aggregate
+     * @brief Counts the partitions in parallel and merges their histograms
+     * @param inputMeasurements The data to be counted
+     * @param timeUnitOf Finds the time unit of a record
+     * @param description a String with a textual description of the result
+     * @return the counters of every bin per time unit and meter, or null if a partition failed
+     */
+    public SummaryResultModel aggregate(ArrayList<MeasurementRecord> inputMeasurements, Function<MeasurementRecord, String> timeUnitOf, String description) {
+        int[] bounds = PartitionExecutor.evenBounds(inputMeasurements.size(), partitions);
+        ArrayList<HashMap<String, HistogramModel[]>> partials = PartitionExecutor.run(bounds,
+            (from, to) -> countPartition(inputMeasurements, timeUnitOf, from, to));
+        if(partials == null) {
+            System.out.println("There was an error while counting the histograms.");
+            return null;
+        }
+
+        HashMap<String, HistogramModel[]> merged = new HashMap<>();
+        for(HashMap<String, HistogramModel[]> partial : partials)
+            for(HashMap.Entry<String, HistogramModel[]> entry : partial.entrySet()) {
+                HistogramModel[] histograms = merged.get(entry.getKey());
+                if(histograms == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                for(int meter = 0; meter < METERS.length; meter++)
+                    histograms[meter].merge(entry.getValue()[meter]);
+            }
+
+        /* One entry per time unit and bin, keyed by the position of the bin so that no two bins share a key */
+        SummaryResultModel result = new SummaryResultModel();
+        result.setDescription(description);
+        ArrayList<String> timeUnits = new ArrayList<>(merged.keySet());
+        Collections.sort(timeUnits);
+        for(String timeUnit : timeUnits)
+            for(int meter = 0; meter < METERS.length; meter++) {
+                HistogramModel histogram = merged.get(timeUnit)[meter];
+                for(int slot = 0; slot < histogram.getSlotCount(); slot++)
+                    result.putMeter(METERS[meter], timeUnit + " " + histogram.getSlotKey(slot), histogram.getCount(slot));
+            }
+        return result;
+    }
+
+    /**
+     * @message countPartition
+     * @brief Fills the histograms of a partition
+     * @param inputMeasurements The data to be counted
+     * @param timeUnitOf Finds the time unit of a record
+     * @param from The first row (included)
+     * @param to The last row (excluded)
+     * @return the histograms of every time unit found in the partition
+     */
+    private HashMap<String, HistogramModel[]> countPartition(ArrayList<MeasurementRecord> inputMeasurements, Function<MeasurementRecord, String> timeUnitOf, int from, int to) {
+        HashMap<String, HistogramModel[]> histograms = new HashMap<>();
+        for(int row = from; row < to; row++) {
+            MeasurementRecord record = inputMeasurements.get(row);
+            String timeUnit = timeUnitOf.apply(record);
+            if(timeUnit == null)
+                continue;
+
+            HistogramModel[] unitHistograms = histograms.get(timeUnit);
+            if(unitHistograms == null) {
+                unitHistograms = new HistogramModel[METERS.length];
+                for(int meter = 0; meter < METERS.length; meter++)
+                    unitHistograms[meter] = new HistogramModel(min, max, numBins, log);
+                histograms.put(timeUnit, unitHistograms);
+            }
+            unitHistograms[0].add(record.getSub_metering_1());
+            unitHistograms[1].add(record.getSub_metering_2());
+            unitHistograms[2].add(record.getSub_metering_3());
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,90 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @class PartitionExecutor
+ * @brief Runs a scan over contiguous row partitions on a bounded thread pool and collects the partial results,
+ *          which the calling aggregate then merges. The pool is shared by every scan and made once, with a thread
+ *          per core; partitions beyond that wait for a thread. Its threads are daemons, so they never hold the program open
+ */
+public class PartitionExecutor {
+    /**
+     * POOL -> the threads every scan runs on
+     */
+    private static final ExecutorService POOL = createPool();
+
+    /**
+     * @interface PartitionScan
+     * @brief Scans the rows [from, to) and returns a partial result
+     */
+    public interface PartitionScan<T> {
+        T scan(int from, int to);
+    }
+
+    private PartitionExecutor() {}
+
+    private static ExecutorService createPool() {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            Thread thread = new Thread(task, "partition-scan-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @message evenBounds
+     * @brief Splits rows into partitions of about equal size
+     * @param size The number of rows
+     * @param partitions The wanted number of partitions
+     * @return the first row of every partition followed by size
+     */
+    public static int[] evenBounds(int size, int partitions) {
+        int count = Math.max(1, Math.min(partitions, size));
+        int[] bounds = new int[count + 1];
+        for(int p = 0; p <= count; p++)
+            bounds[p] = (int)((long)size * p / count);
+        return bounds;
+    }
+
+    /**
+     * @message run
+     * @brief Scans the partitions on the shared pool
+     * @param bounds The first row of every partition followed by the number of rows
+     * @param scan The scan of a partition
+     * @return the partial results in partition order, or null if a partition failed or the caller was interrupted
+     */
+    public static <T> ArrayList<T> run(int[] bounds, PartitionScan<T> scan) {
+        ArrayList<Future<T>> futures = new ArrayList<>();
+        try {
+            for(int p = 0; p < bounds.length - 1; p++) {
+                int from = bounds[p];
+                int to = bounds[p + 1];
+                futures.add(POOL.submit(() -> scan.scan(from, to)));
+            }
+
+            ArrayList<T> partials = new ArrayList<>();
+            for(Future<T> future : futures)
+                partials.add(future.get());
+            return partials;
+        }
+        catch(InterruptedException e) {
+            /* Leave the interrupt for the caller to see */
+            Thread.currentThread().interrupt();
+            System.out.println("The scan of the partitions was interrupted.");
+        }
+        catch(ExecutionException e) {
+            System.out.println("The scan of a partition failed: " + e.getCause());
+        }
+        /* The other partitions are of no use any more */
+        for(Future<T> future : futures)
+            future.cancel(true);
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.Function;
+
+import datamodel.EpochTimeModel;
+import datamodel.MeasurementRecord;
+import datamodel.PeakResultModel;
+import datamodel.TimeIndexModel;
+import datamodel.TopKHeapModel;
+
+/**
+ * @class PeakFinder
+ * @brief Finds the K highest (or lowest) consumption minutes or days of every meter per time unit.
+ *          The time sorted rows are split into partitions scanned in parallel, each one filling a bounded heap per
+ *          time unit and meter, and the partial heaps are merged at the end, so nothing is sorted but the K winners
+ */
+public class PeakFinder {
+    /**
+     * NUM_METERS -> kitchen, laundry, ac
+     *
+     * k -> how many entries to keep per time unit and meter
+     * top -> whether to keep the highest (true) or the lowest (false) entries
+     * daily -> whether the entries are whole days (true, the daily sum of each meter) or single minutes (false)
+     * partitions -> the number of partitions scanned in parallel
+     */
+    private static final int NUM_METERS = 3;
+
+    private final int k;
+    private final boolean top;
+    private final boolean daily;
+    private final int partitions;
+
+    public PeakFinder(int k, boolean top, boolean daily, int partitions) {
+        this.k = k;
+        this.top = top;
+        this.daily = daily;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    /**
+     * @message findPeaks
+     * @brief Scans the partitions in parallel and merges their heaps
+     * @param index The time sorted dataset
+     * @param timeUnitOf Finds the time unit of a record (for days, of the first record of the day)
+     * @param description a String with a textual description of the result
+     * @return the merged peaks, or null if a partition failed
+     */
+    public PeakResultModel findPeaks(TimeIndexModel index, Function<MeasurementRecord, String> timeUnitOf, String description) {
+        int[] bounds = partitionBounds(index);
+        ArrayList<HashMap<String, TopKHeapModel[]>> partials = PartitionExecutor.run(bounds,
+            (from, to) -> scanPartition(index, timeUnitOf, from, to));
+        if(partials == null) {
+            System.out.println("There was an error while searching for the peaks.");
+            return null;
+        }
+
+        HashMap<String, TopKHeapModel[]> merged = new HashMap<>();
+        for(HashMap<String, TopKHeapModel[]> partial : partials)
+            for(HashMap.Entry<String, TopKHeapModel[]> entry : partial.entrySet()) {
+                TopKHeapModel[] heaps = merged.get(entry.getKey());
+                if(heaps == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                for(int meter = 0; meter < NUM_METERS; meter++)
+                    heaps[meter].merge(entry.getValue()[meter]);
+            }
+
+        PeakResultModel result = new PeakResultModel(merged, daily);
+        result.setDescription(description);
+        return result;
+    }
+
+    /**
+     * @message partitionBounds
+     * @brief Splits the rows into partitions of about equal size; for days, the bounds are moved so no day is split
+     * @param index The time sorted dataset
+     * @return the first row of every partition followed by the size of the dataset
+     */
+    private int[] partitionBounds(TimeIndexModel index) {
+        int size = index.getSize();
+        int count = Math.max(1, Math.min(partitions, size));
+        int[] bounds = new int[count + 1];
+        for(int p = 1; p < count; p++) {
+            int bound = Math.max(bounds[p - 1], (int)((long)size * p / count));
+            if(daily)
+                while(bound > 0 && bound < size && dayOf(index, bound) == dayOf(index, bound - 1))
+                    bound++;
+            bounds[p] = bound;
+        }
+        bounds[count] = size;
+        return bounds;
+    }
+
+    private static long dayOf(TimeIndexModel index, int row) {
+        return Math.floorDiv(index.getEpochMinute(row), EpochTimeModel.MINUTES_PER_DAY);
+    }
+
+    /**
+     * @message scanPartition
+     * @brief Fills the heaps of a partition
+     * @param index The time sorted dataset
+     * @param timeUnitOf Finds the time unit of a record
+     * @param from The first row (included)
+     * @param to The last row (excluded)
+     * @return the heaps of every time unit found in the partition
+     */
+    private HashMap<String, TopKHeapModel[]> scanPartition(TimeIndexModel index, Function<MeasurementRecord, String> timeUnitOf, int from, int to) {
+        HashMap<String, TopKHeapModel[]> heaps = new HashMap<>();
+        int row = from;
+        while(row < to) {
+            String timeUnit = timeUnitOf.apply(index.getRecord(row));
+
+            if(!daily) {
+                if(timeUnit != null) {
+                    TopKHeapModel[] unitHeaps = heapsOf(heaps, timeUnit);
+                    for(int meter = 0; meter < NUM_METERS; meter++)
+                        unitHeaps[meter].offer(index.getEpochMinute(row), index.getValue(meter, row));
+                }
+                row++;
+                continue;
+            }
+
+            /* Sum the rows of the day, which are consecutive since the rows are time sorted */
+            long day = dayOf(index, row);
+            double[] sums = new double[NUM_METERS];
+            while(row < to && dayOf(index, row) == day) {
+                for(int meter = 0; meter < NUM_METERS; meter++)
+                    sums[meter] += index.getValue(meter, row);
+                row++;
+            }
+            if(timeUnit != null) {
+                TopKHeapModel[] unitHeaps = heapsOf(heaps, timeUnit);
+                for(int meter = 0; meter < NUM_METERS; meter++)
+                    unitHeaps[meter].offer(day * EpochTimeModel.MINUTES_PER_DAY, sums[meter]);
+            }
+        }
+        return heaps;
+    }
+
+    private TopKHeapModel[] heapsOf(HashMap<String, TopKHeapModel[]> heaps, String timeUnit) {
+        TopKHeapModel[] unitHeaps = heaps.get(timeUnit);
+        if(unitHeaps == null) {
+            unitHeaps = new TopKHeapModel[NUM_METERS];
+            for(int meter = 0; meter < NUM_METERS; meter++)
+                unitHeaps[meter] = new TopKHeapModel(k, top);
+            heaps.put(timeUnit, unitHeaps);
+        }
+        return unitHeaps;
+    }
+}
@@ -0,0 +1,157 @@
+package timeaggregation;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import datamodel.EpochTimeModel;
+import datamodel.GapStatisticsModel;
+import datamodel.MeasurementRecord;
+
+/**
+ * @class Resampler
+ * @brief Resamples time ordered measurements to a regular grid of fixed size slots in a streaming pass.
+ *          Every slot is emitted as one record holding the mean of its readings. Slots without readings are
+ *          counted as gaps and filled by a policy: left empty ("empty"), repeating the last slot ("carry")
+ *          or interpolating linearly between the slots around the gap ("interpolate").
+ *          Only the open slot and the last emitted slot are kept in memory
+ */
+public class Resampler {
+    /**
+     * NUM_COLUMNS -> the numeric columns of a record
+     *
+     * resolution -> the length of a slot in minutes
+     * policy -> the fill policy (empty, carry, interpolate)
+     * sink -> receives the resampled records in time order
+     * statistics -> the gap statistics gathered so far
+     * openSlot -> the slot being accumulated (Long.MIN_VALUE before the first reading)
+     * sums, count -> the accumulated readings of the open slot
+     * lastSlot -> the last emitted slot that had readings (Long.MIN_VALUE before the first one)
+     * lastValues -> the values of the last emitted slot
+     */
+    private static final int NUM_COLUMNS = 7;
+
+    private final int resolution;
+    private final String policy;
+    private final Consumer<MeasurementRecord> sink;
+    private final GapStatisticsModel statistics;
+    private long openSlot = Long.MIN_VALUE;
+    private final double[] sums = new double[NUM_COLUMNS];
+    private int count = 0;
+    private long lastSlot = Long.MIN_VALUE;
+    private final double[] lastValues = new double[NUM_COLUMNS];
+
+    public Resampler(int resolution, String policy, Consumer<MeasurementRecord> sink) {
+        this.resolution = resolution;
+        this.policy = policy;
+        this.sink = sink;
+        this.statistics = new GapStatisticsModel(resolution);
+    }
+
+    /**
+     * @message accept
+     * @brief Feeds the next reading, closing the open slot when the reading starts a later one
+     * @param record The reading, not earlier than the previous one
+     */
+    public void accept(MeasurementRecord record) {
+        long slot = Math.floorDiv(record.getEpochMinute(), resolution);
+        if(openSlot != Long.MIN_VALUE && slot < openSlot) {
+            statistics.recordOutOfOrder();
+            return;
+        }
+        if(slot != openSlot) {
+            closeSlot();
+            openSlot = slot;
+        }
+
+        sums[0] += record.getSub_metering_1();
+        sums[1] += record.getSub_metering_2();
+        sums[2] += record.getSub_metering_3();
+        sums[3] += record.getGlobal_active_power();
+        sums[4] += record.getGlobal_reactive_power();
+        sums[5] += record.getVoltage();
+        sums[6] += record.getGlobal_intensity();
+        count++;
+    }
+
+    /**
+     * @message finish
+     * @brief Closes the last open slot, to be called after the last reading
+     * @return the gap statistics of the whole stream
+     */
+    public GapStatisticsModel finish() {
+        closeSlot();
+        openSlot = Long.MIN_VALUE;
+        return statistics;
+    }
+
+    /**
+     * @message closeSlot
+     * @brief Emits the open slot, filling the gap between it and the last emitted slot first
+     */
+    private void closeSlot() {
+        if(count == 0)
+            return;
+
+        double[] values = new double[NUM_COLUMNS];
+        for(int c = 0; c < NUM_COLUMNS; c++)
+            values[c] = sums[c] / count;
+
+        if(lastSlot != Long.MIN_VALUE && openSlot > lastSlot + 1)
+            fillGap(lastSlot + 1, openSlot, values);
+
+        emit(openSlot, values);
+        statistics.recordObservedSlot();
+        lastSlot = openSlot;
+        System.arraycopy(values, 0, lastValues, 0, NUM_COLUMNS);
+
+        Arrays.fill(sums, 0.0);
+        count = 0;
+    }
+
+    /**
+     * @message fillGap
+     * @brief Fills the missing slots [from, to) according to the policy
+     * @param from The first missing slot
+     * @param to The slot after the gap, which has readings
+     * @param nextValues The values of the slot after the gap
+     */
+    private void fillGap(long from, long to, double[] nextValues) {
+        boolean fill = !policy.equals("empty");
+        statistics.recordGap(from * resolution, to - from, fill);
+        if(!fill)
+            return;
+
+        double[] values = new double[NUM_COLUMNS];
+        for(long slot = from; slot < to; slot++) {
+            if(policy.equals("carry"))
+                System.arraycopy(lastValues, 0, values, 0, NUM_COLUMNS);
+            else {
+                double weight = (double)(slot - lastSlot) / (to - lastSlot);
+                for(int c = 0; c < NUM_COLUMNS; c++)
+                    values[c] = lastValues[c] + (nextValues[c] - lastValues[c]) * weight;
+            }
+            emit(slot, values);
+        }
+    }
+
+    /**
+     * @message emit
+     * @brief Hands a resampled slot to the sink as a record stamped at the start of the slot
+     * @param slot The slot
+     * @param values The values of every column
+     */
+    private void emit(long slot, double[] values) {
+        long epochMinute = slot * resolution;
+        MeasurementRecord record = new MeasurementRecord();
+        record.setDate(EpochTimeModel.createDateModel(epochMinute));
+        record.setTime(EpochTimeModel.createTimeModel(epochMinute));
+        record.setSub_metering_1(values[0]);
+        record.setSub_metering_2(values[1]);
+        record.setSub_metering_3(values[2]);
+        record.setGlobal_active_power(values[3]);
+        record.setGlobal_reactive_power(values[4]);
+        record.setVoltage(values[5]);
+        record.setGlobal_intensity(values[6]);
+        sink.accept(record);
+    }
+}
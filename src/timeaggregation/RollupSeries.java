@@ -0,0 +1,158 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import datamodel.MeasurementRecord;
+
+/**
+ * @class RollupSeries
+ * @brief Rolls measurements up into a regular series of fixed size time buckets (hourly, daily)
+ *          in a single pass, keeping the sums of each meter in primitive arrays
+ */
+public class RollupSeries {
+    /**
+     * bucketMinutes -> the length of a bucket in minutes (60 for hourly, 1440 for daily)
+     * firstBucket -> the index of the earliest bucket seen, counted in buckets since the epoch
+     * length -> the number of buckets between the first and the last seen bucket
+     * kitchen, laundry, ac -> the sums of each meter per bucket
+     * counts -> the number of records that fell into each bucket (0 marks a gap)
+     */
+    private final long bucketMinutes;
+    private long firstBucket;
+    private int length;
+    private double[] kitchen;
+    private double[] laundry;
+    private double[] ac;
+    private int[] counts;
+
+    public RollupSeries(long bucketMinutes) {
+        this.bucketMinutes = bucketMinutes;
+        this.length = 0;
+        this.kitchen = new double[16];
+        this.laundry = new double[16];
+        this.ac = new double[16];
+        this.counts = new int[16];
+    }
+
+    /**
+     * @message build
+     * @brief Rolls a whole collection of measurements up in one pass
+     * @param inputMeasurements The data to be rolled up
+     * @param bucketMinutes The length of a bucket in minutes
+     * @return the filled series
+     */
+    public static RollupSeries build(ArrayList<MeasurementRecord> inputMeasurements, long bucketMinutes) {
+        RollupSeries series = new RollupSeries(bucketMinutes);
+        for(MeasurementRecord record : inputMeasurements)
+            series.add(record);
+        return series;
+    }
+
+    /**
+     * @message add
+     * @brief Adds a single measurement to the bucket it belongs to
+     * @param record The measurement to add
+     */
+    public void add(MeasurementRecord record) {
+        long bucket = Math.floorDiv(record.getEpochMinute(), bucketMinutes);
+        int index = indexOf(bucket);
+
+        kitchen[index] += record.getSub_metering_1();
+        laundry[index] += record.getSub_metering_2();
+        ac[index] += record.getSub_metering_3();
+        counts[index]++;
+    }
+
+    /**
+     * @message indexOf
+     * @brief Finds the array slot of a bucket, growing or shifting the arrays when it lies outside the current range
+     * @param bucket The bucket counted since the epoch
+     * @return the array index of the bucket
+     */
+    private int indexOf(long bucket) {
+        if(length == 0) {
+            firstBucket = bucket;
+            length = 1;
+            return 0;
+        }
+
+        if(bucket < firstBucket) {
+            /* Out of order input, shift everything to the right (never happens on time ordered files) */
+            int shift = (int)(firstBucket - bucket);
+            ensureCapacity(length + shift);
+            System.arraycopy(kitchen, 0, kitchen, shift, length);
+            System.arraycopy(laundry, 0, laundry, shift, length);
+            System.arraycopy(ac, 0, ac, shift, length);
+            System.arraycopy(counts, 0, counts, shift, length);
+            Arrays.fill(kitchen, 0, shift, 0.0);
+            Arrays.fill(laundry, 0, shift, 0.0);
+            Arrays.fill(ac, 0, shift, 0.0);
+            Arrays.fill(counts, 0, shift, 0);
+            firstBucket = bucket;
+            length += shift;
+            return 0;
+        }
+
+        int index = (int)(bucket - firstBucket);
+        if(index >= length) {
+            ensureCapacity(index + 1);
+            length = index + 1;
+        }
+        return index;
+    }
+
+    /**
+     * @message ensureCapacity
+     * @brief Doubles the arrays until they can hold the requested number of buckets
+     * @param capacity The minimum number of buckets
+     */
+    private void ensureCapacity(int capacity) {
+        if(capacity <= counts.length)
+            return;
+
+        int newCapacity = counts.length;
+        while(newCapacity < capacity)
+            newCapacity *= 2;
+
+        kitchen = Arrays.copyOf(kitchen, newCapacity);
+        laundry = Arrays.copyOf(laundry, newCapacity);
+        ac = Arrays.copyOf(ac, newCapacity);
+        counts = Arrays.copyOf(counts, newCapacity);
+    }
+
+    /**
+     * @message getValue
+     * @brief Gets the sum of a meter in a bucket
+     * @param meterType The device (kitchen, laundry, ac)
+     * @param index The index of the bucket inside the series
+     * @return the sum, or NaN if no records fell into the bucket
+     */
+    public double getValue(String meterType, int index) {
+        if(counts[index] == 0)
+            return Double.NaN;
+
+        switch(meterType) {
+            case "kitchen":
+                return kitchen[index];
+            case "laundry":
+                return laundry[index];
+            case "ac":
+                return ac[index];
+        }
+        return Double.NaN;
+    }
+
+    public long getBucketMinutes() {
+        return this.bucketMinutes;
+    }
+    public long getFirstBucket() {
+        return this.firstBucket;
+    }
+    public int getLength() {
+        return this.length;
+    }
+    public int getCount(int index) {
+        return this.counts[index];
+    }
+}
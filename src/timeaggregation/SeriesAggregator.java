@@ -0,0 +1,180 @@
+package timeaggregation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Function;
+
+import datamodel.MeasurementRecord;
+import datamodel.SeriesResultModel;
+
+/**
+ * @class SeriesAggregator
+ * @brief Aggregates the meters of many households (series) per time unit in one job.
+ *          Rows are hash partitioned by series id, so every household is owned by a single worker thread,
+ *          and each worker sums into flat primitive arrays (one per time unit, indexed by its own households)
+ *          instead of keeping lists of records per household and time unit
+ */
+public class SeriesAggregator {
+    /**
+     * NUM_METERS -> kitchen, laundry, ac
+     *
+     * partitions -> the number of worker partitions
+     */
+    private static final int NUM_METERS = 3;
+
+    private final int partitions;
+
+    /**
+     * @class PartialSums
+     * @brief The sums of a worker partition
+     */
+    private static class PartialSums {
+        /**
+         * seriesIds -> the global series id of every local series
+         * unitNames -> the time units found by the worker, by local id
+         * sums -> the sums of every local time unit, NUM_METERS values per local series
+         * counts -> the readings of every local time unit, one per local series
+         */
+        int[] seriesIds;
+        final ArrayList<String> unitNames = new ArrayList<>();
+        final ArrayList<double[]> sums = new ArrayList<>();
+        final ArrayList<long[]> counts = new ArrayList<>();
+    }
+
+    public SeriesAggregator(int partitions) {
+        this.partitions = Math.max(1, partitions);
+    }
+
+    /**
+     * @message partitionOf
+     * @brief Hashes a series id to a worker partition, spreading consecutive ids
+     * @param seriesId The series id
+     * @return the partition [0, partitions)
+     */
+    private int partitionOf(int seriesId) {
+        int hash = seriesId * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    /**
+     * @message aggregate
+     * @brief Aggregates every series per time unit, the partitions in parallel
+     * @param inputMeasurements The data to be aggregated
+     * @param seriesNames The name of every series, by series id
+     * @param timeUnitOf Finds the time unit of a record
+     * @param aggFunction The aggregate function (avg, sum)
+     * @param description a String with a textual description of the result
+     * @return the per series and estate wide aggregates, or null if a partition failed
+     */
+    public SeriesResultModel aggregate(ArrayList<MeasurementRecord> inputMeasurements, String[] seriesNames,
+            Function<MeasurementRecord, String> timeUnitOf, String aggFunction, String description) {
+        int size = inputMeasurements.size();
+
+        /* Group the row ids by partition (counting sort), the partition bounds are then the scan bounds */
+        int[] bounds = new int[partitions + 1];
+        int[] rowPartition = new int[size];
+        for(int i = 0; i < size; i++) {
+            rowPartition[i] = partitionOf(inputMeasurements.get(i).getSeriesId());
+            bounds[rowPartition[i] + 1]++;
+        }
+        for(int p = 0; p < partitions; p++)
+            bounds[p + 1] += bounds[p];
+        int[] rows = new int[size];
+        int[] next = Arrays.copyOf(bounds, partitions);
+        for(int i = 0; i < size; i++)
+            rows[next[rowPartition[i]]++] = i;
+
+        ArrayList<PartialSums> partials = PartitionExecutor.run(bounds,
+            (from, to) -> sumPartition(inputMeasurements, rows, seriesNames.length, timeUnitOf, from, to));
+        if(partials == null) {
+            System.out.println("There was an error while aggregating the series.");
+            return null;
+        }
+
+        /* Give the time units global ids, then copy every partial into the flat result arrays */
+        HashMap<String, Integer> unitIds = new HashMap<>();
+        ArrayList<String> unitNames = new ArrayList<>();
+        for(PartialSums partial : partials)
+            for(String unitName : partial.unitNames)
+                if(!unitIds.containsKey(unitName)) {
+                    unitIds.put(unitName, unitNames.size());
+                    unitNames.add(unitName);
+                }
+
+        int units = unitNames.size();
+        double[][] sums = new double[NUM_METERS][seriesNames.length * units];
+        long[] counts = new long[seriesNames.length * units];
+        for(PartialSums partial : partials)
+            for(int localUnit = 0; localUnit < partial.unitNames.size(); localUnit++) {
+                int unit = unitIds.get(partial.unitNames.get(localUnit));
+                double[] localSums = partial.sums.get(localUnit);
+                long[] localCounts = partial.counts.get(localUnit);
+                for(int local = 0; local < partial.seriesIds.length; local++) {
+                    int slot = partial.seriesIds[local] * units + unit;
+                    for(int meter = 0; meter < NUM_METERS; meter++)
+                        sums[meter][slot] += localSums[local * NUM_METERS + meter];
+                    counts[slot] += localCounts[local];
+                }
+            }
+
+        SeriesResultModel result = new SeriesResultModel(seriesNames, unitNames, sums, counts, aggFunction);
+        result.setDescription(description);
+        return result;
+    }
+
+    /**
+     * @message sumPartition
+     * @brief Sums the rows of a partition per local series and time unit
+     * @param inputMeasurements The data to be aggregated
+     * @param rows The row ids grouped by partition
+     * @param numSeries The number of series
+     * @param timeUnitOf Finds the time unit of a record
+     * @param from The first position in rows (included)
+     * @param to The last position in rows (excluded)
+     * @return the sums of the partition
+     */
+    private PartialSums sumPartition(ArrayList<MeasurementRecord> inputMeasurements, int[] rows, int numSeries,
+            Function<MeasurementRecord, String> timeUnitOf, int from, int to) {
+        PartialSums partial = new PartialSums();
+
+        /* Number the series owned by this partition */
+        int[] localIds = new int[numSeries];
+        Arrays.fill(localIds, -1);
+        int[] seriesIds = new int[Math.min(numSeries, Math.max(0, to - from))];
+        int numLocal = 0;
+        for(int r = from; r < to; r++) {
+            int seriesId = inputMeasurements.get(rows[r]).getSeriesId();
+            if(localIds[seriesId] == -1) {
+                localIds[seriesId] = numLocal;
+                seriesIds[numLocal++] = seriesId;
+            }
+        }
+        partial.seriesIds = Arrays.copyOf(seriesIds, numLocal);
+
+        HashMap<String, Integer> unitIds = new HashMap<>();
+        for(int r = from; r < to; r++) {
+            MeasurementRecord record = inputMeasurements.get(rows[r]);
+            String timeUnit = timeUnitOf.apply(record);
+            if(timeUnit == null)
+                continue;
+
+            Integer unit = unitIds.get(timeUnit);
+            if(unit == null) {
+                unit = partial.unitNames.size();
+                unitIds.put(timeUnit, unit);
+                partial.unitNames.add(timeUnit);
+                partial.sums.add(new double[numLocal * NUM_METERS]);
+                partial.counts.add(new long[numLocal]);
+            }
+
+            int local = localIds[record.getSeriesId()];
+            double[] sums = partial.sums.get(unit);
+            sums[local * NUM_METERS] += record.getSub_metering_1();
+            sums[local * NUM_METERS + 1] += record.getSub_metering_2();
+            sums[local * NUM_METERS + 2] += record.getSub_metering_3();
+            partial.counts.get(unit)[local]++;
+        }
+        return partial;
+    }
+}
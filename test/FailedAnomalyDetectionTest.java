@@ -0,0 +1,125 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import timeaggregation.AnomalyDetector;
+import datamodel.AnomalyListModel;
+import datamodel.DateModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+import datamodel.TimeModel;
+
+public class FailedAnomalyDetectionTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String outputFilename = "./Resources/TestOutput/___anomaly_test.md";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	int goodData = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+
+	private static MeasurementRecord record(int seriesId, int minute, double kitchen) {
+		DateModel date = new DateModel();
+		date.setDay("16");
+		date.setMonth("12");
+		date.setYear("2006");
+		TimeModel time = new TimeModel();
+		time.setHour("18");
+		time.setMinute(String.format("%02d", minute));
+
+		MeasurementRecord record = new MeasurementRecord();
+		record.setDate(date);
+		record.setTime(time);
+		record.setSub_metering_1(kitchen);
+		record.setSeriesId(seriesId);
+		return record;
+	}
+
+	@After
+	public void disableDetection() {
+		mainEngine.disableAnomalyDetection();
+		new File(outputFilename).delete();
+	}
+
+	@Test
+	public void aggregateTwiceWithoutDuplicates() {
+		assertEquals(mainEngine.enableAnomalyDetection("zscore", 1.5, 1000), 0);
+		IResult first = mainEngine.aggregateByTimeUnit(objCollection, "month", "avg", "first");
+		IResult second = mainEngine.aggregateByTimeUnit(objCollection, "season", "avg", "second");
+
+		long flagged = first.getAnomalies().getTotalFlagged();
+		assertTrue(flagged > 0);
+		assertEquals(second.getAnomalies().getTotalFlagged(), flagged);
+		assertEquals(mainEngine.getAnomalies().getTotalFlagged(), flagged);
+		/* The first result keeps its own anomalies */
+		assertEquals(first.getAnomalies().getTotalFlagged(), flagged);
+	}
+
+	@Test
+	public void noAnomaliesWithoutDetection() {
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "month", "avg", "plain");
+		assertEquals(result.getAnomalies(), null);
+		assertEquals(mainEngine.getAnomalies(), null);
+	}
+
+	@Test
+	public void followStuckRunsPerSeries() {
+		AnomalyDetector detector = new AnomalyDetector("zscore", 100, 10);
+		detector.setStuckRun(5);
+		/* Two households with interleaved records, each stuck at its own reading */
+		for(int minute = 0; minute < 5; minute++) {
+			detector.observe(record(1, minute, 1.0));
+			detector.observe(record(2, minute, 2.0));
+		}
+
+		AnomalyListModel anomalies = detector.getAnomalies();
+		assertEquals(anomalies.getTotalFlagged(), 2L);
+		for(int i = 0; i < anomalies.getSize(); i++) {
+			assertEquals(anomalies.getKind(i), AnomalyListModel.KIND_STUCK);
+			assertEquals(anomalies.getValue(i), (double)anomalies.getSeriesId(i), 0.0);
+		}
+	}
+
+	@Test
+	public void restartRunsGoingBackInTime() {
+		AnomalyDetector detector = new AnomalyDetector("zscore", 100, 10);
+		detector.setStuckRun(5);
+		for(int minute = 0; minute < 4; minute++)
+			detector.observe(record(1, minute, 1.0));
+		/* A record that does not move forward can not extend the run */
+		detector.observe(record(1, 2, 1.0));
+		assertEquals(detector.getAnomalies().getTotalFlagged(), 0L);
+
+		detector.reset();
+		for(int minute = 0; minute < 5; minute++)
+			detector.observe(record(1, minute, 1.0));
+		assertEquals(detector.getAnomalies().getTotalFlagged(), 1L);
+	}
+
+	@Test
+	public void reportAnomalies() throws IOException {
+		assertEquals(mainEngine.enableAnomalyDetection("mad", 1.5, 5), 0);
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "month", "avg", "anomalies");
+		assertTrue(result.getAnomalies().getSize() > 0);
+		assertEquals(mainEngine.reportResultInFile(result, "md", outputFilename), 0);
+
+		String report = new String(Files.readAllBytes(new File(outputFilename).toPath()), StandardCharsets.UTF_8);
+		assertTrue(report.contains("## Anomalies"));
+		assertTrue(report.contains(result.getAnomalies().getTotalFlagged() + " readings were flagged"));
+	}
+}
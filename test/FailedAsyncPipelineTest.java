@@ -0,0 +1,85 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.History;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedAsyncPipelineTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String outputFilename = "./Resources/TestOutput/___async_pipeline_test";
+	private static String historyFile = "./Resources/TestOutput/___async_pipeline_test.db";
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	private Engine mainEngine = factory.createMainEngine("MainEngine");
+	int goodData = mainEngine.loadData(inputFile, ";", true, 9, objCollection);
+
+	@After
+	public void deleteFiles() {
+		new File(outputFilename + ".txt").delete();
+		new File(outputFilename + "_sync.txt").delete();
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+		new File(historyFile + ".search").delete();
+	}
+
+	@Test
+	public void writeAsSyncCalls() throws IOException {
+		History history = new History(historyFile, 1, false);
+		int outcome = mainEngine.reportPipelineAsync(objCollection, "season", "avg", "Pipeline", "txt", outputFilename + ".txt", history).join();
+		assertEquals(outcome, 0);
+		assertEquals(history.getHistorySize(), 1);
+		history.close();
+
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "season", "avg", "Pipeline");
+		assertEquals(mainEngine.reportResultInFile(result, "txt", outputFilename + "_sync.txt"), 0);
+		assertArrayEquals(Files.readAllBytes(new File(outputFilename + ".txt").toPath()),
+			Files.readAllBytes(new File(outputFilename + "_sync.txt").toPath()));
+	}
+
+	@Test
+	public void runOnGivenExecutor() {
+		AtomicInteger tasks = new AtomicInteger();
+		Executor executor = task -> {
+			tasks.incrementAndGet();
+			new Thread(task).start();
+		};
+		mainEngine.setAsyncExecutor(executor);
+
+		IResult result = mainEngine.aggregateByTimeUnitAsync(objCollection, "month", "sum", "Async").join();
+		assertEquals(tasks.get(), 1);
+		assertEquals(result.getAggregateMeterKitchen(), mainEngine.aggregateByTimeUnit(objCollection, "month", "sum", "Async").getAggregateMeterKitchen());
+	}
+
+	@Test
+	public void stopAtFailedStep() {
+		History history = new History(historyFile, 1, false);
+		int outcome = mainEngine.reportPipelineAsync(objCollection, "year", "avg", "Pipeline", "txt", outputFilename + ".txt", history).join();
+		assertEquals(outcome, -1);
+		assertEquals(new File(outputFilename + ".txt").exists(), false);
+		assertEquals(history.getHistorySize(), 0);
+		history.close();
+	}
+
+	@Test
+	public void waitForReportsOnShutdown() {
+		mainEngine.reportPipelineAsync(objCollection, "dayofweek", "sum", "Pipeline", "txt", outputFilename + ".txt", null);
+		mainEngine.shutdownAsync();
+		assertEquals(new File(outputFilename + ".txt").exists(), true);
+	}
+}
@@ -0,0 +1,93 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+import datamodel.SummaryResultModel;
+import reporting.BinaryResultReader;
+
+public class FailedBinaryReportTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+	
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+	
+	private static String outputFilename = "./Resources/TestOutput/___binary_test.bin";
+	
+	int goodData = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+	
+	private IResult writeDetailed() {
+		new File(outputFilename).delete();
+		mainEngine.enableDetailedReports(true);
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "periodofday", "avg", "binary round trip");
+		assertEquals(mainEngine.reportResultInFile(result, "bin", outputFilename), 0);
+		return result;
+	}
+	
+	@Test
+	public void readBackDetailedResult() {
+		IResult result = writeDetailed();
+		SummaryResultModel read = new BinaryResultReader().read(outputFilename);
+		new File(outputFilename).delete();
+		
+		assertEquals(read.getDescription(), result.getDescription());
+		assertEquals(read.getAggregateMeterKitchen(), result.getAggregateMeterKitchen());
+		assertEquals(read.getAggregateMeterLaundry(), result.getAggregateMeterLaundry());
+		assertEquals(read.getAggregateMeterAC(), result.getAggregateMeterAC());
+		assertEquals(read.getDetailedResults().keySet(), result.getDetailedResults().keySet());
+		for(String timeUnit : result.getDetailedResults().keySet()) {
+			ArrayList<MeasurementRecord> expected = result.getDetailedResults().get(timeUnit);
+			ArrayList<MeasurementRecord> actual = read.getDetailedResults().get(timeUnit);
+			assertEquals(actual.size(), expected.size());
+			for(int i = 0; i < expected.size(); i++) {
+				assertEquals(actual.get(i).getEpochMinute(), expected.get(i).getEpochMinute());
+				assertEquals(actual.get(i).getSub_metering_3(), expected.get(i).getSub_metering_3(), 0.0);
+			}
+		}
+	}
+	
+	@Test
+	public void readTruncatedFile() throws IOException {
+		writeDetailed();
+		try(RandomAccessFile file = new RandomAccessFile(outputFilename, "rw")) {
+			file.setLength(file.length() - 10);
+		}
+		SummaryResultModel read = new BinaryResultReader().read(outputFilename);
+		new File(outputFilename).delete();
+		assertEquals(read, null);
+	}
+	
+	@Test
+	public void readCorruptedCount() throws IOException {
+		writeDetailed();
+		try(RandomAccessFile file = new RandomAccessFile(outputFilename, "rw")) {
+			/* The count of time units follows the magic, the version and the description */
+			file.seek(8);
+			int descriptionLength = file.readInt();
+			file.seek(12 + descriptionLength);
+			file.writeInt(Integer.MAX_VALUE - 1);
+		}
+		SummaryResultModel read = new BinaryResultReader().read(outputFilename);
+		new File(outputFilename).delete();
+		assertEquals(read, null);
+	}
+	
+	@Test
+	public void readWrongFile() {
+		assertEquals(new BinaryResultReader().read(inputFile), null);
+		assertEquals(new BinaryResultReader().read("^__randomfilethatisinvalid^"), null);
+	}
+}
@@ -0,0 +1,105 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+import datamodel.RoaringBitmapModel;
+
+public class FailedBitmapFilterTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String[] monthNames = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+
+	/* Ids that fill some containers densely (stored as bitmaps) and others sparsely (stored as arrays) */
+	private static RoaringBitmapModel bitmap(BitSet expected, long seed) {
+		Random random = new Random(seed);
+		RoaringBitmapModel bitmap = new RoaringBitmapModel();
+		for(int id = 0; id < 500000; id++)
+			if(random.nextInt(id < 200000 ? 2 : 100) == 0) {
+				bitmap.add(id);
+				expected.set(id);
+			}
+		return bitmap;
+	}
+
+	private static void assertSameIds(RoaringBitmapModel bitmap, BitSet expected) {
+		assertEquals(bitmap.getCardinality(), expected.cardinality());
+		int[] ids = bitmap.toArray();
+		assertEquals(ids.length, expected.cardinality());
+		int i = 0;
+		for(int id = expected.nextSetBit(0); id >= 0; id = expected.nextSetBit(id + 1))
+			assertEquals(ids[i++], id);
+	}
+
+	@Test
+	public void combineAsBitSets() {
+		BitSet first = new BitSet();
+		BitSet second = new BitSet();
+		RoaringBitmapModel firstBitmap = bitmap(first, 1);
+		RoaringBitmapModel secondBitmap = bitmap(second, 2);
+		assertSameIds(firstBitmap, first);
+
+		BitSet and = (BitSet)first.clone();
+		and.and(second);
+		assertSameIds(firstBitmap.and(secondBitmap), and);
+
+		BitSet or = (BitSet)first.clone();
+		or.or(second);
+		assertSameIds(firstBitmap.or(secondBitmap), or);
+
+		for(int id = 0; id < 500000; id += 997)
+			assertEquals(firstBitmap.contains(id), first.get(id));
+	}
+
+	@Test
+	public void aggregateMatchingRows() {
+		/* A reading every 37 minutes over 2007 */
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+		for(long minute = firstMinute; minute < firstMinute + 365 * EpochTimeModel.MINUTES_PER_DAY; minute += 37) {
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setSub_metering_1(1);
+			records.add(record);
+		}
+
+		/* Winter weekend evenings */
+		HashMap<String, Integer> expected = new HashMap<String, Integer>();
+		for(MeasurementRecord record : records) {
+			int month = EpochTimeModel.monthOf(record.getEpochMinute());
+			int hour = Integer.parseInt(record.getTime().getHour());
+			if((month == 12 || month <= 2) && EpochTimeModel.dayOfWeek(record.getEpochMinute()) >= 5 && hour >= 17 && hour < 21)
+				expected.merge(monthNames[month - 1], 1, Integer::sum);
+		}
+
+		IResult result = mainEngine.aggregateByFilter(records, "season=WINTER;dayofweek=SAT,SUN;periodofday=EVENING", "month", "sum", "filter");
+		assertEquals(result.getDetailedResults().size(), 3);
+		for(String month : expected.keySet())
+			assertEquals(result.getDetailedResults().get(month).size(), (int)expected.get(month));
+	}
+
+	@Test
+	public void rejectWrongFilter() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		MeasurementRecord record = new MeasurementRecord();
+		record.setDate(EpochTimeModel.createDateModel(EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0)));
+		record.setTime(EpochTimeModel.createTimeModel(EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0)));
+		records.add(record);
+
+		assertEquals(mainEngine.aggregateByFilter(records, "season=MONSOON", "month", "sum", "filter"), null);
+		assertEquals(mainEngine.aggregateByFilter(records, "weather=RAIN", "month", "sum", "filter"), null);
+		assertEquals(mainEngine.aggregateByFilter(records, "season", "month", "sum", "filter"), null);
+	}
+}
@@ -0,0 +1,92 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedBucketSchemeTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String schemeFile = "./Resources/BucketSchemes/schemes.txt";
+	private static String wrongSchemeFile = "./Resources/TestOutput/___bucket_scheme_test.txt";
+
+	/* A kitchen reading of 1 at every minute of the week starting Monday 01/01/2007 */
+	private static ArrayList<MeasurementRecord> week() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+		for(long minute = firstMinute; minute < firstMinute + EpochTimeModel.MINUTES_PER_WEEK; minute++) {
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setSub_metering_1(1);
+			records.add(record);
+		}
+		return records;
+	}
+
+	@After
+	public void deleteSchemeFile() {
+		new File(wrongSchemeFile).delete();
+	}
+
+	@Test
+	public void sumByTariffWindow() {
+		assertEquals(mainEngine.loadBucketSchemes(schemeFile), 3);
+		IResult result = mainEngine.aggregateByTimeUnit(week(), "tariff", "sum", "tariff");
+		assertEquals(result.getDetailedResults().size(), 3);
+		/* Weekdays 17:00-21:00 */
+		assertEquals(result.getDetailedResults().get("PEAK").size(), 5 * 4 * 60);
+		/* Weekdays 07:00-17:00 and weekends 09:00-21:00 */
+		assertEquals(result.getDetailedResults().get("SHOULDER").size(), 5 * 10 * 60 + 2 * 12 * 60);
+		assertEquals(result.getDetailedResults().get("OFFPEAK").size(), 5 * 10 * 60 + 2 * 12 * 60);
+	}
+
+	@Test
+	public void sumBySlotsAndMonths() {
+		assertEquals(mainEngine.loadBucketSchemes(schemeFile), 3);
+		IResult slots = mainEngine.aggregateByTimeUnit(week(), "quarterhour", "sum", "slots");
+		assertEquals(slots.getDetailedResults().size(), 96);
+		assertEquals(slots.getDetailedResults().get("00:00").size(), 7 * 15);
+		assertEquals(slots.getDetailedResults().get("23:45").size(), 7 * 15);
+
+		IResult seasons = mainEngine.aggregateByTimeUnit(week(), "heatingseason", "sum", "seasons");
+		assertEquals(seasons.getDetailedResults().size(), 1);
+		assertEquals(seasons.getAggregateMeterKitchen().get("HEATING"), (double)EpochTimeModel.MINUTES_PER_WEEK, 0.0);
+	}
+
+	@Test
+	public void rejectWrongFile() throws IOException {
+		try(PrintWriter out = new PrintWriter(wrongSchemeFile)) {
+			out.println("scheme weekend");
+			out.println("bucket WEEKEND days=SAT-XYZ");
+		}
+		assertEquals(mainEngine.loadBucketSchemes(wrongSchemeFile), -1);
+		assertEquals(mainEngine.aggregateByTimeUnit(week(), "weekend", "sum", "weekend"), null);
+	}
+
+	@Test
+	public void keepBuiltInTimeUnits() throws IOException {
+		/* The whole file is refused, so the scheme before the clashing one is not registered either */
+		try(PrintWriter out = new PrintWriter(wrongSchemeFile)) {
+			out.println("scheme nights");
+			out.println("bucket NIGHT hours=23:00-07:00");
+			out.println("scheme month");
+			out.println("bucket ALL");
+		}
+		assertEquals(mainEngine.loadBucketSchemes(wrongSchemeFile), -1);
+		assertEquals(mainEngine.aggregateByTimeUnit(week(), "nights", "sum", "nights"), null);
+		assertEquals(mainEngine.aggregateByTimeUnit(week(), "month", "sum", "month").getAggregateMeterKitchen().get("JAN"), (double)EpochTimeModel.MINUTES_PER_WEEK, 0.0);
+	}
+}
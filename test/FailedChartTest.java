@@ -0,0 +1,109 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import reporting.LttbDownsampler;
+import reporting.PreparedReport;
+import reporting.ReportWriter;
+import reporting.SvgChartRenderer;
+import datamodel.DateModel;
+import datamodel.MeasurementRecord;
+import datamodel.ResultModel;
+import datamodel.TimeModel;
+
+public class FailedChartTest {
+	private static String outputFilename = "./Resources/TestOutput/___chart_test.svg";
+	private static int numRecords = 600;
+
+	private static MeasurementRecord record(int minute, double kitchen) {
+		DateModel date = new DateModel();
+		date.setDay(String.format("%02d", 1 + minute / 1440));
+		date.setMonth("01");
+		date.setYear("2007");
+		TimeModel time = new TimeModel();
+		time.setHour(String.format("%02d", minute / 60 % 24));
+		time.setMinute(String.format("%02d", minute % 60));
+
+		MeasurementRecord record = new MeasurementRecord();
+		record.setDate(date);
+		record.setTime(time);
+		record.setSub_metering_1(kitchen);
+		return record;
+	}
+
+	/* The records alternate between two time units, as in a result grouped by period of day */
+	private static ResultModel result(boolean shuffled) {
+		ArrayList<ArrayList<MeasurementRecord>> units = new ArrayList<ArrayList<MeasurementRecord>>();
+		units.add(new ArrayList<MeasurementRecord>());
+		units.add(new ArrayList<MeasurementRecord>());
+		for(int minute = 0; minute < numRecords; minute++)
+			units.get(minute / 60 % 2).add(record(minute, Math.sin(minute / 10.0) * 10 + 10));
+
+		ResultModel result = new ResultModel();
+		result.setDescription("chart");
+		for(int unit = 0; unit < units.size(); unit++) {
+			if(shuffled)
+				Collections.shuffle(units.get(unit), new Random(3));
+			for(MeasurementRecord record : units.get(unit))
+				result.add("unit" + unit, record);
+		}
+		return result;
+	}
+
+	private static String timeChart(ResultModel result) throws IOException {
+		try(ReportWriter writer = new ReportWriter(outputFilename)) {
+			new SvgChartRenderer(50).writeTimeChart(new PreparedReport(result), writer);
+		}
+		String chart = new String(Files.readAllBytes(new File(outputFilename).toPath()), StandardCharsets.UTF_8);
+		new File(outputFilename).delete();
+		return chart;
+	}
+
+	@After
+	public void deleteChart() {
+		new File(outputFilename).delete();
+	}
+
+	@Test
+	public void keepEndsOfSeries() {
+		LttbDownsampler downsampler = new LttbDownsampler(10, 1000);
+		for(int i = 0; i < 1000; i++)
+			downsampler.add(i, i % 7);
+		assertEquals(downsampler.getSize(), 10);
+		assertEquals(downsampler.getX(0), 0.0, 0.0);
+		assertEquals(downsampler.getX(9), 999.0, 0.0);
+		for(int i = 1; i < downsampler.getSize(); i++)
+			assertTrue(downsampler.getX(i - 1) < downsampler.getX(i));
+	}
+
+	@Test
+	public void keepShortSeriesWhole() {
+		LttbDownsampler downsampler = new LttbDownsampler(10, 5);
+		for(int i = 0; i < 5; i++)
+			downsampler.add(i, i);
+		assertEquals(downsampler.getSize(), 5);
+	}
+
+	@Test
+	public void downsampleTimeChart() throws IOException {
+		String chart = timeChart(result(false));
+		assertTrue(chart.contains("(50 of " + numRecords + " points)"));
+		assertTrue(chart.contains("2007-01-01 00:00"));
+	}
+
+	@Test
+	public void drawUnorderedRecordsTheSame() throws IOException {
+		assertEquals(timeChart(result(true)), timeChart(result(false)));
+	}
+}
@@ -0,0 +1,95 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.CoMomentModel;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedCorrelationTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	/* The laundry follows the kitchen and the ac mirrors it, over January and February 2007 */
+	private static ArrayList<MeasurementRecord> records() {
+		Random random = new Random(13);
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+		for(long minute = firstMinute; minute < firstMinute + 59 * EpochTimeModel.MINUTES_PER_DAY; minute += 3) {
+			double kitchen = random.nextDouble() * 40;
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setSub_metering_1(kitchen);
+			record.setSub_metering_2(2 * kitchen + 1);
+			record.setSub_metering_3(40 - kitchen);
+			record.setVoltage(240);
+			records.add(record);
+		}
+		return records;
+	}
+
+	@Test
+	public void matchTwoPassMoments() {
+		Random random = new Random(17);
+		double[][] rows = new double[1000][];
+		CoMomentModel whole = new CoMomentModel(new String[] {"x", "y"});
+		CoMomentModel first = new CoMomentModel(new String[] {"x", "y"});
+		CoMomentModel second = new CoMomentModel(new String[] {"x", "y"});
+		for(int i = 0; i < rows.length; i++) {
+			double x = 1e6 + random.nextGaussian();
+			rows[i] = new double[] {x, x + random.nextGaussian()};
+			whole.add(rows[i]);
+			(i < 300 ? first : second).add(rows[i]);
+		}
+
+		double meanX = 0, meanY = 0;
+		for(double[] row : rows) {
+			meanX += row[0] / rows.length;
+			meanY += row[1] / rows.length;
+		}
+		double xy = 0, xx = 0, yy = 0;
+		for(double[] row : rows) {
+			xy += (row[0] - meanX) * (row[1] - meanY);
+			xx += (row[0] - meanX) * (row[0] - meanX);
+			yy += (row[1] - meanY) * (row[1] - meanY);
+		}
+
+		assertEquals(whole.getCovariance(0, 1), xy / (rows.length - 1), 1e-6);
+		assertEquals(whole.getCorrelation(0, 1), xy / Math.sqrt(xx * yy), 1e-6);
+
+		/* Merging the moments of two parts gives those of the whole */
+		first.merge(second);
+		assertEquals(first.getCount(), 1000L);
+		assertEquals(first.getMean(1), whole.getMean(1), 1e-6);
+		assertEquals(first.getCovariance(0, 1), whole.getCovariance(0, 1), 1e-6);
+	}
+
+	@Test
+	public void correlateByMonth() {
+		IResult result = mainEngine.aggregateCorrelation(records(), "month", "kitchen,laundry,ac,voltage", "correlation");
+		assertEquals(result.getCoMoments().size(), 2);
+		for(CoMomentModel moments : result.getCoMoments().values()) {
+			assertEquals(moments.getCorrelation(0, 1), 1.0, 1e-9);
+			assertEquals(moments.getCorrelation(0, 2), -1.0, 1e-9);
+			assertEquals(moments.getCovariance(0, 1), 2 * moments.getCovariance(0, 0), 1e-6);
+			/* A constant column has no correlation */
+			assertTrue(Double.isNaN(moments.getCorrelation(0, 3)));
+		}
+		assertEquals(result.getCoMoments().get("JAN").getCount(), 31L * 480);
+	}
+
+	@Test
+	public void rejectWrongColumns() {
+		assertEquals(mainEngine.aggregateCorrelation(records(), "month", "kitchen", "correlation"), null);
+		assertEquals(mainEngine.aggregateCorrelation(records(), "month", "kitchen,fridge", "correlation"), null);
+	}
+}
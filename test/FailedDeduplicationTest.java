@@ -0,0 +1,101 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import dataload.Deduplicator;
+import datamodel.EpochTimeModel;
+import datamodel.MeasurementRecord;
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+
+public class FailedDeduplicationTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Deduplicator deduplicator = new Deduplicator();
+	
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	
+	private static MeasurementRecord record(int seriesId, long epochMinute, double kitchen) {
+		MeasurementRecord record = new MeasurementRecord();
+		record.setDate(EpochTimeModel.createDateModel(epochMinute));
+		record.setTime(EpochTimeModel.createTimeModel(epochMinute));
+		record.setSeriesId(seriesId);
+		record.setSub_metering_1(kitchen);
+		return record;
+	}
+	
+	@Test
+	public void dropSortedDuplicates() {
+		/* A single time ordered series is checked against its previous row */
+		ArrayList<MeasurementRecord> objCollection = new ArrayList<MeasurementRecord>();
+		objCollection.add(record(0, 10, 1));
+		objCollection.add(record(0, 11, 2));
+		objCollection.add(record(0, 11, 3));
+		objCollection.add(record(0, 12, 4));
+		assertEquals(deduplicator.deduplicate(objCollection), 1);
+		assertEquals(objCollection.size(), 3);
+		assertEquals(objCollection.get(1).getSub_metering_1(), 2.0, 0.0);
+		assertEquals(objCollection.get(2).getSub_metering_1(), 4.0, 0.0);
+	}
+	
+	@Test
+	public void dropHashedDuplicates() {
+		/* Interleaved series go through the hash set */
+		ArrayList<MeasurementRecord> objCollection = new ArrayList<MeasurementRecord>();
+		objCollection.add(record(0, 10, 1));
+		objCollection.add(record(1, 10, 2));
+		objCollection.add(record(0, 11, 3));
+		objCollection.add(record(1, 10, 4));
+		objCollection.add(record(0, 10, 5));
+		assertEquals(deduplicator.deduplicate(objCollection), 2);
+		assertEquals(objCollection.size(), 3);
+		assertEquals(objCollection.get(0).getSub_metering_1(), 1.0, 0.0);
+		assertEquals(objCollection.get(1).getSub_metering_1(), 2.0, 0.0);
+		assertEquals(objCollection.get(2).getSub_metering_1(), 3.0, 0.0);
+	}
+	
+	@Test
+	public void sortedAndHashedAgree() {
+		ArrayList<MeasurementRecord> sorted = new ArrayList<MeasurementRecord>();
+		for(int i = 0; i < 1000; i++)
+			sorted.add(record(0, i / 3, i));
+		ArrayList<MeasurementRecord> shuffled = new ArrayList<MeasurementRecord>(sorted);
+		Collections.shuffle(shuffled, new Random(7));
+		
+		assertEquals(deduplicator.deduplicate(sorted), deduplicator.deduplicate(shuffled));
+		assertEquals(sorted.size(), 334);
+		assertEquals(shuffled.size(), 334);
+	}
+	
+	@Test
+	public void dropDuplicatesOfKeyZero() {
+		/* Series 0 at the epoch packs into key 0, the free slot marker of the hash set */
+		ArrayList<MeasurementRecord> objCollection = new ArrayList<MeasurementRecord>();
+		objCollection.add(record(0, 5, 1));
+		objCollection.add(record(0, 0, 2));
+		objCollection.add(record(0, 0, 3));
+		objCollection.add(record(0, 0, 4));
+		assertEquals(deduplicator.deduplicate(objCollection), 2);
+		assertEquals(objCollection.size(), 2);
+		assertEquals(objCollection.get(1).getSub_metering_1(), 2.0, 0.0);
+	}
+	
+	@Test
+	public void loadSameFileTwice() {
+		Engine mainEngine = factory.createMainEngine("MainEngine");
+		mainEngine.enableDeduplication(true);
+		ArrayList<MeasurementRecord> objCollection = new ArrayList<MeasurementRecord>();
+		int firstLoad = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+		int secondLoad = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+		/* Every row of the second load repeats one of the first */
+		assertEquals(secondLoad, firstLoad);
+		assertEquals(objCollection.size(), firstLoad);
+	}
+}
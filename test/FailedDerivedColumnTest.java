@@ -0,0 +1,93 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.DerivedColumnModel;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedDerivedColumnTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+
+	/* A reading every hour of January and February 2007 */
+	private static ArrayList<MeasurementRecord> records() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+		for(long minute = firstMinute; minute < firstMinute + 59 * EpochTimeModel.MINUTES_PER_DAY; minute += 60) {
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setGlobal_active_power(1.2 + (minute % 7) * 0.3);
+			record.setSub_metering_1(minute % 5);
+			record.setSub_metering_2(1);
+			record.setSub_metering_3(minute % 3 * 2);
+			records.add(record);
+		}
+		return records;
+	}
+
+	private static double unmetered(MeasurementRecord record) {
+		return record.getGlobal_active_power() * 1000 / 60 - record.getSub_metering_1() - record.getSub_metering_2() - record.getSub_metering_3();
+	}
+
+	@Test
+	public void aggregateNextToMeters() {
+		Engine mainEngine = factory.createMainEngine("MainEngine");
+		assertEquals(mainEngine.defineDerivedColumn(DerivedColumnModel.UNMETERED), 1);
+		/* A derived column may use the ones defined before it */
+		assertEquals(mainEngine.defineDerivedColumn("unmeteredkwh = unmetered / 1000 + 0.5"), 2);
+
+		ArrayList<MeasurementRecord> records = records();
+		HashMap<String, Double> sums = new HashMap<String, Double>();
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();
+		for(MeasurementRecord record : records) {
+			String month = EpochTimeModel.monthOf(record.getEpochMinute()) == 1 ? "JAN" : "FEB";
+			sums.merge(month, unmetered(record), Double::sum);
+			counts.merge(month, 1, Integer::sum);
+		}
+
+		IResult result = mainEngine.aggregateByTimeUnit(records, "month", "avg", "derived");
+		assertEquals(new ArrayList<String>(result.getAggregateDerived().keySet()), Arrays.asList("unmetered", "unmeteredkwh"));
+		for(String month : sums.keySet()) {
+			double average = sums.get(month) / counts.get(month);
+			assertEquals(result.getAggregateDerived().get("unmetered").get(month), average, 1e-9);
+			assertEquals(result.getAggregateDerived().get("unmeteredkwh").get(month), average / 1000 + 0.5, 1e-9);
+		}
+	}
+
+	@Test
+	public void aggregateFilteredRows() {
+		Engine mainEngine = factory.createMainEngine("MainEngine");
+		mainEngine.defineDerivedColumn("twice = 2 * kitchen");
+
+		ArrayList<MeasurementRecord> records = records();
+		double sum = 0;
+		for(MeasurementRecord record : records)
+			if(EpochTimeModel.monthOf(record.getEpochMinute()) == 2)
+				sum += 2 * record.getSub_metering_1();
+
+		IResult result = mainEngine.aggregateByFilter(records, "month=FEB", "month", "sum", "derived");
+		assertEquals(result.getAggregateDerived().get("twice").get("FEB"), sum, 1e-9);
+		assertEquals(result.getAggregateDerived().get("twice").get("JAN"), null);
+	}
+
+	@Test
+	public void rejectWrongDefinitions() {
+		Engine mainEngine = factory.createMainEngine("MainEngine");
+		assertEquals(mainEngine.defineDerivedColumn("kitchen = laundry + 1"), -1);
+		assertEquals(mainEngine.defineDerivedColumn("total = kitchen + fridge"), -1);
+		assertEquals(mainEngine.defineDerivedColumn("square = kitchen * kitchen"), -1);
+		assertEquals(mainEngine.defineDerivedColumn("half = kitchen / laundry"), -1);
+		assertEquals(mainEngine.defineDerivedColumn("= kitchen"), -1);
+		assertEquals(mainEngine.defineDerivedColumn("total = kitchen + laundry"), 1);
+		assertEquals(mainEngine.defineDerivedColumn("total = ac"), -1);
+	}
+}
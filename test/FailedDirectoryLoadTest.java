@@ -0,0 +1,86 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.LoadReportModel;
+import datamodel.MeasurementRecord;
+import datamodel.SeriesResultModel;
+
+public class FailedDirectoryLoadTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String directory = "./Resources/TestOutput/___directory_load_test";
+	private static String header = "Date;Time;Global_active_power;Global_reactive_power;Voltage;Global_intensity;Sub_metering_1;Sub_metering_2;Sub_metering_3";
+
+	/* A household reading every other minute of an hour, the kitchen reads the number of the household */
+	private static void writeHousehold(String name, int household) throws IOException {
+		try(PrintWriter out = new PrintWriter(new File(directory, name))) {
+			out.println(header);
+			for(int minute = household % 2; minute < 60; minute += 2)
+				out.println(String.format("01/01/2007;00:%02d:00;1.0;0.1;240.0;4.0;%d.000;0.000;0.000", minute, household));
+		}
+	}
+
+	@Before
+	public void writeFiles() throws IOException {
+		new File(directory).mkdirs();
+		writeHousehold("house1.txt", 1);
+		writeHousehold("house2.txt", 2);
+		try(PrintWriter out = new PrintWriter(new File(directory, "house3.txt"))) {
+			out.println(header.replace(';', ','));
+			out.println("01/01/2007,00:00:00,1.0,0.1,240.0,4.0,3.000,0.000,0.000");
+		}
+	}
+
+	@After
+	public void deleteFiles() {
+		File[] files = new File(directory).listFiles();
+		if(files != null)
+			for(File file : files)
+				file.delete();
+		new File(directory).delete();
+	}
+
+	@Test
+	public void mergeHouseholdsByTime() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		assertEquals(mainEngine.loadDirectory(directory, ";", true, 9, records), 60);
+		for(int i = 0; i < records.size(); i++) {
+			assertEquals(records.get(i).getTime().getMinute(), String.format("%02d", i));
+			/* Every row is tagged with the household of its file */
+			assertEquals(records.get(i).getSeriesId(), i % 2 == 0 ? 1 : 0);
+		}
+
+		LoadReportModel report = mainEngine.getLoadReport();
+		assertEquals(report.getFiles().size(), 3);
+		assertEquals(report.getLoadedFiles(), 2);
+		assertEquals((int)report.getRows().get(0), 30);
+		assertTrue(report.getErrors().get(2) != null);
+
+		/* The households are named after their files */
+		SeriesResultModel result = (SeriesResultModel)mainEngine.aggregateBySeries(records, "month", "avg", "households");
+		assertEquals(result.getSeriesResult("house2").getAggregateMeterKitchen().get("JAN"), 2.0, 0.0);
+	}
+
+	@Test
+	public void loadMatchingFiles() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		assertEquals(mainEngine.loadDirectory(directory + "/house[12].txt", ";", true, 9, records), 60);
+		assertEquals(mainEngine.getLoadReport().getFiles().size(), 2);
+
+		assertEquals(mainEngine.loadDirectory(directory + "/house*.csv", ";", true, 9, new ArrayList<MeasurementRecord>()), -1);
+		assertEquals(mainEngine.loadDirectory(directory + "/house3.txt", ";", true, 9, new ArrayList<MeasurementRecord>()), -1);
+	}
+}
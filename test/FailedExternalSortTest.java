@@ -0,0 +1,85 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import dataload.ExternalSorter;
+import datamodel.MeasurementRecord;
+
+public class FailedExternalSortTest {
+	private static String inputFile = "./Resources/TestOutput/___external_sort_test.txt";
+	private static String tempDirectory = "./Resources/TestOutput/___external_sort_runs";
+	private static int numRows = 5000;
+
+	/* Every minute appears twice, in shuffled order; the kitchen reading is the line of the row */
+	private static void writeInput() throws IOException {
+		int[] minutes = new int[numRows];
+		for(int i = 0; i < numRows; i++)
+			minutes[i] = i / 2;
+		Random random = new Random(11);
+		for(int i = numRows - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = minutes[i]; minutes[i] = minutes[j]; minutes[j] = swap;
+		}
+
+		try(PrintWriter out = new PrintWriter(inputFile)) {
+			out.println("Date;Time;Global_active_power;Global_reactive_power;Voltage;Global_intensity;Sub_metering_1;Sub_metering_2;Sub_metering_3");
+			for(int i = 0; i < numRows; i++)
+				out.println(String.format("%02d/01/2007;%02d:%02d:00;1.0;0.1;240.0;4.0;%d.000;0.000;1.000",
+					1 + minutes[i] / 1440, minutes[i] / 60 % 24, minutes[i] % 60, i));
+		}
+	}
+
+	private static ArrayList<MeasurementRecord> sort(int maxFanIn) throws IOException {
+		writeInput();
+		File runs = new File(tempDirectory);
+		runs.mkdirs();
+
+		/* No memory budget, so every run holds the fewest rows and the input makes several runs */
+		ExternalSorter sorter = new ExternalSorter(runs, 0);
+		sorter.setMaxFanIn(maxFanIn);
+		ArrayList<MeasurementRecord> sorted = new ArrayList<MeasurementRecord>();
+		assertEquals(sorter.sort(inputFile, ";", true, 9, sorted::add), numRows);
+		assertEquals(runs.list().length, 0);
+		return sorted;
+	}
+
+	@After
+	public void deleteFiles() {
+		new File(inputFile).delete();
+		new File(tempDirectory).delete();
+	}
+
+	@Test
+	public void mergeInSeveralPasses() throws IOException {
+		ArrayList<MeasurementRecord> sorted = sort(2);
+		assertEquals(sorted.size(), numRows);
+		for(int i = 1; i < sorted.size(); i++) {
+			long previous = sorted.get(i - 1).getEpochMinute();
+			long current = sorted.get(i).getEpochMinute();
+			assertTrue(previous <= current);
+			/* Rows of the same minute keep their file order */
+			if(previous == current)
+				assertTrue(sorted.get(i - 1).getSub_metering_1() < sorted.get(i).getSub_metering_1());
+		}
+	}
+
+	@Test
+	public void matchSinglePassMerge() throws IOException {
+		ArrayList<MeasurementRecord> multiPass = sort(2);
+		ArrayList<MeasurementRecord> singlePass = sort(64);
+		assertEquals(multiPass.size(), singlePass.size());
+		for(int i = 0; i < multiPass.size(); i++) {
+			assertEquals(multiPass.get(i).getEpochMinute(), singlePass.get(i).getEpochMinute());
+			assertEquals(multiPass.get(i).getSub_metering_1(), singlePass.get(i).getSub_metering_1(), 0.0);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package test;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.IMainEngine;
+import mainengine.MainEngineFactory;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedForecastTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static IMainEngine mainEngine = factory.createMainEngine("MainEngine");
+	
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+	
+	int goodData = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+	
+	/* Monday 01/01/2007 */
+	private static long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+	
+	/* A reading every minute: the kitchen follows the day of week, the laundry is constant */
+	private static ArrayList<MeasurementRecord> weeks(int fromDay, int toDay) {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		for(long minute = firstMinute + fromDay * EpochTimeModel.MINUTES_PER_DAY; minute < firstMinute + toDay * EpochTimeModel.MINUTES_PER_DAY; minute++) {
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setSub_metering_1(1 + EpochTimeModel.dayOfWeek(minute));
+			record.setSub_metering_2(2);
+			records.add(record);
+		}
+		return records;
+	}
+	
+	private static double dailyKitchen(int day) {
+		return EpochTimeModel.MINUTES_PER_DAY * (1 + EpochTimeModel.dayOfWeek(firstMinute + day * EpochTimeModel.MINUTES_PER_DAY));
+	}
+	
+	@Test
+	public void readWrongGranularity() {
+		IResult result = mainEngine.forecastByTimeUnit(objCollection, "yearly", 24, "Description");
+		assertEquals(result, null);
+	}
+	
+	@Test
+	public void readWrongHorizon() {
+		IResult result = mainEngine.forecastByTimeUnit(objCollection, "hourly", 0, "Description");
+		assertEquals(result, null);
+	}
+	
+	@Test
+	public void readTooShortHistory() {
+		/* The preview holds less than a week of measurements */
+		IResult result = mainEngine.forecastByTimeUnit(objCollection, "hourly", 24, "Description");
+		assertEquals(result, null);
+	}
+	
+	@Test
+	public void readNullDescription() {
+		IResult result = mainEngine.forecastByTimeUnit(objCollection, "daily", 7, null);
+		assertEquals(result, null);
+	}
+	
+	@Test
+	public void forecastWeeklyPattern() {
+		IResult result = mainEngine.forecastByTimeUnit(weeks(0, 28), "daily", 7, "Forecast");
+		assertEquals(result.getAggregateMeterKitchen().size(), 7);
+		for(int day = 28; day < 35; day++) {
+			String label = EpochTimeModel.format(firstMinute + day * EpochTimeModel.MINUTES_PER_DAY, false);
+			assertEquals(result.getAggregateMeterKitchen().get(label), dailyKitchen(day), 1e-6);
+			assertEquals(result.getAggregateMeterLaundry().get(label), 2.0 * EpochTimeModel.MINUTES_PER_DAY, 1e-6);
+		}
+	}
+	
+	@Test
+	public void updateAsSingleFit() {
+		IResult whole = mainEngine.forecastByTimeUnit(weeks(0, 28), "daily", 3, "Whole");
+		/* The last bucket of the first part is not complete, it is held back until the update completes it */
+		ArrayList<MeasurementRecord> first = weeks(0, 21);
+		first.addAll(weeks(21, 22).subList(0, 600));
+		mainEngine.forecastByTimeUnit(first, "daily", 3, "First");
+		ArrayList<MeasurementRecord> rest = weeks(21, 28);
+		IResult updated = mainEngine.updateForecast(new ArrayList<MeasurementRecord>(rest.subList(600, rest.size())), 3, "Updated");
+		
+		assertEquals(updated.getAggregateMeterKitchen().keySet(), whole.getAggregateMeterKitchen().keySet());
+		for(String label : whole.getAggregateMeterKitchen().keySet())
+			assertEquals(updated.getAggregateMeterKitchen().get(label), whole.getAggregateMeterKitchen().get(label), 1e-9);
+	}
+}
@@ -0,0 +1,77 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.HistogramModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedHistogramTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+	
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+	
+	int goodData = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+	
+	private static int distinctKeys(HistogramModel histogram) {
+		HashSet<String> keys = new HashSet<String>();
+		HashSet<String> labels = new HashSet<String>();
+		for(int slot = 0; slot < histogram.getSlotCount(); slot++) {
+			keys.add(histogram.getSlotKey(slot));
+			labels.add(histogram.getSlotLabel(slot));
+		}
+		assertEquals(labels.size(), keys.size());
+		return keys.size();
+	}
+	
+	@Test
+	public void narrowLinearBinsKeepDistinctLabels() {
+		HistogramModel histogram = new HistogramModel(1000, 2000, 1000, false);
+		assertEquals(distinctKeys(histogram), 1002);
+	}
+	
+	@Test
+	public void narrowLogBinsKeepDistinctLabels() {
+		HistogramModel histogram = new HistogramModel(0.001, 1000, 5000, true);
+		assertEquals(distinctKeys(histogram), 5002);
+	}
+	
+	@Test
+	public void skipMissingReadings() {
+		HistogramModel histogram = new HistogramModel(0, 10, 10, false);
+		histogram.add(Double.NaN);
+		histogram.add(2.5);
+		histogram.add(-1);
+		histogram.add(10);
+		assertEquals(histogram.getCount(0), 1L);
+		assertEquals(histogram.getCount(1), 0L);
+		assertEquals(histogram.getCount(3), 1L);
+		assertEquals(histogram.getCount(11), 1L);
+	}
+	
+	@Test
+	public void countEveryReading() {
+		/* Many more bins than distinct readings, none of their counts may overwrite another */
+		IResult result = mainEngine.aggregateHistogram(objCollection, "month", "linear", 0, 40, 1000, "histogram");
+		double counted = 0;
+		for(double count : result.getAggregateMeterKitchen().values())
+			counted += count;
+		
+		long readings = 0;
+		for(MeasurementRecord record : objCollection)
+			if(!Double.isNaN(record.getSub_metering_1()))
+				readings++;
+		assertEquals(counted, readings, 0.0);
+	}
+}
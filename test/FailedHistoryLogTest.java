@@ -0,0 +1,155 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import datamodel.HistoryLog;
+import datamodel.ReportMetadataModel;
+
+public class FailedHistoryLogTest {
+	private static String historyFile = "./Resources/TestOutput/___history_log_test.db";
+	
+	private static void deleteHistory() {
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+	}
+	
+	private static ArrayList<ReportMetadataModel> reports(int size) {
+		ArrayList<ReportMetadataModel> batch = new ArrayList<ReportMetadataModel>();
+		for(int i = 0; i < size; i++) {
+			ReportMetadataModel metadata = new ReportMetadataModel();
+			/* The old text database split its lines on ';' */
+			metadata.setDescription("report " + i + "; with; separators");
+			metadata.setExportType("md");
+			metadata.setOutputPath("./Resources/TestOutput/report" + i + ".md");
+			metadata.setCreatedAt(1000 + i);
+			batch.add(metadata);
+		}
+		return batch;
+	}
+	
+	private static void writeLog(int size) {
+		deleteHistory();
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), 0);
+		assertEquals(log.append(reports(size), true), 0L);
+		log.close();
+	}
+	
+	private static void assertReports(ArrayList<ReportMetadataModel> read, int size) {
+		ArrayList<ReportMetadataModel> expected = reports(size);
+		assertEquals(read.size(), size);
+		for(int i = 0; i < size; i++) {
+			assertEquals(read.get(i).getDescription(), expected.get(i).getDescription());
+			assertEquals(read.get(i).getExportType(), expected.get(i).getExportType());
+			assertEquals(read.get(i).getOutputPath(), expected.get(i).getOutputPath());
+			assertEquals(read.get(i).getCreatedAt(), expected.get(i).getCreatedAt());
+		}
+	}
+	
+	@Test
+	public void reopenKeepsReports() {
+		writeLog(5);
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), 0);
+		assertEquals(log.size(), 5L);
+		assertReports(log.read(0, 10), 5);
+		assertReports(log.read(0, 3), 3);
+		log.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void reopenWithTruncatedIndex() throws IOException {
+		writeLog(5);
+		/* A crash after the log was written but before the whole index was */
+		try(RandomAccessFile index = new RandomAccessFile(historyFile + ".idx", "rw")) {
+			index.setLength(12);
+		}
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), 0);
+		assertReports(log.read(0, 10), 5);
+		log.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void reopenWithTruncatedLog() throws IOException {
+		writeLog(5);
+		try(RandomAccessFile file = new RandomAccessFile(historyFile, "rw")) {
+			file.setLength(file.length() - 20);
+		}
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), -1);
+		deleteHistory();
+	}
+	
+	@Test
+	public void keepLogIdAcrossCompaction() {
+		writeLog(5);
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), 0);
+		long logId = log.getLogId();
+		assertTrue(logId != 0);
+		assertEquals(log.compact(position -> position != 2), 1);
+		assertEquals(log.getGeneration(), 1L);
+		assertEquals(log.getLogId(), logId);
+		log.close();
+		
+		/* A log created again starts over at generation 0, but with another id */
+		writeLog(5);
+		log = new HistoryLog(historyFile);
+		assertEquals(log.open(), 0);
+		assertEquals(log.getGeneration(), 0L);
+		assertTrue(log.getLogId() != logId);
+		log.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void openVersionOneLog() throws IOException {
+		writeLog(3);
+		/* Version 1 had no log id after the generation: drop it and let the index be rebuilt */
+		byte[] log = Files.readAllBytes(new File(historyFile).toPath());
+		ByteBuffer header = ByteBuffer.wrap(log);
+		ByteBuffer old = ByteBuffer.allocate(log.length - 8);
+		old.putInt(header.getInt()).putInt(1).putLong(header.getLong(8)).putLong(header.getLong(16) - 8).putLong(header.getLong(24));
+		old.put(log, 40, log.length - 40);
+		Files.write(new File(historyFile).toPath(), old.array());
+		new File(historyFile + ".idx").delete();
+		
+		HistoryLog history = new HistoryLog(historyFile);
+		assertEquals(history.open(), 0);
+		assertEquals(history.getLogId(), 0L);
+		assertReports(history.read(0, 10), 3);
+		
+		/* Compaction moves it to the current version, with an id */
+		assertEquals(history.compact(position -> true), 0);
+		long logId = history.getLogId();
+		assertTrue(logId != 0);
+		history.close();
+		assertEquals(history.open(), 0);
+		assertEquals(history.getLogId(), logId);
+		assertReports(history.read(0, 10), 3);
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void openTextDatabase() throws IOException {
+		deleteHistory();
+		Files.write(new File(historyFile).toPath(), "description;path;md\n".getBytes(StandardCharsets.UTF_8));
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), -1);
+		deleteHistory();
+	}
+}
@@ -0,0 +1,141 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import datamodel.History;
+import datamodel.ReportMetadataModel;
+
+public class FailedHistoryMaintenanceTest {
+	private static String historyFile = "./Resources/TestOutput/___history_maintenance_test.db";
+	private static String existingReport = "./Resources/TestOutput/___existing_report.md";
+	private static String missingReport = "./Resources/TestOutput/___missing_report.md";
+	
+	private static void deleteHistory() {
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+		new File(historyFile + ".search").delete();
+		new File(existingReport).delete();
+	}
+	
+	private static ReportMetadataModel report(String description, String outputPath) {
+		ReportMetadataModel metadata = new ReportMetadataModel();
+		metadata.setDescription(description);
+		metadata.setExportType("md");
+		metadata.setOutputPath(new File(outputPath).getAbsolutePath());
+		return metadata;
+	}
+	
+	private static History createHistory() throws IOException {
+		deleteHistory();
+		new File(existingReport).createNewFile();
+		new File(missingReport).delete();
+		
+		History history = new History(historyFile, 1, false);
+		ArrayList<ReportMetadataModel> batch = new ArrayList<ReportMetadataModel>();
+		batch.add(report("kept first", existingReport));
+		batch.add(report("removed", missingReport));
+		batch.add(report("kept second", existingReport));
+		history.saveReports(batch).join();
+		return history;
+	}
+	
+	@Test
+	public void compactMissingReports() throws IOException {
+		History history = createHistory();
+		/* A report is only removed once its file was missing on two runs in a row */
+		assertEquals(history.runMaintenance(), 0);
+		assertEquals(history.getHistorySize(), 3);
+		assertEquals(history.runMaintenance(), 1);
+		assertEquals(history.getHistorySize(), 2);
+		assertEquals(history.getGeneration(), 1L);
+		assertEquals(history.getReports(0, 10).get(0).getDescription(), "kept first");
+		assertEquals(history.getReports(0, 10).get(1).getDescription(), "kept second");
+		
+		/* Nothing left to remove */
+		assertEquals(history.runMaintenance(), 0);
+		history.close();
+		
+		history = new History(historyFile, 1, false);
+		assertEquals(history.getHistorySize(), 2);
+		assertEquals(history.getGeneration(), 1L);
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void keepReportFoundAgain() throws IOException {
+		History history = createHistory();
+		assertEquals(history.runMaintenance(), 0);
+		/* The file is back before the second run */
+		new File(missingReport).createNewFile();
+		assertEquals(history.runMaintenance(), 0);
+		new File(missingReport).delete();
+		assertEquals(history.runMaintenance(), 0);
+		assertEquals(history.getHistorySize(), 3);
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void findFilesOfOlderPaths() {
+		String workingDirectory = System.getProperty("user.dir");
+		ReportMetadataModel metadata = new ReportMetadataModel();
+		
+		/* Older versions joined the working directory and the given path with a '\\', even an absolute one */
+		metadata.setOutputPath(workingDirectory + "\\" + new File(existingReport).getAbsolutePath());
+		assertEquals(metadata.getOutputFile(), new File(existingReport).getAbsoluteFile());
+		metadata.setOutputPath(workingDirectory + "\\Resources/TestOutput/report.md");
+		assertEquals(metadata.getOutputFile(), new File(workingDirectory, "Resources/TestOutput/report.md"));
+		metadata.setOutputPath(workingDirectory + "\\C:\\reports\\a.html");
+		assertEquals(metadata.getOutputFile(), new File("C:\\reports\\a.html"));
+		
+		metadata.setOutputPath(existingReport);
+		metadata.correctOutputPath();
+		assertEquals(metadata.getOutputFile(), new File(existingReport).getAbsoluteFile());
+	}
+	
+	@Test
+	public void rejectStaleMarks() throws IOException {
+		History history = createHistory();
+		long generation = history.getGeneration();
+		assertEquals(history.runMaintenance(), 0);
+		assertEquals(history.runMaintenance(), 1);
+		
+		/* Positions read before the compaction are other reports now */
+		assertEquals(history.markMissing(generation, new int[]{0}), -1);
+		assertEquals(history.compact(), 0);
+		assertEquals(history.getHistorySize(), 2);
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void ignoreSearchIndexOfOldGeneration() throws IOException {
+		History history = createHistory();
+		history.searchReports("kept", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+		history.close();
+		File oldIndex = new File(historyFile + ".search.old");
+		Files.copy(new File(historyFile + ".search").toPath(), oldIndex.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		
+		history = new History(historyFile, 1, false);
+		assertEquals(history.runMaintenance(), 0);
+		assertEquals(history.runMaintenance(), 1);
+		history.close();
+		
+		/* As if a crash left the index of the old log behind */
+		Files.move(oldIndex.toPath(), new File(historyFile + ".search").toPath(), StandardCopyOption.REPLACE_EXISTING);
+		history = new History(historyFile, 1, false);
+		assertArrayEquals(history.searchReports("kept", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{1, 0});
+		assertArrayEquals(history.searchReports("removed", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{});
+		history.close();
+		deleteHistory();
+	}
+}
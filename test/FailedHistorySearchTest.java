@@ -0,0 +1,104 @@
+package test;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import datamodel.History;
+import datamodel.ReportMetadataModel;
+
+public class FailedHistorySearchTest {
+	private static String historyFile = "./Resources/TestOutput/___history_search_test.db";
+	
+	private static void deleteHistory() {
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+		new File(historyFile + ".search").delete();
+	}
+	
+	private static ReportMetadataModel report(String description, String exportType, String outputPath, long createdAt) {
+		ReportMetadataModel metadata = new ReportMetadataModel();
+		metadata.setDescription(description);
+		metadata.setExportType(exportType);
+		metadata.setOutputPath(outputPath);
+		metadata.setCreatedAt(createdAt);
+		return metadata;
+	}
+	
+	private static History createHistory() {
+		deleteHistory();
+		History history = new History(historyFile, 1, false);
+		ArrayList<ReportMetadataModel> batch = new ArrayList<ReportMetadataModel>();
+		batch.add(report("Winter kitchen peaks", "html", "out/2007/winter.html", 1000));
+		batch.add(report("Summer laundry", "md", "out/2007/summer.md", 2000));
+		batch.add(report("winter AC; by month", "md", "out/2008/winter.md", 3000));
+		batch.add(report("Spring kitchen", "txt", "out/2008/spring.txt", 4000));
+		history.saveReports(batch).join();
+		return history;
+	}
+	
+	@Test
+	public void searchByEachFilter() {
+		History history = createHistory();
+		assertArrayEquals(history.searchReports("WINTER", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{2, 0});
+		assertArrayEquals(history.searchReports("winter kitchen", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{0});
+		assertArrayEquals(history.searchReports(null, "md", null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{2, 1});
+		assertArrayEquals(history.searchReports(null, null, "out/2008/", Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{3, 2});
+		assertArrayEquals(history.searchReports(null, null, null, 2000, 4000, 10), new long[]{2, 1});
+		assertArrayEquals(history.searchReports("kitchen", "txt", "out/2008/", 0, 5000, 10), new long[]{3});
+		assertArrayEquals(history.searchReports(null, null, null, Long.MIN_VALUE, Long.MAX_VALUE, 1), new long[]{3});
+		assertArrayEquals(history.searchReports("autumn", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{});
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void reuseSavedIndex() {
+		History history = createHistory();
+		long[] before = history.searchReports("winter", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+		history.close();
+		assertEquals(new File(historyFile + ".search").isFile(), true);
+		
+		/* The reports saved after the index catch up on the next search */
+		history = new History(historyFile, 1, false);
+		assertArrayEquals(history.searchReports("winter", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), before);
+		history.saveReport(report("Winter laundry", "txt", "out/2009/winter.txt", 5000)).join();
+		assertArrayEquals(history.searchReports("winter", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{4, 2, 0});
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void ignoreIndexOfRecreatedLog() {
+		History history = createHistory();
+		history.searchReports("winter", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+		history.close();
+		
+		/* The log is deleted and created again, next to the index saved for the old one */
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+		history = new History(historyFile, 1, false);
+		ArrayList<ReportMetadataModel> batch = new ArrayList<ReportMetadataModel>();
+		for(int i = 0; i < 4; i++)
+			batch.add(report("Autumn report " + i, "txt", "out/2010/autumn" + i + ".txt", 6000 + i));
+		batch.add(report("Winter again", "txt", "out/2010/winter.txt", 7000));
+		history.saveReports(batch).join();
+		assertEquals(history.getGeneration(), 0L);
+		
+		assertArrayEquals(history.searchReports("winter", null, null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{4});
+		assertArrayEquals(history.searchReports(null, "md", null, Long.MIN_VALUE, Long.MAX_VALUE, 10), new long[]{});
+		history.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void closeWithoutSearch() {
+		History history = createHistory();
+		history.close();
+		assertEquals(new File(historyFile + ".search").exists(), false);
+		deleteHistory();
+	}
+}
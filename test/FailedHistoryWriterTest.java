@@ -0,0 +1,121 @@
+package test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import datamodel.HistoryLog;
+import datamodel.HistoryWriter;
+import datamodel.ReportMetadataModel;
+
+public class FailedHistoryWriterTest {
+	private static String historyFile = "./Resources/TestOutput/___history_writer_test.db";
+	
+	private static void deleteHistory() {
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+	}
+	
+	private static HistoryLog openLog() {
+		deleteHistory();
+		HistoryLog log = new HistoryLog(historyFile);
+		assertEquals(log.open(), 0);
+		return log;
+	}
+	
+	private static ArrayList<ReportMetadataModel> batch(String description, int size) {
+		ArrayList<ReportMetadataModel> batch = new ArrayList<ReportMetadataModel>();
+		for(int i = 0; i < size; i++) {
+			ReportMetadataModel metadata = new ReportMetadataModel();
+			metadata.setDescription(description + " " + i);
+			metadata.setExportType("txt");
+			metadata.setOutputPath(description + ".txt");
+			batch.add(metadata);
+		}
+		return batch;
+	}
+	
+	@Test
+	public void groupCommitKeepsBatchesTogether() throws Exception {
+		HistoryLog log = openLog();
+		HistoryWriter writer = new HistoryWriter(log, 5, false);
+		
+		ArrayList<CompletableFuture<Long>> futures = new ArrayList<CompletableFuture<Long>>();
+		for(int i = 0; i < 50; i++)
+			futures.add(writer.submit(batch("batch" + i, 2)));
+		
+		HashSet<Long> positions = new HashSet<Long>();
+		for(int i = 0; i < 50; i++) {
+			long position = futures.get(i).get();
+			positions.add(position);
+			ArrayList<ReportMetadataModel> read = log.read(position, 2);
+			assertEquals(read.get(0).getDescription(), "batch" + i + " 0");
+			assertEquals(read.get(1).getDescription(), "batch" + i + " 1");
+		}
+		assertEquals(positions.size(), 50);
+		assertEquals(log.size(), 100L);
+		
+		writer.close();
+		log.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void closeCommitsPending() throws Exception {
+		HistoryLog log = openLog();
+		HistoryWriter writer = new HistoryWriter(log, 1000, false);
+		CompletableFuture<Long> future = writer.submit(batch("pending", 3));
+		writer.close();
+		
+		assertEquals(future.isDone(), true);
+		assertEquals((long)future.get(), 0L);
+		assertEquals(log.size(), 3L);
+		log.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void submitAfterClose() {
+		HistoryLog log = openLog();
+		HistoryWriter writer = new HistoryWriter(log, 5, false);
+		writer.close();
+		
+		CompletableFuture<Long> future = writer.submit(batch("late", 1));
+		assertEquals(future.isCompletedExceptionally(), true);
+		assertEquals(log.size(), 0L);
+		log.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void submitToClosedLog() {
+		HistoryLog log = openLog();
+		HistoryWriter writer = new HistoryWriter(log, 5, false);
+		log.close();
+		
+		/* The append fails, the caller is told and the committer keeps running */
+		assertEquals(writer.submit(batch("lost", 1)).handle((position, error) -> error != null).join(), true);
+		assertEquals(writer.submit(batch("lost again", 1)).handle((position, error) -> error != null).join(), true);
+		writer.close();
+		deleteHistory();
+	}
+	
+	@Test
+	public void failingListener() throws Exception {
+		HistoryLog log = openLog();
+		HistoryWriter writer = new HistoryWriter(log, 5, false, (first, records) -> {
+			throw new IllegalStateException("listener failure");
+		});
+		
+		/* The records are committed even if the listener of the commit fails */
+		assertEquals((long)writer.submit(batch("first", 1)).get(), 0L);
+		assertEquals((long)writer.submit(batch("second", 1)).get(), 1L);
+		writer.close();
+		log.close();
+		deleteHistory();
+	}
+}
@@ -0,0 +1,78 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.IResult;
+import datamodel.LazyDatasetModel;
+import datamodel.MeasurementRecord;
+
+public class FailedLazyLoadTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String unorderedFile = "./Resources/TestOutput/___lazy_load_test.txt";
+	private static String delimeter = ";";
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	int goodData = mainEngine.loadData(inputFile, delimeter, true, 9, objCollection);
+
+	@After
+	public void deleteFile() {
+		new File(unorderedFile).delete();
+	}
+
+	@Test
+	public void matchLoadedData() {
+		String from = "16/12/2006 17:30";
+		String to = "16/12/2006 18:30";
+		LazyDatasetModel dataset = mainEngine.loadLazy(inputFile, delimeter, true, true);
+		assertEquals(dataset.getSize(), objCollection.size());
+		assertEquals(dataset.getParsedRows(), 0L);
+
+		IResult lazy = mainEngine.aggregateLazyRange(dataset, from, to, "sum", "lazy");
+		IResult loaded = mainEngine.aggregateByTimeRange(objCollection, from, to, "sum", "loaded");
+		assertEquals(lazy.getAggregateMeterKitchen().get(from + " - " + to), loaded.getAggregateMeterKitchen().get(from + " - " + to), 1e-9);
+		assertEquals(lazy.getAggregateMeterLaundry().get(from + " - " + to), loaded.getAggregateMeterLaundry().get(from + " - " + to), 1e-9);
+		assertEquals(lazy.getAggregateMeterAC().get(from + " - " + to), loaded.getAggregateMeterAC().get(from + " - " + to), 1e-9);
+
+		/* Only the rows of the range are parsed, and only once */
+		assertEquals(dataset.getParsedRows(), 60L);
+		mainEngine.aggregateLazyRange(dataset, from, to, "max", "lazy");
+		assertEquals(dataset.getParsedRows(), 60L);
+	}
+
+	@Test
+	public void skipMissingReadings() throws IOException {
+		try(PrintWriter out = new PrintWriter(unorderedFile)) {
+			out.println("Date;Time;Global_active_power;Global_reactive_power;Voltage;Global_intensity;Sub_metering_1;Sub_metering_2;Sub_metering_3");
+			out.println("01/01/2007;00:02:00;1.0;0.1;240.0;4.0;6.000;1.000;0.000");
+			out.println("01/01/2007;00:00:00;1.0;0.1;240.0;4.0;2.000;1.000;0.000");
+			out.println("01/01/2007;00:01:00;?;?;?;?;?;?;?");
+			out.println("01/01/2007;00:05:00;1.0;0.1;240.0;4.0;9.000;1.000;0.000");
+		}
+		LazyDatasetModel dataset = mainEngine.loadLazy(unorderedFile, delimeter, true, false);
+		assertEquals(dataset.isSorted(), false);
+
+		IResult result = mainEngine.aggregateLazyRange(dataset, "01/01/2007 00:00", "01/01/2007 00:05", "avg", "lazy");
+		assertEquals(result.getAggregateMeterKitchen().get("01/01/2007 00:00 - 01/01/2007 00:05"), 4.0, 0.0);
+		assertEquals(result.getAggregateMeterLaundry().get("01/01/2007 00:00 - 01/01/2007 00:05"), 1.0, 0.0);
+	}
+
+	@Test
+	public void rejectWrongInput() {
+		assertEquals(mainEngine.loadLazy("./Resources/TestInput/missing.txt", delimeter, true, true), null);
+		LazyDatasetModel dataset = mainEngine.loadLazy(inputFile, delimeter, true, true);
+		assertEquals(mainEngine.aggregateLazyRange(dataset, "2006-12-16", "2006-12-17", "sum", "lazy"), null);
+		assertEquals(mainEngine.aggregateLazyRange(dataset, "01/01/2008 00:00", "02/01/2008 00:00", "sum", "lazy"), null);
+	}
+}
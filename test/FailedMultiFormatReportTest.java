@@ -0,0 +1,81 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.History;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedMultiFormatReportTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String outputFilename = "./Resources/TestOutput/___multi_format_test";
+	private static String historyFile = "./Resources/TestOutput/___multi_format_test.db";
+	private static String[] reportTypes = {"html", "md", "txt", "csv", "jsonl", "bin"};
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	int goodData = mainEngine.loadData(inputFile, ";", true, 9, objCollection);
+
+	private static String[] filenames(String suffix) {
+		String[] filenames = new String[reportTypes.length];
+		for(int i = 0; i < reportTypes.length; i++)
+			filenames[i] = outputFilename + suffix + "." + reportTypes[i];
+		return filenames;
+	}
+
+	@After
+	public void deleteFiles() {
+		for(String suffix : new String[] {"", "_single"})
+			for(String filename : filenames(suffix))
+				new File(filename).delete();
+		new File(outputFilename + ".pdf").delete();
+		new File(historyFile).delete();
+		new File(historyFile + ".idx").delete();
+		new File(historyFile + ".search").delete();
+	}
+
+	@Test
+	public void writeAsSingleReports() throws IOException {
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "periodofday", "avg", "Formats");
+		History history = new History(historyFile, 1, false);
+		String[] together = filenames("");
+		assertEquals(mainEngine.reportResultInFormats(result, reportTypes, together, history), 0);
+		assertEquals(history.getHistorySize(), reportTypes.length);
+		history.close();
+
+		String[] single = filenames("_single");
+		for(int i = 0; i < reportTypes.length; i++) {
+			assertEquals(mainEngine.reportResultInFile(result, reportTypes[i], single[i]), 0);
+			assertArrayEquals(Files.readAllBytes(new File(together[i]).toPath()), Files.readAllBytes(new File(single[i]).toPath()));
+		}
+	}
+
+	@Test
+	public void keepWrittenReports() {
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "month", "sum", "Formats");
+		String[] filenames = {outputFilename + ".txt", outputFilename + ".pdf"};
+		assertEquals(mainEngine.reportResultInFormats(result, new String[] {"txt", "pdf"}, filenames, null), -1);
+		assertEquals(new File(filenames[0]).exists(), true);
+		assertEquals(new File(filenames[1]).exists(), false);
+	}
+
+	@Test
+	public void rejectSameFileTwice() {
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "month", "sum", "Formats");
+		String[] filenames = {outputFilename + ".txt", outputFilename + ".txt"};
+		assertEquals(mainEngine.reportResultInFormats(result, new String[] {"txt", "md"}, filenames, null), -1);
+		assertEquals(new File(filenames[0]).exists(), false);
+	}
+}
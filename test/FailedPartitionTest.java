@@ -0,0 +1,71 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import timeaggregation.PartitionExecutor;
+
+public class FailedPartitionTest {
+
+	@Test
+	public void collectPartialsInOrder() {
+		int[] bounds = PartitionExecutor.evenBounds(1000, 7);
+		assertEquals(bounds.length, 8);
+		assertEquals(bounds[7], 1000);
+
+		ArrayList<Integer> partials = PartitionExecutor.run(bounds, (from, to) -> {
+			int sum = 0;
+			for(int row = from; row < to; row++)
+				sum += row;
+			return sum;
+		});
+		int total = 0;
+		for(int p = 0; p < partials.size(); p++) {
+			assertEquals((int)partials.get(p), (bounds[p] + bounds[p + 1] - 1) * (bounds[p + 1] - bounds[p]) / 2);
+			total += partials.get(p);
+		}
+		assertEquals(total, 999 * 1000 / 2);
+	}
+
+	@Test
+	public void reuseThePool() {
+		Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+		for(int i = 0; i < 20; i++)
+			PartitionExecutor.run(PartitionExecutor.evenBounds(100, 4), (from, to) -> threads.add(Thread.currentThread().getName()));
+		assertTrue(threads.size() <= Runtime.getRuntime().availableProcessors());
+	}
+
+	@Test
+	public void failWithPartition() {
+		ArrayList<Integer> partials = PartitionExecutor.run(PartitionExecutor.evenBounds(100, 4), (from, to) -> {
+			if(from > 0)
+				throw new IllegalStateException("broken partition");
+			return to - from;
+		});
+		assertEquals(partials, null);
+	}
+
+	@Test
+	public void keepInterrupt() {
+		Thread.currentThread().interrupt();
+		/* The scans are still running when the caller waits for them */
+		ArrayList<Integer> partials = PartitionExecutor.run(PartitionExecutor.evenBounds(100, 4), (from, to) -> {
+			try {
+				Thread.sleep(5000);
+			}
+			catch(InterruptedException e) {
+				/* Cancelled */
+			}
+			return to - from;
+		});
+		assertEquals(partials, null);
+		/* Clears the flag as well, for the next tests */
+		assertTrue(Thread.interrupted());
+	}
+}
@@ -0,0 +1,71 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+import datamodel.TopKHeapModel;
+
+public class FailedPeakTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	int goodData = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+
+	@Test
+	public void keepHighestInOrder() {
+		Random random = new Random(7);
+		double[] readings = new double[1000];
+		TopKHeapModel heap = new TopKHeapModel(10, true);
+		for(int i = 0; i < readings.length; i++) {
+			readings[i] = random.nextDouble();
+			heap.offer(i, readings[i]);
+		}
+		Arrays.sort(readings);
+
+		int rank = 0;
+		for(int i : heap.orderByRank())
+			assertEquals(heap.getValue(i), readings[readings.length - 1 - rank++], 0.0);
+		assertEquals(rank, 10);
+	}
+
+	@Test
+	public void keepLowestInOrder() {
+		TopKHeapModel heap = new TopKHeapModel(3, false);
+		double[] readings = {5, 1, 4, 2, 3};
+		for(int i = 0; i < readings.length; i++)
+			heap.offer(i, readings[i]);
+
+		int[] order = heap.orderByRank();
+		assertEquals(heap.getValue(order[0]), 1.0, 0.0);
+		assertEquals(heap.getValue(order[1]), 2.0, 0.0);
+		assertEquals(heap.getValue(order[2]), 3.0, 0.0);
+	}
+
+	@Test
+	public void allowHugeK() {
+		/* The heaps only grow with the readings offered to them */
+		IResult result = mainEngine.findPeaks(objCollection, "month", "minute", "top", Integer.MAX_VALUE, "peaks");
+		assertEquals(result.getAggregateMeterKitchen().size(), objCollection.size());
+		assertEquals(result.getAggregateMeterAC().size(), objCollection.size());
+	}
+
+	@Test
+	public void rejectDaysWithinADay() {
+		IResult result = mainEngine.findPeaks(objCollection, "periodofday", "day", "top", 3, "peaks");
+		assertEquals(result, null);
+	}
+}
@@ -0,0 +1,79 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import reporting.ReportWriter;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedReportWriterTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String outputFilename = "./Resources/TestOutput/___report_writer_test";
+	private static String delimeter = ";";
+	private static boolean hasHeaderLine = true;
+	private static int numFields = 9;
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	int goodData = mainEngine.loadData(inputFile, delimeter, hasHeaderLine, numFields, objCollection);
+
+	private static String read(String filename) throws IOException {
+		return new String(Files.readAllBytes(new File(filename).toPath()), StandardCharsets.UTF_8);
+	}
+
+	@After
+	public void deleteReports() {
+		new File(outputFilename + ".txt").delete();
+		new File(outputFilename + ".html").delete();
+	}
+
+	@Test
+	public void writeAcrossChunks() throws IOException {
+		/* Characters of two, three and four bytes, so that some of them fall on the end of a chunk */
+		StringBuilder expected = new StringBuilder();
+		try(ReportWriter writer = new ReportWriter(outputFilename + ".txt")) {
+			for(int i = 0; expected.length() < 3 * ReportWriter.CHUNK_SIZE; i++) {
+				String text = "\u039a\u03bf\u03c5\u03b6\u03af\u03bd\u03b1 " + i + " \u20ac \ud83d\udd0c\n";
+				writer.write(text);
+				expected.append(text);
+			}
+		}
+		assertEquals(read(outputFilename + ".txt"), expected.toString());
+	}
+
+	@Test
+	public void refuseExistingFile() throws IOException {
+		new ReportWriter(outputFilename + ".txt").close();
+		boolean refused = false;
+		try {
+			new ReportWriter(outputFilename + ".txt").close();
+		}
+		catch(IOException e) {
+			refused = true;
+		}
+		assertTrue(refused);
+	}
+
+	@Test
+	public void declareUtf8InHtml() throws IOException {
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "month", "avg", "\u039a\u03b1\u03c4\u03b1\u03bd\u03ac\u03bb\u03c9\u03c3\u03b7 \u03b1\u03bd\u03ac \u03bc\u03ae\u03bd\u03b1");
+		assertEquals(mainEngine.reportResultInFile(result, "html", outputFilename + ".html"), 0);
+
+		String report = read(outputFilename + ".html");
+		assertTrue(report.contains("<meta charset=\"utf-8\">"));
+		assertTrue(report.contains("<h1>\u039a\u03b1\u03c4\u03b1\u03bd\u03ac\u03bb\u03c9\u03c3\u03b7 \u03b1\u03bd\u03ac \u03bc\u03ae\u03bd\u03b1</h1>"));
+	}
+}
@@ -0,0 +1,94 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import timeaggregation.Resampler;
+import datamodel.EpochTimeModel;
+import datamodel.GapStatisticsModel;
+import datamodel.MeasurementRecord;
+
+public class FailedResampleTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+
+	private static MeasurementRecord record(long minute) {
+		MeasurementRecord record = new MeasurementRecord();
+		record.setDate(EpochTimeModel.createDateModel(firstMinute + minute));
+		record.setTime(EpochTimeModel.createTimeModel(firstMinute + minute));
+		record.setSub_metering_1(minute);
+		return record;
+	}
+
+	/* Two hours of readings in shuffled order, with 00:30-00:59 missing */
+	private static ArrayList<MeasurementRecord> records() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		for(long minute = 0; minute < 120; minute++)
+			if(minute < 30 || minute >= 60)
+				records.add(record(minute));
+		Collections.shuffle(records, new Random(3));
+		return records;
+	}
+
+	@Test
+	public void interpolateGap() {
+		ArrayList<MeasurementRecord> slots = new ArrayList<MeasurementRecord>();
+		GapStatisticsModel statistics = mainEngine.resample(records(), 15, "interpolate", slots);
+		assertEquals(statistics.getSlots(), 8L);
+		assertEquals(statistics.getObservedSlots(), 6L);
+		assertEquals(statistics.getGaps(), 1L);
+		assertEquals(statistics.getMissingSlots(), 2L);
+		assertEquals(statistics.getFilledSlots(), 2L);
+		assertEquals(statistics.getLongestGapStart(), firstMinute + 30);
+
+		/* The readings grow by one per minute, so every slot holds the reading of its middle */
+		assertEquals(slots.size(), 8);
+		for(int slot = 0; slot < slots.size(); slot++) {
+			assertEquals(slots.get(slot).getEpochMinute(), firstMinute + 15 * slot);
+			assertEquals(slots.get(slot).getSub_metering_1(), 15 * slot + 7.0, 1e-9);
+		}
+	}
+
+	@Test
+	public void carryOrLeaveGap() {
+		ArrayList<MeasurementRecord> carried = new ArrayList<MeasurementRecord>();
+		mainEngine.resample(records(), 15, "carry", carried);
+		assertEquals(carried.size(), 8);
+		assertEquals(carried.get(2).getSub_metering_1(), 22.0, 0.0);
+		assertEquals(carried.get(3).getSub_metering_1(), 22.0, 0.0);
+
+		ArrayList<MeasurementRecord> left = new ArrayList<MeasurementRecord>();
+		GapStatisticsModel statistics = mainEngine.resample(records(), 15, "empty", left);
+		assertEquals(left.size(), 6);
+		assertEquals(statistics.getMissingSlots(), 2L);
+		assertEquals(statistics.getFilledSlots(), 0L);
+		assertEquals(left.get(2).getEpochMinute(), firstMinute + 60);
+	}
+
+	@Test
+	public void dropOutOfOrderReadings() {
+		ArrayList<MeasurementRecord> slots = new ArrayList<MeasurementRecord>();
+		Resampler resampler = new Resampler(10, "empty", slots::add);
+		resampler.accept(record(0));
+		resampler.accept(record(25));
+		resampler.accept(record(5));
+		GapStatisticsModel statistics = resampler.finish();
+		assertEquals(statistics.getOutOfOrder(), 1L);
+		assertEquals(slots.size(), 2);
+		assertEquals(slots.get(0).getSub_metering_1(), 0.0, 0.0);
+	}
+
+	@Test
+	public void rejectWrongPolicy() {
+		assertEquals(mainEngine.resample(records(), 15, "mean", new ArrayList<MeasurementRecord>()), null);
+		assertEquals(mainEngine.resample(records(), 0, "carry", new ArrayList<MeasurementRecord>()), null);
+	}
+}
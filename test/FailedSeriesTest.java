@@ -0,0 +1,69 @@
+package test;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.EpochTimeModel;
+import datamodel.MeasurementRecord;
+import datamodel.SeriesResultModel;
+import datamodel.SummaryResultModel;
+
+public class FailedSeriesTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	/* Three households reading every hour, the kitchen of household s reads s + 1; the last one only in January */
+	private static ArrayList<MeasurementRecord> records() {
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+		for(long minute = firstMinute; minute < firstMinute + 59 * EpochTimeModel.MINUTES_PER_DAY; minute += 60)
+			for(int series = 0; series < 3; series++) {
+				if(series == 2 && EpochTimeModel.monthOf(minute) == 2)
+					continue;
+				MeasurementRecord record = new MeasurementRecord();
+				record.setDate(EpochTimeModel.createDateModel(minute));
+				record.setTime(EpochTimeModel.createTimeModel(minute));
+				record.setSub_metering_1(series + 1);
+				record.setSeriesId(series);
+				records.add(record);
+			}
+		return records;
+	}
+
+	@Test
+	public void averageEverySeries() {
+		SeriesResultModel result = (SeriesResultModel)mainEngine.aggregateBySeries(records(), "month", "avg", "series");
+		assertEquals(result.getSeriesNames().length, 3);
+		int january = result.getUnitNames().indexOf("JAN");
+		int february = result.getUnitNames().indexOf("FEB");
+
+		for(int series = 0; series < 3; series++)
+			assertEquals(result.getSeriesValue(series, january, 0), series + 1.0, 1e-9);
+		assertTrue(Double.isNaN(result.getSeriesValue(2, february, 0)));
+
+		/* The estate weighs every reading the same */
+		assertEquals(result.getAggregateMeterKitchen().get("JAN"), 2.0, 1e-9);
+		assertEquals(result.getAggregateMeterKitchen().get("FEB"), 1.5, 1e-9);
+	}
+
+	@Test
+	public void reportOneSeries() {
+		SeriesResultModel result = (SeriesResultModel)mainEngine.aggregateBySeries(records(), "month", "sum", "series");
+		SummaryResultModel household = result.getSeriesResult("series 2");
+		assertEquals(household.getAggregateMeterKitchen().size(), 1);
+		assertEquals(household.getAggregateMeterKitchen().get("JAN"), 3.0 * 31 * 24, 1e-9);
+		assertEquals(result.getAggregateMeterKitchen().get("JAN"), 6.0 * 31 * 24, 1e-9);
+		assertEquals(result.getSeriesResult("series 3"), null);
+	}
+
+	@Test
+	public void rejectWrongFunction() {
+		assertEquals(mainEngine.aggregateBySeries(records(), "month", "max", "series"), null);
+		assertEquals(mainEngine.aggregateBySeries(records(), "year", "avg", "series"), null);
+	}
+}
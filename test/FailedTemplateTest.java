@@ -0,0 +1,103 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import reporting.ReportTemplate;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+
+public class FailedTemplateTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+
+	private static String inputFile = "./Resources/TestInput/household_preview.txt";
+	private static String templateDirectory = "./Resources/TestOutput/___template_test";
+	private static String outputFilename = "./Resources/TestOutput/___template_test.txt";
+	private static ArrayList<MeasurementRecord>objCollection = new ArrayList<MeasurementRecord>();
+
+	private Engine mainEngine = factory.createMainEngine("MainEngine");
+	int goodData = mainEngine.loadData(inputFile, ";", true, 9, objCollection);
+
+	private static boolean refused(String text) {
+		try {
+			ReportTemplate.compile(text);
+		}
+		catch(IllegalArgumentException e) {
+			return true;
+		}
+		return false;
+	}
+
+	private static void writeTemplate(String text, long lastModified) throws IOException {
+		File template = new File(templateDirectory, "report.txt");
+		try(PrintWriter out = new PrintWriter(template)) {
+			out.print(text);
+		}
+		template.setLastModified(lastModified);
+	}
+
+	private String report(IResult result) throws IOException {
+		assertEquals(mainEngine.reportResultInFile(result, "txt", outputFilename), 0);
+		String report = new String(Files.readAllBytes(new File(outputFilename).toPath()), StandardCharsets.UTF_8);
+		new File(outputFilename).delete();
+		return report;
+	}
+
+	@After
+	public void deleteFiles() {
+		new File(outputFilename).delete();
+		new File(templateDirectory, "report.txt").delete();
+		new File(templateDirectory).delete();
+	}
+
+	@Test
+	public void refuseWrongTemplates() {
+		assertEquals(refused("{{description}} {{#kitchen}}{{key}}: {{value}}{{/kitchen}}"), false);
+		assertEquals(refused("{{price}}"), true);
+		assertEquals(refused("{{key}}"), true);
+		assertEquals(refused("{{#records}}{{date}}{{/records}}"), true);
+		assertEquals(refused("{{#kitchen}}{{key}}"), true);
+		assertEquals(refused("{{#kitchen}}{{/laundry}}"), true);
+		assertEquals(refused("{{description"), true);
+	}
+
+	@Test
+	public void useTemplateDirectory() throws IOException {
+		new File(templateDirectory).mkdirs();
+		long lastModified = System.currentTimeMillis() / 1000 * 1000;
+		writeTemplate("{{description}}\n{{#kitchen}}{{key}}\n{{/kitchen}}", lastModified);
+		assertEquals(mainEngine.setReportTemplates(templateDirectory), 0);
+
+		IResult result = mainEngine.aggregateByTimeUnit(objCollection, "month", "avg", "Kitchen by month");
+		assertEquals(report(result), "Kitchen by month\nDEC\n");
+
+		/* A changed file is compiled again */
+		writeTemplate("[{{description}}]", lastModified + 2000);
+		assertEquals(report(result), "[Kitchen by month]");
+
+		/* A wrong template writes no report */
+		writeTemplate("{{#kitchen}}", lastModified + 4000);
+		assertEquals(mainEngine.reportResultInFile(result, "txt", outputFilename), -1);
+		assertEquals(new File(outputFilename).exists(), false);
+
+		/* Back to the bundled templates */
+		assertEquals(mainEngine.setReportTemplates(null), 0);
+		assertTrue(report(result).startsWith("Kitchen by month\n======"));
+	}
+
+	@Test
+	public void rejectMissingDirectory() {
+		assertEquals(mainEngine.setReportTemplates(templateDirectory + "/missing"), -1);
+	}
+}
@@ -0,0 +1,106 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import mainengine.Engine;
+import mainengine.MainEngineFactory;
+import datamodel.EpochTimeModel;
+import datamodel.IResult;
+import datamodel.MeasurementRecord;
+import datamodel.TimeIndexModel;
+
+public class FailedTimeRangeTest {
+	private static MainEngineFactory factory = new MainEngineFactory();
+	private static Engine mainEngine = factory.createMainEngine("MainEngine");
+
+	private static long firstMinute = EpochTimeModel.toEpochMinute(2007, 1, 1, 0, 0);
+	private static int numRecords = 5000;
+
+	/* A reading every minute in shuffled order, with whole kitchen readings so that sums are exact */
+	private static ArrayList<MeasurementRecord> shuffledRecords() {
+		Random random = new Random(5);
+		ArrayList<MeasurementRecord> records = new ArrayList<MeasurementRecord>();
+		for(long minute = firstMinute; minute < firstMinute + numRecords; minute++) {
+			MeasurementRecord record = new MeasurementRecord();
+			record.setDate(EpochTimeModel.createDateModel(minute));
+			record.setTime(EpochTimeModel.createTimeModel(minute));
+			record.setSub_metering_1(random.nextInt(100));
+			records.add(record);
+		}
+		Collections.shuffle(records, random);
+		return records;
+	}
+
+	@Test
+	public void summarizeAsAScan() {
+		ArrayList<MeasurementRecord> records = shuffledRecords();
+		TimeIndexModel index = new TimeIndexModel(records, 64);
+		Random random = new Random(9);
+		for(int query = 0; query < 200; query++) {
+			long from = firstMinute - 10 + random.nextInt(numRecords + 20);
+			long to = from + random.nextInt(1000);
+
+			long count = 0;
+			double sum = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for(MeasurementRecord record : records)
+				if(record.getEpochMinute() >= from && record.getEpochMinute() < to) {
+					count++;
+					sum += record.getSub_metering_1();
+					min = Math.min(min, record.getSub_metering_1());
+					max = Math.max(max, record.getSub_metering_1());
+				}
+
+			TimeIndexModel.RangeSummary summary = index.summarize(from, to);
+			assertEquals(summary.count, count);
+			assertEquals(summary.sum[0], sum, 0.0);
+			assertEquals(summary.min[0], min, 0.0);
+			assertEquals(summary.max[0], max, 0.0);
+		}
+	}
+
+	@Test
+	public void aggregateRange() {
+		ArrayList<MeasurementRecord> records = shuffledRecords();
+		/* 01/01/2007 01:00 up to 02:00 */
+		double sum = 0;
+		for(MeasurementRecord record : records)
+			if(record.getEpochMinute() >= firstMinute + 60 && record.getEpochMinute() < firstMinute + 120)
+				sum += record.getSub_metering_1();
+
+		IResult result = mainEngine.aggregateByTimeRange(records, "01/01/2007 01:00", "01/01/2007 02:00", "avg", "range");
+		assertEquals(result.getAggregateMeterKitchen().get("01/01/2007 01:00 - 01/01/2007 02:00"), sum / 60, 1e-9);
+	}
+
+	@Test
+	public void seeAddedRecords() {
+		ArrayList<MeasurementRecord> records = shuffledRecords();
+		String from = "01/01/2007 00:00";
+		String to = "10/01/2007 00:00";
+		IResult before = mainEngine.aggregateByTimeRange(records, from, to, "max", "range");
+
+		MeasurementRecord record = new MeasurementRecord();
+		record.setDate(EpochTimeModel.createDateModel(firstMinute + 7));
+		record.setTime(EpochTimeModel.createTimeModel(firstMinute + 7));
+		record.setSub_metering_1(1000);
+		records.add(record);
+		IResult after = mainEngine.aggregateByTimeRange(records, from, to, "max", "range");
+
+		assertEquals(before.getAggregateMeterKitchen().get(from + " - " + to), 99.0, 0.0);
+		assertEquals(after.getAggregateMeterKitchen().get(from + " - " + to), 1000.0, 0.0);
+	}
+
+	@Test
+	public void rejectEmptyOrWrongRange() {
+		ArrayList<MeasurementRecord> records = shuffledRecords();
+		assertEquals(mainEngine.aggregateByTimeRange(records, "01/01/2008 00:00", "02/01/2008 00:00", "avg", "range"), null);
+		assertEquals(mainEngine.aggregateByTimeRange(records, "2007-01-01", "02/01/2007 00:00", "avg", "range"), null);
+		assertEquals(mainEngine.aggregateByTimeRange(records, "01/01/2007 00:00", "02/01/2007 00:00", "median", "range"), null);
+	}
+}